@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -68,6 +68,7 @@ public abstract class TType {
 	protected static final TType[] EMPTY_TYPE_ARRAY= new TType[0];
 
 	private TypeEnvironment fEnvironment;
+	private int fId= -1;
 	private String fBindingKey;
 	private int fModifiers;
 	private int fFlags;
@@ -139,6 +140,23 @@ public abstract class TType {
 		return fEnvironment;
 	}
 
+	/**
+	 * Returns the id of this type. Ids are dense within the type's environment, so that sets of
+	 * types can be represented as bit sets. Types of the same environment have the same id iff
+	 * they are {@link #equals(Object) equal}, even if the environment created distinct
+	 * instances for them, e.g. for parameterized types of different projects.
+	 *
+	 * @return the id of this type, between 0 and {@link TypeEnvironment#getTypeCount()} - 1
+	 */
+	public final int getId() {
+		int id= fId;
+		if (id < 0) {
+			id= fEnvironment.getTypeId(this);
+			fId= id;
+		}
+		return id;
+	}
+
 	/**
 	 * Returns the key of the binding from which this type
 	 * got constructed.
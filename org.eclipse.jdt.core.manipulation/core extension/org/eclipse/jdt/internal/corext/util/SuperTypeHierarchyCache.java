@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,42 +11,72 @@
 package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
+ * <p>
+ * Every type of a cached hierarchy is indexed, so that looking up the hierarchy of a type takes
+ * constant time and does not lock. A single Java element change listener invalidates only the
+ * hierarchies that contain types of changed compilation units or class files. Structural changes
+ * of the class path invalidate all hierarchies.
+ * </p>
+ * <p>
+ * Added types can change a hierarchy without changing any of its types, e.g. when they resolve a
+ * missing super type, in any package of any project on the class path. Every cached hierarchy is
+ * therefore also removed when JDT reports it as changed.
+ * </p>
  */
 // @see JDTUIHelperClasses
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private final ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private final Map<IType, MethodOverrideTester> fMethodOverrideTesters= new ConcurrentHashMap<>();
+		private volatile long fLastAccess;
+		private volatile boolean fDisposed;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
-			fTypeHierarchy.addTypeHierarchyChangedListener(this);
+			fTypes= hierarchy.getAllTypes();
 			markAsAccessed();
 		}
 
-		@Override
-		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
-			removeHierarchyEntryFromCache(this);
-		}
-
 		public ITypeHierarchy getTypeHierarchy() {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public MethodOverrideTester getMethodOverrideTester(IType type) {
+			return fMethodOverrideTesters.computeIfAbsent(type, t -> new MethodOverrideTester(t, fTypeHierarchy));
+		}
+
 		public void markAsAccessed() {
 			fLastAccess= System.currentTimeMillis();
 		}
@@ -55,13 +85,25 @@ public class SuperTypeHierarchyCache {
 			return fLastAccess;
 		}
 
-		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
-				fTypeHierarchy= null;
+		public boolean isValid() {
+			return !fDisposed && fTypeHierarchy.exists();
+		}
+
+		@Override
+		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			// called while JDT holds the lock of the hierarchy, the entry is removed on its next lookup
+			if (!fDisposed) {
+				fDisposed= true;
+				fgCacheInvalidations.incrementAndGet();
 			}
 		}
 
+		public void dispose() {
+			fDisposed= true;
+			fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			fMethodOverrideTesters.clear();
+		}
+
 		@Override
 		public String toString() {
 			return "Super hierarchy of: " + fTypeHierarchy.getType().getElementName(); //$NON-NLS-1$
@@ -69,14 +111,107 @@ public class SuperTypeHierarchyCache {
 
 	}
 
+	private static class HierarchyDeltaListener implements IElementChangedListener {
+
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			Set<ITypeRoot> changed= new HashSet<>();
+			if (processDelta(event.getDelta(), changed)) {
+				flushCache();
+			} else if (!changed.isEmpty()) {
+				removeHierarchiesOf(changed);
+			}
+		}
 
-	private static final int CACHE_SIZE= 8;
+		/**
+		 * Collects the type roots whose changes affect cached hierarchies.
+		 *
+		 * @param delta the Java element delta
+		 * @param changed the set to collect the changed type roots in
+		 * @return <code>true</code> if all hierarchies are affected
+		 */
+		private boolean processDelta(IJavaElementDelta delta, Set<ITypeRoot> changed) {
+			IJavaElement elem= delta.getElement();
+			int flags= delta.getFlags();
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<>(CACHE_SIZE);
+			boolean isChanged= delta.getKind() == IJavaElementDelta.CHANGED;
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+			switch (elem.getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					return processChildrenDelta(delta, changed);
+				case IJavaElement.JAVA_PROJECT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0)
+						return true;
+					return processChildrenDelta(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+					if (!isChanged || (flags & (IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_REORDER)) != 0)
+						return true;
+					return processChildrenDelta(delta, changed);
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (!isChanged)
+						return true;
+					return processChildrenDelta(delta, changed);
+				case IJavaElement.COMPILATION_UNIT:
+					if (!JavaModelUtil.isPrimary((ICompilationUnit) elem))
+						return false;
+					//$FALL-THROUGH$
+				case IJavaElement.CLASS_FILE:
+					// added types that affect a hierarchy are reported by the hierarchy itself
+					if (!isChanged || !isBodyChange(flags)) {
+						changed.add((ITypeRoot) elem);
+					}
+					return false;
+				default:
+					return false;
+			}
+		}
+
+		private boolean processChildrenDelta(IJavaElementDelta delta, Set<ITypeRoot> changed) {
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (processDelta(children[i], changed))
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Tells whether a type root change is a fine grained change that does not add or remove
+		 * any members, e.g. a change inside a method body.
+		 *
+		 * @param flags the delta flags
+		 * @return <code>true</code> if the change cannot affect a super type hierarchy
+		 */
+		private boolean isBodyChange(int flags) {
+			return (flags & IJavaElementDelta.F_FINE_GRAINED) != 0 && (flags & IJavaElementDelta.F_CHILDREN) == 0;
+		}
+	}
+
+	private static final int DEFAULT_CACHE_SIZE= 64;
+
+	private static final Object fgLock= new Object();
+
+	/** The cached hierarchies, guarded by {@link #fgLock} */
+	private static final Set<HierarchyCacheEntry> fgHierarchyCache= new LinkedHashSet<>();
+
+	/** The type roots of the types in the cached hierarchies, guarded by {@link #fgLock} */
+	private static final Map<ITypeRoot, Set<HierarchyCacheEntry>> fgTypeRootIndex= new HashMap<>();
+
+	/**
+	 * The cached hierarchies that contain a type. A type can be in several hierarchies, e.g. a
+	 * common super type. The sets are replaced, never modified, under {@link #fgLock}, so that they
+	 * can be read without locking.
+	 */
+	private static final Map<IType, Set<HierarchyCacheEntry>> fgTypeIndex= new ConcurrentHashMap<>();
+
+	private static IElementChangedListener fgDeltaListener;
+
+	private static volatile int fgCacheSize= DEFAULT_CACHE_SIZE;
+
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgCacheEvictions= new AtomicInteger();
+	private static final AtomicInteger fgCacheInvalidations= new AtomicInteger();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -94,32 +229,14 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
-		}
-		return test;
-	}
-
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		if (entry == null) {
+			ITypeHierarchy hierarchy= getTypeHierarchy(type);
+			entry= findEntryInCache(type);
+			if (entry == null) // hierarchy has been invalidated in the meantime
+				return new MethodOverrideTester(type, hierarchy);
 		}
+		return entry.getMethodOverrideTester(type);
 	}
 
 	/**
@@ -135,48 +252,71 @@ public class SuperTypeHierarchyCache {
 	 * @throws JavaModelException if a problem occurs
 	 */
 	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
-		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
-		if (hierarchy == null) {
-			fgCacheMisses++;
-			hierarchy= type.newSupertypeHierarchy(progressMonitor);
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		if (entry == null) {
+			fgCacheMisses.incrementAndGet();
+			ITypeHierarchy hierarchy= type.newSupertypeHierarchy(progressMonitor);
 			addTypeHierarchyToCache(hierarchy);
-		} else {
-			fgCacheHits++;
+			return hierarchy;
 		}
-		return hierarchy;
+		fgCacheHits.incrementAndGet();
+		return entry.getTypeHierarchy();
 	}
 
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
-		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+		synchronized (fgLock) {
+			if (fgDeltaListener == null) {
+				fgDeltaListener= new HierarchyDeltaListener();
+				JavaCore.addElementChangedListener(fgDeltaListener, ElementChangedEvent.POST_CHANGE);
+			}
+
+			int cacheSize= fgCacheSize;
+			if (fgHierarchyCache.size() >= cacheSize) {
 				// find obsolete entries or remove entry that was least recently accessed
 				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+				List<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<>();
+				for (HierarchyCacheEntry entry : fgHierarchyCache) {
 					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
+					if (!entry.isValid() || hierarchy.contains(curr.getType())) {
 						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
+					} else if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
+						oldest= entry;
 					}
 				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
-					}
-				} else if (oldest != null) {
+				for (HierarchyCacheEntry entry : obsoleteHierarchies) {
+					removeHierarchyEntryFromCache(entry);
+				}
+				while (fgHierarchyCache.size() >= cacheSize && oldest != null) {
 					removeHierarchyEntryFromCache(oldest);
+					fgCacheEvictions.incrementAndGet();
+					oldest= findLeastRecentlyAccessed();
 				}
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+
 			fgHierarchyCache.add(newEntry);
+			hierarchy.addTypeHierarchyChangedListener(newEntry);
+			for (IType type : newEntry.getTypes()) {
+				Set<HierarchyCacheEntry> entries= fgTypeIndex.get(type);
+				Set<HierarchyCacheEntry> newEntries= entries == null ? new HashSet<>(2) : new HashSet<>(entries);
+				newEntries.add(newEntry);
+				fgTypeIndex.put(type, newEntries);
+				ITypeRoot typeRoot= type.getTypeRoot();
+				if (typeRoot != null)
+					fgTypeRootIndex.computeIfAbsent(typeRoot, t -> new HashSet<>()).add(newEntry);
+			}
 		}
 	}
 
+	private static HierarchyCacheEntry findLeastRecentlyAccessed() {
+		HierarchyCacheEntry oldest= null;
+		for (HierarchyCacheEntry entry : fgHierarchyCache) {
+			if (oldest == null || entry.getLastAccess() < oldest.getLastAccess())
+				oldest= entry;
+		}
+		return oldest;
+	}
+
 
 	/**
 	 * Check if the given type is in the hierarchy cache.
@@ -184,43 +324,115 @@ public class SuperTypeHierarchyCache {
 	 * @return <code>true</code> if a hierarchy for the given type is cached
 	 */
 	public static boolean hasInCache(IType type) {
-		return findTypeHierarchyInCache(type) != null;
+		return findEntryInCache(type) != null;
 	}
 
 
-	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
+	private static HierarchyCacheEntry findEntryInCache(IType type) {
+		Set<HierarchyCacheEntry> entries= fgTypeIndex.get(type);
+		if (entries == null)
+			return null;
+		for (HierarchyCacheEntry entry : entries) {
+			if (entry.isValid()) {
+				entry.markAsAccessed();
+				return entry;
+			}
+			synchronized (fgLock) {
+				removeHierarchyEntryFromCache(entry);
+			}
+		}
+		return null;
+	}
+
+	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
+		if (!fgHierarchyCache.remove(entry))
+			return;
+		for (IType type : entry.getTypes()) {
+			Set<HierarchyCacheEntry> typeEntries= fgTypeIndex.get(type);
+			if (typeEntries != null && typeEntries.contains(entry)) {
+				if (typeEntries.size() == 1) {
+					fgTypeIndex.remove(type);
 				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
+					Set<HierarchyCacheEntry> newEntries= new HashSet<>(typeEntries);
+					newEntries.remove(entry);
+					fgTypeIndex.put(type, newEntries);
+				}
+			}
+			ITypeRoot typeRoot= type.getTypeRoot();
+			Set<HierarchyCacheEntry> entries= typeRoot != null ? fgTypeRootIndex.get(typeRoot) : null;
+			if (entries != null) {
+				entries.remove(entry);
+				if (entries.isEmpty())
+					fgTypeRootIndex.remove(typeRoot);
+			}
+		}
+		entry.dispose();
+	}
+
+	private static void removeHierarchiesOf(Set<ITypeRoot> typeRoots) {
+		synchronized (fgLock) {
+			for (ITypeRoot typeRoot : typeRoots) {
+				Set<HierarchyCacheEntry> entries= fgTypeRootIndex.get(typeRoot);
+				if (entries != null) {
+					for (HierarchyCacheEntry entry : new ArrayList<>(entries)) {
+						removeHierarchyEntryFromCache(entry);
+						fgCacheInvalidations.incrementAndGet();
 					}
 				}
 			}
 		}
-		return null;
 	}
 
-	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
-		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
-			entry.dispose();
-			fgHierarchyCache.remove(entry);
+	/**
+	 * Removes all hierarchies from the cache.
+	 */
+	public static void flushCache() {
+		synchronized (fgLock) {
+			for (HierarchyCacheEntry entry : new ArrayList<>(fgHierarchyCache)) {
+				removeHierarchyEntryFromCache(entry);
+				fgCacheInvalidations.incrementAndGet();
+			}
 		}
 	}
 
+	/**
+	 * Sets the maximal number of cached hierarchies. Surplus hierarchies are evicted when the
+	 * next hierarchy is added to the cache.
+	 *
+	 * @param size the maximal number of cached hierarchies, must be positive
+	 */
+	public static void setCacheSize(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException();
+		fgCacheSize= size;
+	}
+
+	/**
+	 * Returns the maximal number of cached hierarchies.
+	 *
+	 * @return the maximal number of cached hierarchies
+	 */
+	public static int getCacheSize() {
+		return fgCacheSize;
+	}
+
+	/**
+	 * Returns the number of currently cached hierarchies.
+	 *
+	 * @return the number of cached hierarchies
+	 */
+	public static int getCachedHierarchyCount() {
+		synchronized (fgLock) {
+			return fgHierarchyCache.size();
+		}
+	}
 
 	/**
 	 * Gets the number of times the hierarchy could be taken from the hierarchy.
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -228,6 +440,24 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Gets the number of hierarchies that have been removed because the cache was full.
+	 *
+	 * @return the number of evicted hierarchies
+	 */
+	public static int getCacheEvictions() {
+		return fgCacheEvictions.get();
+	}
+
+	/**
+	 * Gets the number of hierarchies that have been removed because of Java element changes.
+	 *
+	 * @return the number of invalidated hierarchies
+	 */
+	public static int getCacheInvalidations() {
+		return fgCacheInvalidations.get();
 	}
 }
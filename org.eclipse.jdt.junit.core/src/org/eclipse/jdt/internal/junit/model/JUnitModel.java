@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -288,16 +288,13 @@ public final class JUnitModel {
 //			}
 //		}
 
+		// sessions are not restored, so swap files left by a crashed or older workbench are orphaned
+		deleteSwapFiles();
+
 		addTestRunSessionListener(new LegacyTestRunSessionListener());
 	}
 
-	/**
-	 * Stops the model (called by the {@link JUnitCorePlugin} on shutdown).
-	 */
-	public void stop() {
-		ILaunchManager launchManager= DebugPlugin.getDefault().getLaunchManager();
-		launchManager.removeLaunchListener(fLaunchListener);
-
+	private static void deleteSwapFiles() {
 		File historyDirectory= JUnitCorePlugin.getHistoryDirectory();
 		File[] swapFiles= historyDirectory.listFiles();
 		if (swapFiles != null) {
@@ -305,6 +302,16 @@ public final class JUnitModel {
 				swapFiles[i].delete();
 			}
 		}
+	}
+
+	/**
+	 * Stops the model (called by the {@link JUnitCorePlugin} on shutdown).
+	 */
+	public void stop() {
+		ILaunchManager launchManager= DebugPlugin.getDefault().getLaunchManager();
+		launchManager.removeLaunchListener(fLaunchListener);
+
+		deleteSwapFiles();
 
 //		for (Iterator iter= fTestRunSessions.iterator(); iter.hasNext();) {
 //			final TestRunSession session= (TestRunSession) iter.next();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,21 +12,25 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.PushbackReader;
+import java.io.PushbackInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
@@ -224,8 +228,20 @@ public class RemoteTestRunnerClient {
 	private Socket fSocket;
 	private int fPort= -1;
 	private PrintWriter fWriter;
-	private PushbackReader fPushbackReader;
+	private PushbackInputStream fPushbackInputStream;
 	private String fLastLineDelimiter;
+	/**
+	 * Buffer for reading text messages
+	 */
+	private byte[] fLineBuffer= new byte[256];
+	/**
+	 * Whether to offer the binary protocol to the RemoteTestRunner
+	 */
+	private boolean fOfferBinaryProtocol;
+	/**
+	 * Input of the binary protocol, or <code>null</code> while the text protocol is used
+	 */
+	private DataInputStream fBinaryInput;
 	/**
 	 * The protocol version
 	 */
@@ -263,19 +279,29 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
+				PushbackInputStream in= new PushbackInputStream(new BufferedInputStream(fSocket.getInputStream(), 8192));
+				fPushbackInputStream= in;
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				if (fOfferBinaryProtocol)
+					fWriter.println(MessageIds.BINARY_PROTOCOL_OFFER);
+				while (fPushbackInputStream != null) {
+					if (fBinaryInput != null) {
+						if (!readFrame(fBinaryInput))
+							break;
+					} else {
+						String message= readMessage(in);
+						if (message == null)
+							break;
+						if (message.startsWith(MessageIds.BINARY_PROTOCOL_START))
+							fBinaryInput= new DataInputStream(in);
+						else
+							receiveMessage(message);
+					}
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -296,6 +322,7 @@ public class RemoteTestRunnerClient {
 	public synchronized void startListening(ITestRunListener2[] listeners, int port) {
 		fListeners= listeners;
 		fPort= port;
+		fOfferBinaryProtocol= JUnitPreferencesConstants.getBinaryProtocol();
 		ServerConnection connection= new ServerConnection(port);
 		connection.start();
 	}
@@ -325,9 +352,9 @@ public class RemoteTestRunnerClient {
 			fWriter= null;
 		}
 		try {
-			if (fPushbackReader != null) {
-				fPushbackReader.close();
-				fPushbackReader= null;
+			if (fPushbackInputStream != null) {
+				fPushbackInputStream.close();
+				fPushbackInputStream= null;
 			}
 		} catch(IOException e) {
 		}
@@ -351,30 +378,81 @@ public class RemoteTestRunnerClient {
 		return fSocket != null;
 	}
 
-	private String readMessage(PushbackReader in) throws IOException {
-		StringBuffer buf= new StringBuffer(128);
+	private String readMessage(PushbackInputStream in) throws IOException {
+		int length= 0;
 		int ch;
 		while ((ch= in.read()) != -1) {
 			if (ch == '\n') {
 				fLastLineDelimiter= "\n"; //$NON-NLS-1$
-				return buf.toString();
+				return decode(length);
 			} else if (ch == '\r') {
 				ch= in.read();
 				if (ch == '\n') {
 					fLastLineDelimiter= "\r\n"; //$NON-NLS-1$
 				} else {
-					in.unread(ch);
+					if (ch != -1)
+						in.unread(ch);
 					fLastLineDelimiter= "\r"; //$NON-NLS-1$
 				}
-				return buf.toString();
+				return decode(length);
 			} else {
-				buf.append((char) ch);
+				if (length == fLineBuffer.length) {
+					byte[] buffer= new byte[length * 2];
+					System.arraycopy(fLineBuffer, 0, buffer, 0, length);
+					fLineBuffer= buffer;
+				}
+				fLineBuffer[length++]= (byte) ch;
 			}
 		}
 		fLastLineDelimiter= null;
-		if (buf.length() == 0)
+		if (length == 0)
 			return null;
-		return buf.toString();
+		return decode(length);
+	}
+
+	private String decode(int length) {
+		return new String(fLineBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads and processes a frame of the binary protocol.
+	 *
+	 * @param in the input
+	 * @return <code>false</code> if the end of the stream has been reached
+	 * @throws IOException if reading fails
+	 * @see MessageIds#BINARY_PROTOCOL_START
+	 */
+	private boolean readFrame(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length= in.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		byte kind= in.readByte();
+		byte[] payload= new byte[length];
+		in.readFully(payload);
+
+		if (kind == MessageIds.FRAME_MESSAGE) {
+			fLastLineDelimiter= "\n"; //$NON-NLS-1$
+			receiveMessage(new String(payload, StandardCharsets.UTF_8));
+		} else if (kind == MessageIds.FRAME_TEST_EVENTS) {
+			receiveTestEvents(new DataInputStream(new ByteArrayInputStream(payload)));
+		}
+		return true;
+	}
+
+	private void receiveTestEvents(DataInputStream in) throws IOException {
+		int count= in.readInt();
+		final byte[] kinds= new byte[count];
+		final String[] tests= new String[count];
+		for (int i= 0; i < count; i++) {
+			kinds[i]= in.readByte();
+			byte[] test= new byte[in.readInt()];
+			in.readFully(test);
+			tests[i]= new String(test, StandardCharsets.UTF_8);
+		}
+		notifyTestEvents(kinds, tests);
 	}
 
 	private void receiveMessage(String message) {
@@ -534,6 +612,26 @@ public class RemoteTestRunnerClient {
 		}
 	}
 
+	private void notifyTestEvents(final byte[] kinds, final String[] tests) {
+		if (JUnitCorePlugin.isStopped())
+			return;
+		for (int i= 0; i < fListeners.length; i++) {
+			final ITestRunListener2 listener= fListeners[i];
+			SafeRunner.run(new ListenerSafeRunnable() {
+				@Override
+				public void run() {
+					for (int j= 0; j < tests.length; j++) {
+						String s[]= extractTestId(tests[j]);
+						if (kinds[j] == MessageIds.EVENT_TEST_START)
+							listener.testStarted(s[0], s[1]);
+						else if (kinds[j] == MessageIds.EVENT_TEST_END)
+							listener.testEnded(s[0], s[1]);
+					}
+				}
+			});
+		}
+	}
+
 	private void notifyTestStarted(final String test) {
 		if (JUnitCorePlugin.isStopped())
 			return;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@
 package org.eclipse.jdt.internal.junit.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -76,9 +77,9 @@ public class TestRunSession implements ITestRunSession {
 	private TestRoot fTestRoot;
 
 	/**
-	 * The test run session's cached result, or <code>null</code> if <code>fTestRoot != null</code>.
+	 * The header of the swap file holding the test tree, or <code>null</code> if <code>fTestRoot != null</code>.
 	 */
-	private Result fTestResult;
+	private TestRunSessionSwapFile.Header fSwapFileHeader;
 
 	/**
 	 * Map from testId to testElement.
@@ -234,7 +235,7 @@ public class TestRunSession implements ITestRunSession {
 		fTotalCount= 0;
 
 		fTestRoot= new TestRoot(this);
-		fTestResult= null;
+		fSwapFileHeader= null;
 		fIdToTest= new HashMap<>();
 	}
 
@@ -254,7 +255,7 @@ public class TestRunSession implements ITestRunSession {
 		if (fTestRoot != null) {
 			return fTestRoot.getTestResult(true);
 		} else {
-			return fTestResult;
+			return fSwapFileHeader.getTestResult();
 		}
 	}
 
@@ -364,11 +365,11 @@ public class TestRunSession implements ITestRunSession {
 				return;
 		}
 
+		File swapFile= null;
 		try {
-			File swapFile= getSwapFile();
+			swapFile= getSwapFile();
 
-			JUnitModel.exportTestRunSession(this, swapFile);
-			fTestResult= fTestRoot.getTestResult(true);
+			fSwapFileHeader= TestRunSessionSwapFile.write(fTestRoot, swapFile);
 			fTestRoot= null;
 			fTestRunnerClient= null;
 			fIdToTest= new HashMap<>();
@@ -378,8 +379,9 @@ public class TestRunSession implements ITestRunSession {
 
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
+			swapFile.delete();
 		}
 	}
 
@@ -397,7 +399,7 @@ public class TestRunSession implements ITestRunSession {
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".swap"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -407,15 +409,15 @@ public class TestRunSession implements ITestRunSession {
 			return;
 
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			TestRunSessionSwapFile.read(getSwapFile(), this);
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
-			fTestResult= null;
-		} catch (CoreException e) {
+			fSwapFileHeader= null;
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
-			fTestResult= null;
+			fSwapFileHeader= null;
 		}
 	}
 
@@ -872,7 +874,7 @@ public class TestRunSession implements ITestRunSession {
 	@Override
 	public double getElapsedTimeInSeconds() {
 		if (fTestRoot == null)
-			return Double.NaN;
+			return fSwapFileHeader.getElapsedTimeInSeconds();
 
 		return fTestRoot.getElapsedTimeInSeconds();
 	}
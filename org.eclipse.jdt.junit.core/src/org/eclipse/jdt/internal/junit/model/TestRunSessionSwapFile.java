@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+import org.eclipse.jdt.junit.model.ITestElement.ProgressState;
+import org.eclipse.jdt.junit.model.ITestElement.Result;
+
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Compact binary format for swapping the test tree of a {@link TestRunSession} to disk.
+ * <p>
+ * A swap file starts with a {@link Header} holding the result and the elapsed time of the session.
+ * The header is kept in memory while the session is swapped out, the counters stay in the session. It is followed by the GZIP compressed
+ * test elements in depth-first order. Strings are written once and referenced by index afterwards,
+ * which pays off for the class names and traces shared by many test cases.
+ * </p>
+ * <p>
+ * Elements are restored through the same {@link TestRunSession} methods as the XML import, so the
+ * restored tree and counters are the same as if the session had been swapped in from XML.
+ * </p>
+ */
+final class TestRunSessionSwapFile {
+
+	/**
+	 * Summary of a swapped out test run session.
+	 */
+	static final class Header {
+
+		private final Result fTestResult;
+		private final double fElapsedTime;
+
+		Header(Result testResult, double elapsedTime) {
+			fTestResult= testResult;
+			fElapsedTime= elapsedTime;
+		}
+
+		public Result getTestResult() {
+			return fTestResult;
+		}
+
+		public double getElapsedTimeInSeconds() {
+			return fElapsedTime;
+		}
+	}
+
+	/** File format magic number */
+	private static final int MAGIC= 0x4A545253;
+
+	/** File format version */
+	private static final int VERSION= 1;
+
+	private static final Result[] RESULTS= { Result.UNDEFINED, Result.OK, Result.ERROR, Result.FAILURE, Result.IGNORED };
+
+	/** Ends the children of a suite or of the test root */
+	private static final byte END_OF_SUITE= 0;
+	private static final byte SUITE= 1;
+	private static final byte TEST_CASE= 2;
+
+	private static final int INCOMPLETE= 1 << 0;
+	private static final int IGNORED= 1 << 1;
+	private static final int DYNAMIC_TEST= 1 << 2;
+	private static final int ASSUMPTION_FAILURE= 1 << 3;
+	private static final int ERROR= 1 << 4;
+	private static final int FAILURE= 1 << 5;
+
+	private static final int NULL_STRING= -1;
+
+	private TestRunSessionSwapFile() {
+	}
+
+	/**
+	 * Writes the test tree of a session.
+	 *
+	 * @param testRoot the test tree of the session
+	 * @param file the swap file
+	 * @return the header that has been written
+	 * @throws IOException if the file could not be written
+	 */
+	static Header write(TestRoot testRoot, File file) throws IOException {
+		Header header= new Header(testRoot.getTestResult(true), testRoot.getElapsedTimeInSeconds());
+
+		try (OutputStream out= new BufferedOutputStream(new FileOutputStream(file))) {
+			DataOutputStream headerOut= new DataOutputStream(out);
+			headerOut.writeInt(MAGIC);
+			headerOut.writeInt(VERSION);
+			writeHeader(headerOut, header);
+			headerOut.flush();
+
+			GZIPOutputStream zipOut= new GZIPOutputStream(out, 8192);
+			DataOutputStream dataOut= new DataOutputStream(new BufferedOutputStream(zipOut, 8192));
+			new Writer(dataOut).writeChildren(testRoot);
+			dataOut.writeByte(END_OF_SUITE);
+			dataOut.flush();
+			zipOut.finish();
+		}
+		return header;
+	}
+
+	/**
+	 * Reads the test tree of a swap file into the given session. The session is {@link TestRunSession#reset() reset} first.
+	 *
+	 * @param file the swap file
+	 * @param testRunSession the session to restore
+	 * @return the header of the swap file
+	 * @throws IOException if the file could not be read or is not a swap file
+	 */
+	static Header read(File file, TestRunSession testRunSession) throws IOException {
+		try (InputStream fileIn= new BufferedInputStream(new FileInputStream(file))) {
+			Header header= readMagicAndHeader(new DataInputStream(fileIn), file);
+			DataInputStream in= new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileIn, 8192), 8192));
+			testRunSession.reset();
+			new Reader(in, testRunSession).readChildren(testRunSession.getTestRoot());
+			return header;
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out, Header header) throws IOException {
+		int result= 0;
+		for (int i= 0; i < RESULTS.length; i++) {
+			if (RESULTS[i] == header.fTestResult)
+				result= i;
+		}
+		out.writeByte(result);
+		out.writeDouble(header.fElapsedTime);
+	}
+
+	private static Header readMagicAndHeader(DataInputStream in, File file) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException("Not a test run swap file: " + file); //$NON-NLS-1$
+
+		int result= in.readByte();
+		if (result < 0 || result >= RESULTS.length)
+			throw new IOException("Corrupt test run swap file: " + file); //$NON-NLS-1$
+		double elapsedTime= in.readDouble();
+		return new Header(RESULTS[result], elapsedTime);
+	}
+
+	private static void writeUTF8(DataOutputStream out, String string) throws IOException {
+		byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static final class Writer {
+
+		private final DataOutputStream fOut;
+
+		private final Map<String, Integer> fStrings= new HashMap<>();
+
+		Writer(DataOutputStream out) {
+			fOut= out;
+		}
+
+		void writeChildren(TestSuiteElement suite) throws IOException {
+			ITestElement[] children= suite.getChildren();
+			for (int i= 0; i < children.length; i++)
+				writeElement((TestElement) children[i]);
+		}
+
+		private void writeElement(TestElement testElement) throws IOException {
+			boolean isSuite= testElement instanceof TestSuiteElement;
+			if (!isSuite && !(testElement instanceof TestCaseElement))
+				throw new IllegalStateException(String.valueOf(testElement));
+
+			// same conditions as in TestRunSessionSerializer
+			int flags= 0;
+			if (testElement.getProgressState() != ProgressState.COMPLETED || isSuite && testElement.getTestResult(false) != Result.UNDEFINED)
+				flags|= INCOMPLETE;
+			if (!isSuite) {
+				TestCaseElement testCaseElement= (TestCaseElement) testElement;
+				if (testCaseElement.isIgnored())
+					flags|= IGNORED;
+				if (testCaseElement.isDynamicTest())
+					flags|= DYNAMIC_TEST;
+			}
+			boolean hasFailureTrace= testElement.getFailureTrace() != null;
+			if (testElement.isAssumptionFailure())
+				flags|= ASSUMPTION_FAILURE;
+			else if (hasFailureTrace)
+				flags|= testElement.getTestResult(false) == Result.ERROR ? ERROR : FAILURE;
+
+			fOut.writeByte(isSuite ? SUITE : TEST_CASE);
+			fOut.writeByte(flags);
+			writeString(testElement.getTestName());
+			writeString(testElement.getDisplayName());
+			writeString(testElement.getUniqueId());
+			String[] parameterTypes= testElement.getParameterTypes();
+			if (parameterTypes == null) {
+				fOut.writeInt(-1);
+			} else {
+				fOut.writeInt(parameterTypes.length);
+				for (int i= 0; i < parameterTypes.length; i++)
+					writeString(parameterTypes[i]);
+			}
+			fOut.writeDouble(testElement.getElapsedTimeInSeconds());
+			if ((flags & (ERROR | FAILURE)) != 0) {
+				writeString(testElement.getTrace());
+				writeString(testElement.getExpected());
+				writeString(testElement.getActual());
+			} else if ((flags & ASSUMPTION_FAILURE) != 0) {
+				writeString(hasFailureTrace ? testElement.getTrace() : null);
+			}
+
+			if (isSuite) {
+				writeChildren((TestSuiteElement) testElement);
+				fOut.writeByte(END_OF_SUITE);
+			}
+		}
+
+		/*
+		 * A string is written as NULL_STRING, as its index in the string table if it has
+		 * been written before (encoded as -2 - index), or as its length followed by its
+		 * UTF-8 encoding.
+		 */
+		private void writeString(String string) throws IOException {
+			if (string == null) {
+				fOut.writeInt(NULL_STRING);
+				return;
+			}
+			Integer index= fStrings.get(string);
+			if (index != null) {
+				fOut.writeInt(-2 - index.intValue());
+			} else {
+				fStrings.put(string, Integer.valueOf(fStrings.size()));
+				writeUTF8(fOut, string);
+			}
+		}
+	}
+
+	private static final class Reader {
+
+		private final DataInputStream fIn;
+
+		private final TestRunSession fTestRunSession;
+
+		private final List<String> fStrings= new ArrayList<>();
+
+		private int fId;
+
+		Reader(DataInputStream in, TestRunSession testRunSession) {
+			fIn= in;
+			fTestRunSession= testRunSession;
+		}
+
+		void readChildren(TestSuiteElement parent) throws IOException {
+			while (true) {
+				int kind= fIn.readByte();
+				if (kind == END_OF_SUITE)
+					return;
+				if (kind != SUITE && kind != TEST_CASE)
+					throw new IOException("Corrupt test run swap file"); //$NON-NLS-1$
+				readElement(parent, kind == SUITE);
+			}
+		}
+
+		private void readElement(TestSuiteElement parent, boolean isSuite) throws IOException {
+			int flags= fIn.readByte();
+			String testName= readString();
+			String displayName= readString();
+			String uniqueId= readString();
+			String[] parameterTypes= null;
+			int parameterCount= fIn.readInt();
+			if (parameterCount >= 0) {
+				parameterTypes= new String[parameterCount];
+				for (int i= 0; i < parameterCount; i++)
+					parameterTypes[i]= readString();
+			}
+			double time= fIn.readDouble();
+
+			TestElement testElement= fTestRunSession.createTestElement(parent, Integer.toString(fId++), testName, isSuite, 0,
+					(flags & DYNAMIC_TEST) != 0, displayName, parameterTypes, uniqueId);
+			testElement.setElapsedTimeInSeconds(time);
+			if (!isSuite)
+				((TestCaseElement) testElement).setIgnored((flags & IGNORED) != 0);
+
+			if ((flags & (ERROR | FAILURE)) != 0) {
+				String trace= readString();
+				String expected= readString();
+				String actual= readString();
+				Status status= (flags & ERROR) != 0 ? Status.ERROR : Status.FAILURE;
+				fTestRunSession.registerTestFailureStatus(testElement, status, trace, expected, actual);
+			} else if ((flags & ASSUMPTION_FAILURE) != 0) {
+				String trace= readString();
+				if (trace != null)
+					fTestRunSession.registerTestFailureStatus(testElement, Status.OK, trace, null, null);
+				testElement.setAssumptionFailed(true);
+			}
+
+			if (isSuite)
+				readChildren((TestSuiteElement) testElement);
+			fTestRunSession.registerTestEnded(testElement, (flags & INCOMPLETE) == 0);
+		}
+
+		private String readString() throws IOException {
+			int code= fIn.readInt();
+			if (code == NULL_STRING)
+				return null;
+			if (code < 0) {
+				int index= -2 - code;
+				if (index >= fStrings.size())
+					throw new IOException("Corrupt test run swap file"); //$NON-NLS-1$
+				return fStrings.get(index);
+			}
+			byte[] bytes= new byte[code];
+			fIn.readFully(bytes);
+			String string= new String(bytes, StandardCharsets.UTF_8);
+			fStrings.add(string);
+			return string;
+		}
+	}
+}
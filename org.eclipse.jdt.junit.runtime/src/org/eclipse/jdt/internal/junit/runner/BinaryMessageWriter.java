@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes messages in the binary protocol. Consecutive test started and
+ * test ended messages are collected and sent as a single frame. The frame is
+ * sent when another message is sent, when it is full, or when it is flushed
+ * after the flush delay has passed.
+ * <p>
+ * This class is not thread-safe. Clients have to synchronize all calls.
+ * </p>
+ *
+ * @see MessageIds#BINARY_PROTOCOL_START
+ */
+public class BinaryMessageWriter {
+
+	/**
+	 * Maximum number of test events sent in one frame.
+	 */
+	private static final int MAX_BATCHED_EVENTS= 512;
+
+	/**
+	 * Default time in milliseconds that test events are held back by {@link #flush()}.
+	 */
+	public static final long DEFAULT_FLUSH_DELAY= 100;
+
+	/**
+	 * Messages that start a block of free-form lines, and the messages ending them.
+	 */
+	private static final String[][] BLOCKS= {
+		{ MessageIds.TRACE_START, MessageIds.TRACE_END },
+		{ MessageIds.EXPECTED_START, MessageIds.EXPECTED_END },
+		{ MessageIds.ACTUAL_START, MessageIds.ACTUAL_END },
+		{ MessageIds.RTRACE_START, MessageIds.RTRACE_END },
+	};
+
+	private final DataOutputStream fOutput;
+
+	private final ByteArrayOutputStream fBatchBytes= new ByteArrayOutputStream(8192);
+
+	private final DataOutputStream fBatch= new DataOutputStream(fBatchBytes);
+
+	private int fBatchCount;
+
+	/**
+	 * Time when the first event of the current batch was added.
+	 */
+	private long fBatchStart;
+
+	private final long fFlushDelay;
+
+	/**
+	 * The message ending the current block, or <code>null</code> if outside a block.
+	 */
+	private String fBlockEnd;
+
+	public BinaryMessageWriter(OutputStream output) {
+		this(output, DEFAULT_FLUSH_DELAY);
+	}
+
+	/**
+	 * @param output the stream to write to
+	 * @param flushDelay the time in milliseconds that {@link #flush()} holds back
+	 *        pending test events
+	 */
+	public BinaryMessageWriter(OutputStream output, long flushDelay) {
+		fOutput= new DataOutputStream(new BufferedOutputStream(output, 8192));
+		fFlushDelay= flushDelay;
+	}
+
+	public void sendMessage(String msg) throws IOException {
+		if (fBlockEnd != null) {
+			if (msg.startsWith(fBlockEnd))
+				fBlockEnd= null;
+		} else if (msg.startsWith(MessageIds.TEST_START)) {
+			addEvent(MessageIds.EVENT_TEST_START, msg.substring(MessageIds.MSG_HEADER_LENGTH));
+			return;
+		} else if (msg.startsWith(MessageIds.TEST_END)) {
+			addEvent(MessageIds.EVENT_TEST_END, msg.substring(MessageIds.MSG_HEADER_LENGTH));
+			return;
+		} else {
+			for (int i= 0; i < BLOCKS.length; i++) {
+				if (msg.startsWith(BLOCKS[i][0])) {
+					fBlockEnd= BLOCKS[i][1];
+					break;
+				}
+			}
+		}
+
+		flushBatch();
+		byte[] bytes= msg.getBytes("UTF-8"); //$NON-NLS-1$
+		fOutput.writeInt(bytes.length);
+		fOutput.writeByte(MessageIds.FRAME_MESSAGE);
+		fOutput.write(bytes);
+	}
+
+	private void addEvent(byte kind, String arg) throws IOException {
+		byte[] bytes= arg.getBytes("UTF-8"); //$NON-NLS-1$
+		if (fBatchCount == 0)
+			fBatchStart= System.currentTimeMillis();
+		fBatch.writeByte(kind);
+		fBatch.writeInt(bytes.length);
+		fBatch.write(bytes);
+		if (++fBatchCount == MAX_BATCHED_EVENTS)
+			flushBatch();
+	}
+
+	private void flushBatch() throws IOException {
+		if (fBatchCount == 0)
+			return;
+		fBatch.flush();
+		fOutput.writeInt(4 + fBatchBytes.size());
+		fOutput.writeByte(MessageIds.FRAME_TEST_EVENTS);
+		fOutput.writeInt(fBatchCount);
+		fBatchBytes.writeTo(fOutput);
+		fBatchBytes.reset();
+		fBatchCount= 0;
+	}
+
+	/**
+	 * Flushes all complete frames to the underlying stream. Pending test events
+	 * are only sent if the first of them was added at least the flush delay ago,
+	 * so that the events of short tests still share a frame.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public void flush() throws IOException {
+		if (fBatchCount > 0 && System.currentTimeMillis() - fBatchStart >= fFlushDelay)
+			flushBatch();
+		fOutput.flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			flushBatch();
+			fOutput.flush();
+		} finally {
+			fOutput.close();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -127,6 +127,45 @@ public class MessageIds {
 	 * TEST_RERUN + testId + " " + testClass + " "+testName
 	 */
 	public static final String TEST_RERUN=	">RERUN  "; //$NON-NLS-1$
+	/**
+	 * Offer to switch the messages sent by the RemoteTestRunner to the
+	 * binary protocol. Runners that do not support it ignore the offer.
+	 */
+	public static final String BINARY_PROTOCOL_OFFER= ">BINARY "; //$NON-NLS-1$
+
+	/**
+	 * Notification that all following messages are sent as binary frames.
+	 * Each frame consists of the payload length (int), the frame kind (byte)
+	 * and the payload:
+	 * <ul>
+	 * <li>FRAME_MESSAGE: the UTF-8 encoded message, which may span multiple lines</li>
+	 * <li>FRAME_TEST_EVENTS: the number of events (int), followed by the event kind
+	 * (byte), the length (int) and the UTF-8 encoded argument of each event.
+	 * The argument has the format of a TEST_START or TEST_END message.</li>
+	 * </ul>
+	 * All integers are big-endian.
+	 */
+	public static final String BINARY_PROTOCOL_START= "%BINARY "; //$NON-NLS-1$
+
+	/**
+	 * Binary frame holding a single message.
+	 */
+	public static final byte FRAME_MESSAGE= 1;
+
+	/**
+	 * Binary frame holding a batch of test started and test ended events.
+	 */
+	public static final byte FRAME_TEST_EVENTS= 2;
+
+	/**
+	 * Test event kind for a started test in a FRAME_TEST_EVENTS frame.
+	 */
+	public static final byte EVENT_TEST_START= 1;
+
+	/**
+	 * Test event kind for an ended test in a FRAME_TEST_EVENTS frame.
+	 */
+	public static final byte EVENT_TEST_END= 2;
 
 	/**
 	 * MessageFormat to encode test method identifiers:
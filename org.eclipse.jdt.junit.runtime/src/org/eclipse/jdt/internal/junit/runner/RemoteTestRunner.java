@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.Socket;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.Vector;
 
 import org.eclipse.jdt.internal.junit.runner.junit3.JUnit3TestLoader;
@@ -87,6 +89,24 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Print writer for sending messages
 	 */
 	private PrintWriter fWriter;
+	/**
+	 * Writer for sending messages in the binary protocol, or <code>null</code>
+	 * if the text protocol is used
+	 */
+	private BinaryMessageWriter fBinaryWriter;
+	/**
+	 * Has the client offered to switch to the binary protocol
+	 */
+	private volatile boolean fBinaryProtocolOffered= false;
+	/**
+	 * Sends pending test events of the binary protocol that have been held back
+	 * for longer than the flush delay
+	 */
+	private Timer fBinaryFlushTimer;
+	/**
+	 * Lock guarding the writers and the switch to the binary protocol
+	 */
+	private final Object fSendLock= new Object();
 	/**
 	 * Reader for incoming messages
 	 */
@@ -156,6 +176,10 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 							break;
 						}
 
+						else if (message.startsWith(MessageIds.BINARY_PROTOCOL_OFFER)) {
+							fBinaryProtocolOffered= true;
+						}
+
 						else if (message.startsWith(MessageIds.TEST_RERUN)) {
 							String arg= message.substring(MessageIds.MSG_HEADER_LENGTH);
 							//format: testId className testName
@@ -679,9 +703,24 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * Shutsdown the connection to the remote test listener.
 	 */
 	private void shutDown() {
-		if (fWriter != null) {
-			fWriter.close();
-			fWriter= null;
+		synchronized (fSendLock) {
+			if (fBinaryFlushTimer != null) {
+				fBinaryFlushTimer.cancel();
+				fBinaryFlushTimer= null;
+			}
+			if (fBinaryWriter != null) {
+				try {
+					fBinaryWriter.close();
+				} catch (IOException e) {
+					if (fDebugMode)
+						e.printStackTrace();
+				}
+				fBinaryWriter= null;
+			}
+			if (fWriter != null) {
+				fWriter.close();
+				fWriter= null;
+			}
 		}
 		try {
 			if (fReaderThread != null)   {
@@ -714,11 +753,49 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
 	 */
 	public void sendMessage(String msg) {
-		if(fWriter == null)
+		synchronized (fSendLock) {
+			if(fWriter == null)
+				return;
+			if (fBinaryProtocolOffered && fBinaryWriter == null)
+				switchToBinaryProtocol();
+			if (fBinaryWriter != null) {
+				try {
+					fBinaryWriter.sendMessage(msg);
+				} catch (IOException e) {
+					if (fDebugMode)
+						e.printStackTrace();
+				}
+				return;
+			}
+			fWriter.println(msg);
+//			if (!fConsoleMode)
+//				System.out.println(msg);
+		}
+	}
+
+	/**
+	 * Announces the switch to the binary protocol and sends all following
+	 * messages as binary frames. Must be called while holding <code>fSendLock</code>.
+	 */
+	private void switchToBinaryProtocol() {
+		fBinaryProtocolOffered= false;
+		if (fClientSocket == null)
 			return;
-		fWriter.println(msg);
-//		if (!fConsoleMode)
-//			System.out.println(msg);
+		try {
+			BinaryMessageWriter binaryWriter= new BinaryMessageWriter(fClientSocket.getOutputStream());
+			fWriter.println(MessageIds.BINARY_PROTOCOL_START);
+			fWriter.flush();
+			fBinaryWriter= binaryWriter;
+			fBinaryFlushTimer= new Timer(true);
+			fBinaryFlushTimer.schedule(new TimerTask() {
+				public void run() {
+					flush();
+				}
+			}, BinaryMessageWriter.DEFAULT_FLUSH_DELAY, BinaryMessageWriter.DEFAULT_FLUSH_DELAY);
+		} catch (IOException e) {
+			if (fDebugMode)
+				e.printStackTrace();
+		}
 	}
 
 	protected void notifyTestRunStarted(int testCount) {
@@ -753,7 +830,19 @@ public class RemoteTestRunner implements MessageSender, IVisitsTestTrees {
 	}
 
 	public void flush() {
-	    fWriter.flush();
+		synchronized (fSendLock) {
+			if (fBinaryWriter != null) {
+				try {
+					fBinaryWriter.flush();
+				} catch (IOException e) {
+					if (fDebugMode)
+						e.printStackTrace();
+				}
+				return;
+			}
+			if (fWriter != null)
+				fWriter.flush();
+		}
 	}
 
 	public void runTests(TestExecution execution) {
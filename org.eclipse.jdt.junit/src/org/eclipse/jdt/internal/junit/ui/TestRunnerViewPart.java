@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ import java.text.MessageFormat;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -196,6 +197,17 @@ public class TestRunnerViewPart extends ViewPart {
 	protected boolean fShowOnErrorOnly= false;
 	protected Clipboard fClipboard;
 	protected volatile String fInfoMessage;
+	/**
+	 * The most recently started test, to be shown as info message in the next update.
+	 * Formatting the message is deferred to the UI update, since most of the tests
+	 * started between two updates are never shown.
+	 */
+	private volatile TestCaseElement fStartedTestCase;
+	/**
+	 * The counter values shown in the last update, or <code>null</code> if the counters
+	 * have to be refreshed.
+	 */
+	private int[] fShownCounters;
 
 	private FailureTrace fFailureTrace;
 
@@ -793,10 +805,8 @@ public class TestRunnerViewPart extends ViewPart {
 			fTestViewer.registerAutoScrollTarget(testCaseElement);
 			fTestViewer.registerViewerUpdate(testCaseElement);
 
-			String className= BasicElementLabels.getJavaElementName(testCaseElement.getClassName());
-			String method= BasicElementLabels.getJavaElementName(testCaseElement.getTestMethodName());
-			String status= Messages.format(JUnitMessages.TestRunnerViewPart_message_started, new String[] { className, method });
-			registerInfoMessage(status);
+			fInfoMessage= null;
+			fStartedTestCase= testCaseElement;
 		}
 
 		@Override
@@ -1672,10 +1682,6 @@ action enablement
 	}
 
 	private void refreshCounters() {
-		 // TODO: Inefficient. Either
-		// - keep a boolean fHasTestRun and update only on changes, or
-		// - improve components to only redraw on changes (once!).
-
 		int startedCount;
 		int ignoredCount;
 		int totalCount;
@@ -1705,6 +1711,12 @@ action enablement
 			stopped= false;
 		}
 
+		boolean running= fTestRunSession != null && fTestRunSession.isRunning();
+		int[] counters= { startedCount, ignoredCount, totalCount, errorCount, failureCount, assumptionFailureCount, stopped ? 1 : 0, running ? 1 : 0 };
+		if (Arrays.equals(counters, fShownCounters))
+			return;
+		fShownCounters= counters;
+
 		fCounterPanel.setTotal(totalCount);
 		fCounterPanel.setRunValue(startedCount, ignoredCount, assumptionFailureCount);
 		fCounterPanel.setErrorValue(errorCount);
@@ -1713,7 +1725,7 @@ action enablement
 		int ticksDone;
 		if (startedCount == 0)
 			ticksDone= 0;
-		else if (startedCount == totalCount && ! fTestRunSession.isRunning())
+		else if (startedCount == totalCount && ! running)
 			ticksDone= totalCount;
 		else
 			ticksDone= startedCount - 1;
@@ -1755,13 +1767,20 @@ action enablement
 	}
 
 	protected void doShowInfoMessage() {
-		if (fInfoMessage != null) {
+		TestCaseElement startedTestCase= fStartedTestCase;
+		if (startedTestCase != null) {
+			fStartedTestCase= null;
+			String className= BasicElementLabels.getJavaElementName(startedTestCase.getClassName());
+			String method= BasicElementLabels.getJavaElementName(startedTestCase.getTestMethodName());
+			setContentDescription(Messages.format(JUnitMessages.TestRunnerViewPart_message_started, new String[] { className, method }));
+		} else if (fInfoMessage != null) {
 			setContentDescription(fInfoMessage);
 			fInfoMessage= null;
 		}
 	}
 
 	protected void registerInfoMessage(String message) {
+		fStartedTestCase= null;
 		fInfoMessage= message;
 	}
 
@@ -2083,6 +2102,7 @@ action enablement
 		composite.setLayout(layout);
 		setCounterColumns(layout);
 
+		fShownCounters= null;
 		fCounterPanel = new CounterPanel(composite);
 		fCounterPanel.setLayoutData(
 			new GridData(GridData.GRAB_HORIZONTAL | GridData.HORIZONTAL_ALIGN_FILL));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -199,6 +199,10 @@ public class TestViewer {
 	private boolean fTreeNeedsRefresh;
 	private boolean fTableNeedsRefresh;
 	private HashSet<TestElement> fNeedUpdate;
+	/**
+	 * Tests added since the last update that still have to be added to the tree.
+	 */
+	private LinkedHashSet<TestElement> fNeedAdd= new LinkedHashSet<>();
 	private TestCaseElement fAutoScrollTarget;
 
 	private LinkedList<TestSuiteElement> fAutoClose;
@@ -601,12 +605,22 @@ public class TestViewer {
 		testRoot= fTestRunSession.getTestRoot();
 
 		StructuredViewer viewer= getActiveViewer();
+		Object[] toAdd;
+		synchronized (this) {
+			toAdd= fNeedAdd.toArray();
+			fNeedAdd.clear();
+			if (viewer != fTreeViewer && toAdd.length > 0)
+				fTreeNeedsRefresh= true;
+		}
 		if (getActiveViewerNeedsRefresh()) {
 			clearUpdateAndExpansion();
 			setActiveViewerNeedsRefresh(false);
 			viewer.setInput(testRoot);
 
 		} else {
+			if (viewer == fTreeViewer && toAdd.length > 0)
+				addElementsToTree(fTreeViewer, toAdd);
+
 			Object[] toUpdate;
 			synchronized (this) {
 				toUpdate= fNeedUpdate.toArray();
@@ -640,6 +654,27 @@ public class TestViewer {
 		autoScrollInUI();
 	}
 
+	/**
+	 * Adds the given tests to the tree. Consecutive tests with the same parent
+	 * are added in one step.
+	 *
+	 * @param treeViewer the tree showing the test session
+	 * @param toAdd the added tests in the order they have been added to the session
+	 */
+	public static void addElementsToTree(AbstractTreeViewer treeViewer, Object[] toAdd) {
+		int start= 0;
+		while (start < toAdd.length) {
+			TestSuiteElement parent= ((TestElement) toAdd[start]).getParent();
+			int end= start + 1;
+			while (end < toAdd.length && ((TestElement) toAdd[end]).getParent() == parent)
+				end++;
+			Object[] children= new Object[end - start];
+			System.arraycopy(toAdd, start, children, 0, children.length);
+			treeViewer.add(parent, children);
+			start= end;
+		}
+	}
+
 	private void updateElementInTree(final TestElement testElement) {
 		if (isShown(testElement)) {
 			updateShownElementInTree(testElement);
@@ -824,6 +859,7 @@ public class TestViewer {
 		fTreeNeedsRefresh= true;
 		fTableNeedsRefresh= true;
 		clearUpdateAndExpansion();
+		fNeedAdd.clear();
 	}
 
 	private void clearUpdateAndExpansion() {
@@ -836,8 +872,10 @@ public class TestViewer {
 	 * @param testElement the added test
 	 */
 	public synchronized void registerTestAdded(TestElement testElement) {
-		//TODO: performance: would only need to refresh parent of added element
-		fTreeNeedsRefresh= true;
+		if (fTreeHasFilter)
+			fTreeNeedsRefresh= true;
+		else if (!fTreeNeedsRefresh)
+			fNeedAdd.add(testElement);
 		fTableNeedsRefresh= true;
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -140,6 +140,79 @@ public class AbstractSemanticHighlightingTest extends TestCase {
 		return document.getPositions(positionCategory);
 	}
 
+	protected SourceViewer getSourceViewer() {
+		return fSourceViewer;
+	}
+
+	protected IDocument getDocument() {
+		return fSourceViewer.getDocument();
+	}
+
+	/**
+	 * Replaces a range of the document, waits for the resulting reconcile and returns the
+	 * semantic highlighting positions afterwards.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @param text the new text
+	 * @return copies of the semantic highlighting positions
+	 * @throws Exception if the document or the positions cannot be accessed
+	 */
+	protected Position[] replaceAndReconcile(int offset, int length, String text) throws Exception {
+		fSourceViewer.getDocument().replace(offset, length, text);
+		return waitForReconcile();
+	}
+
+	/**
+	 * Waits for the reconcile of the latest document change and returns the semantic
+	 * highlighting positions afterwards.
+	 *
+	 * @return copies of the semantic highlighting positions
+	 * @throws Exception if the positions cannot be accessed
+	 */
+	protected Position[] waitForReconcile() throws Exception {
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 1000, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+		return copy(getSemanticHighlightingPositions());
+	}
+
+	/**
+	 * Forces a reconcile of the whole document and returns the semantic highlighting positions
+	 * afterwards.
+	 *
+	 * @return copies of the semantic highlighting positions
+	 * @throws Exception if the positions cannot be accessed
+	 */
+	protected Position[] reconcileFully() throws Exception {
+		EditorTestHelper.forceReconcile(fSourceViewer);
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 10000, 100));
+		EditorTestHelper.runEventQueue(100);
+		return copy(getSemanticHighlightingPositions());
+	}
+
+	/**
+	 * Restores the given document contents and the semantic highlighting positions for it.
+	 *
+	 * @param contents the original contents
+	 * @throws Exception if the positions cannot be accessed
+	 */
+	protected void restoreDocument(String contents) throws Exception {
+		if (!contents.equals(fSourceViewer.getDocument().get())) {
+			fSourceViewer.getDocument().set(contents);
+			reconcileFully();
+		}
+	}
+
+	protected static Position[] copy(Position[] positions) {
+		Position[] copies= new Position[positions.length];
+		for (int i= 0; i < positions.length; i++) {
+			copies[i]= new Position(positions[i].getOffset(), positions[i].getLength());
+			if (positions[i].isDeleted())
+				copies[i].delete();
+		}
+		return copies;
+	}
+
 	protected void setUpSemanticHighlighting(String semanticHighlighting) {
 		enableSemanticHighlighting(semanticHighlighting);
 		EditorTestHelper.forceReconcile(fSourceViewer);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,9 @@
 
 package org.eclipse.jdt.text.tests;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.eclipse.jdt.text.tests.performance.DisplayHelper;
 import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
@@ -22,6 +24,7 @@ import org.eclipse.swt.graphics.RGB;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -33,11 +36,15 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.FindReplaceDocumentAdapter;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ISynchronizable;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.AnnotationModelEvent;
 import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelListener;
+import org.eclipse.jface.text.source.IAnnotationModelListenerExtension;
 
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.PartInitException;
@@ -76,7 +83,7 @@ public class MarkOccurrenceTest extends TestCase {
 	private JavaEditor fEditor;
 	private IDocument fDocument;
 	private FindReplaceDocumentAdapter fFindReplaceDocumentAdapter;
-	private int fOccurrences;
+	private boolean fSelectionNotified;
 	private IAnnotationModel fAnnotationModel;
 	private ISelectionListenerWithAST fSelWASTListener;
 	private IRegion fMatch;
@@ -107,7 +114,7 @@ public class MarkOccurrenceTest extends TestCase {
 		fFindReplaceDocumentAdapter= new FindReplaceDocumentAdapter(fDocument);
 		fAnnotationModel= fEditor.getDocumentProvider().getAnnotationModel(fEditor.getEditorInput());
 
-		fOccurrences= -1; // initialize
+		fSelectionNotified= false;
 
 		fMatch= null;
 		fSelWASTListener= new ISelectionListenerWithAST() {
@@ -119,23 +126,10 @@ public class MarkOccurrenceTest extends TestCase {
 			@Override
 			public void selectionChanged(IEditorPart part, ITextSelection selection, CompilationUnit astRoot) {
 				if (fMatch != null && selection != null && selection.getOffset() == fMatch.getOffset() && selection.getLength() == fMatch.getLength()) {
-					countOccurrences();
-				}
-			}
-
-			private void countOccurrences() {
-				synchronized (MarkOccurrenceTest.this) {
-					int occurrences= 0;
-					Iterator<Annotation> iter= fAnnotationModel.getAnnotationIterator();
-					while (iter.hasNext()) {
-						Annotation annotation= iter.next();
-						if (OCCURRENCE_ANNOTATION.equals(annotation.getType()))
-							occurrences++;
-						if (OCCURRENCE_WRITE_ANNOTATION.equals(annotation.getType()))
-							occurrences++;
-
+					// the editor has scheduled its occurrences finder job for this selection
+					synchronized (MarkOccurrenceTest.this) {
+						fSelectionNotified= true;
 					}
-					fOccurrences= occurrences;
 				}
 			}
 		};
@@ -399,13 +393,103 @@ public class MarkOccurrenceTest extends TestCase {
 	}
 
 
+	public void testStaleOccurrencesNotApplied() throws Exception {
+		IRegion stale= fFindReplaceDocumentAdapter.find(0, "TestResult", true, true, true, false);
+		assertNotNull(stale);
+		fMatch= fFindReplaceDocumentAdapter.find(0, "fName", true, true, true, false);
+		assertNotNull(fMatch);
+		EditorTestHelper.joinBackgroundActivities(fEditor);
+
+		final List<String> marked= new ArrayList<>();
+		IAnnotationModelListener listener= new IAnnotationModelListenerExtension() {
+			@Override
+			public void modelChanged(IAnnotationModel model) {
+			}
+
+			@Override
+			public void modelChanged(AnnotationModelEvent event) {
+				Annotation[] added= event.getAddedAnnotations();
+				for (int i= 0; i < added.length; i++) {
+					if (OCCURRENCE_ANNOTATION.equals(added[i].getType()) || OCCURRENCE_WRITE_ANNOTATION.equals(added[i].getType())) {
+						Position position= fAnnotationModel.getPosition(added[i]);
+						try {
+							synchronized (marked) {
+								marked.add(fDocument.get(position.getOffset(), position.getLength()));
+							}
+						} catch (BadLocationException e) {
+							fail();
+						}
+					}
+				}
+			}
+		};
+		fAnnotationModel.addAnnotationModelListener(listener);
+		try {
+			// the occurrences finder job of the first selection cannot apply its result while the lock is held
+			synchronized (getLockObject(fAnnotationModel)) {
+				fEditor.selectAndReveal(stale.getOffset(), stale.getLength());
+				DisplayHelper helper= new DisplayHelper() {
+					@Override
+					protected boolean condition() {
+						Job[] jobs= Job.getJobManager().find(fEditor);
+						return jobs.length > 0 && jobs[0].getState() == Job.RUNNING;
+					}
+				};
+				assertTrue(helper.waitForCondition(EditorTestHelper.getActiveDisplay(), 80000));
+
+				fEditor.selectAndReveal(fMatch.getOffset(), fMatch.getLength());
+				helper= new DisplayHelper() {
+					@Override
+					protected boolean condition() {
+						synchronized (MarkOccurrenceTest.this) {
+							return fSelectionNotified;
+						}
+					}
+				};
+				assertTrue(helper.waitForCondition(EditorTestHelper.getActiveDisplay(), 80000));
+			}
+
+			assertOccurrences(9);
+			synchronized (marked) {
+				assertFalse(marked.contains("TestResult"));
+				assertTrue(marked.contains("fName"));
+			}
+		} finally {
+			fAnnotationModel.removeAnnotationModelListener(listener);
+		}
+	}
+
+	private static Object getLockObject(IAnnotationModel model) {
+		if (model instanceof ISynchronizable) {
+			Object lock= ((ISynchronizable) model).getLockObject();
+			if (lock != null)
+				return lock;
+		}
+		return model;
+	}
+
+	private int countOccurrences() {
+		int occurrences= 0;
+		Iterator<Annotation> iter= fAnnotationModel.getAnnotationIterator();
+		while (iter.hasNext()) {
+			Annotation annotation= iter.next();
+			if (OCCURRENCE_ANNOTATION.equals(annotation.getType()))
+				occurrences++;
+			if (OCCURRENCE_WRITE_ANNOTATION.equals(annotation.getType()))
+				occurrences++;
+
+		}
+		return occurrences;
+	}
+
 	private void assertOccurrences(final int expected) {
 		DisplayHelper helper= new DisplayHelper() {
 			@Override
 			protected boolean condition() {
 				synchronized (MarkOccurrenceTest.this) {
-					if (fOccurrences != -1) {
-						assertEquals(expected, fOccurrences);
+					// the occurrences are marked by a background job of the editor
+					if (fSelectionNotified && Job.getJobManager().find(fEditor).length == 0) {
+						assertEquals(expected, countOccurrences());
 						return true;
 					}
 					return false;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,11 +12,26 @@
  *******************************************************************************/
 package org.eclipse.jdt.text.tests;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.jdt.text.tests.performance.EditorTestHelper;
+
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.jdt.ui.PreferenceConstants;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
 
 public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
@@ -327,4 +342,117 @@ public class SemanticHighlightingTest extends AbstractSemanticHighlightingTest {
 		assertEqualPositions(expected, actual);
 	}
 
+	public void testIncrementalReconcileInsideMethodBody() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		setUpSemanticHighlighting(SemanticHighlightings.FIELD);
+		String original= getDocument().get();
+		try {
+			int count= getSemanticHighlightingPositions().length;
+			Position[] incremental= replaceAndReconcile(createPosition(9, 0, 0).getOffset(), 0, "\t\tint local3= local + field;\n");
+			assertEquals(count + 3, incremental.length);
+			assertEqualPositions(reconcileFully(), incremental);
+		} finally {
+			restoreDocument(original);
+		}
+	}
+
+	public void testIncrementalReconcileAcrossMethods() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		setUpSemanticHighlighting(SemanticHighlightings.FIELD);
+		String original= getDocument().get();
+		try {
+			// from the catch block of method(int) to the end of staticMethod()
+			IDocument document= getDocument();
+			int start= document.getLineOffset(16);
+			IRegion end= document.getLineInformation(19);
+			StringBuffer buf= new StringBuffer();
+			buf.append("\t\t\tparam2= null;\n");
+			buf.append("\t\t}\n");
+			buf.append("\t\tfield= local;\n");
+			buf.append("\t}\n");
+			buf.append("\tstatic void staticMethod() {\n");
+			buf.append("\t\tint x= staticField;\n");
+			buf.append("\t\tx++;\n");
+			buf.append("\t}");
+			int count= getSemanticHighlightingPositions().length;
+			Position[] incremental= replaceAndReconcile(start, end.getOffset() + end.getLength() - start, buf.toString());
+			assertEquals(count + 5, incremental.length);
+			assertEqualPositions(reconcileFully(), incremental);
+		} finally {
+			restoreDocument(original);
+		}
+	}
+
+	public void testIncrementalReconcileRemovesDeletedRange() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		String original= getDocument().get();
+		try {
+			// "local= param2.hashCode();" has two highlighted names
+			IDocument document= getDocument();
+			int count= getSemanticHighlightingPositions().length;
+			Position[] incremental= replaceAndReconcile(document.getLineOffset(15), document.getLineLength(15), "");
+			assertEquals(count - 2, incremental.length);
+			assertEqualPositions(reconcileFully(), incremental);
+		} finally {
+			restoreDocument(original);
+		}
+	}
+
+	public void testViewportFirstReconcile() throws Exception {
+		setUpSemanticHighlighting(SemanticHighlightings.LOCAL_VARIABLE);
+		IDocument document= getDocument();
+		String original= document.get();
+		int offset= original.lastIndexOf('}');
+		StringBuffer buf= new StringBuffer();
+		buf.append("\tvoid largeMethod() {\n");
+		buf.append("\t\tint count= 0;\n");
+		for (int i= 0; i < 300; i++)
+			buf.append("\t\tcount++;\n");
+		buf.append("\t}\n");
+		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
+		try {
+			// the positions of a reconcile in one pass
+			replaceAndReconcile(offset, 0, buf.toString());
+			Position[] expected= reconcileFully();
+			restoreDocument(original);
+
+			// the remainder job cannot start while the job manager is suspended
+			store.setValue(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD, original.length() + 1);
+			SourceViewer viewer= getSourceViewer();
+			Position[] visible;
+			int visibleStart;
+			int visibleEnd;
+			Job.getJobManager().suspend();
+			try {
+				document.replace(offset, 0, buf.toString());
+				viewer.setTopIndex(document.getLineOfOffset(offset) + 100);
+				visible= waitForReconcile();
+				visibleStart= viewer.getTopIndexStartOffset();
+				visibleEnd= viewer.getBottomIndexEndOffset() + 1;
+			} finally {
+				Job.getJobManager().resume();
+			}
+
+			// only the unchanged positions and those in the visible range of the large method are there
+			assertTrue(visibleStart > offset);
+			List<Position> expectedVisible= new ArrayList<>();
+			for (int i= 0; i < expected.length; i++) {
+				int start= expected[i].getOffset();
+				if (start < offset || visibleStart <= start && start < visibleEnd)
+					expectedVisible.add(expected[i]);
+			}
+			assertTrue(expectedVisible.size() < expected.length);
+			assertEqualPositions(expectedVisible.toArray(new Position[expectedVisible.size()]), visible);
+
+			Position[] all= visible;
+			for (int i= 0; i < 100 && all.length != expected.length; i++) {
+				EditorTestHelper.runEventQueue(100);
+				all= copy(getSemanticHighlightingPositions());
+			}
+			assertEqualPositions(expected, all);
+		} finally {
+			store.setToDefault(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD);
+			restoreDocument(original);
+		}
+	}
 }
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.contentassist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistLatencyStats;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistLatencyStats.Histogram;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+public class ContentAssistLatencyStatsTest extends TestCase {
+
+	private static final long MILLIS= 1000000;
+
+	public static Test suite() {
+		return new TestSuite(ContentAssistLatencyStatsTest.class);
+	}
+
+	public ContentAssistLatencyStatsTest(String name) {
+		super(name);
+	}
+
+	public void testBuckets() throws Exception {
+		ContentAssistLatencyStats stats= new ContentAssistLatencyStats();
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, 0);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, MILLIS / 2);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, 1 * MILLIS);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, 3 * MILLIS);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, 1000000 * MILLIS);
+
+		Histogram histogram= stats.getPhaseHistogram(ContentAssistLatencyStats.PHASE_COLLECT);
+		assertEquals(5, histogram.getCount());
+		assertEquals(2, histogram.getBucketCount(0));
+		assertEquals(1, histogram.getBucketCount(1));
+		assertEquals(1, histogram.getBucketCount(2));
+		assertEquals(1, histogram.getBucketCount(17));
+		assertEquals(1000000 * MILLIS, histogram.getMaxNanos());
+		assertEquals(1000004 * MILLIS + MILLIS / 2, histogram.getTotalNanos());
+
+		assertNull(stats.getPhaseHistogram(ContentAssistLatencyStats.PHASE_SORT));
+	}
+
+	public void testJSON() throws Exception {
+		ContentAssistLatencyStats stats= new ContentAssistLatencyStats();
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, 5 * MILLIS);
+		stats.recordComputer("org.example.\"quoted\"", 2 * MILLIS);
+		stats.recordProcessor("org.example.processor", 700 * MILLIS);
+
+		String json= stats.toJSON("3.14.0");
+		assertTrue(json, json.contains("\"version\": \"3.14.0\""));
+		assertTrue(json, json.contains("\"total\": {\"count\": 1, \"totalNanos\": 5000000, \"maxNanos\": 5000000, \"buckets\": [0, 0, 0, 1, 0"));
+		assertTrue(json, json.contains("\"org.example.\\\"quoted\\\"\": {\"count\": 1"));
+		assertTrue(json, json.contains("\"processors\": {\n\t\t\"org.example.processor\": {\"count\": 1, \"totalNanos\": 700000000"));
+		assertNotNull(stats.getProcessorHistogram("org.example.processor"));
+
+		stats.reset();
+		json= stats.toJSON("3.14.0");
+		assertTrue(json, json.contains("\"phases\": {}"));
+		assertTrue(json, json.contains("\"computers\": {}"));
+		assertTrue(json, json.contains("\"processors\": {}"));
+	}
+
+	public void testReadAddsEarlierSessions() throws Exception {
+		File file= File.createTempFile("latency", ".json");
+		try {
+			ContentAssistLatencyStats first= new ContentAssistLatencyStats();
+			first.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, 5 * MILLIS);
+			first.recordComputer("org.example.\"quoted\"\tcomputer", 300 * MILLIS);
+			first.write(file, "3.14.0");
+
+			ContentAssistLatencyStats second= new ContentAssistLatencyStats();
+			second.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, 3 * MILLIS + 7);
+			assertTrue(second.read(file, "3.14.0"));
+
+			Histogram total= second.getPhaseHistogram(ContentAssistLatencyStats.PHASE_TOTAL);
+			assertEquals(2, total.getCount());
+			assertEquals(1, total.getBucketCount(2));
+			assertEquals(1, total.getBucketCount(3));
+			assertEquals(8 * MILLIS + 7, total.getTotalNanos());
+			assertEquals(5 * MILLIS, total.getMaxNanos());
+
+			Histogram computer= second.getComputerHistogram("org.example.\"quoted\"\tcomputer");
+			assertNotNull(computer);
+			assertEquals(1, computer.getCount());
+			assertEquals(1, computer.getBucketCount(9));
+			assertEquals(300 * MILLIS, computer.getMaxNanos());
+
+			second.write(file, "3.14.0");
+			ContentAssistLatencyStats third= new ContentAssistLatencyStats();
+			assertTrue(third.read(file, "3.14.0"));
+			assertEquals(second.toJSON("3.14.0"), third.toJSON("3.14.0"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testReadKeepsNanos() throws Exception {
+		File file= File.createTempFile("latency", ".json");
+		try {
+			ContentAssistLatencyStats first= new ContentAssistLatencyStats();
+			first.recordComputer("org.example.computer", MILLIS / 3);
+			first.recordComputer("org.example.computer", 2 * MILLIS + 1);
+			first.write(file, "3.14.0");
+
+			ContentAssistLatencyStats second= new ContentAssistLatencyStats();
+			assertTrue(second.read(file, "3.14.0"));
+			Histogram computer= second.getComputerHistogram("org.example.computer");
+			assertEquals(MILLIS / 3 + 2 * MILLIS + 1, computer.getTotalNanos());
+			assertEquals(2 * MILLIS + 1, computer.getMaxNanos());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testReadIgnoresOtherVersion() throws Exception {
+		File file= File.createTempFile("latency", ".json");
+		try {
+			ContentAssistLatencyStats first= new ContentAssistLatencyStats();
+			first.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, 5 * MILLIS);
+			first.write(file, "3.13.0");
+
+			ContentAssistLatencyStats second= new ContentAssistLatencyStats();
+			second.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, 3 * MILLIS);
+			assertFalse(second.read(file, "3.14.0"));
+
+			Histogram total= second.getPhaseHistogram(ContentAssistLatencyStats.PHASE_TOTAL);
+			assertEquals(1, total.getCount());
+			assertEquals(3 * MILLIS, total.getTotalNanos());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testReadIgnoresOtherLayout() throws Exception {
+		File file= File.createTempFile("latency", ".json");
+		try {
+			write(file, "{\"version\": \"3.14.0\", \"bucketUpperBoundsMillis\": [1, 2], \"phases\": {}, \"computers\": {}, \"processors\": {}}");
+			ContentAssistLatencyStats stats= new ContentAssistLatencyStats();
+			assertFalse(stats.read(file, "3.14.0"));
+			assertNull(stats.getPhaseHistogram(ContentAssistLatencyStats.PHASE_TOTAL));
+
+			write(file, "{\"version\": ");
+			try {
+				stats.read(file, "3.14.0");
+				fail();
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		try (Writer writer= new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.write(contents);
+		}
+	}
+}
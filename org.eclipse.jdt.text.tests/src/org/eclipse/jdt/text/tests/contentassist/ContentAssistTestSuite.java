@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2017 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,7 @@ public class ContentAssistTestSuite {
 		suite.addTest(CamelCaseCompletionTest.suite());
 		suite.addTest(JavadocCompletionTest.suite());
 		suite.addTest(ContentAssistHistoryTest.suite());
+		suite.addTest(ContentAssistLatencyStatsTest.suite());
 		suite.addTest(MethodInsertCompletionTest.suite());
 		suite.addTest(MethodInsertionFormattedCompletionTest.suite());
 		suite.addTest(MethodOverwriteCompletionTest.suite());
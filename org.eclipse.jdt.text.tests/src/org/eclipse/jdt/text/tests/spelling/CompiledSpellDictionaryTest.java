@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.spelling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.CompiledSpellDictionary;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+
+public class CompiledSpellDictionaryTest extends TestCase {
+
+	private static final String SOURCE= "file:/dictionaries/en_US.dictionary"; //$NON-NLS-1$
+
+	public static Test suite() {
+		return new TestSuite(CompiledSpellDictionaryTest.class);
+	}
+
+	private File fFile;
+
+	public CompiledSpellDictionaryTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("compiled", ".cdict"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+	}
+
+	private static byte[] bytes(String string) throws IOException {
+		return string.getBytes("UTF-8"); //$NON-NLS-1$
+	}
+
+	private void write(long stamp) throws IOException {
+		CompiledSpellDictionary.Builder builder= new CompiledSpellDictionary.Builder();
+		builder.add(bytes("TRK"), Arrays.asList(bytes("truck"), bytes("Truck"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		builder.add(bytes("LR"), Arrays.asList(bytes("lorry"))); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.add(bytes("\u00C4PL"), Arrays.asList(bytes("\u00C4pfel"))); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.add(bytes("ABC"), Arrays.asList(bytes("abc"))); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.write(fFile, SOURCE, stamp);
+	}
+
+	public void testLookup() throws Exception {
+		write(42);
+		CompiledSpellDictionary dictionary= CompiledSpellDictionary.open(fFile, SOURCE, 42);
+		assertNotNull(dictionary);
+		assertEquals(4, dictionary.getBucketCount());
+		assertFalse(dictionary.isEmpty());
+
+		Object single= dictionary.getCandidates(bytes("LR")); //$NON-NLS-1$
+		assertTrue(single instanceof byte[]);
+		assertTrue(Arrays.equals(bytes("lorry"), (byte[])single)); //$NON-NLS-1$
+
+		@SuppressWarnings("unchecked")
+		List<byte[]> multiple= (List<byte[]>)dictionary.getCandidates(bytes("TRK")); //$NON-NLS-1$
+		assertEquals(2, multiple.size());
+		assertTrue(Arrays.equals(bytes("truck"), multiple.get(0))); //$NON-NLS-1$
+		assertTrue(Arrays.equals(bytes("Truck"), multiple.get(1))); //$NON-NLS-1$
+
+		Object nonAscii= dictionary.getCandidates(bytes("\u00C4PL")); //$NON-NLS-1$
+		assertTrue(Arrays.equals(bytes("\u00C4pfel"), (byte[])nonAscii)); //$NON-NLS-1$
+
+		assertNotNull(dictionary.getCandidates(bytes("ABC"))); //$NON-NLS-1$
+		assertNull(dictionary.getCandidates(bytes("AB"))); //$NON-NLS-1$
+		assertNull(dictionary.getCandidates(bytes("ZZZ"))); //$NON-NLS-1$
+		assertNull(dictionary.getCandidates(bytes(""))); //$NON-NLS-1$
+	}
+
+	public void testStaleStamp() throws Exception {
+		write(42);
+		assertNull(CompiledSpellDictionary.open(fFile, SOURCE, 43));
+	}
+
+	public void testOtherSource() throws Exception {
+		write(42);
+		assertNull(CompiledSpellDictionary.open(fFile, "file:/dictionaries/de_DE.dictionary", 42)); //$NON-NLS-1$
+	}
+
+	public void testMissingFile() throws Exception {
+		fFile.delete();
+		assertNull(CompiledSpellDictionary.open(fFile, SOURCE, 42));
+	}
+
+	public void testEmpty() throws Exception {
+		new CompiledSpellDictionary.Builder().write(fFile, SOURCE, 1);
+		CompiledSpellDictionary dictionary= CompiledSpellDictionary.open(fFile, SOURCE, 1);
+		assertNotNull(dictionary);
+		assertTrue(dictionary.isEmpty());
+		assertNull(dictionary.getCandidates(bytes("TRK"))); //$NON-NLS-1$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -206,6 +206,17 @@ public class SpellCheckEngineTestCase extends TestCase {
 
 	}
 
+	public void testAddedWordsShareBuckets() {
+		TestDictionary dictionary= new TestDictionary();
+		String[] words= { "Truck", "Trucks", "trucking", "Trick", "Track", "Lorry", "Lorries" };
+		for (int i= 0; i < words.length; i++) {
+			dictionary.addWord(words[i]);
+			for (int k= 0; k <= i; k++)
+				assertTrue(words[k], dictionary.isCorrect(words[k]));
+		}
+		assertFalse(dictionary.isCorrect("Trecks"));
+	}
+
 	public void testWordProposals() {
 		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.US.toString());
 		final ISpellChecker checker= fEngine.getSpellChecker();
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import org.eclipse.jdt.internal.corext.dom.ASTFlattener;
+import org.eclipse.jdt.internal.corext.dom.ASTNodes;
+import org.eclipse.jdt.internal.corext.dom.Bindings;
+import org.eclipse.jdt.internal.corext.dom.ScopeAnalyzer;
+
+/**
+ * Benchmarks the AST utilities of <code>org.eclipse.jdt.core.manipulation</code> on resolved
+ * ASTs: {@link ASTNodes}, {@link ASTFlattener}, {@link Bindings} and {@link ScopeAnalyzer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 10)
+public class ASTBenchmark {
+
+	private static final String[] INT_PARAMETER= { "int" };
+
+	@Param({ "50", "200" })
+	public int typeCount;
+
+	private BenchmarkProject fProject;
+
+	private CompilationUnit[] fASTs;
+
+	private final List<SimpleName> fNames= new ArrayList<>();
+
+	private final List<ITypeBinding> fTypes= new ArrayList<>();
+
+	private final List<IMethodBinding> fMethods= new ArrayList<>();
+
+	private final List<ReturnStatement> fReturns= new ArrayList<>();
+
+	@Setup
+	public void setUp() throws CoreException {
+		fProject= new BenchmarkProject("ASTBenchmark", typeCount, true);
+		fASTs= fProject.createASTs();
+		for (int i= 0; i < fASTs.length; i++) {
+			fASTs[i].accept(new ASTVisitor() {
+				@Override
+				public boolean visit(SimpleName node) {
+					fNames.add(node);
+					return false;
+				}
+
+				@Override
+				public boolean visit(TypeDeclaration node) {
+					fTypes.add(node.resolveBinding());
+					return true;
+				}
+
+				@Override
+				public boolean visit(MethodDeclaration node) {
+					fMethods.add(node.resolveBinding());
+					return true;
+				}
+
+				@Override
+				public boolean visit(ReturnStatement node) {
+					fReturns.add(node);
+					return true;
+				}
+			});
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws CoreException {
+		fProject.delete();
+	}
+
+	@Benchmark
+	public void enclosingDeclarations(Blackhole blackhole) {
+		for (SimpleName name : fNames) {
+			blackhole.consume(ASTNodes.getEnclosingDeclaration(name));
+			blackhole.consume(ASTNodes.getParent(name, ASTNode.METHOD_DECLARATION));
+			blackhole.consume(ASTNodes.getNormalizedNode(name));
+		}
+	}
+
+	@Benchmark
+	public void flatten(Blackhole blackhole) {
+		for (int i= 0; i < fASTs.length; i++)
+			blackhole.consume(ASTFlattener.asString(fASTs[i]));
+	}
+
+	@Benchmark
+	public void bindingsHierarchy(Blackhole blackhole) {
+		for (ITypeBinding type : fTypes) {
+			blackhole.consume(Bindings.getAllSuperTypes(type));
+			blackhole.consume(Bindings.findMethodInHierarchy(type, "compute", INT_PARAMETER));
+		}
+		for (IMethodBinding method : fMethods)
+			blackhole.consume(Bindings.findOverriddenMethod(method, true));
+	}
+
+	@Benchmark
+	public void declarationsInScope(Blackhole blackhole) {
+		int flags= ScopeAnalyzer.METHODS | ScopeAnalyzer.VARIABLES | ScopeAnalyzer.TYPES | ScopeAnalyzer.CHECK_VISIBILITY;
+		for (ReturnStatement statement : fReturns) {
+			ScopeAnalyzer analyzer= new ScopeAnalyzer((CompilationUnit) statement.getRoot());
+			blackhole.consume(analyzer.getDeclarationsInScope(statement.getStartPosition(), flags));
+		}
+	}
+}
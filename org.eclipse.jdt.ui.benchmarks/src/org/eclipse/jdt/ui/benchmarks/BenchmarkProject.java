@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+/**
+ * A Java project in the benchmark workspace holding the sources created by the
+ * {@link SourceGenerator}.
+ */
+public final class BenchmarkProject {
+
+	private static final String PACKAGE_NAME= "bench";
+
+	private final IJavaProject fProject;
+
+	private final ICompilationUnit[] fUnits;
+
+	/**
+	 * Creates a project with a Java 8 class library and the given number of generated types.
+	 *
+	 * @param name the name of the project
+	 * @param typeCount the number of types to generate
+	 * @param imports <code>true</code> to generate the import declarations
+	 * @throws CoreException if the project could not be created
+	 */
+	public BenchmarkProject(String name, int typeCount, boolean imports) throws CoreException {
+		fProject= JavaProjectHelper.createJavaProject(name, "bin");
+		JavaProjectHelper.addRTJar18(fProject);
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fProject, "src");
+		IPackageFragment pack= root.createPackageFragment(PACKAGE_NAME, true, null);
+		fUnits= new ICompilationUnit[typeCount];
+		for (int i= 0; i < typeCount; i++) {
+			String source= SourceGenerator.createCompilationUnit(PACKAGE_NAME, i, imports);
+			fUnits[i]= pack.createCompilationUnit(SourceGenerator.getTypeName(i) + ".java", source, true, null);
+		}
+	}
+
+	public IJavaProject getJavaProject() {
+		return fProject;
+	}
+
+	public ICompilationUnit[] getCompilationUnits() {
+		return fUnits;
+	}
+
+	/**
+	 * Parses all compilation units with bindings in one batch.
+	 *
+	 * @return the ASTs, in the order of {@link #getCompilationUnits()}
+	 */
+	public CompilationUnit[] createASTs() {
+		final CompilationUnit[] asts= new CompilationUnit[fUnits.length];
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(fProject);
+		parser.setResolveBindings(true);
+		parser.createASTs(fUnits, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				for (int i= 0; i < fUnits.length; i++) {
+					if (fUnits[i].equals(source))
+						asts[i]= ast;
+				}
+			}
+		}, null);
+		return asts;
+	}
+
+	/**
+	 * Deletes the project from the workspace.
+	 *
+	 * @throws CoreException if the project could not be deleted
+	 */
+	public void delete() throws CoreException {
+		JavaProjectHelper.delete(fProject);
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Runs the JMH benchmarks of this bundle in the headless test runtime and writes the results
+ * as JSON.
+ * <p>
+ * The benchmarks need a workspace and the Java model, so they run in the forked OSGi runtime
+ * of the test harness itself rather than in JVMs forked by JMH. The system property
+ * <code>benchmarks.include</code> selects the benchmarks by a regular expression and
+ * <code>benchmarks.result</code> is the path of the JSON result file.
+ * </p>
+ */
+public class BenchmarkSuite extends TestCase {
+
+	private static final String INCLUDE_PROPERTY= "benchmarks.include";
+
+	private static final String RESULT_PROPERTY= "benchmarks.result";
+
+	public static Test suite() {
+		return new TestSuite(BenchmarkSuite.class);
+	}
+
+	public BenchmarkSuite(String name) {
+		super(name);
+	}
+
+	public void testRunBenchmarks() throws RunnerException {
+		File result= new File(System.getProperty(RESULT_PROPERTY, "jmh-result.json"));
+		File parent= result.getAbsoluteFile().getParentFile();
+		if (parent != null)
+			parent.mkdirs();
+
+		Options options= new OptionsBuilder()
+				.include(System.getProperty(INCLUDE_PROPERTY, ".*"))
+				.forks(0)
+				.shouldFailOnError(true)
+				.resultFormat(ResultFormatType.JSON)
+				.result(result.getAbsolutePath())
+				.build();
+		Collection<RunResult> results= new Runner(options).run();
+		assertFalse("No benchmark matched", results.isEmpty());
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.rules.FastPartitioner;
+
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+import org.eclipse.jdt.internal.ui.text.FastJavaPartitionScanner;
+import org.eclipse.jdt.internal.ui.text.JavaHeuristicScanner;
+import org.eclipse.jdt.internal.ui.text.JavaIndenter;
+
+/**
+ * Benchmarks {@link JavaIndenter#computeIndentation(int)} at every line start of the generated
+ * sources, as done when correcting the indentation of a whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 10)
+public class JavaIndenterBenchmark {
+
+	private static final String[] PARTITION_TYPES= new String[] {
+		IJavaPartitions.JAVA_DOC,
+		IJavaPartitions.JAVA_MULTI_LINE_COMMENT,
+		IJavaPartitions.JAVA_SINGLE_LINE_COMMENT,
+		IJavaPartitions.JAVA_STRING,
+		IJavaPartitions.JAVA_CHARACTER,
+		IDocument.DEFAULT_CONTENT_TYPE
+	};
+
+	@Param({ "50", "200" })
+	public int typeCount;
+
+	private IDocument[] fDocuments;
+
+	private JavaIndenter[] fIndenters;
+
+	@Setup
+	public void setUp() {
+		fDocuments= new IDocument[typeCount];
+		fIndenters= new JavaIndenter[typeCount];
+		for (int i= 0; i < typeCount; i++) {
+			IDocument document= new Document(SourceGenerator.createCompilationUnit("bench", i, true));
+			FastPartitioner partitioner= new FastPartitioner(new FastJavaPartitionScanner(), PARTITION_TYPES);
+			partitioner.connect(document);
+			document.setDocumentPartitioner(IJavaPartitions.JAVA_PARTITIONING, partitioner);
+			fDocuments[i]= document;
+			fIndenters[i]= new JavaIndenter(document, new JavaHeuristicScanner(document));
+		}
+	}
+
+	@Benchmark
+	public void computeIndentation(Blackhole blackhole) throws BadLocationException {
+		for (int i= 0; i < fDocuments.length; i++) {
+			IDocument document= fDocuments[i];
+			JavaIndenter indenter= fIndenters[i];
+			for (int line= 0, lines= document.getNumberOfLines(); line < lines; line++)
+				blackhole.consume(indenter.computeIndentation(document.getLineOffset(line)));
+		}
+	}
+}
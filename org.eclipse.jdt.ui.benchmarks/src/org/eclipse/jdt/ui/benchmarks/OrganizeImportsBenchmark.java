@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation;
+
+/**
+ * Benchmarks {@link OrganizeImportsOperation#createTextEdit(org.eclipse.core.runtime.IProgressMonitor)}
+ * on compilation units without import declarations, so that every library type reference has to
+ * be resolved by a type search and added through the import rewrite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 3)
+@Measurement(iterations= 5)
+public class OrganizeImportsBenchmark {
+
+	@Param({ "50", "200" })
+	public int typeCount;
+
+	private BenchmarkProject fProject;
+
+	private ICompilationUnit[] fUnits;
+
+	private CompilationUnit[] fASTs;
+
+	@Setup
+	public void setUp() throws CoreException {
+		fProject= new BenchmarkProject("OrganizeImportsBenchmark", typeCount, false);
+		fUnits= fProject.getCompilationUnits();
+		fASTs= fProject.createASTs();
+	}
+
+	@TearDown
+	public void tearDown() throws CoreException {
+		fProject.delete();
+	}
+
+	@Benchmark
+	public void organizeImports(Blackhole blackhole) throws CoreException {
+		for (int i= 0; i < fUnits.length; i++) {
+			OrganizeImportsOperation operation= new OrganizeImportsOperation(fUnits[i], fASTs[i], true, false, true, null);
+			blackhole.consume(operation.createTextEdit(null));
+		}
+	}
+}
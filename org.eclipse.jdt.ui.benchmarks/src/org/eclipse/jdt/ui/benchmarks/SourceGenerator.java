@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+/**
+ * Generates the sources the benchmarks run on.
+ * <p>
+ * The types form hierarchies of {@link #HIERARCHY_DEPTH} classes each. Every class overrides a
+ * method of its superclass and references a few collection types, so that the sources contain
+ * nested blocks, loops, generic types, method overriding and type references to import.
+ * </p>
+ */
+public final class SourceGenerator {
+
+	/** The number of types in one hierarchy */
+	public static final int HIERARCHY_DEPTH= 10;
+
+	private static final String[] IMPORTS= {
+		"java.util.ArrayList",
+		"java.util.HashMap",
+		"java.util.List",
+		"java.util.Map",
+	};
+
+	private SourceGenerator() {
+		// Not for instantiation
+	}
+
+	/**
+	 * Returns the name of the generated type with the given index.
+	 *
+	 * @param index the index of the type
+	 * @return the simple type name
+	 */
+	public static String getTypeName(int index) {
+		return "Type" + index;
+	}
+
+	/**
+	 * Returns whether the type with the given index is the root of its hierarchy.
+	 *
+	 * @param index the index of the type
+	 * @return <code>true</code> if the type has no generated superclass
+	 */
+	public static boolean isHierarchyRoot(int index) {
+		return index % HIERARCHY_DEPTH == 0;
+	}
+
+	/**
+	 * Creates the source of the compilation unit declaring the type with the given index.
+	 *
+	 * @param packageName the name of the package
+	 * @param index the index of the type
+	 * @param imports <code>true</code> to add the import declarations, <code>false</code> to
+	 *            leave the referenced library types unresolved
+	 * @return the source
+	 */
+	public static String createCompilationUnit(String packageName, int index, boolean imports) {
+		String name= getTypeName(index);
+		boolean root= isHierarchyRoot(index);
+		String parent= root ? name : getTypeName(index - 1);
+
+		StringBuffer buf= new StringBuffer();
+		buf.append("package ").append(packageName).append(";\n\n");
+		if (imports) {
+			for (int i= 0; i < IMPORTS.length; i++)
+				buf.append("import ").append(IMPORTS[i]).append(";\n");
+			buf.append('\n');
+		}
+		buf.append("public class ").append(name);
+		if (root)
+			buf.append(" implements Comparable<").append(name).append('>');
+		else
+			buf.append(" extends ").append(parent);
+		buf.append(" {\n\n");
+
+		buf.append("\tprivate final List<").append(parent).append("> fChildren= new ArrayList<>();\n\n");
+		buf.append("\tprivate final Map<String, ").append(name).append("> fCache= new HashMap<>();\n\n");
+		buf.append("\tprotected int fCount").append(index).append(";\n\n");
+
+		if (!root)
+			buf.append("\t@Override\n");
+		buf.append("\tpublic int compute(int value) {\n");
+		buf.append(root ? "\t\tint sum= value;\n" : "\t\tint sum= super.compute(value);\n");
+		buf.append("\t\tfor (int i= 0; i < value; i++) {\n");
+		buf.append("\t\t\tif (i % 3 == 0) {\n");
+		buf.append("\t\t\t\tsum+= i * fCount").append(index).append(";\n");
+		buf.append("\t\t\t} else {\n");
+		buf.append("\t\t\t\tsum-= fChildren.size();\n");
+		buf.append("\t\t\t}\n");
+		buf.append("\t\t}\n");
+		buf.append("\t\treturn sum;\n");
+		buf.append("\t}\n\n");
+
+		buf.append("\tpublic ").append(parent).append(" add").append(index).append('(').append(parent).append(" child) {\n");
+		buf.append("\t\tfChildren.add(child);\n");
+		buf.append("\t\t").append(parent).append(" last= child;\n");
+		buf.append("\t\tfor (").append(parent).append(" each : fChildren) {\n");
+		buf.append("\t\t\tif (each.compute(fCount").append(index).append(") > last.compute(fChildren.size()))\n");
+		buf.append("\t\t\t\tlast= each;\n");
+		buf.append("\t\t}\n");
+		buf.append("\t\treturn last;\n");
+		buf.append("\t}\n\n");
+
+		buf.append("\tpublic ").append(name).append(" lookup(String key) {\n");
+		buf.append("\t\t").append(name).append(" cached= fCache.get(key);\n");
+		buf.append("\t\tif (cached == null) {\n");
+		buf.append("\t\t\tcached= new ").append(name).append("();\n");
+		buf.append("\t\t\tfCache.put(key, cached);\n");
+		buf.append("\t\t}\n");
+		buf.append("\t\treturn cached;\n");
+		buf.append("\t}\n\n");
+
+		if (root) {
+			buf.append("\t@Override\n");
+			buf.append("\tpublic int compareTo(").append(name).append(" other) {\n");
+			buf.append("\t\treturn Integer.compare(compute(1), other.compute(1));\n");
+			buf.append("\t}\n");
+		} else {
+			buf.append("\tpublic String describe(").append(parent).append(" other) {\n");
+			buf.append("\t\tswitch (compareTo(other)) {\n");
+			buf.append("\t\t\tcase 0:\n");
+			buf.append("\t\t\t\treturn \"same\";\n");
+			buf.append("\t\t\tdefault:\n");
+			buf.append("\t\t\t\treturn lookup(String.valueOf(fCount").append(index).append(")).toString();\n");
+			buf.append("\t\t}\n");
+			buf.append("\t}\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsCreator;
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsModel;
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsSolver;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+
+/**
+ * Benchmarks the type constraints infrastructure: creating {@link TType}s in a
+ * {@link TypeEnvironment}, assignment compatibility checks, and creating and solving the
+ * constraints of a 'Use Supertype Where Possible' refactoring with the
+ * {@link SuperTypeConstraintsSolver}.
+ * <p>
+ * The constraints are solved either sequentially or split into independent components that are
+ * solved concurrently, regardless of the size of the model, so that both modes can be compared.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 10)
+public class TypeEnvironmentBenchmark {
+
+	@Param({ "50", "200", "1000" })
+	public int typeCount;
+
+	@Param({ "sequential", "parallel" })
+	public String solverMode;
+
+	private BenchmarkProject fProject;
+
+	private CompilationUnit[] fASTs;
+
+	private final List<ITypeBinding> fBindings= new ArrayList<>();
+
+	private ITypeBinding fSubType;
+
+	private ITypeBinding fSuperType;
+
+	@Setup
+	public void setUp() throws CoreException {
+		fProject= new BenchmarkProject("TypeEnvironmentBenchmark", typeCount, true);
+		fASTs= fProject.createASTs();
+		for (int i= 0; i < fASTs.length; i++) {
+			fASTs[i].accept(new ASTVisitor() {
+				@Override
+				public void postVisit(ASTNode node) {
+					if (node instanceof Expression) {
+						ITypeBinding binding= ((Expression) node).resolveTypeBinding();
+						if (binding != null)
+							fBindings.add(binding);
+					}
+				}
+			});
+		}
+		fSuperType= ((TypeDeclaration) fASTs[0].types().get(0)).resolveBinding();
+		fSubType= ((TypeDeclaration) fASTs[1].types().get(0)).resolveBinding();
+	}
+
+	@TearDown
+	public void tearDown() throws CoreException {
+		fProject.delete();
+	}
+
+	@Benchmark
+	public TypeEnvironment createTypes() {
+		TypeEnvironment environment= new TypeEnvironment(true);
+		for (ITypeBinding binding : fBindings)
+			environment.create(binding);
+		return environment;
+	}
+
+	@Benchmark
+	public void assignments(Blackhole blackhole) {
+		TypeEnvironment environment= new TypeEnvironment();
+		TType[] types= new TType[fBindings.size()];
+		for (int i= 0; i < types.length; i++)
+			types[i]= environment.create(fBindings.get(i));
+		TType previous= types[0];
+		for (int i= 1; i < types.length; i++) {
+			blackhole.consume(types[i].canAssignTo(previous));
+			previous= types[i];
+		}
+	}
+
+	@Benchmark
+	public SuperTypeConstraintsSolver solveSuperTypeConstraints() {
+		TypeEnvironment environment= new TypeEnvironment();
+		SuperTypeConstraintsModel model= new SuperTypeConstraintsModel(environment, environment.create(fSubType), environment.create(fSuperType));
+		SuperTypeConstraintsCreator creator= new SuperTypeConstraintsCreator(model, false);
+		model.beginCreation();
+		try {
+			for (int i= 0; i < fASTs.length; i++)
+				fASTs[i].accept(creator);
+		} finally {
+			model.endCreation();
+			model.setCompliance(3);
+		}
+		SuperTypeConstraintsSolver solver= new SuperTypeConstraintsSolver(model);
+		solver.setParallelThreshold("parallel".equals(solverMode) ? 0 : Integer.MAX_VALUE);
+		solver.solveConstraints();
+		return solver;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.refactoring;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -19,12 +26,25 @@ import org.eclipse.ltk.core.refactoring.Refactoring;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
 
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.refactoring.descriptors.UseSupertypeDescriptor;
 
 import org.eclipse.jdt.internal.core.refactoring.descriptors.RefactoringSignatureDescriptorFactory;
 import org.eclipse.jdt.internal.corext.codemanipulation.StubUtility;
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsCreator;
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsModel;
+import org.eclipse.jdt.internal.corext.refactoring.structure.constraints.SuperTypeConstraintsSolver;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ConstraintVariable2;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ITypeConstraintVariable;
+import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.template.java.CodeTemplateContextType;
 
 public class UseSupertypeWherePossibleTests extends RefactoringTest {
@@ -492,4 +512,83 @@ public class UseSupertypeWherePossibleTests extends RefactoringTest {
 	public void test70() throws Exception{
 		validatePassingTest("A", new String[]{"A", "I"}, "p.I");
 	}
+
+	public void testParallelSolve() throws Exception {
+		final ICompilationUnit[] units= new ICompilationUnit[22];
+		units[0]= createCU(getPackageP(), "I.java", "package p;\npublic interface I {\n\tvoid m();\n}\n");
+		units[1]= createCU(getPackageP(), "A.java", "package p;\npublic class A implements I {\n\tpublic void m() {}\n\tpublic void n() {}\n}\n");
+		for (int i= 2; i < units.length; i++) {
+			final StringBuffer buf= new StringBuffer();
+			buf.append("package p;\n");
+			buf.append("public class C" + i + " {\n");
+			buf.append("\tA fField= new A();\n");
+			buf.append("\tA get(A a) {\n");
+			buf.append("\t\tA b= a;\n");
+			if (i % 2 == 0) {
+				buf.append("\t\tb.m();\n");
+				buf.append("\t\tI i= fField;\n");
+				buf.append("\t\treturn (A) i;\n");
+			} else {
+				buf.append("\t\tif (b == fField)\n");
+				buf.append("\t\t\tb.n();\n");
+				buf.append("\t\treturn b;\n");
+			}
+			buf.append("\t}\n");
+			buf.append("}\n");
+			units[i]= createCU(getPackageP(), "C" + i + ".java", buf.toString());
+		}
+		final IType subType= units[1].getType("A");
+		final IType superType= units[0].getType("I");
+
+		final String sequential= solveConstraints(units, subType, superType, Integer.MAX_VALUE);
+		assertTrue(sequential.length() > 0);
+		assertEquals(sequential, solveConstraints(units, subType, superType, 1));
+	}
+
+	private static String solveConstraints(ICompilationUnit[] units, IType subType, IType superType, int threshold) {
+		final ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(subType.getJavaProject());
+		final IBinding[] bindings= parser.createBindings(new IJavaElement[] { subType, superType }, null);
+
+		final TypeEnvironment environment= new TypeEnvironment();
+		final SuperTypeConstraintsModel model= new SuperTypeConstraintsModel(environment, environment.create((ITypeBinding) bindings[0]), environment.create((ITypeBinding) bindings[1]));
+		final SuperTypeConstraintsCreator creator= new SuperTypeConstraintsCreator(model, false);
+		final RefactoringASTParser astParser= new RefactoringASTParser(IASTSharedValues.SHARED_AST_LEVEL);
+		model.beginCreation();
+		try {
+			for (int i= 0; i < units.length; i++)
+				astParser.parse(units[i], true).accept(creator);
+		} finally {
+			model.endCreation();
+			model.setCompliance(3);
+		}
+		final SuperTypeConstraintsSolver solver= new SuperTypeConstraintsSolver(model);
+		solver.setParallelThreshold(threshold);
+		solver.solveConstraints();
+
+		final StringBuffer buf= new StringBuffer();
+		final Map<ICompilationUnit, ? extends Collection<? extends ITypeConstraintVariable>> occurrences= solver.getTypeOccurrences();
+		final Map<ICompilationUnit, ? extends Collection<? extends ITypeConstraintVariable>> casts= solver.getObsoleteCasts();
+		for (int i= 0; i < units.length; i++) {
+			buf.append(units[i].getElementName()).append('\n');
+			appendVariables(buf, occurrences.get(units[i]));
+			buf.append("casts:\n");
+			appendVariables(buf, casts.get(units[i]));
+		}
+		return buf.toString();
+	}
+
+	private static void appendVariables(StringBuffer buf, Collection<? extends ITypeConstraintVariable> variables) {
+		if (variables == null)
+			return;
+		final List<String> lines= new ArrayList<>(variables.size());
+		for (final Iterator<? extends ITypeConstraintVariable> iterator= variables.iterator(); iterator.hasNext();) {
+			final ITypeConstraintVariable variable= iterator.next();
+			final TType estimate= (TType) ((ConstraintVariable2) variable).getData(SuperTypeConstraintsSolver.DATA_TYPE_ESTIMATE);
+			lines.add(variable.getRange().getSourceRange().getOffset() + ":" + variable.getRange().getSourceRange().getLength() + " " + (estimate != null ? estimate.getPrettySignature() : null));
+		}
+		Collections.sort(lines);
+		for (final Iterator<String> iterator= lines.iterator(); iterator.hasNext();)
+			buf.append(iterator.next()).append('\n');
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.jdt.ui.tests.refactoring.typeconstraints;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -29,11 +30,16 @@ import org.eclipse.jdt.core.dom.FieldDeclaration;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 
 import org.eclipse.jdt.internal.corext.dom.HierarchicalASTVisitor;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.EnumeratedTypeSet;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.TypeSetEnvironment;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
 
 import org.eclipse.jdt.ui.tests.refactoring.RefactoringTestSetup;
 import org.eclipse.jdt.ui.tests.refactoring.infra.AbstractCUTestCase;
@@ -233,6 +239,93 @@ public class TypeEnvironmentTests extends AbstractCUTestCase {
 		performCreationTest();
 	}
 
+	//---- type ids -----------------------------------------------------------
+
+	public void testTypeIds() throws Exception {
+		TypeEnvironment environment= new TypeEnvironment();
+		TType[] types= { environment.INT, environment.CHAR, environment.BOOLEAN, environment.NULL, environment.VOID };
+		int[] ids= new int[types.length];
+		for (int i= 0; i < types.length; i++)
+			ids[i]= types[i].getId();
+		assertEquals(types.length, environment.getTypeCount());
+		boolean[] used= new boolean[types.length];
+		for (int i= 0; i < types.length; i++) {
+			assertTrue(ids[i] >= 0 && ids[i] < used.length);
+			assertFalse(used[ids[i]]);
+			used[ids[i]]= true;
+		}
+	}
+
+	public void testEqualTypesOfDifferentProjects() throws Exception {
+		IJavaProject otherProject= JavaProjectHelper.createJavaProject("TypeEnvironmentTestsOther", "bin");
+		try {
+			JavaProjectHelper.addRTJar(otherProject);
+			TypeEnvironment environment= new TypeEnvironment();
+			// parameterized types are created per project, but equal types of different projects
+			TType first= environment.create(createListOfStringBinding(RefactoringTestSetup.getProject()));
+			TType second= environment.create(createListOfStringBinding(otherProject));
+			assertNotSame(first, second);
+			assertEquals(first, second);
+			assertEquals(first.getId(), second.getId());
+
+			TypeSetEnvironment typeSetEnvironment= new TypeSetEnvironment(environment);
+			EnumeratedTypeSet set= new EnumeratedTypeSet(Arrays.asList(new TType[] { first, second, environment.INT }).iterator(), typeSetEnvironment);
+			assertEquals(2, set.size());
+			assertTrue(set.contains(second));
+			assertSame(first, set.anyMember());
+
+			EnumeratedTypeSet other= new EnumeratedTypeSet(second, typeSetEnvironment);
+			assertTrue(set.containsAll(other));
+			set.retainAll(other);
+			assertTrue(set.isSingleton());
+			assertEquals(other, set);
+			assertTrue(set.remove(second));
+			assertTrue(set.isEmpty());
+		} finally {
+			JavaProjectHelper.delete(otherProject);
+		}
+	}
+
+	private static ITypeBinding createListOfStringBinding(IJavaProject project) {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setSource("class X {\n\tjava.util.List<String> fList;\n}\n".toCharArray());
+		parser.setUnitName("X.java");
+		parser.setProject(project);
+		parser.setResolveBindings(true);
+		CompilationUnit unit= (CompilationUnit) parser.createAST(null);
+		FieldDeclaration field= ((TypeDeclaration) unit.types().get(0)).getFields()[0];
+		return field.getType().resolveBinding();
+	}
+
+	public void testEnumeratedTypeSet() throws Exception {
+		TypeEnvironment environment= new TypeEnvironment();
+		TypeSetEnvironment typeSetEnvironment= new TypeSetEnvironment(environment);
+		EnumeratedTypeSet first= new EnumeratedTypeSet(Arrays.asList(new TType[] { environment.LONG, environment.INT, environment.CHAR }).iterator(), typeSetEnvironment);
+		EnumeratedTypeSet second= new EnumeratedTypeSet(Arrays.asList(new TType[] { environment.CHAR, environment.BYTE, environment.LONG }).iterator(), typeSetEnvironment);
+
+		assertTrue(first.contains(environment.INT));
+		assertFalse(first.contains(environment.BYTE));
+		// types of other environments are compared by equals
+		assertTrue(first.contains(new TypeEnvironment().INT));
+		assertFalse(first.contains(new TypeEnvironment().BYTE));
+
+		EnumeratedTypeSet union= first.addedTo(second).enumerate();
+		assertEquals(Arrays.asList(new TType[] { environment.LONG, environment.INT, environment.CHAR, environment.BYTE }), Arrays.asList(union.toArray()));
+		assertTrue(union.containsAll(first));
+		assertFalse(first.containsAll(union));
+
+		// the intersection keeps the order of the receiver
+		first.retainAll(second);
+		assertEquals(Arrays.asList(new TType[] { environment.LONG, environment.CHAR }), Arrays.asList(first.toArray()));
+		assertEquals(first, new EnumeratedTypeSet(Arrays.asList(new TType[] { environment.CHAR, environment.LONG }).iterator(), typeSetEnvironment));
+
+		assertTrue(union.removeAll(first));
+		assertEquals(Arrays.asList(new TType[] { environment.INT, environment.BYTE }), Arrays.asList(union.toArray()));
+		assertTrue(union.remove(environment.INT));
+		assertTrue(union.isSingleton());
+		assertEquals(environment.BYTE, union.anyMember());
+	}
+
 	//---- generic assigment test ----------------------------------------------
 
 	private void performGenericAssignmentTest() throws Exception {
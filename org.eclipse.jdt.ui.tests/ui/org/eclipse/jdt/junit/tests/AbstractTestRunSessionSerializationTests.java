@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2017 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -106,6 +106,8 @@ public class AbstractTestRunSessionSerializationTests extends TestCase {
 			// swap out the test run session because it may not have been done earlier
 			// due to lingering TestRunnerViewPart$TestSessionListeners
 			serializationResult.fTestRunSession.swapOut();
+			// the result of a swapped out session is taken from the swap file header
+			assertEquals(imported.getTestResult(true), serializationResult.fTestRunSession.getTestResult(true));
 			assertEqualSessions(serializationResult.fTestRunSession, imported);
 		} finally {
 			if (resultFile.exists())
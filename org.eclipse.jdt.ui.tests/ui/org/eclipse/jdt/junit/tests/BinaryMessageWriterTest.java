@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageWriter;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+
+public class BinaryMessageWriterTest extends TestCase {
+
+	private static final class Frame {
+		final byte fKind;
+		final byte[] fPayload;
+
+		Frame(byte kind, byte[] payload) {
+			fKind= kind;
+			fPayload= payload;
+		}
+
+		int getEventCount() throws IOException {
+			return new DataInputStream(new ByteArrayInputStream(fPayload)).readInt();
+		}
+	}
+
+	private static List<Frame> readFrames(ByteArrayOutputStream bytes) throws IOException {
+		DataInputStream in= new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		List<Frame> frames= new ArrayList<>();
+		while (in.available() > 0) {
+			int length= in.readInt();
+			byte kind= in.readByte();
+			byte[] payload= new byte[length];
+			in.readFully(payload);
+			frames.add(new Frame(kind, payload));
+		}
+		return frames;
+	}
+
+	private static void sendTest(BinaryMessageWriter writer, int i) throws IOException {
+		writer.sendMessage(MessageIds.TEST_START + i + ",test" + i);
+		writer.flush();
+		writer.sendMessage(MessageIds.TEST_END + i + ",test" + i);
+	}
+
+	public void testEventsShareFrame() throws Exception {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		BinaryMessageWriter writer= new BinaryMessageWriter(bytes, Long.MAX_VALUE);
+		for (int i= 1; i <= 3; i++)
+			sendTest(writer, i);
+		writer.flush();
+		assertEquals(0, bytes.size());
+
+		writer.sendMessage(MessageIds.TEST_RUN_END + 10);
+		writer.flush();
+		List<Frame> frames= readFrames(bytes);
+		assertEquals(2, frames.size());
+		assertEquals(MessageIds.FRAME_TEST_EVENTS, frames.get(0).fKind);
+		assertEquals(6, frames.get(0).getEventCount());
+		assertEquals(MessageIds.FRAME_MESSAGE, frames.get(1).fKind);
+		assertEquals(MessageIds.TEST_RUN_END + 10, new String(frames.get(1).fPayload, "UTF-8"));
+	}
+
+	public void testFlushAfterDelay() throws Exception {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		BinaryMessageWriter writer= new BinaryMessageWriter(bytes, 0);
+		writer.sendMessage(MessageIds.TEST_START + "1,test1");
+		writer.flush();
+		List<Frame> frames= readFrames(bytes);
+		assertEquals(1, frames.size());
+		assertEquals(MessageIds.FRAME_TEST_EVENTS, frames.get(0).fKind);
+		assertEquals(1, frames.get(0).getEventCount());
+	}
+
+	public void testCloseSendsPendingEvents() throws Exception {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		BinaryMessageWriter writer= new BinaryMessageWriter(bytes, Long.MAX_VALUE);
+		sendTest(writer, 1);
+		writer.close();
+		List<Frame> frames= readFrames(bytes);
+		assertEquals(1, frames.size());
+		assertEquals(2, frames.get(0).getEventCount());
+	}
+}
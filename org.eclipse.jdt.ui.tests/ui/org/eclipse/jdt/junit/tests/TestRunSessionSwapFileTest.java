@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.junit.model.ITestElement.Result;
+
+import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.model.JUnitModel;
+import org.eclipse.jdt.internal.junit.model.TestCaseElement;
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+
+public class TestRunSessionSwapFileTest extends TestCase {
+
+	private TestRunSession fSession;
+	private int fNextId;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fSession= new TestRunSession("TestRunSessionSwapFileTest", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fSession.removeSwapFile();
+		super.tearDown();
+	}
+
+	private TestElement createTest(TestSuiteElement parent, String name, boolean isSuite, String[] parameterTypes) {
+		TestElement element= fSession.createTestElement(parent, Integer.toString(fNextId++), name, isSuite, 0, false, name, parameterTypes, "[engine:junit]/" + name);
+		element.setElapsedTimeInSeconds(0.125 * fNextId);
+		return element;
+	}
+
+	private static String export(TestRunSession session) throws Exception {
+		ByteArrayOutputStream out= new ByteArrayOutputStream();
+		JUnitModel.exportTestRunSession(session, out);
+		return out.toString("UTF-8");
+	}
+
+	private static String getCounts(TestRunSession session) {
+		return session.getTotalCount() + "/" + session.getStartedCount() + "/" + session.getErrorCount() + "/"
+				+ session.getFailureCount() + "/" + session.getIgnoredCount() + "/" + session.getAssumptionFailureCount();
+	}
+
+	private static int countSwapFiles() {
+		File[] files= JUnitCorePlugin.getHistoryDirectory().listFiles();
+		int count= 0;
+		for (int i= 0; files != null && i < files.length; i++) {
+			if (files[i].getName().endsWith(".swap"))
+				count++;
+		}
+		return count;
+	}
+
+	public void testWriteReadRoundTrip() throws Exception {
+		TestSuiteElement root= fSession.getTestRoot();
+		TestSuiteElement suite= (TestSuiteElement) createTest(root, "p.Suite", true, null);
+		TestSuiteElement nested= (TestSuiteElement) createTest(suite, "p.Nested", true, null);
+
+		TestElement ok= createTest(nested, "testOk(p.Nested)", false, null);
+		fSession.registerTestEnded(ok, true);
+
+		TestElement error= createTest(nested, "testError(p.Nested)", false, null);
+		fSession.registerTestFailureStatus(error, Status.ERROR, "java.lang.RuntimeException\n\tat p.Nested.testError(Nested.java:10)", null, null);
+		fSession.registerTestEnded(error, true);
+
+		TestElement failure= createTest(suite, "testFailure(p.Suite)", false, new String[] { "int", "java.lang.String" });
+		fSession.registerTestFailureStatus(failure, Status.FAILURE, "junit.framework.ComparisonFailure\n\tat p.Suite.testFailure(Suite.java:20)", "expected\nvalue", "actual\nvalue");
+		fSession.registerTestEnded(failure, true);
+
+		TestElement ignored= createTest(suite, "testIgnored(p.Suite)", false, null);
+		((TestCaseElement) ignored).setIgnored(true);
+		fSession.registerTestEnded(ignored, true);
+
+		TestElement assumption= createTest(suite, "testAssumption(p.Suite)", false, null);
+		assumption.setAssumptionFailed(true);
+		fSession.registerTestFailureStatus(assumption, Status.OK, "org.junit.AssumptionViolatedException", null, null);
+		fSession.registerTestEnded(assumption, true);
+
+		TestElement incomplete= createTest(suite, "testIncomplete(p.Suite)", false, null);
+		fSession.registerTestEnded(incomplete, false);
+
+		fSession.registerTestEnded(nested, true);
+		fSession.registerTestEnded(suite, true);
+
+		String expected= export(fSession);
+		Result expectedResult= fSession.getTestResult(true);
+		double expectedTime= fSession.getElapsedTimeInSeconds();
+		String expectedCounts= getCounts(fSession);
+
+		int swapFiles= countSwapFiles();
+		fSession.swapOut();
+		assertEquals(swapFiles + 1, countSwapFiles());
+
+		// answered from the swap file header, without swapping in
+		assertEquals(expectedResult, fSession.getTestResult(true));
+		assertEquals(expectedTime, fSession.getElapsedTimeInSeconds(), 0);
+
+		assertEquals(expected, export(fSession));
+		assertEquals(expectedCounts, getCounts(fSession));
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.junit.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TreeItem;
+
+import org.eclipse.jface.viewers.TreeViewer;
+
+import org.eclipse.jdt.internal.junit.model.TestElement;
+import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSuiteElement;
+import org.eclipse.jdt.internal.junit.ui.TestSessionTreeContentProvider;
+import org.eclipse.jdt.internal.junit.ui.TestViewer;
+
+public class TestViewerTest extends TestCase {
+
+	private Shell fShell;
+	private TestRunSession fSession;
+	private int fNextId;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fShell= new Shell();
+		fSession= new TestRunSession("TestViewerTest", null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fShell.dispose();
+		super.tearDown();
+	}
+
+	private TreeViewer createViewer() {
+		TreeViewer viewer= new TreeViewer(fShell);
+		viewer.setContentProvider(new TestSessionTreeContentProvider());
+		viewer.setInput(fSession.getTestRoot());
+		return viewer;
+	}
+
+	private TestElement add(List<TestElement> added, TestSuiteElement parent, String name, boolean isSuite) {
+		TestElement element= fSession.createTestElement(parent, Integer.toString(fNextId++), name, isSuite, 0, false, name, null, null);
+		added.add(element);
+		return element;
+	}
+
+	private static void collectItems(TreeItem[] items, StringBuffer buf, String indent) {
+		for (int i= 0; i < items.length; i++) {
+			buf.append(indent).append(((TestElement) items[i].getData()).getTestName()).append('\n');
+			collectItems(items[i].getItems(), buf, indent + "  ");
+		}
+	}
+
+	private static String getTree(TreeViewer viewer) {
+		viewer.expandAll();
+		StringBuffer buf= new StringBuffer();
+		collectItems(viewer.getTree().getItems(), buf, "");
+		return buf.toString();
+	}
+
+	public void testBatchedAddsGiveSameTree() throws Exception {
+		TreeViewer batched= createViewer();
+		TestSuiteElement root= fSession.getTestRoot();
+
+		List<TestElement> added= new ArrayList<>();
+		TestSuiteElement suiteA= (TestSuiteElement) add(added, root, "SuiteA", true);
+		add(added, suiteA, "testA1", false);
+		TestViewer.addElementsToTree(batched, added.toArray());
+		batched.expandAll();
+
+		added.clear();
+		add(added, suiteA, "testA2", false);
+		TestSuiteElement suiteB= (TestSuiteElement) add(added, root, "SuiteB", true);
+		TestSuiteElement suiteC= (TestSuiteElement) add(added, suiteB, "SuiteC", true);
+		add(added, suiteC, "testC1", false);
+		add(added, suiteB, "testB1", false);
+		TestViewer.addElementsToTree(batched, added.toArray());
+
+		added.clear();
+		add(added, suiteC, "testC2", false);
+		add(added, suiteA, "testA3", false);
+		add(added, suiteB, "testB2", false);
+		TestViewer.addElementsToTree(batched, added.toArray());
+
+		TreeViewer refreshed= createViewer();
+		String expected= getTree(refreshed);
+		assertEquals(expected, getTree(batched));
+		assertEquals(""
+				+ "SuiteA\n"
+				+ "  testA1\n"
+				+ "  testA2\n"
+				+ "  testA3\n"
+				+ "SuiteB\n"
+				+ "  SuiteC\n"
+				+ "    testC1\n"
+				+ "    testC2\n"
+				+ "  testB1\n"
+				+ "  testB2\n", expected);
+	}
+}
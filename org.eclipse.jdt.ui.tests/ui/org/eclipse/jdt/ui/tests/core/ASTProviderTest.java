@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,13 +15,27 @@ import junit.framework.TestSuite;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 
+import org.eclipse.swt.widgets.Display;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 
+import org.eclipse.core.resources.IFile;
+
 import org.eclipse.text.edits.ReplaceEdit;
 
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.part.FileEditorInput;
+
+import org.eclipse.ui.texteditor.ITextEditor;
+
 import org.eclipse.ltk.core.refactoring.Change;
 import org.eclipse.ltk.core.refactoring.CreateChangeOperation;
 import org.eclipse.ltk.core.refactoring.PerformChangeOperation;
@@ -32,12 +46,20 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+
 
 /**
  * Tests the AST provider.
@@ -116,6 +138,7 @@ public class ASTProviderTest extends CoreTests {
 
 	@Override
 	protected void tearDown() throws Exception {
+		JavaPlugin.getActivePage().closeAllEditors(false);
 		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
 	}
 
@@ -144,6 +167,243 @@ public class ASTProviderTest extends CoreTests {
 		cu.getBuffer().save(null, true);
 	}
 
+	public void testRecentASTReusedAfterSwitchingBack() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ICompilationUnit b= createClass("B");
+		ASTProvider provider= JavaPlugin.getDefault().getASTProvider();
+
+		activate(a);
+		activate(b);
+		int hits= provider.getRecentASTCacheHits();
+		int misses= provider.getRecentASTCacheMisses();
+
+		JavaUI.openInEditor(a);
+		assertEquals(hits + 1, provider.getRecentASTCacheHits());
+		assertEquals(misses, provider.getRecentASTCacheMisses());
+		assertNotNull(SharedASTProvider.getAST(a, SharedASTProvider.WAIT_ACTIVE_ONLY, null));
+	}
+
+	public void testRecentASTEvictedAtCapacity() throws Exception {
+		// one more editor than the cache holds: activating the last one evicts the AST of the first one
+		ICompilationUnit[] cus= new ICompilationUnit[6];
+		for (int i= 0; i < cus.length; i++)
+			cus[i]= createClass("E" + i);
+		ASTProvider provider= JavaPlugin.getDefault().getASTProvider();
+
+		int evictions= provider.getRecentASTCacheEvictions();
+		for (int i= 0; i < cus.length; i++)
+			activate(cus[i]);
+		assertEquals(evictions + 1, provider.getRecentASTCacheEvictions());
+
+		int hits= provider.getRecentASTCacheHits();
+		int misses= provider.getRecentASTCacheMisses();
+		activate(cus[0]);
+		assertEquals(hits, provider.getRecentASTCacheHits());
+		assertEquals(misses + 1, provider.getRecentASTCacheMisses());
+
+		activate(cus[cus.length - 1]);
+		assertEquals(hits + 1, provider.getRecentASTCacheHits());
+	}
+
+	public void testRecentASTNotReusedAfterDocumentChange() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ICompilationUnit b= createClass("B");
+		ASTProvider provider= JavaPlugin.getDefault().getASTProvider();
+
+		ITextEditor editor= (ITextEditor) JavaUI.openInEditor(a);
+		CompilationUnit oldAST= getStableAST(a);
+		activate(b);
+
+		IDocument document= editor.getDocumentProvider().getDocument(editor.getEditorInput());
+		document.replace(document.get().indexOf('}'), 0, "\tint added;\n");
+		int hits= provider.getRecentASTCacheHits();
+
+		CompilationUnit newAST= activate(a);
+		assertEquals(hits, provider.getRecentASTCacheHits());
+		assertNotSame(oldAST, newAST);
+		assertEquals(1, ((TypeDeclaration) newAST.types().get(0)).getFields().length);
+	}
+
+	public void testRecentASTNotReusedAfterBufferChange() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ICompilationUnit b= createClass("B");
+		ICompilationUnit c= createClass("C");
+		ASTProvider provider= JavaPlugin.getDefault().getASTProvider();
+
+		ITextEditor editor= (ITextEditor) JavaUI.openInEditor(a);
+		CompilationUnit oldAST= getStableAST(a);
+		IDocument oldDocument= editor.getDocumentProvider().getDocument(editor.getEditorInput());
+		activate(b);
+
+		// the file buffer of A is released and connected again with a new document
+		editor.setInput(new FileEditorInput((IFile) c.getResource()));
+		editor.setInput(new FileEditorInput((IFile) a.getResource()));
+		assertNotSame(oldDocument, editor.getDocumentProvider().getDocument(editor.getEditorInput()));
+		int hits= provider.getRecentASTCacheHits();
+
+		CompilationUnit newAST= activate(a);
+		assertEquals(hits, provider.getRecentASTCacheHits());
+		assertNotSame(oldAST, newAST);
+	}
+
+	public void testWaitingClientGetsReconciledAST() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ASTProvider provider= createProvider(JavaUI.openInEditor(a));
+		try {
+			aboutToBeReconciled(provider, a);
+			CompilationUnit[] result= new CompilationUnit[1];
+			Thread client= getASTInBackground(provider, a, result);
+			waitUntilBlocked(client);
+
+			CompilationUnit ast= parse(a);
+			reconciled(provider, ast, a);
+			client.join(5000);
+			assertFalse(client.isAlive());
+			assertSame(ast, result[0]);
+		} finally {
+			provider.dispose();
+		}
+	}
+
+	public void testWaitingClientNotGivenASTOfOtherElement() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ICompilationUnit b= createClass("B");
+		IEditorPart editorA= JavaUI.openInEditor(a);
+		IEditorPart editorB= JavaUI.openInEditor(b);
+		ASTProvider provider= createProvider(editorA);
+		try {
+			aboutToBeReconciled(provider, a);
+			CompilationUnit[] result= new CompilationUnit[1];
+			Thread client= getASTInBackground(provider, a, result);
+			waitUntilBlocked(client);
+
+			// B becomes active and its AST is published while the client still waits for A
+			new Accessor(provider, ASTProvider.class).invoke("activeJavaEditorChanged", new Class[] { IWorkbenchPart.class }, new Object[] { editorB });
+			aboutToBeReconciled(provider, b);
+			CompilationUnit astB= parse(b);
+			reconciled(provider, astB, b);
+
+			client.join(5000);
+			assertFalse(client.isAlive());
+			assertNotNull(result[0]);
+			assertNotSame(astB, result[0]);
+			assertEquals("A", ((TypeDeclaration) result[0].types().get(0)).getName().getIdentifier());
+		} finally {
+			provider.dispose();
+		}
+	}
+
+	public void testASTPublishedWhileClientStartsWaitingNotMissed() throws Exception {
+		ICompilationUnit a= createClass("A");
+		ASTProvider provider= createProvider(JavaUI.openInEditor(a));
+		try {
+			CompilationUnit ast= parse(a);
+			// publish right after the client has started, so that the AST sometimes arrives
+			// between the client's reconcile check and its wait; a missed change would block
+			// the client until the provider's wait timeout
+			for (int i= 0; i < 100; i++) {
+				aboutToBeReconciled(provider, a);
+				CompilationUnit[] result= new CompilationUnit[1];
+				Thread client= getASTInBackground(provider, a, result);
+				if (i % 2 == 1)
+					Thread.yield();
+				reconciled(provider, ast, a);
+				client.join(5000);
+				assertFalse("client blocked in round " + i, client.isAlive());
+				assertSame(ast, result[0]);
+			}
+		} finally {
+			provider.dispose();
+		}
+	}
+
+	/*
+	 * Creates an AST provider that is not connected to the reconcilers, with the given editor
+	 * as active editor.
+	 */
+	private static ASTProvider createProvider(IEditorPart editor) {
+		ASTProvider provider= new ASTProvider();
+		new Accessor(provider, ASTProvider.class).invoke("activeJavaEditorChanged", new Class[] { IWorkbenchPart.class }, new Object[] { editor });
+		return provider;
+	}
+
+	private static void aboutToBeReconciled(ASTProvider provider, ITypeRoot element) {
+		new Accessor(provider, ASTProvider.class).invoke("aboutToBeReconciled", new Class[] { ITypeRoot.class }, new Object[] { element });
+	}
+
+	private static void reconciled(ASTProvider provider, CompilationUnit ast, ITypeRoot element) {
+		new Accessor(provider, ASTProvider.class).invoke("reconciled", new Class[] { CompilationUnit.class, ITypeRoot.class, IProgressMonitor.class }, new Object[] { ast, element, null });
+	}
+
+	private static CompilationUnit parse(ICompilationUnit cu) {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setSource(cu);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	private static Thread getASTInBackground(final ASTProvider provider, final ICompilationUnit cu, final CompilationUnit[] result) {
+		Thread thread= new Thread("AST client") {
+			@Override
+			public void run() {
+				result[0]= provider.getAST(cu, SharedASTProvider.WAIT_YES, null);
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
+	private static void waitUntilBlocked(Thread thread) throws InterruptedException {
+		for (int i= 0; i < 500 && thread.getState() != Thread.State.TIMED_WAITING; i++)
+			Thread.sleep(10);
+		assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+	}
+
+	private ICompilationUnit createClass(String name) throws CoreException {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class " + name + " {\n");
+		buf.append("}\n");
+		return pack1.createCompilationUnit(name + ".java", buf.toString(), false, null);
+	}
+
+	/*
+	 * Activates the editor of the given compilation unit, opening it if necessary.
+	 */
+	private static CompilationUnit activate(ICompilationUnit cu) throws Exception {
+		JavaUI.openInEditor(cu);
+		return getStableAST(cu);
+	}
+
+	/*
+	 * Returns the shared AST of the active compilation unit once the reconciler no longer replaces it.
+	 */
+	private static CompilationUnit getStableAST(ICompilationUnit cu) throws Exception {
+		CompilationUnit ast= SharedASTProvider.getAST(cu, SharedASTProvider.WAIT_YES, null);
+		for (int i= 0; i < 50; i++) {
+			runEventQueue(100);
+			CompilationUnit current= SharedASTProvider.getAST(cu, SharedASTProvider.WAIT_YES, null);
+			if (current == ast) {
+				assertNotNull(ast);
+				return ast;
+			}
+			ast= current;
+		}
+		fail("AST of " + cu.getElementName() + " does not settle");
+		return null;
+	}
+
+	private static void runEventQueue(long millis) throws InterruptedException {
+		Display display= Display.getCurrent();
+		long end= System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			while (display.readAndDispatch()) {
+				// process all pending events
+			}
+			Thread.sleep(10);
+		}
+	}
+
 	private static String getNormalizeNumber(int number) {
 		if (number < 10) {
 			return "000" + number;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,23 +11,38 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IInitializer;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallGraphIndex;
 import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
 import org.eclipse.jdt.internal.corext.callhierarchy.MethodWrapper;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import org.eclipse.jdt.ui.tests.callhierarchy.CallHierarchyTestHelper;
 
 public class CallHierarchyTest extends TestCase {
@@ -452,6 +467,197 @@ public class CallHierarchyTest extends TestCase {
         assertEquals("Wrong line number", 12, recursiveMethod2Wrapper.getMethodCall().getFirstCallLocation().getLineNumber());
     }
 
+    public void testExpandCallers() throws Exception {
+        helper.createSimpleClasses();
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        int depth= callHierarchy.getExpandDepth();
+        int budget= callHierarchy.getExpandBudget();
+        try {
+            IMember[] members= new IMember[] { helper.getMethod1() };
+
+            // method1 <- method2, method3; method2 <- method3; method3 <- method4
+            callHierarchy.setExpandDepth(2);
+            callHierarchy.setExpandBudget(100);
+            assertEquals(3, callHierarchy.expandCallers(members, IJavaSearchConstants.REFERENCES, new NullProgressMonitor()));
+
+            callHierarchy.setExpandDepth(3);
+            assertEquals(5, callHierarchy.expandCallers(members, IJavaSearchConstants.REFERENCES, new NullProgressMonitor()));
+
+            callHierarchy.setExpandBudget(2);
+            assertEquals(2, callHierarchy.expandCallers(members, IJavaSearchConstants.REFERENCES, new NullProgressMonitor()));
+        } finally {
+            callHierarchy.setExpandDepth(depth);
+            callHierarchy.setExpandBudget(budget);
+        }
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod2());
+        expectedMethods.add(helper.getMethod3());
+        MethodWrapper[] calls= getSingleCallerRoot(helper.getMethod1()).getCalls(new NullProgressMonitor());
+        helper.assertCalls(expectedMethods, calls);
+
+        Collection<IMember> expectedSecondLevelMethods= new ArrayList<>();
+        expectedSecondLevelMethods.add(helper.getMethod4());
+        MethodWrapper wrapper= helper.findMethodWrapper(helper.getMethod3(), calls);
+        helper.assertCalls(expectedSecondLevelMethods, wrapper.getCalls(new NullProgressMonitor()));
+    }
+
+    public void testCacheSharedBetweenRoots() throws Exception {
+        helper.createSimpleClasses();
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod4());
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(helper.getMethod3()).getCalls(new NullProgressMonitor()));
+
+        // a new root must not return stale callers from the shared cache
+        helper.getType2().createMethod("public void method5() { method3(); }\n", null, true, null);
+        IMethod method5= helper.getType2().getMethod("method5", EMPTY);
+        expectedMethods.add(method5);
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(helper.getMethod3()).getCalls(new NullProgressMonitor()));
+    }
+
+    public void testCacheInvalidation() throws Exception {
+        helper.createSimpleClasses();
+
+        MethodWrapper callersOf1= getSingleCallerRoot(helper.getMethod1());
+        MethodWrapper callersOf2= getSingleCallerRoot(helper.getMethod2());
+        MethodWrapper callersOfRecursive1= getSingleCallerRoot(helper.getRecursiveMethod1());
+        MethodWrapper calleesOf2= getSingleCalleeRoot(helper.getMethod2());
+        MethodWrapper[] wrappers= new MethodWrapper[] { callersOf1, callersOf2, callersOfRecursive1, calleesOf2 };
+        for (int i= 0; i < wrappers.length; i++) {
+            wrappers[i].getCalls(new NullProgressMonitor());
+            assertTrue(wrappers[i].isCached());
+        }
+
+        // opening and closing a working copy doesn't change any calls
+        ICompilationUnit cuA= helper.getType1().getCompilationUnit();
+        cuA.becomeWorkingCopy(null);
+        cuA.discardWorkingCopy();
+        for (int i= 0; i < wrappers.length; i++) {
+            assertTrue(wrappers[i].isCached());
+        }
+
+        // a new unit that calls method2 only affects the callers of method2
+        helper.getPackage1().getCompilationUnit("C.java").createType("public class C {\n void m(A a) { a.method2(); }\n}\n", null, true, null);
+        assertTrue(callersOf1.isCached());
+        assertFalse(callersOf2.isCached());
+        assertTrue(callersOfRecursive1.isCached());
+        assertTrue(calleesOf2.isCached());
+
+        // changing B removes the calls from and to B
+        helper.getType2().createMethod("public void method5() { }\n", null, true, null);
+        assertFalse(callersOf1.isCached());
+        assertTrue(callersOfRecursive1.isCached());
+        assertTrue(calleesOf2.isCached());
+
+        Collection<IMember> expectedMethods= new ArrayList<>();
+        expectedMethods.add(helper.getMethod3());
+        expectedMethods.add(helper.getPackage1().getCompilationUnit("C.java").getType("C").getMethod("m", new String[] { "QA;" }));
+        helper.assertCalls(expectedMethods, getSingleCallerRoot(helper.getMethod2()).getCalls(new NullProgressMonitor()));
+    }
+
+    public void testCallersWithCallGraphIndex() throws Exception {
+        helper.createSimpleClasses();
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        callHierarchy.setCallGraphIndexEnabled(true);
+        try {
+            CallGraphIndex index= callHierarchy.getCallGraphIndex();
+            Job.getJobManager().join(CallGraphIndex.FAMILY, null);
+            assertTrue(index.isUpToDate());
+
+            IJavaElement cuA= helper.getType1().getCompilationUnit();
+            IJavaElement cuB= helper.getType2().getCompilationUnit();
+            List<IJavaElement> elements= Arrays.asList(index.getSearchElements(helper.getMethod1(), SearchEngine.createWorkspaceScope()));
+            assertTrue(elements.contains(cuA));
+            assertTrue(elements.contains(cuB));
+            elements= Arrays.asList(index.getSearchElements(helper.getMethod4(), SearchEngine.createWorkspaceScope()));
+            assertFalse(elements.contains(cuA));
+            assertFalse(elements.contains(cuB));
+
+            Collection<IMember> expectedMethods= new ArrayList<>();
+            expectedMethods.add(helper.getMethod2());
+            expectedMethods.add(helper.getMethod3());
+            helper.assertCalls(expectedMethods, getSingleCallerRoot(helper.getMethod1()).getCalls(new NullProgressMonitor()));
+
+            // a changed unit is indexed again
+            helper.getType2().createMethod("public void method5() { method4(); }\n", null, true, null);
+            Job.getJobManager().join(CallGraphIndex.FAMILY, null);
+            assertTrue(index.isUpToDate());
+            assertTrue(Arrays.asList(index.getSearchElements(helper.getMethod4(), SearchEngine.createWorkspaceScope())).contains(cuB));
+            assertFalse(Arrays.asList(index.getSearchElements(helper.getMethod4(), SearchEngine.createWorkspaceScope())).contains(cuA));
+
+            expectedMethods.clear();
+            expectedMethods.add(helper.getType2().getMethod("method5", EMPTY));
+            helper.assertCalls(expectedMethods, getSingleCallerRoot(helper.getMethod4()).getCalls(new NullProgressMonitor()));
+        } finally {
+            callHierarchy.setCallGraphIndexEnabled(false);
+            callHierarchy.shutdownCallGraphIndex();
+        }
+    }
+
+    public void testCallGraphIndexCallThroughGenericInterface() throws Exception {
+        helper.createPackages();
+        IPackageFragment pack1= helper.getPackage1();
+        pack1.getCompilationUnit("I.java").createType("public interface I<T> {\n void foo(T t);\n}\n", null, true, null);
+        IType impl= pack1.getCompilationUnit("Impl.java").createType("public class Impl implements I<String> {\n public void foo(String s) { }\n}\n", null, true, null);
+        IType caller= helper.getPackage2().getCompilationUnit("Caller.java").createType(
+                "public class Caller {\n public void bar(pack1.I<String> i) { i.foo(\"\"); }\n}\n", null, true, null);
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        callHierarchy.setCallGraphIndexEnabled(true);
+        try {
+            CallGraphIndex index= callHierarchy.getCallGraphIndex();
+            Job.getJobManager().join(CallGraphIndex.FAMILY, null);
+            assertTrue(index.isUpToDate());
+
+            // the call binds to foo(Object), the searched method is foo(String)
+            IMethod foo= impl.getMethod("foo", new String[] { "QString;" });
+            List<IJavaElement> elements= Arrays.asList(index.getSearchElements(foo, SearchEngine.createWorkspaceScope()));
+            assertTrue(elements.contains(caller.getCompilationUnit()));
+
+            Collection<IMember> expectedMethods= new ArrayList<>();
+            expectedMethods.add(caller.getMethod("bar", new String[] { "Qpack1.I<QString;>;" }));
+            helper.assertCalls(expectedMethods, getSingleCallerRoot(foo).getCalls(new NullProgressMonitor()));
+        } finally {
+            callHierarchy.setCallGraphIndexEnabled(false);
+            callHierarchy.shutdownCallGraphIndex();
+        }
+    }
+
+    public void testCallGraphIndexBinaryRootsAndSave() throws Exception {
+        helper.createSimpleClasses();
+
+        CallHierarchy callHierarchy= CallHierarchy.getDefault();
+        callHierarchy.setCallGraphIndexEnabled(true);
+        try {
+            CallGraphIndex index= callHierarchy.getCallGraphIndex();
+            Job.getJobManager().join(CallGraphIndex.FAMILY, null);
+            assertFalse(containsBinaryRoot(index.getSearchElements(helper.getMethod1(), SearchEngine.createWorkspaceScope())));
+
+            // the cached binary roots are collected again when the classpath changes
+            IPackageFragmentRoot rtJar= JavaProjectHelper.addRTJar(helper.getJavaProject2());
+            Job.getJobManager().join(CallGraphIndex.FAMILY, null);
+            assertTrue(Arrays.asList(index.getSearchElements(helper.getMethod1(), SearchEngine.createWorkspaceScope())).contains(rtJar));
+        } finally {
+            callHierarchy.setCallGraphIndexEnabled(false);
+            callHierarchy.shutdownCallGraphIndex();
+        }
+
+        File file= JavaPlugin.getDefault().getStateLocation().append(CallGraphIndex.FILE_NAME).toFile();
+        assertTrue(file.isFile());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    private static boolean containsBinaryRoot(IJavaElement[] elements) throws Exception {
+        for (int i= 0; i < elements.length; i++) {
+            if (elements[i] instanceof IPackageFragmentRoot && ((IPackageFragmentRoot) elements[i]).getKind() == IPackageFragmentRoot.K_BINARY)
+                return true;
+        }
+        return false;
+    }
+
     private void assertRecursive(MethodWrapper[] callResults, boolean shouldBeRecursive) {
         for (int i= 0; i < callResults.length; i++) {
             assertEquals(
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,7 @@ import org.eclipse.jdt.core.search.TypeNameMatch;
 
 import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation;
 import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation.IChooseImportQuery;
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
 
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.PreferenceConstants;
@@ -330,6 +331,49 @@ public class ImportOrganizeTest extends CoreTests {
 		});
 	}
 
+	public void testTypeNameMatchCache() throws Exception {
+		File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+		assertTrue("junit src not found", junitSrcArchive != null && junitSrcArchive.exists());
+
+		JavaProjectHelper.addSourceContainerWithImport(fJProject1, "src", junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+
+		ICompilationUnit cu1= (ICompilationUnit) fJProject1.findElement(new Path("junit/textui/TestRunner.java"));
+		assertNotNull("TestRunner.java", cu1);
+		ICompilationUnit cu2= (ICompilationUnit) fJProject1.findElement(new Path("junit/runner/LoadingTestCollector.java"));
+		assertNotNull("LoadingTestCollector.java", cu2);
+
+		TypeNameMatchCache cache= new TypeNameMatchCache();
+		cache.prefetch(fJProject1, new ICompilationUnit[] { cu1, cu2 }, null);
+
+		String[] order= new String[0];
+		setOrganizeImportSettings(order, 99, 99, fJProject1);
+
+		IChooseImportQuery query= createQuery("TestRunner", new String[] {}, new int[] {});
+		OrganizeImportsOperation op= new OrganizeImportsOperation(cu1, null, false, true, true, query, cache);
+		op.run(null);
+
+		assertImports(cu1, new String[] {
+			"java.io.PrintStream",
+			"junit.framework.Test",
+			"junit.framework.TestResult",
+			"junit.framework.TestSuite",
+			"junit.runner.BaseTestRunner",
+			"junit.runner.StandardTestSuiteLoader",
+			"junit.runner.TestSuiteLoader",
+			"junit.runner.Version"
+		});
+
+		query= createQuery("LoadingTestCollector", new String[] {}, new int[] {});
+		op= new OrganizeImportsOperation(cu2, null, false, true, true, query, cache);
+		op.run(null);
+
+		assertImports(cu2, new String[] {
+			"java.lang.reflect.Modifier",
+			"junit.framework.Test",
+			"junit.framework.TestSuite",
+		});
+	}
+
 	public void testInnerClassVisibility() throws Exception {
 		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -18,6 +22,8 @@ import org.w3c.dom.Element;
 
 import org.eclipse.jdt.internal.corext.util.History;
 
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -131,6 +137,22 @@ public class SelectionHistoryTest extends TestCase {
 
 	}
 
+	private static final class PersistentTestHistory extends History<String, String> {
+
+		public PersistentTestHistory(String fileName) {
+			super(fileName);
+		}
+		@Override
+		protected void setAttributes(Object object, Element element) {
+			element.setAttribute("name", (String) object);
+		}
+		@Override
+		protected String createFromElement(Element type) {return type.getAttribute("name");}
+		@Override
+		protected String getKey(String object) {return object;}
+
+	}
+
 	public void testOrganizeImportHistory01() throws Exception {
 		History<String, String> history= new TestHistory();
 		Comparator<String> comparator= new TestHistoryComparator(history);
@@ -193,4 +215,63 @@ public class SelectionHistoryTest extends TestCase {
 		assertEquals(strings, expected);
 	}
 
+	public void testHistoryPersistence() throws Exception {
+		String fileName= "SelectionHistoryTest.xml";
+		File binaryFile= JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest.dat").toFile();
+		try {
+			History<String, String> history= new PersistentTestHistory(fileName);
+			history.accessed("a");
+			history.accessed("b");
+			history.accessed("c");
+			history.accessed("a");
+			history.save();
+			assertTrue(binaryFile.exists());
+
+			History<String, String> loaded= new PersistentTestHistory(fileName);
+			loaded.load();
+			assertEquals(0, loaded.getPosition("b"));
+			assertEquals(1, loaded.getPosition("c"));
+			assertEquals(2, loaded.getPosition("a"));
+			assertEquals(-1, loaded.getPosition("d"));
+			assertEquals(1.0f, loaded.getNormalizedPosition("a"), 0.0f);
+		} finally {
+			binaryFile.delete();
+		}
+	}
+
+	public void testXMLHistoryKept() throws Exception {
+		String fileName= "SelectionHistoryTest2.xml";
+		File xmlFile= JavaPlugin.getDefault().getStateLocation().append(fileName).toFile();
+		File binaryFile= JavaPlugin.getDefault().getStateLocation().append("SelectionHistoryTest2.dat").toFile();
+		try {
+			History<String, String> history= new PersistentTestHistory(fileName);
+			history.accessed("a");
+			history.save();
+
+			// written by a version that only knows the XML format
+			try (Writer writer= new OutputStreamWriter(new FileOutputStream(xmlFile), "utf-8")) {
+				writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<histroyRootNode><infoNode name=\"b\"/><infoNode name=\"c\"/></histroyRootNode>\n");
+			}
+			assertTrue(binaryFile.setLastModified(xmlFile.lastModified() - 10000));
+
+			History<String, String> loaded= new PersistentTestHistory(fileName);
+			loaded.load();
+			assertEquals(-1, loaded.getPosition("a"));
+			assertEquals(0, loaded.getPosition("b"));
+			assertEquals(1, loaded.getPosition("c"));
+
+			// saving keeps the XML file, an older XML file is ignored
+			loaded.accessed("d");
+			loaded.save();
+			assertTrue(xmlFile.exists());
+			assertTrue(xmlFile.setLastModified(binaryFile.lastModified() - 10000));
+			History<String, String> reloaded= new PersistentTestHistory(fileName);
+			reloaded.load();
+			assertEquals(2, reloaded.getPosition("d"));
+		} finally {
+			binaryFile.delete();
+			xmlFile.delete();
+		}
+	}
+
 }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.ui.typehierarchy.SharedTypeHierarchyService;
+
+
+public class SharedTypeHierarchyServiceTest extends TestCase {
+
+	private static final Class<SharedTypeHierarchyServiceTest> THIS= SharedTypeHierarchyServiceTest.class;
+
+	private IJavaProject fJavaProject;
+
+	private IPackageFragment fPack1;
+
+	public SharedTypeHierarchyServiceTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJavaProject= ProjectTestSetup.getProject();
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		fPack1= root.createPackageFragment("pack1", true, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJavaProject, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	public void testReferenceCounting() throws Exception {
+		IType typeA= fPack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IJavaElement[] input= new IJavaElement[] { typeA };
+		SharedTypeHierarchyService service= SharedTypeHierarchyService.getDefault();
+
+		ITypeHierarchy first= service.acquire(input, false, null);
+		ITypeHierarchy second= service.acquire(input.clone(), false, null);
+		assertSame(first, second);
+		assertEquals(2, service.getReferenceCount(first));
+
+		service.release(first);
+		assertEquals(1, service.getReferenceCount(first));
+		service.release(second);
+		assertEquals(0, service.getReferenceCount(first));
+
+		ITypeHierarchy third= service.acquire(input, false, null);
+		try {
+			assertNotSame(first, third);
+		} finally {
+			service.release(third);
+		}
+	}
+
+	public void testSharingByInput() throws Exception {
+		IType typeA= fPack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType typeB= fPack1.getCompilationUnit("B.java").createType("public class B {\n}\n", null, true, null);
+		SharedTypeHierarchyService service= SharedTypeHierarchyService.getDefault();
+
+		ITypeHierarchy hierarchy= service.acquire(new IJavaElement[] { typeA }, false, null);
+		ITypeHierarchy superTypes= service.acquire(new IJavaElement[] { typeA }, true, null);
+		ITypeHierarchy other= service.acquire(new IJavaElement[] { typeB }, false, null);
+		try {
+			assertNotSame(hierarchy, superTypes);
+			assertNotSame(hierarchy, other);
+			assertEquals(1, service.getReferenceCount(hierarchy));
+			assertEquals(1, service.getReferenceCount(superTypes));
+			assertEquals(1, service.getReferenceCount(other));
+		} finally {
+			service.release(hierarchy);
+			service.release(superTypes);
+			service.release(other);
+		}
+	}
+
+	public void testRefreshReplacesStaleHierarchy() throws Exception {
+		IType typeA= fPack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		ICompilationUnit cuB= fPack1.getCompilationUnit("B.java");
+		IType typeB= cuB.createType("public class B {\n}\n", null, true, null);
+		IJavaElement[] input= new IJavaElement[] { typeA };
+		SharedTypeHierarchyService service= SharedTypeHierarchyService.getDefault();
+
+		ITypeHierarchy first= service.acquire(input, false, null);
+		ITypeHierarchy second= service.acquire(input, false, null);
+		ITypeHierarchy refreshed= first;
+		try {
+			// not stale: refresh keeps the hierarchy
+			assertSame(first, service.refresh(first, null));
+
+			cuB.getBuffer().setContents("package pack1;\npublic class B extends A {\n}\n");
+			cuB.save(null, true);
+
+			refreshed= service.refresh(first, null);
+			assertNotSame(first, refreshed);
+			assertEquals(1, refreshed.getSubtypes(typeA).length);
+
+			// the hierarchy of the consumer that has not refreshed yet is unchanged
+			assertEquals(0, second.getSubtypes(typeA).length);
+
+			// the second consumer gets the same new hierarchy without another computation
+			ITypeHierarchy secondRefreshed= service.refresh(second, null);
+			assertSame(refreshed, secondRefreshed);
+			second= secondRefreshed;
+			assertEquals(2, service.getReferenceCount(refreshed));
+			assertEquals(0, service.getReferenceCount(first));
+			assertEquals(typeB, refreshed.getSubtypes(typeA)[0]);
+		} finally {
+			service.release(refreshed);
+			service.release(second);
+		}
+		assertEquals(0, service.getReferenceCount(refreshed));
+	}
+}
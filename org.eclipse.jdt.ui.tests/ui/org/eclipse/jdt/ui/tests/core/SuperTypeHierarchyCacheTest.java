@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.core;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+
+import org.eclipse.jdt.internal.corext.util.SuperTypeHierarchyCache;
+
+
+public class SuperTypeHierarchyCacheTest extends TestCase {
+
+	private static final Class<SuperTypeHierarchyCacheTest> THIS= SuperTypeHierarchyCacheTest.class;
+
+	private IJavaProject fJavaProject;
+
+	public SuperTypeHierarchyCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fJavaProject= ProjectTestSetup.getProject();
+		SuperTypeHierarchyCache.flushCache();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		SuperTypeHierarchyCache.flushCache();
+		JavaProjectHelper.clear(fJavaProject, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	public void testLookupOfSuperType() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		IType typeA= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		int hits= SuperTypeHierarchyCache.getCacheHits();
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+
+		// the hierarchy of B contains A
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeA));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(typeA));
+		assertSame(hierarchy, SuperTypeHierarchyCache.getTypeHierarchy(typeB));
+		assertEquals(hits + 2, SuperTypeHierarchyCache.getCacheHits());
+		assertEquals(misses + 1, SuperTypeHierarchyCache.getCacheMisses());
+
+		assertSame(SuperTypeHierarchyCache.getMethodOverrideTester(typeB), SuperTypeHierarchyCache.getMethodOverrideTester(typeB));
+	}
+
+	public void testInvalidationOfAffectedHierarchies() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+		IPackageFragment pack2= root.createPackageFragment("pack2", true, null);
+		IType typeC= pack2.getCompilationUnit("C.java").createType("public class C {\n}\n", null, true, null);
+
+		SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		SuperTypeHierarchyCache.getTypeHierarchy(typeC);
+		assertEquals(2, SuperTypeHierarchyCache.getCachedHierarchyCount());
+
+		int invalidations= SuperTypeHierarchyCache.getCacheInvalidations();
+		ICompilationUnit cuA= pack1.getCompilationUnit("A.java");
+		cuA.getBuffer().setContents("package pack1;\npublic class A implements Runnable {\n public void run() {}\n}\n");
+		cuA.save(null, true);
+
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeC));
+		assertEquals(invalidations + 1, SuperTypeHierarchyCache.getCacheInvalidations());
+
+		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		assertEquals(1, hierarchy.getAllSuperInterfaces(typeB).length);
+	}
+
+	public void testCacheSize() throws Exception {
+		int size= SuperTypeHierarchyCache.getCacheSize();
+		try {
+			SuperTypeHierarchyCache.setCacheSize(2);
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+			IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+			IType typeA= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+			IType typeB= pack1.getCompilationUnit("B.java").createType("public class B {\n}\n", null, true, null);
+			IType typeC= pack1.getCompilationUnit("C.java").createType("public class C {\n}\n", null, true, null);
+
+			int evictions= SuperTypeHierarchyCache.getCacheEvictions();
+			SuperTypeHierarchyCache.getTypeHierarchy(typeA);
+			SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+			SuperTypeHierarchyCache.getTypeHierarchy(typeC);
+
+			assertEquals(2, SuperTypeHierarchyCache.getCachedHierarchyCount());
+			assertEquals(evictions + 1, SuperTypeHierarchyCache.getCacheEvictions());
+			assertTrue(SuperTypeHierarchyCache.hasInCache(typeC));
+		} finally {
+			SuperTypeHierarchyCache.setCacheSize(size);
+		}
+	}
+
+	public void testSharedSuperType() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		IType typeA= pack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+		IType typeC= pack1.getCompilationUnit("C.java").createType("public class C extends A {\n}\n", null, true, null);
+
+		ITypeHierarchy hierarchyB= SuperTypeHierarchyCache.getTypeHierarchy(typeB);
+		SuperTypeHierarchyCache.getTypeHierarchy(typeC);
+		assertEquals(2, SuperTypeHierarchyCache.getCachedHierarchyCount());
+
+		// removing the second hierarchy that contains A must keep A's entry in the first one
+		ICompilationUnit cuC= pack1.getCompilationUnit("C.java");
+		cuC.getBuffer().setContents("package pack1;\npublic class C {\n}\n");
+		cuC.save(null, true);
+
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeC));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeA));
+		int misses= SuperTypeHierarchyCache.getCacheMisses();
+		assertSame(hierarchyB, SuperTypeHierarchyCache.getTypeHierarchy(typeA));
+		assertEquals(misses, SuperTypeHierarchyCache.getCacheMisses());
+	}
+
+	public void testAddedTypeInSamePackage() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+		IPackageFragmentRoot root2= JavaProjectHelper.addSourceContainer(fJavaProject, "src2");
+		IPackageFragment pack1InRoot2= root2.createPackageFragment("pack1", true, null);
+
+		assertNull(SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB));
+
+		// another source folder of the same project contributes to the same package
+		pack1InRoot2.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+		assertEquals("A", SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB).getElementName());
+	}
+
+	public void testAddedMissingSuperTypeInOtherPackage() throws Exception {
+		IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+		IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+		IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends Foo {\n}\n", null, true, null);
+		pack1.getCompilationUnit("B.java").createImport("pack2.*", null, null);
+		IPackageFragment pack2= root.createPackageFragment("pack2", true, null);
+
+		int invalidations= SuperTypeHierarchyCache.getCacheInvalidations();
+		assertNull(SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB));
+		assertTrue(SuperTypeHierarchyCache.hasInCache(typeB));
+
+		pack2.getCompilationUnit("Foo.java").createType("public class Foo {\n}\n", null, true, null);
+		assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+		assertEquals(invalidations + 1, SuperTypeHierarchyCache.getCacheInvalidations());
+		IType superclass= SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB);
+		assertEquals("pack2.Foo", superclass.getFullyQualifiedName());
+	}
+
+	public void testAddedMissingSuperTypeInRequiredProject() throws Exception {
+		IJavaProject otherProject= JavaProjectHelper.createJavaProject("OtherProject", "bin");
+		try {
+			JavaProjectHelper.addRequiredProject(fJavaProject, otherProject);
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJavaProject, "src");
+			IPackageFragment pack1= root.createPackageFragment("pack1", true, null);
+			IType typeB= pack1.getCompilationUnit("B.java").createType("public class B extends A {\n}\n", null, true, null);
+			IPackageFragmentRoot otherRoot= JavaProjectHelper.addSourceContainer(otherProject, "src");
+			IPackageFragment otherPack1= otherRoot.createPackageFragment("pack1", true, null);
+
+			assertNull(SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB));
+
+			// the package is split across the dependent projects
+			otherPack1.getCompilationUnit("A.java").createType("public class A {\n}\n", null, true, null);
+			assertFalse(SuperTypeHierarchyCache.hasInCache(typeB));
+			IType superclass= SuperTypeHierarchyCache.getTypeHierarchy(typeB).getSuperclass(typeB);
+			assertEquals(otherProject, superclass.getJavaProject());
+		} finally {
+			JavaProjectHelper.delete(otherProject);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.jdt.ui.tests.core;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Test;
@@ -23,6 +24,7 @@ import org.eclipse.jdt.testplugin.JavaTestPlugin;
 import org.eclipse.jdt.testplugin.StringAsserts;
 
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
@@ -37,6 +39,8 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
 
+import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 import org.eclipse.jdt.internal.corext.util.TypeNameMatchCollector;
 
 
@@ -229,4 +233,88 @@ public class TypeInfoTest extends TestCase {
 
 	}
 
+	public void testTypeNameIndex() throws Exception {
+		IPackageFragmentRoot root1= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+		IPackageFragment pack1= root1.createPackageFragment("com.oti", true, null);
+		ICompilationUnit cu1= pack1.getCompilationUnit("IndexedV.java");
+		cu1.createType("public class IndexedV {\n static class IndexedVInner {\n}\n}\n", null, true, null);
+
+		TypeNameIndex index= TypeNameIndex.getInstance();
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+
+		List<TypeNameMatch> result= Arrays.asList(getIndexCandidates(index, "IndexedV"));
+		assertEquals(2, result.size());
+		findTypeRef(result, "com.oti.IndexedV");
+		findTypeRef(result, "com.oti.IndexedV.IndexedVInner");
+		assertResolve(result.get(0));
+		assertResolve(result.get(1));
+
+		result= Arrays.asList(getIndexCandidates(index, "java.lang.Integ"));
+		findTypeRef(result, "java.lang.Integer");
+		assertResolve(result.get(0));
+
+		// unsaved working copies are shown like by the search engine
+		cu1.becomeWorkingCopy(null);
+		try {
+			cu1.getBuffer().setContents("package com.oti;\npublic class IndexedW {\n}\n");
+			// not reconciled yet, the caller has to search
+			assertFalse(index.isUpToDate());
+			assertNull(getIndexCandidates(index, "IndexedW"));
+
+			cu1.reconcile(ICompilationUnit.NO_AST, false, null, null);
+			Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+			assertTrue(index.isUpToDate());
+			assertEquals(0, getIndexCandidates(index, "IndexedV").length);
+			result= Arrays.asList(getIndexCandidates(index, "IndexedW"));
+			assertEquals(1, result.size());
+			findTypeRef(result, "com.oti.IndexedW");
+		} finally {
+			cu1.discardWorkingCopy();
+		}
+
+		// the types of a discarded working copy are replaced by the saved ones
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+		assertEquals(0, getIndexCandidates(index, "IndexedW").length);
+		assertEquals(2, getIndexCandidates(index, "IndexedV").length);
+
+		cu1.delete(true, null);
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+		assertEquals(0, getIndexCandidates(index, "IndexedV").length);
+	}
+
+	public void testTypeNameIndexRootChanges() throws Exception {
+		TypeNameIndex index= TypeNameIndex.getInstance();
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+
+		// an added root is queried
+		IPackageFragmentRoot root2= JavaProjectHelper.addSourceContainer(fJProject1, "src2");
+		root2.createPackageFragment("com.oti.two", true, null).getCompilationUnit("IndexedRoot.java").createType("public class IndexedRoot {\n}\n", null, true, null);
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+		findTypeRef(Arrays.asList(getIndexCandidates(index, "IndexedRoot")), "com.oti.two.IndexedRoot");
+
+		// a removed package is queried again
+		root2.getPackageFragment("com.oti.two").delete(true, null);
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+		assertEquals(0, getIndexCandidates(index, "IndexedRoot").length);
+
+		// a removed root is dropped, the types of other roots are kept
+		root2.createPackageFragment("com.oti.two", true, null).getCompilationUnit("IndexedRoot.java").createType("public class IndexedRoot {\n}\n", null, true, null);
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertEquals(1, getIndexCandidates(index, "IndexedRoot").length);
+		JavaProjectHelper.removeSourceContainer(fJProject1, "src2");
+		Job.getJobManager().join(TypeNameIndex.FAMILY, null);
+		assertTrue(index.isUpToDate());
+		assertEquals(0, getIndexCandidates(index, "IndexedRoot").length);
+		assertTrue(getIndexCandidates(index, "java.lang.Integer").length > 0);
+	}
+
+	private static TypeNameMatch[] getIndexCandidates(TypeNameIndex index, String text) {
+		return index.getCandidates(new TypeInfoFilter(text, SearchEngine.createWorkspaceScope(), IJavaSearchConstants.TYPE, null));
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import java.util.Map;
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.jdt.testplugin.TestOptions;
 
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Preferences;
 
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -41,11 +42,13 @@ import org.eclipse.jdt.internal.corext.template.java.CodeTemplateContextType;
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
+import org.eclipse.jdt.ui.text.java.IProblemLocation;
 import org.eclipse.jdt.ui.text.java.correction.CUCorrectionProposal;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.text.correction.AssistContext;
 import org.eclipse.jdt.internal.ui.text.correction.CorrectionMessages;
+import org.eclipse.jdt.internal.ui.text.correction.JavaCorrectionProcessor;
 import org.eclipse.jdt.internal.ui.text.correction.QuickAssistProcessor;
 import org.eclipse.jdt.internal.ui.text.correction.proposals.AssignToVariableAssistProposal;
 import org.eclipse.jdt.internal.ui.text.correction.proposals.LinkedNamesAssistProposal;
@@ -154,6 +157,75 @@ public class AssistQuickFixTest extends QuickFixTest {
 
 	}
 
+	public void testAssignToLocalWithConcurrentProcessors() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    public void foo() {\n");
+		buf.append("        getClass();\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+
+		int offset= buf.toString().indexOf("getClass()");
+		List<IJavaCompletionProposal> expected= collectAssists(getCorrectionContext(cu, offset, 0), false);
+
+		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
+		store.setValue(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS, true);
+		try {
+			AssistContext context= getCorrectionContext(cu, offset, 0);
+			List<IJavaCompletionProposal> proposals= collectAssists(context, false);
+
+			assertNumberOfProposals(proposals, expected.size());
+			assertCorrectLabels(proposals);
+			for (int i= 0; i < proposals.size(); i++) {
+				assertEquals(expected.get(i).getDisplayString(), proposals.get(i).getDisplayString());
+			}
+		} finally {
+			store.setToDefault(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS);
+		}
+	}
+
+	public void testLateProcessorDropped() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class Slow {\n");
+		buf.append("    public void foo() {\n");
+		buf.append("        getClass();\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("Slow.java", buf.toString(), false, null);
+
+		int offset= buf.toString().indexOf("getClass()");
+		List<IJavaCompletionProposal> expected= collectAssists(getCorrectionContext(cu, offset, 0), false);
+		assertProposalExists(expected, SlowQuickAssistProcessor.LABEL);
+
+		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
+		store.setValue(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS, true);
+		long maxDelay= JavaCorrectionProcessor.setMaxDelay(SlowQuickAssistProcessor.DELAY / 4);
+		try {
+			AssistContext context= getCorrectionContext(cu, offset, 0);
+			ArrayList<IJavaCompletionProposal> proposals= new ArrayList<>();
+			long start= System.currentTimeMillis();
+			IStatus status= JavaCorrectionProcessor.collectAssists(context, new IProblemLocation[0], proposals);
+			long time= System.currentTimeMillis() - start;
+
+			assertStatusOk(status);
+			assertTrue("waited for the late processor: " + time + " ms", time < SlowQuickAssistProcessor.DELAY);
+			assertProposalDoesNotExist(proposals, SlowQuickAssistProcessor.LABEL);
+			for (int i= 0; i < expected.size(); i++) {
+				String label= expected.get(i).getDisplayString();
+				if (!SlowQuickAssistProcessor.LABEL.equals(label))
+					assertProposalExists(proposals, label);
+			}
+		} finally {
+			JavaCorrectionProcessor.setMaxDelay(maxDelay);
+			store.setToDefault(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS);
+		}
+	}
+
 	public void testAssignToLocal2() throws Exception {
 		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
 		StringBuffer buf= new StringBuffer();
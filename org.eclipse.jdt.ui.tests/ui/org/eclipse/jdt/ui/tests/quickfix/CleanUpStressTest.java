@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaModelException;
 
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 
 import org.eclipse.jdt.ui.JavaElementLabels;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
@@ -48,6 +49,10 @@ public class CleanUpStressTest extends CleanUpTestCase {
 
 	protected static IPackageFragmentRoot fJunitSrcRoot;
 
+	private int fMaxParallelism= 1;
+
+	private CleanUpRefactoring fRefactoring;
+
 	@Override
 	protected void setUp() throws Exception {
 		super.setUp();
@@ -56,6 +61,13 @@ public class CleanUpStressTest extends CleanUpTestCase {
 		fJunitSrcRoot= JavaProjectHelper.addSourceContainerWithImport(fJProject1, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
 	}
 
+	@Override
+	protected CleanUpRefactoring createCleanUpRefactoring() {
+		fRefactoring= super.createCleanUpRefactoring();
+		fRefactoring.setMaxParallelism(fMaxParallelism);
+		return fRefactoring;
+	}
+
 	public CleanUpStressTest(String name) {
 		super(name);
 	}
@@ -5325,6 +5337,17 @@ public class CleanUpStressTest extends CleanUpTestCase {
         }
 	}
 
+	public void testAllCleanUpsInParallel() throws Exception {
+		List<IJavaElement> cus= new ArrayList<>();
+		addAllCUs(fJProject1.getChildren(), cus);
+		int expectedWorkers= Math.min(4, cus.size() / 20);
+		assertTrue("Too few compilation units for a parallel clean up: " + cus.size(), expectedWorkers > 1);
+
+		fMaxParallelism= 4;
+		testAllCleanUps();
+		assertEquals(expectedWorkers, fRefactoring.getUsedParallelism());
+	}
+
 	private static String getCompilationUnitName(ICompilationUnit cu) {
 		StringBuffer result= new StringBuffer();
 		JavaElementLabels.getCompilationUnitLabel(cu, JavaElementLabels.CU_QUALIFIED, result);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,13 +39,16 @@ import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
 import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.fix.ImportsCleanUp;
 import org.eclipse.jdt.internal.ui.fix.Java50CleanUp;
 import org.eclipse.jdt.internal.ui.fix.UnimplementedCodeCleanUp;
 import org.eclipse.jdt.internal.ui.text.correction.ProblemLocation;
@@ -8839,6 +8842,84 @@ public class CleanUpTest extends CleanUpTestCase {
 		assertRefactoringResultAsExpected(new ICompilationUnit[] { cu1 }, new String[] { expected1 });
 	}
 
+	public void testOrganizeImportsInParallel() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test2", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test2;\n");
+		buf.append("public class E2 {\n");
+		buf.append("}\n");
+		pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		IPackageFragment pack2= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit[] cus= new ICompilationUnit[60];
+		String[] expected= new String[cus.length];
+		for (int i= 0; i < cus.length; i++) {
+			buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    ArrayList foo;\n");
+			buf.append("    E2 foo2;\n");
+			buf.append("}\n");
+			cus[i]= pack2.createCompilationUnit("E" + i + ".java", buf.toString(), false, null);
+
+			buf= new StringBuffer();
+			buf.append("package test1;\n");
+			buf.append("\n");
+			buf.append("import java.util.ArrayList;\n");
+			buf.append("\n");
+			buf.append("import test2.E2;\n");
+			buf.append("\n");
+			buf.append("public class E" + i + " {\n");
+			buf.append("    ArrayList foo;\n");
+			buf.append("    E2 foo2;\n");
+			buf.append("}\n");
+			expected[i]= buf.toString();
+		}
+
+		enable(CleanUpConstants.ORGANIZE_IMPORTS);
+
+		CleanUpRefactoring ref= new CleanUpRefactoring();
+		ref.setUseOptionsFromProfile(true);
+		ref.setMaxParallelism(3);
+		performRefactoring(ref, cus, JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps());
+
+		for (int i= 0; i < cus.length; i++) {
+			assertEqualString(cus[i].getBuffer().getContents(), expected[i]);
+		}
+		assertTrue(ref.getCleanUpTime() >= 0);
+	}
+
+	public void testOrganizeImportsCount() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E1 {\n");
+		buf.append("    ArrayList foo;\n");
+		buf.append("}\n");
+		ICompilationUnit cu1= pack1.createCompilationUnit("E1.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E2 {\n");
+		buf.append("    ArrayList foo\n");
+		buf.append("}\n");
+		ICompilationUnit cu2= pack1.createCompilationUnit("E2.java", buf.toString(), false, null);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E3 {\n");
+		buf.append("}\n");
+		ICompilationUnit cu3= pack1.createCompilationUnit("E3.java", buf.toString(), false, null);
+
+		Map<String, String> settings= new Hashtable<>();
+		settings.put(CleanUpConstants.ORGANIZE_IMPORTS, CleanUpOptions.TRUE);
+		ImportsCleanUp cleanUp= new ImportsCleanUp(settings);
+
+		// the unit with a syntax error is skipped, the unit without a change is counted
+		performRefactoring(new CleanUpRefactoring(), new ICompilationUnit[] { cu1, cu2, cu3 }, new ICleanUp[] { cleanUp });
+		assertEquals(2, cleanUp.getOrganizedCount());
+	}
+
 	public void testOrganizeImportsBug229570() throws Exception {
 		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
 		StringBuffer buf= new StringBuffer();
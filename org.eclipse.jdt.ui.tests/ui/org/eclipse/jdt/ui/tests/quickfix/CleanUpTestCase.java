@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -218,9 +218,14 @@ public class CleanUpTestCase extends QuickFixTest {
 		return assertRefactoringResultAsExpected(cus, expected);
 	}
 
-	protected final RefactoringStatus performRefactoring(ICompilationUnit[] cus) throws CoreException {
-		final CleanUpRefactoring ref= new CleanUpRefactoring();
+	protected CleanUpRefactoring createCleanUpRefactoring() {
+		CleanUpRefactoring ref= new CleanUpRefactoring();
 		ref.setUseOptionsFromProfile(true);
+		return ref;
+	}
+
+	protected final RefactoringStatus performRefactoring(ICompilationUnit[] cus) throws CoreException {
+		final CleanUpRefactoring ref= createCleanUpRefactoring();
 		ICleanUp[] cleanUps= JavaPlugin.getDefault().getCleanUpRegistry().createCleanUps();
 
 		return performRefactoring(ref, cus, cleanUps);
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.quickfix;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.jdt.ui.text.java.IInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
+import org.eclipse.jdt.ui.text.java.IProblemLocation;
+import org.eclipse.jdt.ui.text.java.IQuickAssistProcessor;
+import org.eclipse.jdt.ui.text.java.correction.ChangeCorrectionProposal;
+
+import org.eclipse.jdt.internal.ui.JavaPluginImages;
+
+/**
+ * A quick assist processor that takes {@link #DELAY} milliseconds to compute its proposal. It is
+ * only enabled for compilation units named <code>Slow.java</code>.
+ */
+public class SlowQuickAssistProcessor implements IQuickAssistProcessor {
+
+	public static final long DELAY= 1000;
+
+	public static final String LABEL= "Slow assist";
+
+	@Override
+	public boolean hasAssists(IInvocationContext context) throws CoreException {
+		return true;
+	}
+
+	@Override
+	public IJavaCompletionProposal[] getAssists(IInvocationContext context, IProblemLocation[] locations) throws CoreException {
+		try {
+			Thread.sleep(DELAY);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return new IJavaCompletionProposal[] { new ChangeCorrectionProposal(LABEL, null, 1, JavaPluginImages.get(JavaPluginImages.IMG_CORRECTION_CHANGE)) };
+	}
+}
@@ -0,0 +1,856 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.callhierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ExpressionMethodReference;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMemberValuePairBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.MemberValuePair;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.MethodRef;
+import org.eclipse.jdt.core.dom.SingleMemberAnnotation;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodReference;
+import org.eclipse.jdt.core.dom.TypeMethodReference;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * An index of the methods called by the compilation units of the workspace. It is used to restrict
+ * caller searches to the compilation units that may contain a call of the searched method, see
+ * {@link #getSearchElements(IMethod, IJavaSearchScope)}.
+ * <p>
+ * For every compilation unit, the index stores the selector and the number of parameters of the
+ * methods it calls, together with a fingerprint of the signatures it declares. Parameter types are
+ * not stored: a call of a method declared in a generic supertype binds to a declaration whose
+ * parameter types differ from those of the overriding method that is searched. The index
+ * is built by a background job and maintained from Java element deltas: a changed unit becomes
+ * stale and is indexed again. When its declared signatures have changed, calls in other units
+ * may resolve differently, so the units calling a method that was added or removed, or all units
+ * if other signatures have changed, become stale as well. Added types and fields do not
+ * invalidate other units; they can only change the resolution of calls elsewhere by shadowing.
+ * </p>
+ * <p>
+ * The index is stored in the plug-in state location and validated against the modification
+ * stamps of the compilation units when it is loaded.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class CallGraphIndex implements IElementChangedListener {
+
+	/** The name of the file the index is stored in in the plug-in state location. */
+	public static final String FILE_NAME= "callgraph.index"; //$NON-NLS-1$
+
+	/** The job family of the job that builds the index. */
+	public static final Object FAMILY= new Object();
+
+	private static final int MAGIC= 0x4A434749;
+
+	private static final int VERSION= 2;
+
+	/** The number of compilation units that are parsed together. */
+	private static final int BATCH_SIZE= 50;
+
+	/** The parameter count stored for a call that could not be resolved. */
+	private static final int UNRESOLVED= -1;
+
+	private static final String TYPE_PREFIX= "T:"; //$NON-NLS-1$
+	private static final String FIELD_PREFIX= "F:"; //$NON-NLS-1$
+	private static final String METHOD_PREFIX= "M:"; //$NON-NLS-1$
+
+	/**
+	 * The indexed data of an up-to-date compilation unit.
+	 */
+	private static final class UnitEntry {
+
+		final long fModificationStamp;
+
+		/**
+		 * Maps the selectors of the called methods to their parameter counts. {@link #UNRESOLVED}
+		 * stands for a call that could not be resolved.
+		 */
+		final Map<String, Set<Integer>> fCalls;
+
+		/** The signatures declared by the unit, see {@link CallGraphIndex#computeSignatures(ICompilationUnit)} */
+		final Map<String, String> fSignatures;
+
+		UnitEntry(long modificationStamp, Map<String, Set<Integer>> calls, Map<String, String> signatures) {
+			fModificationStamp= modificationStamp;
+			fCalls= calls;
+			fSignatures= signatures;
+		}
+
+		boolean calls(String selector, int parameterCount) {
+			Set<Integer> calls= fCalls.get(selector);
+			return calls != null && (calls.contains(Integer.valueOf(parameterCount)) || calls.contains(Integer.valueOf(UNRESOLVED)));
+		}
+	}
+
+	/**
+	 * Collects the methods called by a compilation unit.
+	 */
+	private static final class CallCollector extends ASTVisitor {
+
+		final Map<String, Set<Integer>> fCalls= new HashMap<>();
+
+		CallCollector() {
+			super(true);
+		}
+
+		private void add(String selector, IMethodBinding binding) {
+			int parameterCount= binding != null ? binding.getMethodDeclaration().getParameterTypes().length : UNRESOLVED;
+			Set<Integer> calls= fCalls.get(selector);
+			if (calls == null) {
+				calls= new HashSet<>(4);
+				fCalls.put(selector, calls);
+			}
+			calls.add(Integer.valueOf(parameterCount));
+		}
+
+		@Override
+		public boolean visit(MethodInvocation node) {
+			add(node.getName().getIdentifier(), node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodInvocation node) {
+			add(node.getName().getIdentifier(), node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ExpressionMethodReference node) {
+			add(node.getName().getIdentifier(), node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodReference node) {
+			add(node.getName().getIdentifier(), node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(TypeMethodReference node) {
+			add(node.getName().getIdentifier(), node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(MethodRef node) {
+			IBinding binding= node.resolveBinding();
+			add(node.getName().getIdentifier(), binding instanceof IMethodBinding ? (IMethodBinding) binding : null);
+			return true;
+		}
+
+		@Override
+		public boolean visit(MemberValuePair node) {
+			IMemberValuePairBinding binding= node.resolveMemberValuePairBinding();
+			add(node.getName().getIdentifier(), binding != null ? binding.getMethodBinding() : null);
+			return true;
+		}
+
+		@Override
+		public boolean visit(SingleMemberAnnotation node) {
+			add("value", null); //$NON-NLS-1$
+			return true;
+		}
+	}
+
+	private final class BuildJob extends Job {
+
+		BuildJob() {
+			super(CallHierarchyMessages.CallGraphIndex_job_name);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == FAMILY;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				build(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (CoreException e) {
+				JavaPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final File fFile;
+
+	private final BuildJob fBuildJob= new BuildJob();
+
+	/** The up-to-date compilation units, by handle identifier */
+	private final Map<String, UnitEntry> fUnits= new HashMap<>();
+
+	/** Maps selectors to the handle identifiers of the up-to-date units calling them */
+	private final Map<String, Set<String>> fUnitsBySelector= new HashMap<>();
+
+	/**
+	 * The compilation units that must be indexed, mapped to the signatures they declared when
+	 * they were last indexed, or <code>null</code> if unknown
+	 */
+	private final Map<String, Map<String, String>> fStaleUnits= new LinkedHashMap<>();
+
+	/** The stale units whose changes of the declared signatures have not been checked yet */
+	private final Set<String> fUncheckedUnits= new LinkedHashSet<>();
+
+	/** The units the parser could not process, they are always searched */
+	private final Set<String> fUnindexedUnits= new HashSet<>();
+
+	/** Whether all compilation units of the workspace are either up-to-date or stale */
+	private boolean fComplete;
+
+	/** Incremented whenever the set of compilation units of the workspace must be collected again */
+	private int fWorkspaceGeneration;
+
+	/**
+	 * The binary package fragment roots of all open projects, or <code>null</code> if they must be
+	 * collected again
+	 */
+	private IPackageFragmentRoot[] fBinaryRoots;
+
+	/**
+	 * Creates a call graph index.
+	 *
+	 * @param file the file the index is stored in
+	 */
+	public CallGraphIndex(File file) {
+		fFile= file;
+	}
+
+	/**
+	 * Loads the stored index, starts listening to changes and schedules the job that indexes the
+	 * compilation units that are not up-to-date.
+	 */
+	public void startup() {
+		try {
+			load();
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+		JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE);
+		fBuildJob.schedule();
+	}
+
+	/**
+	 * Stops listening to changes and stores the index.
+	 */
+	public void shutdown() {
+		JavaCore.removeElementChangedListener(this);
+		fBuildJob.cancel();
+		try {
+			fBuildJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			save();
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+	}
+
+	/**
+	 * Returns the Java elements that must be searched to find all callers of the given method in
+	 * the given scope. These are the compilation units that call a method with the same selector
+	 * and number of parameters according to the index, the compilation units that are stale or have
+	 * unsaved changes, and all binary package fragment roots.
+	 *
+	 * @param method the method, must not be a constructor
+	 * @param scope the search scope
+	 * @return the elements to search, or <code>null</code> if the index cannot be used yet
+	 * @throws JavaModelException if the parameter types of the method cannot be accessed
+	 */
+	public IJavaElement[] getSearchElements(IMethod method, IJavaSearchScope scope) throws JavaModelException {
+		String selector= method.getElementName();
+		int parameterCount= method.getNumberOfParameters();
+
+		Set<String> handles= new HashSet<>();
+		IPackageFragmentRoot[] binaryRoots;
+		int generation;
+		synchronized (this) {
+			binaryRoots= fBinaryRoots;
+			generation= fWorkspaceGeneration;
+			if (!fComplete || !fUncheckedUnits.isEmpty() || fStaleUnits.size() > fUnits.size())
+				return null;
+			Set<String> units= fUnitsBySelector.get(selector);
+			if (units != null) {
+				for (Iterator<String> iter= units.iterator(); iter.hasNext();) {
+					String handle= iter.next();
+					if (fUnits.get(handle).calls(selector, parameterCount))
+						handles.add(handle);
+				}
+			}
+			handles.addAll(fStaleUnits.keySet());
+			handles.addAll(fUnindexedUnits);
+		}
+
+		List<IJavaElement> elements= new ArrayList<>();
+		ICompilationUnit[] workingCopies= JavaCore.getWorkingCopies(null);
+		for (int i= 0; i < workingCopies.length; i++) {
+			if (workingCopies[i].hasUnsavedChanges())
+				handles.add(workingCopies[i].getPrimary().getHandleIdentifier());
+		}
+		for (Iterator<String> iter= handles.iterator(); iter.hasNext();) {
+			IJavaElement element= JavaCore.create(iter.next());
+			if (element != null && element.exists() && scope.encloses(element))
+				elements.add(element);
+		}
+
+		if (binaryRoots == null) {
+			binaryRoots= collectBinaryRoots();
+			synchronized (this) {
+				if (generation == fWorkspaceGeneration)
+					fBinaryRoots= binaryRoots;
+			}
+		}
+		for (int i= 0; i < binaryRoots.length; i++) {
+			if (scope.encloses(binaryRoots[i]))
+				elements.add(binaryRoots[i]);
+		}
+		return elements.toArray(new IJavaElement[elements.size()]);
+	}
+
+	/**
+	 * Collects the binary package fragment roots of all open projects. The roots only change
+	 * with the classpath, so they are kept until a delta invalidates the workspace.
+	 *
+	 * @return the binary roots
+	 * @throws JavaModelException if the roots of a project cannot be accessed
+	 */
+	private static IPackageFragmentRoot[] collectBinaryRoots() throws JavaModelException {
+		Set<IPackageFragmentRoot> binaryRoots= new LinkedHashSet<>();
+		IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			if (!projects[i].getProject().isOpen())
+				continue;
+			IPackageFragmentRoot[] roots= projects[i].getPackageFragmentRoots();
+			for (int j= 0; j < roots.length; j++) {
+				if (roots[j].getKind() == IPackageFragmentRoot.K_BINARY)
+					binaryRoots.add(roots[j]);
+			}
+		}
+		return binaryRoots.toArray(new IPackageFragmentRoot[binaryRoots.size()]);
+	}
+
+	/**
+	 * Returns whether all compilation units of the workspace are indexed and up-to-date.
+	 *
+	 * @return <code>true</code> if the index is up-to-date
+	 */
+	public synchronized boolean isUpToDate() {
+		return fComplete && fStaleUnits.isEmpty();
+	}
+
+	@Override
+	public void elementChanged(ElementChangedEvent event) {
+		boolean changed;
+		synchronized (this) {
+			changed= processDelta(event.getDelta());
+		}
+		if (changed)
+			fBuildJob.schedule();
+	}
+
+	private boolean processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED
+						| IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+					invalidateWorkspace();
+					return true;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+						| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER)) != 0) {
+					invalidateWorkspace();
+					return true;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind == IJavaElementDelta.REMOVED) {
+					invalidateWorkspace();
+					return true;
+				} else if (kind == IJavaElementDelta.ADDED) {
+					// the deltas of the contained units are not necessarily reported
+					fComplete= false;
+					fWorkspaceGeneration++;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				if (kind == IJavaElementDelta.CHANGED && (flags & ~IJavaElementDelta.F_PRIMARY_WORKING_COPY) == 0)
+					return false; // only a working copy has been created or discarded
+				markStale(element.getHandleIdentifier(), true);
+				return true;
+			default:
+				break;
+		}
+		boolean changed= false;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			changed|= processDelta(children[i]);
+		}
+		return changed;
+	}
+
+	private void invalidateWorkspace() {
+		for (Iterator<String> iter= new ArrayList<>(fUnits.keySet()).iterator(); iter.hasNext();) {
+			markStale(iter.next(), false);
+		}
+		for (Iterator<String> iter= new ArrayList<>(fUnindexedUnits).iterator(); iter.hasNext();) {
+			markStale(iter.next(), false);
+		}
+		fComplete= false;
+		fWorkspaceGeneration++;
+		fBinaryRoots= null;
+	}
+
+	private void markStale(String handle, boolean unchecked) {
+		fUnindexedUnits.remove(handle);
+		UnitEntry entry= fUnits.remove(handle);
+		if (entry != null) {
+			for (Iterator<String> iter= entry.fCalls.keySet().iterator(); iter.hasNext();) {
+				String selector= iter.next();
+				Set<String> units= fUnitsBySelector.get(selector);
+				units.remove(handle);
+				if (units.isEmpty())
+					fUnitsBySelector.remove(selector);
+			}
+			fStaleUnits.put(handle, entry.fSignatures);
+		} else if (!fStaleUnits.containsKey(handle)) {
+			fStaleUnits.put(handle, null);
+		}
+		if (unchecked)
+			fUncheckedUnits.add(handle);
+	}
+
+	private void addUnit(String handle, UnitEntry entry) {
+		fUnits.put(handle, entry);
+		for (Iterator<String> iter= entry.fCalls.keySet().iterator(); iter.hasNext();) {
+			String selector= iter.next();
+			Set<String> units= fUnitsBySelector.get(selector);
+			if (units == null) {
+				units= new HashSet<>();
+				fUnitsBySelector.put(selector, units);
+			}
+			units.add(handle);
+		}
+	}
+
+	/**
+	 * Marks the units stale whose calls may resolve differently after the declared signatures of
+	 * a unit have changed.
+	 *
+	 * @param oldSignatures the signatures declared before the change, or <code>null</code> if
+	 *            unknown
+	 * @param newSignatures the signatures declared after the change
+	 */
+	private void invalidateDependents(Map<String, String> oldSignatures, Map<String, String> newSignatures) {
+		if (oldSignatures == null)
+			oldSignatures= new HashMap<>(0);
+		Set<String> keys= new HashSet<>(oldSignatures.keySet());
+		keys.addAll(newSignatures.keySet());
+		Set<String> selectors= new HashSet<>();
+		for (Iterator<String> iter= keys.iterator(); iter.hasNext();) {
+			String key= iter.next();
+			String oldSignature= oldSignatures.get(key);
+			String newSignature= newSignatures.get(key);
+			if (oldSignature != null && oldSignature.equals(newSignature))
+				continue;
+			if (key.startsWith(METHOD_PREFIX) && (oldSignature == null || newSignature == null)) {
+				// an added or removed method only affects the resolution of calls with its selector
+				selectors.add(key.substring(key.indexOf('#') + 1, key.indexOf('(')));
+			} else if (oldSignature != null) {
+				invalidateWorkspace();
+				return;
+			}
+		}
+		for (Iterator<String> iter= selectors.iterator(); iter.hasNext();) {
+			Set<String> units= fUnitsBySelector.get(iter.next());
+			if (units != null) {
+				for (Iterator<String> unitIter= new ArrayList<>(units).iterator(); unitIter.hasNext();) {
+					markStale(unitIter.next(), false);
+				}
+			}
+		}
+	}
+
+	private void build(IProgressMonitor monitor) throws CoreException {
+		int generation;
+		synchronized (this) {
+			generation= fComplete ? -1 : fWorkspaceGeneration;
+		}
+		if (generation != -1)
+			collectUnits(generation, monitor);
+
+		while (checkNextUnit(monitor)) {
+			// check the changed units before indexing, they may invalidate other units
+		}
+		List<ICompilationUnit> batch;
+		while (!(batch= getNextBatch()).isEmpty()) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			indexUnits(batch, monitor);
+			while (checkNextUnit(monitor)) {
+				// units may have changed while indexing
+			}
+		}
+	}
+
+	private void collectUnits(int generation, IProgressMonitor monitor) throws JavaModelException {
+		List<String> handles= new ArrayList<>();
+		IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			if (!projects[i].getProject().isOpen())
+				continue;
+			IPackageFragmentRoot[] roots= projects[i].getPackageFragmentRoots();
+			for (int j= 0; j < roots.length; j++) {
+				if (roots[j].getKind() != IPackageFragmentRoot.K_SOURCE)
+					continue;
+				IJavaElement[] fragments= roots[j].getChildren();
+				for (int k= 0; k < fragments.length; k++) {
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+					ICompilationUnit[] units= ((IPackageFragment) fragments[k]).getCompilationUnits();
+					for (int l= 0; l < units.length; l++) {
+						handles.add(units[l].getHandleIdentifier());
+					}
+				}
+			}
+		}
+		synchronized (this) {
+			for (Iterator<String> iter= handles.iterator(); iter.hasNext();) {
+				String handle= iter.next();
+				if (!fUnits.containsKey(handle) && !fStaleUnits.containsKey(handle)) {
+					fStaleUnits.put(handle, null);
+					fUncheckedUnits.add(handle);
+				}
+			}
+			if (fWorkspaceGeneration == generation)
+				fComplete= true;
+		}
+	}
+
+	/**
+	 * Checks whether the declared signatures of the next unchecked unit have changed.
+	 *
+	 * @param monitor the progress monitor
+	 * @return <code>false</code> if there are no unchecked units
+	 * @throws JavaModelException if the signatures cannot be accessed
+	 */
+	private boolean checkNextUnit(IProgressMonitor monitor) throws JavaModelException {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+		String handle;
+		synchronized (this) {
+			if (fUncheckedUnits.isEmpty())
+				return false;
+			Iterator<String> iter= fUncheckedUnits.iterator();
+			handle= iter.next();
+			iter.remove();
+		}
+		ICompilationUnit unit= (ICompilationUnit) JavaCore.create(handle);
+		Map<String, String> signatures= unit != null && unit.exists() ? computeSignatures(unit) : new HashMap<String, String>(0);
+		synchronized (this) {
+			if (fStaleUnits.containsKey(handle) && !fUncheckedUnits.contains(handle)) {
+				Map<String, String> oldSignatures= fStaleUnits.get(handle);
+				if (unit != null && unit.exists()) {
+					fStaleUnits.put(handle, signatures);
+				} else {
+					fStaleUnits.remove(handle);
+				}
+				invalidateDependents(oldSignatures, signatures);
+			}
+		}
+		return true;
+	}
+
+	private synchronized List<ICompilationUnit> getNextBatch() {
+		List<ICompilationUnit> batch= new ArrayList<>(BATCH_SIZE);
+		IJavaProject project= null;
+		for (Iterator<Map.Entry<String, Map<String, String>>> iter= fStaleUnits.entrySet().iterator(); iter.hasNext() && batch.size() < BATCH_SIZE;) {
+			Map.Entry<String, Map<String, String>> entry= iter.next();
+			if (fUncheckedUnits.contains(entry.getKey()))
+				continue;
+			IJavaElement element= JavaCore.create(entry.getKey());
+			if (!(element instanceof ICompilationUnit)) {
+				iter.remove();
+				continue;
+			}
+			if (project == null) {
+				project= element.getJavaProject();
+			} else if (!project.equals(element.getJavaProject())) {
+				continue;
+			}
+			batch.add((ICompilationUnit) element);
+		}
+		return batch;
+	}
+
+	private void indexUnits(List<ICompilationUnit> units, IProgressMonitor monitor) {
+		final Map<ICompilationUnit, Long> stamps= new HashMap<>();
+		for (Iterator<ICompilationUnit> iter= units.iterator(); iter.hasNext();) {
+			ICompilationUnit unit= iter.next();
+			IResource resource= unit.getResource();
+			stamps.put(unit, Long.valueOf(resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP));
+		}
+
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setProject(units.get(0).getJavaProject());
+		parser.setResolveBindings(true);
+		parser.createASTs(units.toArray(new ICompilationUnit[units.size()]), new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				CallCollector collector= new CallCollector();
+				ast.accept(collector);
+				String handle= source.getHandleIdentifier();
+				synchronized (CallGraphIndex.this) {
+					if (fStaleUnits.containsKey(handle) && !fUncheckedUnits.contains(handle)) {
+						Map<String, String> signatures= fStaleUnits.remove(handle);
+						addUnit(handle, new UnitEntry(stamps.get(source).longValue(), collector.fCalls,
+								signatures != null ? signatures : new HashMap<String, String>(0)));
+					}
+				}
+			}
+		}, monitor);
+
+		List<ICompilationUnit> existing= new ArrayList<>(units.size());
+		for (Iterator<ICompilationUnit> iter= units.iterator(); iter.hasNext();) {
+			ICompilationUnit unit= iter.next();
+			if (unit.exists())
+				existing.add(unit);
+		}
+		synchronized (this) {
+			for (Iterator<ICompilationUnit> iter= units.iterator(); iter.hasNext();) {
+				ICompilationUnit unit= iter.next();
+				String handle= unit.getHandleIdentifier();
+				if (fStaleUnits.containsKey(handle) && !fUncheckedUnits.contains(handle)) {
+					fStaleUnits.remove(handle);
+					if (existing.contains(unit))
+						fUnindexedUnits.add(handle);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the signatures declared by a compilation unit. Maps a key per declared type,
+	 * field and method to its signature.
+	 *
+	 * @param unit the compilation unit
+	 * @return the signatures
+	 * @throws JavaModelException if the signatures cannot be accessed
+	 */
+	private static Map<String, String> computeSignatures(ICompilationUnit unit) throws JavaModelException {
+		Map<String, String> signatures= new HashMap<>();
+		IType[] types= unit.getAllTypes();
+		for (int i= 0; i < types.length; i++) {
+			IType type= types[i];
+			String typeName= type.getFullyQualifiedName('.');
+			signatures.put(TYPE_PREFIX + typeName, type.getFlags() + ":" + type.getSuperclassTypeSignature() //$NON-NLS-1$
+					+ ':' + Arrays.toString(type.getSuperInterfaceTypeSignatures()) + ':' + Arrays.toString(type.getTypeParameterSignatures()));
+			IField[] fields= type.getFields();
+			for (int j= 0; j < fields.length; j++) {
+				signatures.put(FIELD_PREFIX + typeName + '#' + fields[j].getElementName(), fields[j].getFlags() + ":" + fields[j].getTypeSignature()); //$NON-NLS-1$
+			}
+			IMethod[] methods= type.getMethods();
+			for (int j= 0; j < methods.length; j++) {
+				IMethod method= methods[j];
+				signatures.put(METHOD_PREFIX + typeName + '#' + method.getElementName() + '(' + String.join(",", method.getParameterTypes()) + ')', //$NON-NLS-1$
+						method.getFlags() + ":" + method.getReturnType() + ':' + Arrays.toString(method.getTypeParameterSignatures())); //$NON-NLS-1$
+			}
+		}
+		return signatures;
+	}
+
+	private void load() throws IOException {
+		if (!fFile.isFile())
+			return;
+		Map<String, UnitEntry> units= new HashMap<>();
+		Map<String, Map<String, String>> staleUnits= new HashMap<>();
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return;
+			DataInputStream zipIn= new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+			int unitCount= zipIn.readInt();
+			for (int i= 0; i < unitCount; i++) {
+				String handle= zipIn.readUTF();
+				long stamp= zipIn.readLong();
+				Map<String, String> signatures= new HashMap<>();
+				int signatureCount= zipIn.readInt();
+				for (int j= 0; j < signatureCount; j++) {
+					signatures.put(zipIn.readUTF(), zipIn.readUTF());
+				}
+				Map<String, Set<Integer>> calls= new HashMap<>();
+				int selectorCount= zipIn.readInt();
+				for (int j= 0; j < selectorCount; j++) {
+					String selector= zipIn.readUTF();
+					int callCount= zipIn.readInt();
+					Set<Integer> parameterCounts= new HashSet<>(Math.max(4, callCount * 2));
+					for (int k= 0; k < callCount; k++) {
+						parameterCounts.add(Integer.valueOf(zipIn.readInt()));
+					}
+					calls.put(selector, parameterCounts);
+				}
+
+				IJavaElement element= JavaCore.create(handle);
+				IResource resource= element != null ? element.getResource() : null;
+				if (resource != null && resource.getModificationStamp() == stamp && stamp != IResource.NULL_STAMP) {
+					units.put(handle, new UnitEntry(stamp, calls, signatures));
+				} else {
+					staleUnits.put(handle, signatures);
+				}
+			}
+		}
+		synchronized (this) {
+			for (Iterator<Map.Entry<String, UnitEntry>> iter= units.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, UnitEntry> entry= iter.next();
+				addUnit(entry.getKey(), entry.getValue());
+			}
+			fStaleUnits.putAll(staleUnits);
+			fUncheckedUnits.addAll(staleUnits.keySet());
+		}
+	}
+
+	/**
+	 * Stores the index. The index is written to a temporary file first, so that the stored index
+	 * is not corrupted if writing fails.
+	 *
+	 * @throws IOException if the index cannot be written
+	 */
+	private synchronized void save() throws IOException {
+		File temp= new File(fFile.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			writeTo(temp);
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+
+		if (fFile.exists() && !fFile.delete() || !temp.renameTo(fFile)) {
+			temp.delete();
+			throw new IOException("Could not replace call graph index " + fFile); //$NON-NLS-1$
+		}
+	}
+
+	private void writeTo(File file) throws IOException {
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			GZIPOutputStream zipOut= new GZIPOutputStream(out, 8192);
+			DataOutputStream dataOut= new DataOutputStream(zipOut);
+			dataOut.writeInt(fUnits.size() + fStaleUnits.size() + fUnindexedUnits.size());
+			for (Iterator<Map.Entry<String, UnitEntry>> iter= fUnits.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, UnitEntry> entry= iter.next();
+				UnitEntry unit= entry.getValue();
+				writeUnit(dataOut, entry.getKey(), unit.fModificationStamp, unit.fSignatures, unit.fCalls);
+			}
+			// stale units keep their old signatures, so that changes are detected after a restart
+			for (Iterator<Map.Entry<String, Map<String, String>>> iter= fStaleUnits.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, Map<String, String>> entry= iter.next();
+				Map<String, String> signatures= entry.getValue();
+				writeUnit(dataOut, entry.getKey(), IResource.NULL_STAMP, signatures != null ? signatures : new HashMap<String, String>(0), new HashMap<String, Set<Integer>>(0));
+			}
+			for (Iterator<String> iter= fUnindexedUnits.iterator(); iter.hasNext();) {
+				writeUnit(dataOut, iter.next(), IResource.NULL_STAMP, new HashMap<String, String>(0), new HashMap<String, Set<Integer>>(0));
+			}
+			dataOut.flush();
+			zipOut.finish();
+		}
+	}
+
+	private static void writeUnit(DataOutputStream out, String handle, long stamp, Map<String, String> signatures, Map<String, Set<Integer>> calls) throws IOException {
+		out.writeUTF(handle);
+		out.writeLong(stamp);
+		out.writeInt(signatures.size());
+		for (Iterator<Map.Entry<String, String>> iter= signatures.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, String> entry= iter.next();
+			out.writeUTF(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+		out.writeInt(calls.size());
+		for (Iterator<Map.Entry<String, Set<Integer>>> iter= calls.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Set<Integer>> entry= iter.next();
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (Iterator<Integer> countIter= entry.getValue().iterator(); countIter.hasNext();) {
+				out.writeInt(countIter.next().intValue());
+			}
+		}
+	}
+}
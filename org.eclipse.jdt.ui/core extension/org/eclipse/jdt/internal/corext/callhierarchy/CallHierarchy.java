@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,20 +16,33 @@ package org.eclipse.jdt.internal.corext.callhierarchy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IModuleDescription;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
@@ -38,6 +51,7 @@ import org.eclipse.jdt.core.search.SearchEngine;
 
 import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.util.StringMatcher;
@@ -47,13 +61,31 @@ public class CallHierarchy {
     private static final String PREF_USE_FILTERS = "PREF_USE_FILTERS"; //$NON-NLS-1$
     private static final String PREF_FILTERS_LIST = "PREF_FILTERS_LIST"; //$NON-NLS-1$
     private static final String PREF_FILTER_TESTCODE= "PREF_FILTER_TESTCODE"; //$NON-NLS-1$
+    private static final String PREF_EXPAND_DEPTH= "PREF_EXPAND_DEPTH"; //$NON-NLS-1$
+    private static final String PREF_EXPAND_BUDGET= "PREF_EXPAND_BUDGET"; //$NON-NLS-1$
+    private static final String PREF_USE_CALL_GRAPH_INDEX= "PREF_USE_CALL_GRAPH_INDEX"; //$NON-NLS-1$
+    private static final String PREF_SEARCH_THREADS= "PREF_SEARCH_THREADS"; //$NON-NLS-1$
 
     private static final String DEFAULT_IGNORE_FILTERS = "java.*,javax.*"; //$NON-NLS-1$
+    private static final int DEFAULT_EXPAND_BUDGET= 200;
     private static CallHierarchy fgInstance;
     private IJavaSearchScope fSearchScope;
+    private List<Object> fSearchScopeKey;
     private StringMatcher[] fFilters;
 
-    public static CallHierarchy getDefault() {
+	/**
+	 * The calls found so far, shared by all method wrappers. Maps the cache key of a method
+	 * wrapper to the calls of its member, see {@link MethodWrapper#getCacheKey()}.
+	 */
+	private final Map<String, Map<String, MethodCall>> fMethodCache= new ConcurrentHashMap<>();
+
+	private static WorkerPool fgWorkerPool;
+
+	private final IElementChangedListener fElementChangedListener;
+
+	private CallGraphIndex fCallGraphIndex;
+
+    public static synchronized CallHierarchy getDefault() {
         if (fgInstance == null) {
             fgInstance = new CallHierarchy();
         }
@@ -61,6 +93,171 @@ public class CallHierarchy {
         return fgInstance;
     }
 
+	private CallHierarchy() {
+		fElementChangedListener= event -> elementChanged(event.getDelta());
+		JavaCore.addElementChangedListener(fElementChangedListener, ElementChangedEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Returns the cache of the calls found so far.
+	 *
+	 * @return the cache, maps the cache key of a method wrapper to the calls of its member
+	 */
+	Map<String, Map<String, MethodCall>> getMethodCache() {
+		return fMethodCache;
+	}
+
+	/**
+	 * Discards the calls found so far. Clients don't need to call this after changes to the Java
+	 * model or to the settings of the call hierarchy.
+	 */
+	public void clearCache() {
+		fMethodCache.clear();
+	}
+
+	/**
+	 * Removes the cached calls that may be affected by a change to the Java model. Changes to the
+	 * classpath and added or removed packages discard all calls. For changed compilation units and
+	 * class files, only the entries are removed
+	 * <ul>
+	 * <li>whose member or one of whose calls is declared in a changed unit,</li>
+	 * <li>of callers whose member's name occurs in the new source of a changed unit, because
+	 * that unit may now call the member.</li>
+	 * </ul>
+	 * Opening or closing a working copy and changes to working copies that are not saved or
+	 * reconciled into the primary compilation unit are ignored.
+	 *
+	 * @param delta the delta of the change
+	 */
+	private void elementChanged(IJavaElementDelta delta) {
+		if (fMethodCache.isEmpty())
+			return;
+		Set<ITypeRoot> changedUnits= new HashSet<>();
+		if (!collectChangedUnits(delta, changedUnits)) {
+			clearCache();
+			return;
+		}
+		if (changedUnits.isEmpty())
+			return;
+
+		List<String> sources= new ArrayList<>();
+		boolean allCallers= false;
+		for (Iterator<ITypeRoot> iter= changedUnits.iterator(); iter.hasNext();) {
+			ITypeRoot unit= iter.next();
+			if (unit instanceof ICompilationUnit) {
+				if (!unit.exists())
+					continue; // a removed unit calls nothing
+				try {
+					String source= unit.getSource();
+					if (source != null) {
+						sources.add(source);
+						continue;
+					}
+				} catch (JavaModelException e) {
+					// fall through
+				}
+			}
+			allCallers= true; // the calls of a class file cannot be checked by name
+		}
+
+		for (Iterator<Map.Entry<String, Map<String, MethodCall>>> iter= fMethodCache.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<String, Map<String, MethodCall>> entry= iter.next();
+			if (isAffected(entry.getKey(), entry.getValue(), changedUnits, sources, allCallers))
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Collects the compilation units and class files that have changed.
+	 *
+	 * @param delta the delta
+	 * @param changedUnits the set to add the changed units to
+	 * @return <code>false</code> if the delta contains changes that may affect any cached call
+	 */
+	private static boolean collectChangedUnits(IJavaElementDelta delta, Set<ITypeRoot> changedUnits) {
+		IJavaElement element= delta.getElement();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+								| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0)
+					return false;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED
+						|| (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+								| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER
+								| IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED)) != 0)
+					return false;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED)
+					return false;
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit cu= (ICompilationUnit) element;
+				if (cu.getOwner() != null)
+					return true; // not a primary working copy
+				if (delta.getKind() == IJavaElementDelta.CHANGED && flags == IJavaElementDelta.F_PRIMARY_WORKING_COPY)
+					return true; // a working copy has been opened or closed
+				changedUnits.add(cu);
+				return true;
+			case IJavaElement.CLASS_FILE:
+				changedUnits.add((ITypeRoot) element);
+				return true;
+			default:
+				return true;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (!collectChangedUnits(children[i], changedUnits))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isAffected(String cacheKey, Map<String, MethodCall> calls, Set<ITypeRoot> changedUnits, List<String> sources, boolean allCallers) {
+		IJavaElement element= JavaCore.create(cacheKey.substring(cacheKey.indexOf(':') + 1));
+		if (!(element instanceof IMember))
+			return true;
+		IMember member= (IMember) element;
+		if (changedUnits.contains(member.getTypeRoot()))
+			return true;
+		for (Iterator<MethodCall> iter= calls.values().iterator(); iter.hasNext();) {
+			if (changedUnits.contains(iter.next().getMember().getTypeRoot()))
+				return true;
+		}
+		if (cacheKey.charAt(0) == 'R') { // callers, see MethodWrapper#getCacheKey()
+			if (allCallers)
+				return true;
+			String name= getReferenceName(member);
+			for (Iterator<String> iter= sources.iterator(); iter.hasNext();) {
+				if (iter.next().contains(name))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the name that a reference to the given member contains in source code.
+	 *
+	 * @param member the member
+	 * @return the name of the member, or the name of the declaring type for constructors and for
+	 *         types that stand for their default constructor
+	 */
+	private static String getReferenceName(IMember member) {
+		if (member instanceof IType)
+			return member.getElementName();
+		IType declaringType= member.getDeclaringType();
+		if (member instanceof IMethod && declaringType != null && member.getElementName().equals(declaringType.getElementName()))
+			return declaringType.getElementName();
+		return member.getElementName();
+	}
+
     public boolean isSearchUsingImplementorsEnabled() {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
@@ -71,6 +268,7 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_USE_IMPLEMENTORS, enabled);
+        clearCache();
     }
     
     public boolean isFilterTestCode() {
@@ -83,8 +281,125 @@ public class CallHierarchy {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
 
         settings.setValue(PREF_FILTER_TESTCODE, enabled);
+        clearCache();
     }
 
+	/**
+	 * Returns the number of levels of callers that are computed in advance when a call hierarchy
+	 * is opened.
+	 *
+	 * @return the number of levels, <code>0</code> to only compute callers when expanded
+	 * @see #expandCallers(IMember[], int, IProgressMonitor)
+	 */
+	public int getExpandDepth() {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		return Math.max(settings.getInt(PREF_EXPAND_DEPTH), 0);
+	}
+
+	public void setExpandDepth(int depth) {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		settings.setValue(PREF_EXPAND_DEPTH, depth);
+	}
+
+	/**
+	 * Returns the maximum number of members whose callers are computed in advance when a call
+	 * hierarchy is opened.
+	 *
+	 * @return the maximum number of members
+	 * @see #expandCallers(IMember[], int, IProgressMonitor)
+	 */
+	public int getExpandBudget() {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		int budget= settings.getInt(PREF_EXPAND_BUDGET);
+		return budget > 0 ? budget : DEFAULT_EXPAND_BUDGET;
+	}
+
+	public void setExpandBudget(int budget) {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		settings.setValue(PREF_EXPAND_BUDGET, budget);
+	}
+
+	public boolean isCallGraphIndexEnabled() {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		return settings.getBoolean(PREF_USE_CALL_GRAPH_INDEX);
+	}
+
+	public void setCallGraphIndexEnabled(boolean enabled) {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		settings.setValue(PREF_USE_CALL_GRAPH_INDEX, enabled);
+	}
+
+	/**
+	 * Returns the maximum number of searches that run concurrently when callers are computed in
+	 * advance.
+	 *
+	 * @return the maximum number of concurrent searches
+	 * @see #expandCallers(IMember[], int, IProgressMonitor)
+	 */
+	public int getSearchThreads() {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		int threads= settings.getInt(PREF_SEARCH_THREADS);
+		return threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+	}
+
+	public void setSearchThreads(int threads) {
+		IPreferenceStore settings= JavaPlugin.getDefault().getPreferenceStore();
+		settings.setValue(PREF_SEARCH_THREADS, threads);
+		synchronized (CallHierarchy.class) {
+			if (fgWorkerPool != null)
+				fgWorkerPool.setMaxThreads(getSearchThreads());
+		}
+	}
+
+	/**
+	 * Returns the index used to restrict caller searches. The index is started when it is
+	 * enabled and stopped when it is disabled.
+	 *
+	 * @return the call graph index, or <code>null</code> if it is not enabled
+	 * @see #isCallGraphIndexEnabled()
+	 */
+	public synchronized CallGraphIndex getCallGraphIndex() {
+		if (!isCallGraphIndexEnabled()) {
+			shutdownCallGraphIndex();
+			return null;
+		}
+		if (fCallGraphIndex == null) {
+			fCallGraphIndex= new CallGraphIndex(JavaPlugin.getDefault().getStateLocation().append(CallGraphIndex.FILE_NAME).toFile());
+			fCallGraphIndex.startup();
+		}
+		return fCallGraphIndex;
+	}
+
+	/**
+	 * Stops the call graph index, if it has been started, and stores it.
+	 */
+	public synchronized void shutdownCallGraphIndex() {
+		if (fCallGraphIndex != null) {
+			fCallGraphIndex.shutdown();
+			fCallGraphIndex= null;
+		}
+	}
+
+	/**
+	 * Disposes the shared instance, if it has been created: stops its call graph index, stops
+	 * listening to the Java model and discards the cached calls. Also stops the threads that
+	 * compute callers in advance.
+	 */
+	public static void shutdown() {
+		CallHierarchy instance;
+		synchronized (CallHierarchy.class) {
+			instance= fgInstance;
+			fgInstance= null;
+			if (fgWorkerPool != null)
+				fgWorkerPool.shutdown();
+		}
+		if (instance != null) {
+			JavaCore.removeElementChangedListener(instance.fElementChangedListener);
+			instance.shutdownCallGraphIndex();
+			instance.clearCache();
+		}
+	}
+
 
     public Collection<IJavaElement> getImplementingMethods(IMethod method) {
         if (isSearchUsingImplementorsEnabled()) {
@@ -163,6 +478,108 @@ public class CallHierarchy {
 		roots.add(root);
 	}
 
+	/**
+	 * Computes the callers of the given members breadth-first, up to the levels configured by
+	 * {@link #getExpandDepth()} and {@link #getExpandBudget()}. The members of a level are
+	 * searched concurrently. The results are kept in the cache shared by all method wrappers, so
+	 * that expanding the hierarchy later does not search again.
+	 *
+	 * @param members the members
+	 * @param fieldSearchMode the field search mode of the roots, see
+	 *            {@link MethodWrapper#setFieldSearchMode(int)}
+	 * @param monitor the progress monitor
+	 * @return the number of members whose callers have been computed
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public int expandCallers(IMember[] members, int fieldSearchMode, IProgressMonitor monitor) {
+		MethodWrapper[] roots= getCallerRoots(members);
+		for (int i= 0; i < roots.length; i++) {
+			roots[i].setFieldSearchMode(fieldSearchMode);
+		}
+		return expand(roots, getExpandDepth(), getExpandBudget(), monitor);
+	}
+
+	/**
+	 * Computes the calls of the given method wrappers and of their descendants breadth-first. The
+	 * method wrappers of a level are processed concurrently, by at most {@link #getSearchThreads()}
+	 * threads.
+	 *
+	 * @param roots the method wrappers to start with
+	 * @param depth the number of levels to compute
+	 * @param budget the maximum number of method wrappers to compute the calls of
+	 * @param monitor the progress monitor
+	 * @return the number of method wrappers whose calls have been computed
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	int expand(MethodWrapper[] roots, int depth, int budget, IProgressMonitor monitor) {
+		monitor.beginTask(CallHierarchyMessages.CallHierarchy_expand_taskname, Math.min(budget, 1000));
+		try {
+			List<MethodWrapper> level= new ArrayList<>(Arrays.asList(roots));
+			int expanded= 0;
+			for (int i= 0; i < depth && !level.isEmpty() && expanded < budget; i++) {
+				if (level.size() > budget - expanded) {
+					level= level.subList(0, budget - expanded);
+				}
+				List<Future<MethodWrapper[]>> futures= new ArrayList<>(level.size());
+				IProgressMonitor searchMonitor= new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						return monitor.isCanceled();
+					}
+				};
+				for (Iterator<MethodWrapper> iter= level.iterator(); iter.hasNext();) {
+					MethodWrapper wrapper= iter.next();
+					futures.add(getWorkerPool().submit(() -> wrapper.getCalls(searchMonitor)));
+				}
+				expanded+= level.size();
+
+				List<MethodWrapper> nextLevel= new ArrayList<>();
+				try {
+					for (Iterator<Future<MethodWrapper[]>> iter= futures.iterator(); iter.hasNext();) {
+						MethodWrapper[] calls;
+						try {
+							calls= iter.next().get();
+						} catch (ExecutionException e) {
+							if (e.getCause() instanceof OperationCanceledException) {
+								throw (OperationCanceledException) e.getCause();
+							}
+							JavaPlugin.log(e.getCause());
+							continue;
+						} finally {
+							monitor.worked(1);
+						}
+						for (int j= 0; j < calls.length; j++) {
+							if (calls[j].canHaveChildren() && !calls[j].isRecursive()) {
+								nextLevel.add(calls[j]);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				} finally {
+					for (Iterator<Future<MethodWrapper[]>> iter= futures.iterator(); iter.hasNext();) {
+						iter.next().cancel(false);
+					}
+				}
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				level= nextLevel;
+			}
+			return expanded;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private WorkerPool getWorkerPool() {
+		synchronized (CallHierarchy.class) {
+			if (fgWorkerPool == null)
+				fgWorkerPool= new WorkerPool("Call Hierarchy Worker", getSearchThreads()); //$NON-NLS-1$
+			return fgWorkerPool;
+		}
+	}
+
     public static CallLocation getCallLocation(Object element) {
         CallLocation callLocation = null;
 
@@ -189,9 +606,35 @@ public class CallHierarchy {
     }
 
     public void setSearchScope(IJavaSearchScope searchScope) {
+        if (searchScope == null ? fSearchScope != null : !searchScope.equals(fSearchScope)) {
+            clearCache();
+        }
         this.fSearchScope = searchScope;
+        this.fSearchScopeKey = null;
     }
 
+	/**
+	 * Sets the search scope. Search scopes don't implement <code>equals</code>, so a scope that is
+	 * created again for the same elements is detected by comparing the include mask and the
+	 * elements. The cached calls are only discarded when these differ from the current scope's.
+	 *
+	 * @param searchScope the search scope, or <code>null</code> for the workspace
+	 * @param includeMask the include mask the scope has been created with, see
+	 *            {@link IJavaSearchScope#SOURCES}
+	 * @param scopeElements the elements the scope has been created from, an empty array for the
+	 *            workspace
+	 */
+	public void setSearchScope(IJavaSearchScope searchScope, int includeMask, Object[] scopeElements) {
+		List<Object> key= new ArrayList<>(scopeElements.length + 1);
+		key.add(Integer.valueOf(includeMask));
+		key.addAll(Arrays.asList(scopeElements));
+		if (!key.equals(fSearchScopeKey)) {
+			clearCache();
+		}
+		fSearchScope= searchScope;
+		fSearchScopeKey= key;
+	}
+
 	/**
 	 * Checks whether the fully qualified name is ignored by the set filters.
 	 *
@@ -221,6 +664,8 @@ public class CallHierarchy {
     public void setFilterEnabled(boolean filterEnabled) {
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_USE_FILTERS, filterEnabled);
+        fFilters = null;
+        clearCache();
     }
 
     /**
@@ -238,6 +683,7 @@ public class CallHierarchy {
 
         IPreferenceStore settings = JavaPlugin.getDefault().getPreferenceStore();
         settings.setValue(PREF_FILTERS_LIST, filters);
+        clearCache();
     }
 
     /**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -149,6 +149,16 @@ public class CallerMethodWrapper extends MethodWrapper {
 			IJavaSearchScope defaultSearchScope= getSearchScope();
 			boolean isWorkspaceScope= SearchEngine.createWorkspaceScope().equals(defaultSearchScope);
 			IJavaSearchScope searchScope= isWorkspaceScope ? getAccurateSearchScope(defaultSearchScope, member) : defaultSearchScope;
+			if (member instanceof IMethod && !((IMethod) member).isConstructor()) {
+				// constructors are not indexed, implicit super constructor calls have no AST node
+				CallGraphIndex index= CallHierarchy.getDefault().getCallGraphIndex();
+				IJavaElement[] elements= index != null ? index.getSearchElements((IMethod) member, searchScope) : null;
+				if (elements != null) {
+					if (elements.length == 0)
+						return new HashMap<>(0);
+					searchScope= SearchEngine.createJavaSearchScope(elements, false);
+				}
+			}
 			searchEngine.search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, searchScope, searchRequestor,
 					monitor);
 			return searchRequestor.getCallers();
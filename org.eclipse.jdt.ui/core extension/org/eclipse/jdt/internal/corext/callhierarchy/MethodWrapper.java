@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,11 +39,11 @@ public abstract class MethodWrapper extends PlatformObject {
     private Map<String, MethodCall> fElements = null;
 
     /*
-     * A cache of previously found methods. This cache should be searched
-     * before adding a "new" method object reference to the list of elements.
-     * This way previously found methods won't be searched again.
+     * A cache of previously found methods, shared by all method wrappers. This cache
+     * should be searched before adding a "new" method object reference to the list of
+     * elements. This way previously found methods won't be searched again.
      */
-    private Map<String, Map<String, MethodCall>> fMethodCache;
+    private final Map<String, Map<String, MethodCall>> fMethodCache;
     private final MethodCall fMethodCall;
     private final MethodWrapper fParent;
     private int fLevel;
@@ -56,11 +56,10 @@ public abstract class MethodWrapper extends PlatformObject {
     public MethodWrapper(MethodWrapper parent, MethodCall methodCall) {
         Assert.isNotNull(methodCall);
 
+        fMethodCache = CallHierarchy.getDefault().getMethodCache();
         if (parent == null) {
-            setMethodCache(new HashMap<String, Map<String, MethodCall>>());
             fLevel = 1;
         } else {
-            setMethodCache(parent.getMethodCache());
             fLevel = parent.getLevel() + 1;
         }
 
@@ -197,15 +196,18 @@ public abstract class MethodWrapper extends PlatformObject {
         return result;
     }
 
-    private void setMethodCache(Map<String, Map<String, MethodCall>> methodCache) {
-        fMethodCache = methodCache;
-    }
-
     protected abstract String getTaskName();
 
-    private void addCallToCache(MethodCall methodCall) {
-        Map<String, MethodCall> cachedCalls = lookupMethod(this.getMethodCall());
-        cachedCalls.put(methodCall.getKey(), methodCall);
+    /**
+     * Returns the key of the calls of this wrapper's member in the shared cache. Callers and
+     * callees of the same member, and accesses to a field in different field search modes, are
+     * cached separately.
+     *
+     * @return the cache key
+     */
+    String getCacheKey() {
+        char direction = this instanceof CallerMethodWrapper ? 'R' : 'E';
+        return direction + String.valueOf(getFieldSearchMode()) + ':' + getMethodCall().getKey();
     }
 
 	/**
@@ -217,14 +219,12 @@ public abstract class MethodWrapper extends PlatformObject {
     protected abstract MethodWrapper createMethodWrapper(MethodCall methodCall);
 
     private void doFindChildren(IProgressMonitor progressMonitor) {
-        Map<String, MethodCall> existingResults = lookupMethod(getMethodCall());
+        Map<String, MethodCall> existingResults = lookupMethod();
 
         if (existingResults != null && !existingResults.isEmpty()) {
             fElements = new HashMap<>();
             fElements.putAll(existingResults);
         } else {
-            initCalls();
-
             if (progressMonitor != null) {
                 progressMonitor.beginTask(getTaskName(), 100);
             }
@@ -279,45 +279,27 @@ public abstract class MethodWrapper extends PlatformObject {
      */
     protected abstract Map<String, MethodCall> findChildren(IProgressMonitor progressMonitor);
 
-    private Map<String, Map<String, MethodCall>> getMethodCache() {
-        return fMethodCache;
-    }
-
-    private void initCalls() {
-        this.fElements = new HashMap<>();
-
-        initCacheForMethod();
-    }
-
     /**
      * Looks up a previously created search result in the "global" cache.
-     * @param methodCall the method call
-     * @return the List of previously found search results
+     * @return the Map of previously found search results
      */
-    private Map<String, MethodCall> lookupMethod(MethodCall methodCall) {
-        return getMethodCache().get(methodCall.getKey());
+    private Map<String, MethodCall> lookupMethod() {
+        return fMethodCache.get(getCacheKey());
     }
 
     private void performSearch(IProgressMonitor progressMonitor) {
-        fElements = findChildren(progressMonitor);
-
-        for (Iterator<String> iter = fElements.keySet().iterator(); iter.hasNext();) {
-            checkCanceled(progressMonitor);
+        Map<String, MethodCall> elements = findChildren(progressMonitor);
+        checkCanceled(progressMonitor);
 
-            MethodCall methodCall = getMethodCallFromMap(fElements, iter.next());
-            addCallToCache(methodCall);
-        }
+        // the cached map is never modified, so that it can be read concurrently
+        fMethodCache.put(getCacheKey(), new HashMap<>(elements));
+        fElements = elements;
     }
 
     private MethodCall getMethodCallFromMap(Map<String, MethodCall> elements, String key) {
         return elements.get(key);
     }
 
-    private void initCacheForMethod() {
-        Map<String, MethodCall> cachedCalls = new HashMap<>();
-        getMethodCache().put(this.getMethodCall().getKey(), cachedCalls);
-    }
-
     /**
      * Checks with the progress monitor to see whether the creation of the type hierarchy
      * should be canceled. Should be regularly called
@@ -367,6 +349,16 @@ public abstract class MethodWrapper extends PlatformObject {
 	 */
 	public void removeFromCache() {
 		fElements= null;
-		fMethodCache.remove(getMethodCall().getKey());
+		fMethodCache.remove(getCacheKey());
+	}
+
+	/**
+	 * Tells whether the calls of this wrapper's member are in the cache shared by all method
+	 * wrappers.
+	 *
+	 * @return <code>true</code> if the calls are cached
+	 */
+	public boolean isCached() {
+		return fMethodCache.containsKey(getCacheKey());
 	}
 }
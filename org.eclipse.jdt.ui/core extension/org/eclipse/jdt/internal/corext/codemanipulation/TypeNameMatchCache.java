@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.codemanipulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.TypeParameter;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+import org.eclipse.jdt.internal.corext.dom.IASTSharedValues;
+import org.eclipse.jdt.internal.corext.util.TypeNameMatchCollector;
+
+/**
+ * Caches the types found for unresolved simple type names while organizing the imports of
+ * several compilation units.
+ * <p>
+ * Without a cache, every {@link OrganizeImportsOperation} searches for the unresolved names of
+ * its own compilation unit, so that organizing a large selection repeats mostly the same
+ * searches. {@link #prefetch(IJavaProject, ICompilationUnit[], IProgressMonitor)} collects the
+ * names that may be unresolved in all units of a project up front and resolves them with a single
+ * search. Names missed by the prefetch are searched when requested and cached as well.
+ * </p>
+ * <p>
+ * A cache is meant to live for one organize imports run only; it does not track changes to the
+ * class path or to the types in the workspace. It is thread safe.
+ * </p>
+ */
+public final class TypeNameMatchCache {
+
+	/** Maps a project to its cached matches, keyed by simple type name */
+	private final Map<IJavaProject, Map<String, List<TypeNameMatch>>> fMatches= new HashMap<>();
+
+	/**
+	 * Searches the types for all simple names in the given compilation units that may need an
+	 * import.
+	 * <p>
+	 * The units are parsed without bindings, so the collected names are a superset of the names
+	 * that turn out unresolved: only names declared in the unit itself, names imported by a single
+	 * type import and names of types of the same package in <code>units</code> are left out.
+	 * </p>
+	 *
+	 * @param project the project of the units
+	 * @param units the compilation units of <code>project</code> that will be processed
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @throws JavaModelException if the search fails
+	 * @throws OperationCanceledException if the monitor is canceled
+	 */
+	public void prefetch(IJavaProject project, ICompilationUnit[] units, IProgressMonitor monitor) throws JavaModelException {
+		SubMonitor progress= SubMonitor.convert(monitor, units.length + 10);
+
+		Map<String, Set<String>> packageTypes= new HashMap<>();
+		for (int i= 0; i < units.length; i++) {
+			String packageName= units[i].getParent().getElementName();
+			Set<String> types= packageTypes.get(packageName);
+			if (types == null) {
+				types= new HashSet<>();
+				packageTypes.put(packageName, types);
+			}
+			String name= units[i].getElementName();
+			int dot= name.lastIndexOf('.');
+			types.add(dot == -1 ? name : name.substring(0, dot));
+		}
+
+		Set<String> names= new HashSet<>();
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		for (int i= 0; i < units.length; i++) {
+			parser.setSource(units[i]);
+			parser.setResolveBindings(false);
+			CompilationUnit root= (CompilationUnit) parser.createAST(progress.split(1));
+			collectNames(root, packageTypes.get(units[i].getParent().getElementName()), names);
+		}
+
+		synchronized (this) {
+			names.removeAll(getProjectMatches(project).keySet());
+		}
+		search(project, names, progress.split(10));
+	}
+
+	private static void collectNames(CompilationUnit root, Set<String> packageTypes, Set<String> names) {
+		final Set<String> known= new HashSet<>(packageTypes);
+		for (Object element : root.imports()) {
+			ImportDeclaration declaration= (ImportDeclaration) element;
+			if (!declaration.isOnDemand() && !declaration.isStatic() && declaration.getName().isQualifiedName())
+				known.add(((QualifiedName) declaration.getName()).getName().getIdentifier());
+		}
+		root.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(TypeParameter node) {
+				known.add(node.getName().getIdentifier());
+				return true;
+			}
+
+			@Override
+			public void endVisit(AbstractTypeDeclaration node) {
+				known.add(node.getName().getIdentifier());
+			}
+		});
+
+		List<SimpleName> references= new ArrayList<>();
+		ImportReferencesCollector.collect(root, null, null, references, null);
+		for (SimpleName reference : references) {
+			String identifier= reference.getIdentifier();
+			if (!known.contains(identifier) && Character.isUpperCase(identifier.charAt(0)))
+				names.add(identifier);
+		}
+	}
+
+	/**
+	 * Returns the types in the given project matching the given simple names. Names that are not
+	 * cached yet are searched with a single search.
+	 *
+	 * @param project the project to search in
+	 * @param names the simple type names
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the matches for all names, filtered by the type filter preference
+	 * @throws JavaModelException if the search fails
+	 */
+	public List<TypeNameMatch> getMatches(IJavaProject project, Collection<String> names, IProgressMonitor monitor) throws JavaModelException {
+		Set<String> missing= new HashSet<>();
+		synchronized (this) {
+			Map<String, List<TypeNameMatch>> matches= getProjectMatches(project);
+			for (String name : names) {
+				if (!matches.containsKey(name))
+					missing.add(name);
+			}
+		}
+		search(project, missing, monitor);
+
+		List<TypeNameMatch> result= new ArrayList<>();
+		synchronized (this) {
+			Map<String, List<TypeNameMatch>> matches= getProjectMatches(project);
+			for (String name : names) {
+				List<TypeNameMatch> found= matches.get(name);
+				if (found != null)
+					result.addAll(found);
+			}
+		}
+		return result;
+	}
+
+	private void search(IJavaProject project, Set<String> names, IProgressMonitor monitor) throws JavaModelException {
+		if (names.isEmpty()) {
+			if (monitor != null)
+				monitor.done();
+			return;
+		}
+		char[][] allTypes= new char[names.size()][];
+		int i= 0;
+		for (String name : names)
+			allTypes[i++]= name.toCharArray();
+
+		List<TypeNameMatch> typesFound= new ArrayList<>();
+		new SearchEngine().searchAllTypeNames(null, allTypes, SearchEngine.createJavaSearchScope(new IJavaElement[] { project }),
+				new TypeNameMatchCollector(typesFound), IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+
+		Map<String, List<TypeNameMatch>> found= new HashMap<>();
+		for (String name : names)
+			found.put(name, new ArrayList<TypeNameMatch>(1));
+		for (TypeNameMatch match : typesFound) {
+			List<TypeNameMatch> list= found.get(match.getSimpleTypeName());
+			if (list != null)
+				list.add(match);
+		}
+		synchronized (this) {
+			Map<String, List<TypeNameMatch>> matches= getProjectMatches(project);
+			for (Map.Entry<String, List<TypeNameMatch>> entry : found.entrySet()) {
+				if (!matches.containsKey(entry.getKey()))
+					matches.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+			}
+		}
+	}
+
+	private Map<String, List<TypeNameMatch>> getProjectMatches(IJavaProject project) {
+		Map<String, List<TypeNameMatch>> matches= fMatches.get(project);
+		if (matches == null) {
+			matches= new HashMap<>();
+			fMatches.put(project, matches);
+		}
+		return matches;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1085,6 +1085,20 @@ public class CleanUpConstants {
 	 */
 	public static final String SHOW_CLEAN_UP_WIZARD= "cleanup.showwizard"; //$NON-NLS-1$
 
+	/**
+	 * The maximum number of compilation units of a project that are cleaned up concurrently
+	 * when executing the Clean Up Action. A value of <code>1</code> cleans up one compilation
+	 * unit after the other. Larger values require all clean ups to be able to create fixes
+	 * concurrently.<br>
+	 * <br>
+	 * Possible values: positive int value<br>
+	 * Default value: <code><b>1</b></code><br>
+	 * <br>
+	 *
+	 * @since 3.14
+	 */
+	public static final String CLEANUP_MAX_PARALLELISM= "cleanup.max_parallelism"; //$NON-NLS-1$
+
 	/**
 	 * A key to a serialized string in the <code>InstanceScope</code> containing all the profiles.<br>
 	 * Following code snippet can load the profiles:
@@ -1349,6 +1363,7 @@ public class CleanUpConstants {
 		}
 
 		store.setDefault(SHOW_CLEAN_UP_WIZARD, true);
+		store.setDefault(CLEANUP_MAX_PARALLELISM, 1);
 		store.setDefault(CLEANUP_PROFILE, DEFAULT_PROFILE);
 		store.setDefault(CLEANUP_ON_SAVE_PROFILE, DEFAULT_SAVE_PARTICIPANT_PROFILE);
 	}
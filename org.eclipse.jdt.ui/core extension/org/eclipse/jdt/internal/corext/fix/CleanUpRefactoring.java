@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,16 @@
 package org.eclipse.jdt.internal.corext.fix;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -25,6 +29,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
@@ -74,6 +79,7 @@ import org.eclipse.jdt.internal.corext.refactoring.changes.MultiStateCompilation
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextEditUtil;
 import org.eclipse.jdt.internal.corext.util.Messages;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 import org.eclipse.jdt.ui.JavaElementLabels;
 import org.eclipse.jdt.ui.cleanup.CleanUpContext;
@@ -245,6 +251,147 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * Progress monitor shared by the workers of a parallel clean up. Serializes the calls to
+	 * the wrapped monitor and can cancel the workers without canceling the wrapped monitor.
+	 */
+	private static final class SynchronizedProgressMonitor extends ProgressMonitorWrapper {
+
+		private volatile boolean fWorkersCanceled;
+
+		private Throwable fFailure;
+
+		private SynchronizedProgressMonitor(IProgressMonitor monitor) {
+			super(monitor);
+		}
+
+		/**
+		 * Cancels all workers.
+		 *
+		 * @param failure the failure of a worker, or <code>null</code> if the workers
+		 *            are canceled for another reason. Only the first failure is kept.
+		 */
+		public synchronized void cancelWorkers(Throwable failure) {
+			if (fFailure == null)
+				fFailure= failure;
+			fWorkersCanceled= true;
+		}
+
+		public synchronized Throwable getFailure() {
+			return fFailure;
+		}
+
+		@Override
+		public synchronized void beginTask(String name, int totalWork) {
+			super.beginTask(name, totalWork);
+		}
+
+		@Override
+		public synchronized void done() {
+			super.done();
+		}
+
+		@Override
+		public synchronized void internalWorked(double work) {
+			super.internalWorked(work);
+		}
+
+		@Override
+		public synchronized boolean isCanceled() {
+			return fWorkersCanceled || super.isCanceled();
+		}
+
+		@Override
+		public synchronized void setCanceled(boolean value) {
+			super.setCanceled(value);
+		}
+
+		@Override
+		public synchronized void setTaskName(String name) {
+			super.setTaskName(name);
+		}
+
+		@Override
+		public synchronized void subTask(String name) {
+			super.subTask(name);
+		}
+
+		@Override
+		public synchronized void worked(int work) {
+			super.worked(work);
+		}
+	}
+
+	/**
+	 * Cleans up a contiguous slice of the targets of a project in a parallel clean up. A worker
+	 * runs at most once, either in a thread of the worker pool or in the thread that waits for
+	 * the workers.
+	 */
+	private final class CleanUpWorker implements Runnable {
+
+		private final CleanUpTarget[] fSlice;
+		private final ICleanUp[] fWorkerCleanUps;
+		private final int fSize;
+		private final int fIndex;
+		private final SynchronizedProgressMonitor fSharedMonitor;
+		private final IProgressMonitor fSliceMonitor;
+		private final AtomicBoolean fStarted;
+		private final CountDownLatch fDone;
+		private volatile Change[] fResult;
+
+		/**
+		 * @param slice the targets to clean up
+		 * @param cleanUps the clean ups to apply
+		 * @param size the total number of targets of the project
+		 * @param index the index of the first target of the slice in all targets, starting at 1
+		 * @param sharedMonitor the monitor shared by all workers
+		 */
+		public CleanUpWorker(CleanUpTarget[] slice, ICleanUp[] cleanUps, int size, int index, SynchronizedProgressMonitor sharedMonitor) {
+			fSlice= slice;
+			fWorkerCleanUps= cleanUps;
+			fSize= size;
+			fIndex= index;
+			fSharedMonitor= sharedMonitor;
+			fSliceMonitor= new SubProgressMonitor(sharedMonitor, slice.length);
+			fStarted= new AtomicBoolean();
+			fDone= new CountDownLatch(1);
+		}
+
+		@Override
+		public void run() {
+			if (!fStarted.compareAndSet(false, true))
+				return;
+
+			fSliceMonitor.beginTask("", fSlice.length); //$NON-NLS-1$
+			try {
+				fResult= cleanUpTargets(fSlice, fWorkerCleanUps, fSize, fIndex, fSliceMonitor);
+			} catch (CoreException | RuntimeException | Error e) {
+				fSharedMonitor.cancelWorkers(e);
+			} finally {
+				fSliceMonitor.done();
+				fDone.countDown();
+			}
+		}
+
+		/**
+		 * Waits until a started worker has finished.
+		 *
+		 * @param timeout the maximum time to wait in milliseconds
+		 * @return <code>true</code> if the worker has finished
+		 * @throws InterruptedException if the current thread is interrupted while waiting
+		 */
+		public boolean await(long timeout) throws InterruptedException {
+			return fDone.await(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * @return the changes of the slice, or <code>null</code> if the worker did not finish
+		 */
+		public Change[] getResult() {
+			return fResult;
+		}
+	}
+
 	private static class CleanUpASTRequestor extends ASTRequestor {
 
 		private final List<ParseListElement> fUndoneElements;
@@ -326,6 +473,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private class CleanUpFixpointIterator {
 
+		private final CleanUpTarget[] fTargets;
 		private List<ParseListElement> fParseList;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
@@ -333,7 +481,14 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private final int fSize;
 		private int fIndex;
 
-		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
+		/**
+		 * @param targets the targets to clean up
+		 * @param cleanUps the clean ups to apply
+		 * @param size the total number of targets, used to report progress
+		 * @param index the index of the first target in the total targets, starting at 1
+		 */
+		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps, int size, int index) {
+			fTargets= targets;
 			fSolutions= new Hashtable<>(targets.length);
 			fWorkingCopies= new Hashtable<>();
 
@@ -350,8 +505,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 					fCleanUpOptions.putAll(currentCleanUpOption);
 			}
 
-			fSize= targets.length;
-			fIndex= 1;
+			fSize= size;
+			fIndex= index;
 		}
 
 		public boolean hasNext() {
@@ -444,15 +599,21 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			return false;
 		}
 
+		/**
+		 * Returns the changes in the order of the targets.
+		 *
+		 * @return the changes
+		 */
 		public Change[] getResult() {
 
 			Change[] result= new Change[fSolutions.size()];
+			HashSet<ICompilationUnit> done= new HashSet<>();
 			int i=0;
-			for (Iterator<Entry<ICompilationUnit, List<CleanUpChange>>> iterator= fSolutions.entrySet().iterator(); iterator.hasNext();) {
-				Entry<ICompilationUnit, List<CleanUpChange>>  entry= iterator.next();
-
-				List<CleanUpChange> changes= entry.getValue();
-				ICompilationUnit unit= entry.getKey();
+			for (int k= 0; k < fTargets.length; k++) {
+				ICompilationUnit unit= fTargets[k].getCompilationUnit();
+				List<CleanUpChange> changes= fSolutions.get(unit);
+				if (changes == null || !done.add(unit))
+					continue;
 
 				int saveMode;
 				if (fLeaveFilesDirty) {
@@ -513,6 +674,13 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	 */
 	private static final int SLOW_CLEAN_UP_THRESHOLD= 2000;
 
+	/**
+	 * The minimal number of compilation units handed to a worker of a parallel clean up.
+	 */
+	private static final int MIN_TARGETS_PER_WORKER= 20;
+
+	private static WorkerPool fgWorkerPool;
+
 	private final List<ICleanUp> fCleanUps;
 	private final Hashtable<IJavaProject, List<CleanUpTarget>> fProjects;
 	private Change fChange;
@@ -521,6 +689,12 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private boolean fUseOptionsFromProfile;
 
+	private int fMaxParallelism;
+
+	private int fUsedParallelism;
+
+	private long fCleanUpTime;
+
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
 	}
@@ -530,12 +704,59 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<>();
 		fProjects= new Hashtable<>();
 		fUseOptionsFromProfile= false;
+		fMaxParallelism= 1;
+		fCleanUpTime= -1;
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
 		fUseOptionsFromProfile= enabled;
 	}
 
+	/**
+	 * Sets the maximum number of compilation units of a project that are cleaned up
+	 * concurrently. The default is <code>1</code>, i.e. the compilation units are
+	 * cleaned up one after the other.
+	 * <p>
+	 * With a larger value, the compilation units of each project are split into contiguous
+	 * slices that are parsed and cleaned up by worker threads. All clean ups must be
+	 * able to create fixes concurrently. The resulting changes are in the same order as for
+	 * a sequential clean up.
+	 * </p>
+	 *
+	 * @param maxParallelism the maximum number of compilation units cleaned up concurrently
+	 * @see CleanUpConstants#CLEANUP_MAX_PARALLELISM
+	 */
+	public void setMaxParallelism(int maxParallelism) {
+		fMaxParallelism= Math.max(1, maxParallelism);
+	}
+
+	public int getMaxParallelism() {
+		return fMaxParallelism;
+	}
+
+	/**
+	 * Returns the largest number of workers that cleaned up the compilation units of a project
+	 * in the last call to {@link #checkFinalConditions(IProgressMonitor)}. A project only gets
+	 * more than one worker if each worker gets at least {@value #MIN_TARGETS_PER_WORKER}
+	 * compilation units.
+	 *
+	 * @return the number of workers, <code>1</code> if all compilation units were cleaned up
+	 *         one after the other, or <code>0</code> if nothing has been cleaned up
+	 */
+	public int getUsedParallelism() {
+		return fUsedParallelism;
+	}
+
+	/**
+	 * Returns the time it took to compute the change of all clean up targets in the last
+	 * call to {@link #checkFinalConditions(IProgressMonitor)}.
+	 *
+	 * @return the time in milliseconds, or <code>-1</code> if no change has been computed
+	 */
+	public long getCleanUpTime() {
+		return fCleanUpTime;
+	}
+
 	public void addCompilationUnit(ICompilationUnit unit) {
 		addCleanUpTarget(new CleanUpTarget(unit));
 	}
@@ -633,6 +854,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 
 		int cuCount= getCleanUpTargetsSize();
+		long start= System.nanoTime();
+		fCleanUpTime= -1;
+		fUsedParallelism= 0;
 
 		RefactoringStatus result= new RefactoringStatus();
 
@@ -668,6 +892,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				}
 			}
 			fChange= change;
+			fCleanUpTime= (System.nanoTime() - start) / 1000000;
 
 			List<IResource> files= new ArrayList<>();
 			findFilesToBeModified(change, files);
@@ -694,23 +919,91 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	}
 
 	private Change[] cleanUpProject(IJavaProject project, CleanUpTarget[] targets, ICleanUp[] cleanUps, IProgressMonitor monitor) throws CoreException {
-		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps);
-
 		SubProgressMonitor subMonitor= new SubProgressMonitor(monitor, 2 * targets.length * cleanUps.length);
 		subMonitor.beginTask("", targets.length); //$NON-NLS-1$
 		subMonitor.subTask(Messages.format(FixMessages.CleanUpRefactoring_Parser_Startup_message, BasicElementLabels.getResourceName(project.getProject())));
+		try {
+			int parallelism= Math.max(1, Math.min(fMaxParallelism, targets.length / MIN_TARGETS_PER_WORKER));
+			fUsedParallelism= Math.max(fUsedParallelism, parallelism);
+			if (parallelism > 1)
+				return cleanUpTargetsInParallel(targets, cleanUps, parallelism, subMonitor);
+
+			return cleanUpTargets(targets, cleanUps, targets.length, 1, subMonitor);
+		} finally {
+			subMonitor.done();
+		}
+	}
+
+	private Change[] cleanUpTargets(CleanUpTarget[] targets, ICleanUp[] cleanUps, int size, int index, IProgressMonitor monitor) throws CoreException {
+		CleanUpFixpointIterator iter= new CleanUpFixpointIterator(targets, cleanUps, size, index);
 		try {
 			while (iter.hasNext()) {
-				iter.next(subMonitor);
+				iter.next(monitor);
 			}
 
 			return iter.getResult();
 		} finally {
 			iter.dispose();
-			subMonitor.done();
 		}
 	}
 
+	private Change[] cleanUpTargetsInParallel(CleanUpTarget[] targets, ICleanUp[] cleanUps, int parallelism, IProgressMonitor monitor) throws CoreException {
+		SynchronizedProgressMonitor sharedMonitor= new SynchronizedProgressMonitor(monitor);
+		CleanUpWorker[] workers= new CleanUpWorker[parallelism];
+		int start= 0;
+		for (int i= 0; i < parallelism; i++) {
+			int end= (int) ((long) targets.length * (i + 1) / parallelism);
+			workers[i]= new CleanUpWorker(Arrays.copyOfRange(targets, start, end), cleanUps, targets.length, start + 1, sharedMonitor);
+			getWorkerPool().submit(workers[i]);
+			start= end;
+		}
+
+		// run the workers that no pool thread has picked up yet, so that the clean up also
+		// completes when the pool is busy or has been shut down
+		for (int i= 0; i < workers.length; i++)
+			workers[i].run();
+
+		// wait for all workers before reporting a failure, so that no worker touches the working copies afterwards
+		boolean interrupted= false;
+		for (int i= 0; i < workers.length; i++) {
+			while (true) {
+				try {
+					if (workers[i].await(100))
+						break;
+				} catch (InterruptedException e) {
+					interrupted= true;
+				}
+				if (interrupted || monitor.isCanceled())
+					sharedMonitor.cancelWorkers(null);
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		Throwable failure= sharedMonitor.getFailure();
+		if (failure instanceof CoreException)
+			throw (CoreException) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+
+		List<Change> result= new ArrayList<>();
+		for (int i= 0; i < workers.length; i++) {
+			Change[] changes= workers[i].getResult();
+			if (changes == null)
+				throw new OperationCanceledException();
+			result.addAll(Arrays.asList(changes));
+		}
+		return result.toArray(new Change[result.size()]);
+	}
+
+	private static synchronized WorkerPool getWorkerPool() {
+		if (fgWorkerPool == null)
+			fgWorkerPool= new WorkerPool("Clean Up Worker", Runtime.getRuntime().availableProcessors()); //$NON-NLS-1$
+		return fgWorkerPool;
+	}
+
 	private RefactoringStatus setOptionsFromProfile(IJavaProject javaProject, ICleanUp[] cleanUps) {
 		Map<String, String> options= CleanUpPreferenceUtil.loadOptions(new ProjectScope(javaProject.getProject()));
 		if (options == null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,20 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -26,20 +32,15 @@ import java.util.Set;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -58,8 +59,14 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
  * History stores a list of key, object pairs. The list is bounded at size
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
- *
- * The history can be stored to/loaded from an xml file.
+ * <p>
+ * Positions are read without locking from a snapshot that is replaced whenever the
+ * history changes.
+ * </p>
+ * The history can be stored to/loaded from a binary file. Histories stored in the
+ * former XML format are still loaded. The XML file is not removed, so that a version that
+ * only reads XML still finds its history; it is loaded again if it is newer than the
+ * binary file.
  * 
  * @param <K> key type
  * @param <V> value type
@@ -70,15 +77,27 @@ public abstract class History<K, V> {
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
 
+	private static final int MAGIC= 0x4A484953;
+	private static final int VERSION= 1;
+	private static final String XML_EXTENSION= ".xml"; //$NON-NLS-1$
+	private static final String BINARY_EXTENSION= ".dat"; //$NON-NLS-1$
+
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
 	}
 
 	private final Map<K, V> fHistory;
-	private final Hashtable<K, Integer> fPositions;
+	/**
+	 * Immutable snapshot of the positions of the keys, replaced whenever the history changes
+	 */
+	private volatile Map<K, Integer> fPositions;
 	private final String fFileName;
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
+	/**
+	 * Document used to convert objects to and from binary records, only accessed while saving or loading
+	 */
+	private Document fScratchDocument;
 
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<K, V>(80, 0.75f, true) {
@@ -91,7 +110,7 @@ public abstract class History<K, V> {
 		fFileName= fileName;
 		fRootNodeName= rootNodeName;
 		fInfoNodeName= infoNodeName;
-		fPositions= new Hashtable<>(MAX_HISTORY_SIZE);
+		fPositions= Collections.emptyMap();
 	}
 
 	public History(String fileName) {
@@ -103,16 +122,16 @@ public abstract class History<K, V> {
 		rebuildPositions();
 	}
 
-	public synchronized boolean contains(V object) {
-		return fHistory.containsKey(getKey(object));
+	public boolean contains(V object) {
+		return fPositions.containsKey(getKey(object));
 	}
 
-	public synchronized boolean containsKey(K key) {
-		return fHistory.containsKey(key);
+	public boolean containsKey(K key) {
+		return fPositions.containsKey(key);
 	}
 
-	public synchronized boolean isEmpty() {
-		return fHistory.isEmpty();
+	public boolean isEmpty() {
+		return fPositions.isEmpty();
 	}
 
 	public synchronized Object remove(V object) {
@@ -136,14 +155,16 @@ public abstract class History<K, V> {
 	 * @param key The key of the object to inspect
 	 * @return value in [0.0, 1.0] the lower the older the element
 	 */
-	public synchronized float getNormalizedPosition(K key) {
-		if (!containsKey(key))
+	public float getNormalizedPosition(K key) {
+		Map<K, Integer> positions= fPositions;
+		Integer position= positions.get(key);
+		if (position == null)
 			return 0.0f;
 
-		int pos= fPositions.get(key).intValue() + 1;
+		int pos= position.intValue() + 1;
 
-		//containsKey(key) implies fHistory.size()>0
-		return (float)pos / (float)fHistory.size();
+		//containsKey(key) implies positions.size()>0
+		return (float)pos / (float)positions.size();
 	}
 
 	/**
@@ -154,16 +175,28 @@ public abstract class History<K, V> {
 	 * @param key The key of the object to inspect
 	 * @return value between 0 and MAX_HISTORY_SIZE - 1, or -1
 	 */
-	public synchronized int getPosition(K key) {
-		if (!containsKey(key))
+	public int getPosition(K key) {
+		Integer position= fPositions.get(key);
+		if (position == null)
 			return -1;
 
-		return fPositions.get(key).intValue();
+		return position.intValue();
 	}
 
 	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
+		IPath stateLocation= JavaPlugin.getDefault().getStateLocation();
+		File binaryFile= stateLocation.append(getBinaryFileName()).toFile();
+		File file= stateLocation.append(fFileName).toFile();
+		// a newer XML file has been written by a version that does not know the binary format
+		if (binaryFile.exists() && !(file.exists() && file.lastModified() > binaryFile.lastModified())) {
+			try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile)))) {
+				load(in);
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+			}
+			return;
+		}
+
 		if (file.exists()) {
 			InputStreamReader reader= null;
 	        try {
@@ -185,28 +218,12 @@ public abstract class History<K, V> {
 	}
 
 	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
-		try {
-			out= new FileOutputStream(file);
+		IPath stateLocation= JavaPlugin.getDefault().getStateLocation();
+		File file= stateLocation.append(getBinaryFileName()).toFile();
+		try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
 			save(out);
 		} catch (IOException e) {
 			JavaPlugin.log(e);
-		} catch (CoreException e) {
-			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
-				}
-			} catch (IOException e) {
-				JavaPlugin.log(e);
-			}
 		}
 	}
 
@@ -242,15 +259,104 @@ public abstract class History<K, V> {
 	 */
 	protected abstract K getKey(V object);
 
+	/**
+	 * Writes <code>object</code> to the binary history file. The default implementation writes
+	 * the attributes set by {@link #setAttributes(Object, Element)}. Subclasses may override
+	 * together with {@link #readObject(DataInputStream)} to avoid creating DOM elements.
+	 *
+	 * @param object the object to store
+	 * @param out the stream to write to
+	 * @throws IOException if writing fails
+	 */
+	protected void writeObject(V object, DataOutputStream out) throws IOException {
+		Element element= createScratchElement();
+		setAttributes(object, element);
+		NamedNodeMap attributes= element.getAttributes();
+		out.writeInt(attributes.getLength());
+		for (int i= 0; i < attributes.getLength(); i++) {
+			Attr attribute= (Attr) attributes.item(i);
+			out.writeUTF(attribute.getName());
+			out.writeUTF(attribute.getValue());
+		}
+	}
+
+	/**
+	 * Reads an object written by {@link #writeObject(Object, DataOutputStream)}. The default
+	 * implementation passes the attributes to {@link #createFromElement(Element)}.
+	 *
+	 * @param in the stream to read from
+	 * @return the object, or <code>null</code> if it cannot be restored
+	 * @throws IOException if reading fails
+	 */
+	protected V readObject(DataInputStream in) throws IOException {
+		Element element= createScratchElement();
+		int count= in.readInt();
+		for (int i= 0; i < count; i++) {
+			element.setAttribute(in.readUTF(), in.readUTF());
+		}
+		return createFromElement(element);
+	}
+
+	private Element createScratchElement() throws IOException {
+		if (fScratchDocument == null) {
+			try {
+				fScratchDocument= DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException e) {
+				throw new IOException(e);
+			}
+		}
+		return fScratchDocument.createElement(fInfoNodeName);
+	}
+
+	private String getBinaryFileName() {
+		String name= fFileName;
+		if (name.endsWith(XML_EXTENSION))
+			name= name.substring(0, name.length() - XML_EXTENSION.length());
+		return name + BINARY_EXTENSION;
+	}
+
 	private void rebuildPositions() {
-		fPositions.clear();
+		Map<K, Integer> positions= new HashMap<>();
 		Collection<V> values= fHistory.values();
 		int pos=0;
 		for (Iterator<V> iter= values.iterator(); iter.hasNext();) {
 			V element= iter.next();
-			fPositions.put(getKey(element), new Integer(pos));
+			positions.put(getKey(element), Integer.valueOf(pos));
 			pos++;
 		}
+		fPositions= Collections.unmodifiableMap(positions);
+	}
+
+	private void load(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			return;
+		int count= in.readInt();
+		for (int i= 0; i < count; i++) {
+			byte[] record= new byte[in.readInt()];
+			in.readFully(record);
+			V object= readObject(new DataInputStream(new ByteArrayInputStream(record)));
+			if (object != null) {
+				fHistory.put(getKey(object), object);
+			}
+		}
+		rebuildPositions();
+	}
+
+	private void save(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		Collection<V> values= getValues();
+		out.writeInt(values.size());
+		ByteArrayOutputStream record= new ByteArrayOutputStream();
+		DataOutputStream recordOut= new DataOutputStream(record);
+		for (Iterator<V> iter= values.iterator(); iter.hasNext();) {
+			// records are length-prefixed, so that an object that cannot be restored is skipped
+			record.reset();
+			writeObject(iter.next(), recordOut);
+			recordOut.flush();
+			out.writeInt(record.size());
+			record.writeTo(out);
+		}
 	}
 
 	private void load(InputSource inputSource) throws CoreException {
@@ -288,36 +394,4 @@ public abstract class History<K, V> {
 		rebuildPositions();
 	}
 
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<V> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
-	}
-
 }
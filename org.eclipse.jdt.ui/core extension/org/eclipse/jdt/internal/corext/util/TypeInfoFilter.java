@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -137,6 +137,10 @@ public class TypeInfoFilter {
 		return fSearchScope;
 	}
 
+	public boolean isWorkspaceScope() {
+		return fIsWorkspaceScope;
+	}
+
 	public int getPackageFlags() {
 		if (fPackageMatcher == null)
 			return SearchPattern.R_EXACT_MATCH;
@@ -168,16 +172,38 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesName(TypeNameMatch type) {
+		return matchesName(type.getSimpleTypeName());
+	}
+
+	/**
+	 * Tells whether the given simple type name matches the name pattern of this filter.
+	 *
+	 * @param simpleTypeName the simple type name
+	 * @return <code>true</code> if the name matches
+	 */
+	public boolean matchesName(String simpleTypeName) {
 		if (fText.length() == 0) {
 			return true; //empty pattern matches all names
 		}
-		return fNameMatcher.matches(type.getSimpleTypeName());
+		return fNameMatcher.matches(simpleTypeName);
 	}
 
 	private boolean matchesPackage(TypeNameMatch type) {
 		if (fPackageMatcher == null)
 			return true;
-		return fPackageMatcher.matches(type.getTypeContainerName());
+		return matchesPackage(type.getTypeContainerName());
+	}
+
+	/**
+	 * Tells whether the given type container name matches the package pattern of this filter.
+	 *
+	 * @param typeContainerName the package name, followed by the names of the enclosing types
+	 * @return <code>true</code> if the container name matches or there is no package pattern
+	 */
+	public boolean matchesPackage(String typeContainerName) {
+		if (fPackageMatcher == null)
+			return true;
+		return fPackageMatcher.matches(typeContainerName);
 	}
 
 	private boolean matchesScope(TypeNameMatch type) {
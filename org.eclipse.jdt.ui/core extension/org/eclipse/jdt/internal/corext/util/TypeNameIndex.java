@@ -0,0 +1,616 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.WorkingCopyOwner;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * A resident index of the names of all types in the workspace scope, used by the open type dialog
+ * to avoid a search for every new filter.
+ * <p>
+ * The index is filled by a single {@link SearchEngine#searchAllTypeNames} query and then kept up to
+ * date from Java element deltas: changes of primary compilation units, including the reconciled
+ * contents of their working copies, only re-read the types of the changed units, added or removed packages and roots and changed archives and class files
+ * only query the types of the affected package fragment root again. Only added, removed, opened
+ * or closed projects schedule a new query of the whole workspace. The types are kept in buckets
+ * by the lower case first character of their simple name, so that a prefix or camel case pattern
+ * only has to look at one bucket.
+ * </p>
+ * <p>
+ * A type is stored as its names, with all strings interned, and its package fragment root. The
+ * {@link TypeNameMatch} of a type is only created when the type matches a filter.
+ * </p>
+ * <p>
+ * Like the search engine, the index shows the types of primary working copies. While a working
+ * copy has changes that have not been reconciled yet, the index is not up to date.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class TypeNameIndex {
+
+	private static final int OTHER_BUCKET= 'z' - 'a' + 1;
+	private static final int BUCKET_COUNT= OTHER_BUCKET + 1;
+
+	private static final String[] NO_NAMES= new String[0];
+
+	private static class TypeNameIndexDeltaListener implements IElementChangedListener {
+		@Override
+		public void elementChanged(ElementChangedEvent event) {
+			TypeNameIndex index= fgInstance;
+			if (index != null) {
+				index.processDelta(event.getDelta());
+			}
+		}
+	}
+
+	private class UpdateJob extends Job {
+		public UpdateJob() {
+			super(CorextMessages.TypeNameIndex_job_name);
+		}
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				update(monitor);
+			} catch (OperationCanceledException e) {
+				return Status.CANCEL_STATUS;
+			} catch (JavaModelException e) {
+				JavaPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+		@Override
+		public boolean belongsTo(Object family) {
+			return FAMILY.equals(family);
+		}
+	}
+
+	/**
+	 * A type of the index. All names are interned.
+	 */
+	private static final class TypeEntry {
+		final IPackageFragmentRoot fRoot;
+		final String fPackageName;
+		/** The name of the compilation unit or class file */
+		final String fFileName;
+		/** The simple names of the enclosing types, outermost first */
+		final String[] fEnclosingTypeNames;
+		final String fSimpleName;
+		final int fModifiers;
+
+		TypeEntry(TypeNameMatch match) {
+			IType type= match.getType();
+			fRoot= match.getPackageFragmentRoot();
+			fPackageName= match.getPackageName().intern();
+			fFileName= type.getTypeRoot().getElementName().intern();
+			fSimpleName= match.getSimpleTypeName().intern();
+			fModifiers= match.getModifiers();
+			String containerName= match.getTypeContainerName();
+			if (containerName.length() == fPackageName.length()) {
+				fEnclosingTypeNames= NO_NAMES;
+			} else {
+				String enclosingName= fPackageName.length() == 0 ? containerName : containerName.substring(fPackageName.length() + 1);
+				fEnclosingTypeNames= enclosingName.split("\\."); //$NON-NLS-1$
+				for (int i= 0; i < fEnclosingTypeNames.length; i++) {
+					fEnclosingTypeNames[i]= fEnclosingTypeNames[i].intern();
+				}
+			}
+		}
+
+		String getTypeContainerName() {
+			StringBuffer buf= new StringBuffer(fPackageName);
+			for (int i= 0; i < fEnclosingTypeNames.length; i++) {
+				if (buf.length() > 0)
+					buf.append('.');
+				buf.append(fEnclosingTypeNames[i]);
+			}
+			return buf.toString();
+		}
+
+		TypeNameMatch createMatch() {
+			IPackageFragment pack= fRoot.getPackageFragment(fPackageName);
+			IType type;
+			if (JavaCore.isJavaLikeFileName(fFileName)) {
+				ICompilationUnit unit= pack.getCompilationUnit(fFileName);
+				if (fEnclosingTypeNames.length == 0) {
+					type= unit.getType(fSimpleName);
+				} else {
+					type= unit.getType(fEnclosingTypeNames[0]);
+					for (int i= 1; i < fEnclosingTypeNames.length; i++) {
+						type= type.getType(fEnclosingTypeNames[i]);
+					}
+					type= type.getType(fSimpleName);
+				}
+			} else {
+				// the class file of a member type declares the member type
+				type= pack.getOrdinaryClassFile(fFileName).getType();
+			}
+			return SearchEngine.createTypeNameMatch(type, fModifiers);
+		}
+	}
+
+	/**
+	 * The family of the jobs that update the index.
+	 */
+	public static final String FAMILY= TypeNameIndex.class.getName();
+
+	private static volatile TypeNameIndex fgInstance;
+
+	private final Object fLock= new Object();
+
+	/** Types by the bucket of their simple names, guarded by <code>fLock</code> */
+	private final List<TypeEntry>[] fBuckets;
+
+	/** Types declared in primary compilation units, guarded by <code>fLock</code> */
+	private final Map<ICompilationUnit, TypeEntry[]> fSourceTypes;
+
+	/** Compilation units whose types have to be re-read, guarded by <code>fLock</code> */
+	private final Set<ICompilationUnit> fChangedUnits;
+
+	/** Package fragment roots whose types have to be queried again, guarded by <code>fLock</code> */
+	private final Set<IPackageFragmentRoot> fChangedRoots;
+
+	/** <code>true</code> while the update job processes changed units and roots, guarded by <code>fLock</code> */
+	private boolean fUpdating;
+
+	/** <code>true</code> if the buckets reflect the last full query, guarded by <code>fLock</code> */
+	private boolean fFilled;
+
+	/** Incremented whenever a full query is required, guarded by <code>fLock</code> */
+	private int fGeneration;
+
+	private final IElementChangedListener fDeltaListener;
+	private final UpdateJob fUpdateJob;
+
+	/**
+	 * Returns the shared index, creating it and scheduling its initial update on first access.
+	 *
+	 * @return the shared index
+	 */
+	public static synchronized TypeNameIndex getInstance() {
+		if (fgInstance == null) {
+			fgInstance= new TypeNameIndex();
+			fgInstance.fUpdateJob.schedule();
+		}
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		fgInstance.doShutdown();
+		fgInstance= null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private TypeNameIndex() {
+		fBuckets= new List[BUCKET_COUNT];
+		for (int i= 0; i < BUCKET_COUNT; i++) {
+			fBuckets[i]= new ArrayList<>();
+		}
+		fSourceTypes= new HashMap<>();
+		fChangedUnits= new HashSet<>();
+		fChangedRoots= new HashSet<>();
+		fDeltaListener= new TypeNameIndexDeltaListener();
+		// reconcile deltas describe the changes of working copies that have not been saved yet
+		JavaCore.addElementChangedListener(fDeltaListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		fUpdateJob= new UpdateJob();
+		fUpdateJob.setSystem(true);
+		fUpdateJob.setPriority(Job.DECORATE);
+	}
+
+	private void doShutdown() {
+		JavaCore.removeElementChangedListener(fDeltaListener);
+		fUpdateJob.cancel();
+	}
+
+	/**
+	 * Returns whether the index reflects the current state of the workspace.
+	 *
+	 * @return <code>true</code> if the index is up to date
+	 */
+	public boolean isUpToDate() {
+		if (hasUnreconciledWorkingCopies())
+			return false;
+		synchronized (fLock) {
+			return isUpToDateInternal();
+		}
+	}
+
+	private boolean isUpToDateInternal() {
+		return fFilled && !fUpdating && fChangedUnits.isEmpty() && fChangedRoots.isEmpty();
+	}
+
+	/**
+	 * Returns the types in the workspace scope whose simple names and container names match the
+	 * name and package patterns of the given filter. Callers have to apply all other criteria of
+	 * the filter themselves.
+	 *
+	 * @param filter the filter
+	 * @return the matching types, or <code>null</code> if the index is not up to date and the
+	 *         caller has to search instead
+	 */
+	public TypeNameMatch[] getCandidates(TypeInfoFilter filter) {
+		if (hasUnreconciledWorkingCopies())
+			return null;
+		String namePattern= filter.getNamePattern();
+		List<TypeEntry[]> buckets= new ArrayList<>();
+		synchronized (fLock) {
+			if (!isUpToDateInternal())
+				return null;
+
+			char first= namePattern.length() == 0 ? '*' : namePattern.charAt(0);
+			if (first != '*' && first != '?') {
+				List<TypeEntry> bucket= fBuckets[getBucket(first)];
+				buckets.add(bucket.toArray(new TypeEntry[bucket.size()]));
+			} else {
+				for (int i= 0; i < BUCKET_COUNT; i++) {
+					buckets.add(fBuckets[i].toArray(new TypeEntry[fBuckets[i].size()]));
+				}
+			}
+		}
+
+		boolean hasPackagePattern= filter.getPackagePattern() != null;
+		List<TypeNameMatch> result= new ArrayList<>();
+		for (Iterator<TypeEntry[]> iter= buckets.iterator(); iter.hasNext();) {
+			TypeEntry[] entries= iter.next();
+			for (int i= 0; i < entries.length; i++) {
+				TypeEntry entry= entries[i];
+				if (filter.matchesName(entry.fSimpleName) && (!hasPackagePattern || filter.matchesPackage(entry.getTypeContainerName())))
+					result.add(entry.createMatch());
+			}
+		}
+		return result.toArray(new TypeNameMatch[result.size()]);
+	}
+
+	/**
+	 * Returns whether a primary working copy has changes that have not been reconciled yet. The
+	 * index does not know the types of such a working copy, but a search finds them.
+	 *
+	 * @return <code>true</code> if a primary working copy is not consistent with its buffer
+	 */
+	private static boolean hasUnreconciledWorkingCopies() {
+		ICompilationUnit[] workingCopies= JavaCore.getWorkingCopies(null);
+		for (int i= 0; i < workingCopies.length; i++) {
+			try {
+				if (!workingCopies[i].isConsistent())
+					return true;
+			} catch (JavaModelException e) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int getBucket(char ch) {
+		char lower= Character.toLowerCase(ch);
+		if (lower >= 'a' && lower <= 'z')
+			return lower - 'a';
+		return OTHER_BUCKET;
+	}
+
+	private void update(IProgressMonitor monitor) throws JavaModelException {
+		int generation;
+		boolean fill;
+		ICompilationUnit[] changedUnits;
+		IPackageFragmentRoot[] changedRoots;
+		synchronized (fLock) {
+			generation= fGeneration;
+			fill= !fFilled;
+			changedUnits= fChangedUnits.toArray(new ICompilationUnit[fChangedUnits.size()]);
+			changedRoots= fChangedRoots.toArray(new IPackageFragmentRoot[fChangedRoots.size()]);
+			// the query reports the current state of all units and roots
+			fChangedUnits.clear();
+			fChangedRoots.clear();
+			fUpdating= true;
+		}
+
+		try {
+			if (fill) {
+				fill(generation, monitor);
+			} else {
+				for (int i= 0; i < changedRoots.length; i++) {
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+					updateRoot(changedRoots[i], monitor);
+				}
+				for (int i= 0; i < changedUnits.length; i++) {
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+					updateUnit(changedUnits[i]);
+				}
+			}
+		} catch (OperationCanceledException | JavaModelException e) {
+			synchronized (fLock) {
+				// process the units and roots again with the next update
+				fChangedUnits.addAll(Arrays.asList(changedUnits));
+				fChangedRoots.addAll(Arrays.asList(changedRoots));
+			}
+			throw e;
+		} finally {
+			synchronized (fLock) {
+				fUpdating= false;
+			}
+		}
+
+		synchronized (fLock) {
+			if (!isUpToDateInternal())
+				fUpdateJob.schedule();
+		}
+	}
+
+	private void fill(int generation, IProgressMonitor monitor) throws JavaModelException {
+		List<TypeEntry> entries= query(SearchEngine.createWorkspaceScope(), monitor);
+
+		synchronized (fLock) {
+			if (generation != fGeneration)
+				return; // a structural change happened during the query
+			for (int i= 0; i < BUCKET_COUNT; i++) {
+				fBuckets[i].clear();
+			}
+			fSourceTypes.clear();
+			addAll(entries);
+			fFilled= true;
+		}
+	}
+
+	/**
+	 * Queries the types of a package fragment root again. A root that is no longer on the
+	 * classpath of any project is removed. Archives are identified by their path, so an archive
+	 * that is referenced by several projects is only removed with the last reference.
+	 *
+	 * @param root the changed root
+	 * @param monitor the progress monitor
+	 * @throws JavaModelException if the roots of a project cannot be accessed
+	 */
+	private void updateRoot(IPackageFragmentRoot root, IProgressMonitor monitor) throws JavaModelException {
+		IPath path= root.getPath();
+		List<IPackageFragmentRoot> roots= new ArrayList<>();
+		IJavaProject[] projects= JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+		for (int i= 0; i < projects.length; i++) {
+			if (!projects[i].getProject().isOpen())
+				continue;
+			IPackageFragmentRoot current= projects[i].findPackageFragmentRoot(path);
+			if (current != null)
+				roots.add(current);
+		}
+		List<TypeEntry> entries;
+		if (roots.isEmpty()) {
+			entries= new ArrayList<>(0);
+		} else {
+			IJavaSearchScope scope= SearchEngine.createJavaSearchScope(roots.toArray(new IJavaElement[roots.size()]));
+			entries= query(scope, monitor);
+		}
+
+		synchronized (fLock) {
+			if (!fFilled)
+				return; // the next query reads the root
+			for (int i= 0; i < BUCKET_COUNT; i++) {
+				for (Iterator<TypeEntry> iter= fBuckets[i].iterator(); iter.hasNext();) {
+					if (path.equals(iter.next().fRoot.getPath()))
+						iter.remove();
+				}
+			}
+			for (Iterator<ICompilationUnit> iter= fSourceTypes.keySet().iterator(); iter.hasNext();) {
+				if (path.equals(iter.next().getParent().getParent().getPath()))
+					iter.remove();
+			}
+			addAll(entries);
+		}
+	}
+
+	private void updateUnit(ICompilationUnit unit) throws JavaModelException {
+		TypeEntry[] newTypes= null;
+		if (unit.exists()) {
+			IType[] types= unit.getAllTypes();
+			List<TypeEntry> entries= new ArrayList<>(types.length);
+			for (int i= 0; i < types.length; i++) {
+				if (types[i].getElementName().length() > 0) // local and anonymous types are not indexed
+					entries.add(new TypeEntry(SearchEngine.createTypeNameMatch(types[i], types[i].getFlags())));
+			}
+			newTypes= entries.toArray(new TypeEntry[entries.size()]);
+		}
+
+		synchronized (fLock) {
+			if (!fFilled)
+				return; // the next query reads the unit
+			TypeEntry[] oldTypes= fSourceTypes.remove(unit);
+			if (oldTypes != null) {
+				for (int i= 0; i < oldTypes.length; i++) {
+					fBuckets[getBucket(oldTypes[i].fSimpleName.charAt(0))].remove(oldTypes[i]);
+				}
+			}
+			if (newTypes != null && newTypes.length > 0) {
+				for (int i= 0; i < newTypes.length; i++) {
+					add(newTypes[i]);
+				}
+				fSourceTypes.put(unit, newTypes);
+			}
+		}
+	}
+
+	private static List<TypeEntry> query(IJavaSearchScope scope, IProgressMonitor monitor) throws JavaModelException {
+		final List<TypeEntry> entries= new ArrayList<>();
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				if (match.getSimpleTypeName().length() > 0)
+					entries.add(new TypeEntry(match));
+			}
+		};
+		new SearchEngine((WorkingCopyOwner) null).searchAllTypeNames(
+				null,
+				0,
+				null,
+				SearchPattern.R_PATTERN_MATCH,
+				IJavaSearchConstants.TYPE,
+				scope,
+				requestor,
+				IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH,
+				monitor);
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+		return entries;
+	}
+
+	/**
+	 * Adds the given types to the buckets and records the types of compilation units. Must be
+	 * called while holding <code>fLock</code>.
+	 *
+	 * @param entries the types
+	 */
+	private void addAll(List<TypeEntry> entries) {
+		Map<ICompilationUnit, List<TypeEntry>> sourceTypes= new HashMap<>();
+		for (Iterator<TypeEntry> iter= entries.iterator(); iter.hasNext();) {
+			TypeEntry entry= iter.next();
+			add(entry);
+			if (JavaCore.isJavaLikeFileName(entry.fFileName)) {
+				ICompilationUnit unit= entry.fRoot.getPackageFragment(entry.fPackageName).getCompilationUnit(entry.fFileName);
+				List<TypeEntry> unitTypes= sourceTypes.get(unit);
+				if (unitTypes == null) {
+					unitTypes= new ArrayList<>(1);
+					sourceTypes.put(unit, unitTypes);
+				}
+				unitTypes.add(entry);
+			}
+		}
+		for (Iterator<Map.Entry<ICompilationUnit, List<TypeEntry>>> iter= sourceTypes.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<ICompilationUnit, List<TypeEntry>> entry= iter.next();
+			List<TypeEntry> unitTypes= entry.getValue();
+			fSourceTypes.put(entry.getKey(), unitTypes.toArray(new TypeEntry[unitTypes.size()]));
+		}
+	}
+
+	private void add(TypeEntry entry) {
+		fBuckets[getBucket(entry.fSimpleName.charAt(0))].add(entry);
+	}
+
+	private void invalidate() {
+		synchronized (fLock) {
+			fFilled= false;
+			fGeneration++;
+		}
+		fUpdateJob.cancel();
+		fUpdateJob.schedule();
+	}
+
+	private void unitChanged(ICompilationUnit unit) {
+		synchronized (fLock) {
+			if (!fChangedUnits.add(unit))
+				return;
+		}
+		fUpdateJob.schedule();
+	}
+
+	private void rootChanged(IPackageFragmentRoot root) {
+		synchronized (fLock) {
+			if (!fChangedRoots.add(root))
+				return;
+		}
+		fUpdateJob.schedule();
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement elem= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+
+		switch (elem.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLOSED | IJavaElementDelta.F_OPENED)) != 0) {
+					invalidate();
+					return;
+				}
+				// class path changes are reported by the deltas of the added and removed roots
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+						| IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH)) != 0) {
+					rootChanged((IPackageFragmentRoot) elem);
+					return;
+				}
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED) {
+					// the deltas of the contained units are not necessarily reported
+					rootChanged((IPackageFragmentRoot) elem.getParent());
+					return;
+				}
+				processChildrenDelta(delta);
+				return;
+			case IJavaElement.CLASS_FILE:
+				rootChanged((IPackageFragmentRoot) elem.getParent().getParent());
+				return;
+			case IJavaElement.COMPILATION_UNIT:
+				ICompilationUnit unit= (ICompilationUnit) elem;
+				// Not the primary compilation unit. Ignore it
+				if (!JavaModelUtil.isPrimary(unit))
+					return;
+				// a discarded working copy may have declared other types than the saved unit
+				unitChanged(unit);
+				return;
+			default:
+				return;
+		}
+	}
+
+	private void processChildrenDelta(IJavaElementDelta delta) {
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			processDelta(children[i]);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of daemon threads for short computations that a caller splits up and then
+ * waits for, usually with a deadline. Idle threads terminate after a few seconds, so an unused
+ * pool holds no threads.
+ * <p>
+ * All pools are shut down by {@link #shutdownAll()} when the plug-in stops. A pool that has been
+ * shut down creates new threads again when more tasks are submitted.
+ * </p>
+ */
+public final class WorkerPool {
+
+	private static final long KEEP_ALIVE= 5000; // ms
+
+	private static final List<WorkerPool> fgPools= new ArrayList<>();
+
+	private final String fName;
+	private int fMaxThreads;
+	private ThreadPoolExecutor fExecutor;
+
+	/**
+	 * Creates a new worker pool.
+	 *
+	 * @param name the name of the worker threads
+	 * @param maxThreads the maximum number of threads, must be positive
+	 */
+	public WorkerPool(String name, int maxThreads) {
+		fName= name;
+		fMaxThreads= Math.max(1, maxThreads);
+		synchronized (fgPools) {
+			fgPools.add(this);
+		}
+	}
+
+	/**
+	 * Submits a task. Tasks that are submitted while all threads are busy wait in a queue.
+	 *
+	 * @param task the task
+	 * @return the future of the task
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return getExecutor().submit(task);
+	}
+
+	/**
+	 * Submits a task. Tasks that are submitted while all threads are busy wait in a queue.
+	 *
+	 * @param task the task
+	 * @return the future of the task
+	 */
+	public Future<?> submit(Runnable task) {
+		return getExecutor().submit(task);
+	}
+
+	/**
+	 * Returns the maximum number of threads of this pool.
+	 *
+	 * @return the maximum number of threads
+	 */
+	public synchronized int getMaxThreads() {
+		return fMaxThreads;
+	}
+
+	/**
+	 * Changes the maximum number of threads. Running tasks are not affected.
+	 *
+	 * @param maxThreads the maximum number of threads, must be positive
+	 */
+	public synchronized void setMaxThreads(int maxThreads) {
+		maxThreads= Math.max(1, maxThreads);
+		if (maxThreads == fMaxThreads)
+			return;
+		fMaxThreads= maxThreads;
+		if (fExecutor != null) {
+			if (maxThreads > fExecutor.getMaximumPoolSize()) {
+				fExecutor.setMaximumPoolSize(maxThreads);
+				fExecutor.setCorePoolSize(maxThreads);
+			} else {
+				fExecutor.setCorePoolSize(maxThreads);
+				fExecutor.setMaximumPoolSize(maxThreads);
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads of this pool. Queued tasks are dropped and running tasks are
+	 * interrupted.
+	 */
+	public synchronized void shutdown() {
+		if (fExecutor != null) {
+			fExecutor.shutdownNow();
+			fExecutor= null;
+		}
+	}
+
+	/**
+	 * Stops the threads of all pools.
+	 */
+	public static void shutdownAll() {
+		WorkerPool[] pools;
+		synchronized (fgPools) {
+			pools= fgPools.toArray(new WorkerPool[fgPools.size()]);
+		}
+		for (int i= 0; i < pools.length; i++)
+			pools[i].shutdown();
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (fExecutor == null) {
+			fExecutor= new ThreadPoolExecutor(fMaxThreads, fMaxThreads, KEEP_ALIVE, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger fCount= new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, fName + " #" + fCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fExecutor;
+	}
+}
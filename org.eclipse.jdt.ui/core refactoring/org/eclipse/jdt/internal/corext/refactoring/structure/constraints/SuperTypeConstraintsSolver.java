@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,11 +14,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 
@@ -30,9 +39,16 @@ import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ITypeConstra
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ITypeSet;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ImmutableTypeVariable2;
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.TypeEquivalenceSet;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 /**
  * Type constraint solver to solve supertype constraint models.
+ * <p>
+ * Constraint variables only influence each other through type constraints and type equivalence
+ * sets. Large models are therefore split into independent components, which are solved
+ * concurrently. Each component is propagated in the same order as by a sequential solve, so the
+ * result does not depend on the number of threads.
+ * </p>
  *
  * @since 3.1
  */
@@ -41,6 +57,15 @@ public class SuperTypeConstraintsSolver {
 	/** The type estimate data (type: <code>TType</code>) */
 	public static final String DATA_TYPE_ESTIMATE= "te"; //$NON-NLS-1$
 
+	/** The minimal number of constraint variables of a model whose components are solved concurrently */
+	private static final int PARALLEL_THRESHOLD= 1000;
+
+	/** The worker pool to solve components concurrently, or <code>null</code> */
+	private static WorkerPool fgWorkerPool= null;
+
+	/** The minimal number of constraint variables of the model whose components are solved concurrently */
+	private int fParallelThreshold= PARALLEL_THRESHOLD;
+
 	/** The type constraint model to solve */
 	protected final SuperTypeConstraintsModel fModel;
 
@@ -64,6 +89,22 @@ public class SuperTypeConstraintsSolver {
 		fModel= model;
 	}
 
+	private static synchronized WorkerPool getWorkerPool() {
+		if (fgWorkerPool == null)
+			fgWorkerPool= new WorkerPool("Type Constraints Solver", Runtime.getRuntime().availableProcessors()); //$NON-NLS-1$
+		return fgWorkerPool;
+	}
+
+	/**
+	 * Sets the minimal number of constraint variables of the model whose independent components
+	 * are solved concurrently.
+	 *
+	 * @param threshold the threshold, or <code>Integer.MAX_VALUE</code> to always solve sequentially
+	 */
+	public final void setParallelThreshold(final int threshold) {
+		fParallelThreshold= threshold;
+	}
+
 	/**
 	 * Computes the necessary equality constraints for conditional expressions.
 	 *
@@ -227,12 +268,151 @@ public class SuperTypeConstraintsSolver {
 		return fTypeOccurrences;
 	}
 
+	/**
+	 * Computes the independent components of the constraint graph.
+	 *
+	 * @param variables the constraint variables (element type: <code>ConstraintVariable2</code>)
+	 * @param constraints the type constraints (element type: <code>ITypeConstraint2</code>)
+	 * @return the components, each in the iteration order of <code>variables</code>, or
+	 *         <code>null</code> if the constraints refer to variables not contained in
+	 *         <code>variables</code>
+	 */
+	private static List<LinkedList<ConstraintVariable2>> computeComponents(final Collection<ConstraintVariable2> variables, final Collection<ITypeConstraint2> constraints) {
+		final Map<ConstraintVariable2, Integer> indices= new IdentityHashMap<>(variables.size());
+		for (final Iterator<ConstraintVariable2> iterator= variables.iterator(); iterator.hasNext();)
+			indices.put(iterator.next(), Integer.valueOf(indices.size()));
+		final int[] parents= new int[indices.size()];
+		for (int index= 0; index < parents.length; index++)
+			parents[index]= index;
+
+		for (final Iterator<ITypeConstraint2> iterator= constraints.iterator(); iterator.hasNext();) {
+			final ITypeConstraint2 constraint= iterator.next();
+			if (!union(parents, indices, constraint.getLeft(), constraint.getRight()))
+				return null;
+		}
+		for (final Iterator<ConstraintVariable2> iterator= variables.iterator(); iterator.hasNext();) {
+			final ConstraintVariable2 variable= iterator.next();
+			final TypeEquivalenceSet set= variable.getTypeEquivalenceSet();
+			if (set != null) {
+				final ConstraintVariable2[] contributing= set.getContributingVariables();
+				for (int index= 0; index < contributing.length; index++) {
+					if (!union(parents, indices, variable, contributing[index]))
+						return null;
+				}
+			}
+		}
+
+		final Map<Integer, LinkedList<ConstraintVariable2>> components= new HashMap<>();
+		final List<LinkedList<ConstraintVariable2>> result= new ArrayList<>();
+		for (final Iterator<ConstraintVariable2> iterator= variables.iterator(); iterator.hasNext();) {
+			final ConstraintVariable2 variable= iterator.next();
+			final Integer root= Integer.valueOf(find(parents, indices.get(variable).intValue()));
+			LinkedList<ConstraintVariable2> component= components.get(root);
+			if (component == null) {
+				component= new LinkedList<>();
+				components.put(root, component);
+				result.add(component);
+			}
+			component.add(variable);
+		}
+		return result;
+	}
+
+	private static int find(final int[] parents, int index) {
+		while (parents[index] != index) {
+			parents[index]= parents[parents[index]];
+			index= parents[index];
+		}
+		return index;
+	}
+
+	private static boolean union(final int[] parents, final Map<ConstraintVariable2, Integer> indices, final ConstraintVariable2 first, final ConstraintVariable2 second) {
+		final Integer firstIndex= indices.get(first);
+		final Integer secondIndex= indices.get(second);
+		if (firstIndex == null || secondIndex == null)
+			return false;
+		final int firstRoot= find(parents, firstIndex.intValue());
+		final int secondRoot= find(parents, secondIndex.intValue());
+		if (firstRoot != secondRoot)
+			parents[firstRoot]= secondRoot;
+		return true;
+	}
+
+	/**
+	 * Propagates the type estimates until no more estimate changes.
+	 *
+	 * @param processable the constraint variables to be processed
+	 * @param monitor the progress monitor to check for cancellation
+	 */
+	private void propagate(final LinkedList<ConstraintVariable2> processable, final IProgressMonitor monitor) {
+		Collection<ITypeConstraint2> usage= null;
+		ConstraintVariable2 variable= null;
+		while (!processable.isEmpty()) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			variable= processable.removeFirst();
+			usage= SuperTypeConstraintsModel.getVariableUsage(variable);
+			if (!usage.isEmpty())
+				processConstraints(usage, processable);
+			else
+				variable.setData(DATA_TYPE_ESTIMATE, variable.getTypeEstimate().chooseSingleType());
+		}
+	}
+
+	/**
+	 * Propagates the type estimates of independent components concurrently. The calling thread
+	 * takes part in the propagation, so that progress is made even if all worker threads are busy.
+	 *
+	 * @param components the components to be processed
+	 * @param monitor the progress monitor to check for cancellation
+	 */
+	private void propagate(final List<LinkedList<ConstraintVariable2>> components, final IProgressMonitor monitor) {
+		final AtomicInteger next= new AtomicInteger();
+		final AtomicBoolean stopped= new AtomicBoolean();
+		final IProgressMonitor stoppable= new NullProgressMonitor() {
+
+			@Override
+			public boolean isCanceled() {
+				return stopped.get() || monitor.isCanceled();
+			}
+		};
+		final Runnable worker= () -> {
+			for (int index= next.getAndIncrement(); index < components.size(); index= next.getAndIncrement())
+				propagate(components.get(index), stoppable);
+		};
+		final WorkerPool pool= getWorkerPool();
+		final int count= Math.min(components.size(), pool.getMaxThreads()) - 1;
+		final List<Future<?>> futures= new ArrayList<>(count);
+		try {
+			for (int index= 0; index < count; index++)
+				futures.add(pool.submit(worker));
+			worker.run();
+			for (final Iterator<Future<?>> iterator= futures.iterator(); iterator.hasNext();)
+				iterator.next().get();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException exception) {
+			final Throwable cause= exception.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			stopped.set(true);
+			for (final Iterator<Future<?>> iterator= futures.iterator(); iterator.hasNext();)
+				iterator.next().cancel(false);
+		}
+	}
+
 	/**
 	 * Processes the given constraints on the constraint variable and propagates it.
 	 *
 	 * @param constraints the type constraints to process (element type: <code>ITypeConstraint2</code>)
+	 * @param processable the constraint variables to be processed
 	 */
-	private void processConstraints(final Collection<ITypeConstraint2> constraints) {
+	private void processConstraints(final Collection<ITypeConstraint2> constraints, final LinkedList<ConstraintVariable2> processable) {
 		final int level= fModel.getCompliance();
 		ITypeConstraint2 constraint= null;
 		for (final Iterator<ITypeConstraint2> iterator= constraints.iterator(); iterator.hasNext();) {
@@ -244,7 +424,7 @@ public class SuperTypeConstraintsSolver {
 				final ITypeSet newEstimate= leftEstimate.restrictedTo(constraint.getRight().getTypeEstimate());
 				if (leftEstimate != newEstimate) {
 					set.setTypeEstimate(newEstimate);
-					fProcessable.addAll(Arrays.asList(set.getContributingVariables()));
+					processable.addAll(Arrays.asList(set.getContributingVariables()));
 				}
 			}
 		}
@@ -254,6 +434,17 @@ public class SuperTypeConstraintsSolver {
 	 * Solves the constraints of the associated model.
 	 */
 	public final void solveConstraints() {
+		solveConstraints(new NullProgressMonitor());
+	}
+
+	/**
+	 * Solves the constraints of the associated model.
+	 *
+	 * @param monitor the progress monitor to check for cancellation
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public final void solveConstraints(final IProgressMonitor monitor) {
+		Assert.isNotNull(monitor);
 		fProcessable= new LinkedList<>();
 		final Collection<ConstraintVariable2> variables= fModel.getConstraintVariables();
 		final Collection<ITypeConstraint2> constraints= fModel.getTypeConstraints();
@@ -264,16 +455,12 @@ public class SuperTypeConstraintsSolver {
 		computeConditionalTypeConstraints(constraints, level);
 
 		computeTypeEstimates(variables);
-		fProcessable.addAll(variables);
-		Collection<ITypeConstraint2> usage= null;
-		ConstraintVariable2 variable= null;
-		while (!fProcessable.isEmpty()) {
-			variable= fProcessable.removeFirst();
-			usage= SuperTypeConstraintsModel.getVariableUsage(variable);
-			if (!usage.isEmpty())
-				processConstraints(usage);
-			else
-				variable.setData(DATA_TYPE_ESTIMATE, variable.getTypeEstimate().chooseSingleType());
+		final List<LinkedList<ConstraintVariable2>> components= variables.size() >= fParallelThreshold ? computeComponents(variables, constraints) : null;
+		if (components != null && components.size() > 1) {
+			propagate(components, monitor);
+		} else {
+			fProcessable.addAll(variables);
+			propagate(fProcessable, monitor);
 		}
 		computeTypeOccurrences(variables);
 		computeObsoleteCasts(fModel.getCastVariables());
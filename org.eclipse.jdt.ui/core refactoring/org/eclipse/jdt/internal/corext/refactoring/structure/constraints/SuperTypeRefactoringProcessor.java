@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1290,7 +1290,7 @@ public abstract class SuperTypeRefactoringProcessor extends RefactoringProcessor
 				model.setCompliance(level);
 			}
 			final SuperTypeConstraintsSolver solver= createContraintSolver(model);
-			solver.solveConstraints();
+			solver.solveConstraints(monitor);
 			fTypeOccurrences= solver.getTypeOccurrences();
 			fObsoleteCasts= solver.getObsoleteCasts();
 		} finally {
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.core.runtime.Assert;
+
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TypeEnvironment;
+
+/**
+ * A set of {@link TType}s of a single type environment, backed by a bit set of type ids.
+ * <p>
+ * Membership is defined by {@link TType#equals(Object)}, like for a {@link java.util.HashSet}:
+ * equal types of the environment share the same {@link TType#getId() id}, and types of other
+ * environments are compared by <code>equals</code>. Membership tests and the bulk operations
+ * between two sets of the same environment work on the bit sets. The members are iterated in
+ * insertion order, like a {@link java.util.LinkedHashSet}, since the solvers choose among equally
+ * good estimates by their order.
+ * </p>
+ * <p>
+ * Only types of a single environment can be added.
+ * </p>
+ */
+final class TypeIdSet extends AbstractSet<TType> {
+
+	private static final TType[] EMPTY= new TType[0];
+
+	/** The environment of the members, or <code>null</code> if no type has been added yet */
+	private TypeEnvironment fEnvironment;
+
+	/** The ids of the members */
+	private final BitSet fIds= new BitSet();
+
+	/** The members in insertion order, followed by unused slots */
+	private TType[] fTypes= EMPTY;
+
+	private int fSize;
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return fSize == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof TType))
+			return false;
+		TType type= (TType) o;
+		if (type.getEnvironment() == fEnvironment)
+			return fIds.get(type.getId());
+		return fSize > 0 && super.contains(o);
+	}
+
+	@Override
+	public boolean add(TType type) {
+		if (fEnvironment == null)
+			fEnvironment= type.getEnvironment();
+		else
+			Assert.isTrue(type.getEnvironment() == fEnvironment);
+		int id= type.getId();
+		if (fIds.get(id))
+			return false;
+		fIds.set(id);
+		if (fSize == fTypes.length)
+			fTypes= Arrays.copyOf(fTypes, Math.max(4, fSize * 2));
+		fTypes[fSize++]= type;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o))
+			return false;
+		for (int i= 0; i < fSize; i++) {
+			TType type= fTypes[i];
+			if (type.equals(o)) {
+				fIds.clear(type.getId());
+				removeAt(i);
+				break;
+			}
+		}
+		return true;
+	}
+
+	private void removeAt(int index) {
+		System.arraycopy(fTypes, index + 1, fTypes, index, fSize - index - 1);
+		fTypes[--fSize]= null;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends TType> c) {
+		if (!(c instanceof TypeIdSet))
+			return super.addAll(c);
+		TypeIdSet other= (TypeIdSet) c;
+		boolean changed= false;
+		for (int i= 0; i < other.fSize; i++) {
+			if (add(other.fTypes[i]))
+				changed= true;
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		if (!(c instanceof TypeIdSet))
+			return super.retainAll(c);
+		TypeIdSet other= (TypeIdSet) c;
+		if (!isSameEnvironment(other))
+			return super.retainAll(c);
+		return filter(other.fIds, true);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		if (!(c instanceof TypeIdSet))
+			return super.removeAll(c);
+		TypeIdSet other= (TypeIdSet) c;
+		if (!isSameEnvironment(other))
+			return super.removeAll(c);
+		return filter(other.fIds, false);
+	}
+
+	/**
+	 * Keeps the members whose membership in <code>ids</code> equals <code>keep</code>.
+	 *
+	 * @param ids the ids to test
+	 * @param keep <code>true</code> to retain the members in <code>ids</code>,
+	 *            <code>false</code> to remove them
+	 * @return <code>true</code> if this set changed
+	 */
+	private boolean filter(BitSet ids, boolean keep) {
+		int size= 0;
+		for (int i= 0; i < fSize; i++) {
+			TType type= fTypes[i];
+			if (ids.get(type.getId()) == keep)
+				fTypes[size++]= type;
+			else
+				fIds.clear(type.getId());
+		}
+		if (size == fSize)
+			return false;
+		Arrays.fill(fTypes, size, fSize, null);
+		fSize= size;
+		return true;
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		if (!(c instanceof TypeIdSet))
+			return super.containsAll(c);
+		TypeIdSet other= (TypeIdSet) c;
+		if (other.fSize == 0)
+			return true;
+		if (other.fSize > fSize)
+			return false;
+		if (!isSameEnvironment(other))
+			return super.containsAll(c);
+		for (int i= 0; i < other.fSize; i++) {
+			if (!fIds.get(other.fTypes[i].getId()))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this)
+			return true;
+		if (!(o instanceof TypeIdSet))
+			return super.equals(o);
+		TypeIdSet other= (TypeIdSet) o;
+		if (fSize != other.fSize)
+			return false;
+		if (fSize == 0)
+			return true;
+		if (!isSameEnvironment(other))
+			return super.equals(o);
+		return fIds.equals(other.fIds);
+	}
+
+	/**
+	 * Returns whether the members of this set and the given set are compared by their ids.
+	 *
+	 * @param other the other set
+	 * @return <code>true</code> if both sets have the same environment or one of them is empty
+	 */
+	private boolean isSameEnvironment(TypeIdSet other) {
+		return fEnvironment == other.fEnvironment || fEnvironment == null || other.fEnvironment == null;
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+	@Override
+	public void clear() {
+		fIds.clear();
+		Arrays.fill(fTypes, 0, fSize, null);
+		fSize= 0;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return Arrays.copyOf(fTypes, fSize, Object[].class);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] a) {
+		if (a.length < fSize)
+			return (T[]) Arrays.copyOf(fTypes, fSize, a.getClass());
+		System.arraycopy(fTypes, 0, a, 0, fSize);
+		if (a.length > fSize)
+			a[fSize]= null;
+		return a;
+	}
+
+	@Override
+	public Iterator<TType> iterator() {
+		return new Iterator<TType>() {
+
+			private int fNext;
+
+			private int fLast= -1;
+
+			@Override
+			public boolean hasNext() {
+				return fNext < fSize;
+			}
+
+			@Override
+			public TType next() {
+				if (fNext >= fSize)
+					throw new NoSuchElementException();
+				fLast= fNext++;
+				return fTypes[fLast];
+			}
+
+			@Override
+			public void remove() {
+				if (fLast < 0)
+					throw new IllegalStateException();
+				fIds.clear(fTypes[fLast].getId());
+				removeAt(fLast);
+				fNext= fLast;
+				fLast= -1;
+			}
+		};
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Hashtable;
@@ -85,6 +86,7 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
+import org.eclipse.jdt.internal.corext.callhierarchy.CallHierarchy;
 import org.eclipse.jdt.internal.corext.fix.CleanUpRegistry;
 import org.eclipse.jdt.internal.corext.template.java.AbstractJavaContextType;
 import org.eclipse.jdt.internal.corext.template.java.CodeTemplateContextType;
@@ -93,6 +95,8 @@ import org.eclipse.jdt.internal.corext.template.java.SWTContextType;
 import org.eclipse.jdt.internal.corext.util.OpenTypeHistory;
 import org.eclipse.jdt.internal.corext.util.QualifiedTypeNameHistory;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 import org.eclipse.jdt.ui.IContextMenuConstants;
 import org.eclipse.jdt.ui.JavaUI;
@@ -112,6 +116,7 @@ import org.eclipse.jdt.internal.ui.propertiesfileeditor.PropertiesFileDocumentPr
 import org.eclipse.jdt.internal.ui.text.PreferencesAdapter;
 import org.eclipse.jdt.internal.ui.text.folding.JavaFoldingStructureProviderRegistry;
 import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory;
+import org.eclipse.jdt.internal.ui.text.java.ContentAssistLatencyStats;
 import org.eclipse.jdt.internal.ui.text.java.hover.JavaEditorTextHoverDescriptor;
 import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
 import org.eclipse.jdt.internal.ui.viewsupport.ImageDescriptorRegistry;
@@ -254,6 +259,24 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 	 */
 	private ContentAssistHistory fContentAssistHistory;
 
+	/**
+	 * Content assist latency statistics.
+	 * @since 3.14
+	 */
+	private ContentAssistLatencyStats fContentAssistLatencyStats;
+
+	/**
+	 * Guards the loading of the content assist latency statistics of the previous sessions.
+	 * @since 3.14
+	 */
+	private final Object fContentAssistLatencyStatsLoadLock= new Object();
+
+	/**
+	 * Tells whether the content assist latency statistics of the previous sessions have been loaded.
+	 * @since 3.14
+	 */
+	private boolean fContentAssistLatencyStatsLoaded;
+
 	/**
 	 * The save participant registry.
 	 * @since 3.3
@@ -446,6 +469,8 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 
 	/* package */ static void initializeAfterLoad(IProgressMonitor monitor) {
 		OpenTypeHistory.getInstance().checkConsistency(monitor);
+		SpellCheckEngine.scheduleDictionaryLoad();
+		getDefault().loadContentAssistLatencyStats();
 	}
 
 	/*
@@ -499,6 +524,20 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 				fContentAssistHistory= null;
 			}
 
+			CallHierarchy.shutdown();
+			WorkerPool.shutdownAll();
+
+			if (fContentAssistLatencyStats != null) {
+				loadContentAssistLatencyStats();
+				try {
+					fContentAssistLatencyStats.write(getStateLocation().append(ContentAssistLatencyStats.FILE_NAME).toFile(), getBundle().getVersion().toString());
+				} catch (IOException e) {
+					log(e);
+				}
+				fContentAssistLatencyStats= null;
+				fContentAssistLatencyStatsLoaded= false;
+			}
+
 			if (fTemplateStore != null) {
 				fTemplateStore.stopListeningForPreferenceChanges();
 				fTemplateStore= null;
@@ -541,6 +580,7 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 			// must add here to guarantee that it is the first in the listener list
 
 			OpenTypeHistory.shutdown();
+			TypeNameIndex.shutdown();
 		} finally {
 			super.stop(context);
 		}
@@ -959,6 +999,43 @@ public class JavaPlugin extends AbstractUIPlugin implements DebugOptionsListener
 		return fContentAssistHistory;
 	}
 
+	/**
+	 * Returns the Java content assist latency statistics. The statistics are written to the
+	 * plug-in state location when the plug-in is stopped. The statistics of earlier sessions of
+	 * the same plug-in version are added in the background after the plug-in has been loaded.
+	 *
+	 * @return the Java content assist latency statistics
+	 * @since 3.14
+	 */
+	public synchronized ContentAssistLatencyStats getContentAssistLatencyStats() {
+		if (fContentAssistLatencyStats == null)
+			fContentAssistLatencyStats= new ContentAssistLatencyStats();
+		return fContentAssistLatencyStats;
+	}
+
+	/**
+	 * Adds the content assist latency statistics of the previous sessions to the current
+	 * statistics, unless this has already been done. They are written back in {@link #stop(BundleContext)}.
+	 *
+	 * @since 3.14
+	 */
+	private void loadContentAssistLatencyStats() {
+		synchronized (fContentAssistLatencyStatsLoadLock) {
+			if (fContentAssistLatencyStatsLoaded)
+				return;
+			fContentAssistLatencyStatsLoaded= true;
+
+			File file= getStateLocation().append(ContentAssistLatencyStats.FILE_NAME).toFile();
+			if (file.isFile()) {
+				try {
+					getContentAssistLatencyStats().read(file, getBundle().getVersion().toString());
+				} catch (IOException e) {
+					log(e);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns a section in the Java plugin's dialog settings. If the section doesn't exist yet, it is created.
 	 *
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -572,12 +572,13 @@ public class JavaPluginImages {
 	}
 
 	/**
-	 * Returns the image managed under the given key in this registry.
+	 * Returns the image managed under the given key in this registry. Might be called in a non-UI
+	 * thread once the registry has been created in the UI thread.
 	 *
 	 * @param key the image's key
 	 * @return the image managed under the given key
 	 */
-	public static Image get(String key) {
+	public static synchronized Image get(String key) {
 		return getImageRegistry().get(key);
 	}
 
@@ -587,7 +588,7 @@ public class JavaPluginImages {
 	 * @param key the image's key
 	 * @return the image descriptor for the given key
 	 */
-	public static ImageDescriptor getDescriptor(String key) {
+	public static synchronized ImageDescriptor getDescriptor(String key) {
 		if (fgImageRegistry == null) {
 			return fgAvoidSWTErrorMap.get(key);
 		}
@@ -619,7 +620,7 @@ public class JavaPluginImages {
 	/*
 	 * Helper method to access the image registry from the JavaPlugin class.
 	 */
-	/* package */ static ImageRegistry getImageRegistry() {
+	/* package */ static synchronized ImageRegistry getImageRegistry() {
 		if (fgImageRegistry == null) {
 			fgImageRegistry= new ImageRegistry();
 			for (Iterator<String> iter= fgAvoidSWTErrorMap.keySet().iterator(); iter.hasNext();) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -292,6 +292,7 @@ public final class ActionMessages extends NLS {
 	public static String OrganizeImportsAction_summary_removed_singular;
 	public static String OrganizeImportsAction_summary_removed_plural;
 	public static String OrganizeImportsAction_EmptySelection_description;
+	public static String OrganizeImportsAction_summary_throughput;
 	public static String OrganizeImportsAction_EmptySelection_title;
 
 	public static String FormatAllAction_label;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,15 +10,27 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.actions;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Hashtable;
 import java.util.Map;
 
+import org.eclipse.jface.action.IStatusLineManager;
+
+import org.eclipse.ui.IActionBars;
+import org.eclipse.ui.IEditorSite;
+import org.eclipse.ui.IViewSite;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.IWorkbenchSite;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.IPageSite;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
+import org.eclipse.jdt.internal.corext.fix.CleanUpRefactoring;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringExecutionStarter;
+import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
 import org.eclipse.jdt.ui.cleanup.ICleanUp;
@@ -60,6 +72,61 @@ public class MultiOrganizeImportAction extends CleanUpAction {
 		};
 	}
 
+	@Override
+	protected void performRefactoring(ICompilationUnit[] units, ICleanUp[] cleanUps) throws InvocationTargetException {
+		CleanUpRefactoring refactoring= new CleanUpRefactoring(getActionName());
+		// the imports clean up can create fixes concurrently, unlike arbitrary contributed clean ups
+		refactoring.setMaxParallelism(Runtime.getRuntime().availableProcessors());
+		for (int i= 0; i < units.length; i++) {
+			refactoring.addCompilationUnit(units[i]);
+		}
+
+		RefactoringExecutionStarter.startCleanupRefactoring(refactoring, cleanUps, false, getShell(), false, getActionName());
+
+		long time= refactoring.getCleanUpTime();
+		int count= getOrganizedCount(cleanUps);
+		if (time >= 0 && count > 1) {
+			long throughput= count * 1000L / Math.max(1, time);
+			setStatusBarMessage(Messages.format(ActionMessages.OrganizeImportsAction_summary_throughput,
+					new Object[] { Integer.valueOf(count), Long.valueOf(time), Long.valueOf(throughput) }));
+		}
+	}
+
+	private static int getOrganizedCount(ICleanUp[] cleanUps) {
+		int count= 0;
+		for (int i= 0; i < cleanUps.length; i++) {
+			if (cleanUps[i] instanceof ImportsCleanUp)
+				count+= ((ImportsCleanUp) cleanUps[i]).getOrganizedCount();
+		}
+		return count;
+	}
+
+	private void setStatusBarMessage(String message) {
+		IActionBars actionBars= getActionBars(getSite());
+		if (actionBars == null) {
+			// e.g. the action of a workbench window: use the active part of the window
+			IWorkbenchPage page= getSite().getPage();
+			IWorkbenchPart part= page != null ? page.getActivePart() : null;
+			if (part != null)
+				actionBars= getActionBars(part.getSite());
+		}
+		if (actionBars != null) {
+			IStatusLineManager manager= actionBars.getStatusLineManager();
+			if (manager != null)
+				manager.setMessage(message);
+		}
+	}
+
+	private static IActionBars getActionBars(IWorkbenchSite site) {
+		if (site instanceof IViewSite)
+			return ((IViewSite) site).getActionBars();
+		else if (site instanceof IEditorSite)
+			return ((IEditorSite) site).getActionBars();
+		else if (site instanceof IPageSite)
+			return ((IPageSite) site).getActionBars();
+		return null;
+	}
+
 	@Override
 	protected String getActionName() {
 		return ActionMessages.OrganizeImportsAction_error_title;
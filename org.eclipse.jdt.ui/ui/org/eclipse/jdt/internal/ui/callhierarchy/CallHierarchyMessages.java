@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -89,6 +89,7 @@ public final class CallHierarchyMessages extends NLS {
 	public static String CallHierarchyViewPart_callsFromMembers_2;
 	public static String CallHierarchyViewPart_callsFromMembers_more;
 	public static String CallHierarchyViewPart_callsFromMethod;
+	public static String CallHierarchyViewPart_expandCallers_job;
 	public static String ExpandWithConstructorsConfigurationBlock_description;
 	public static String ExpandWithConstructorsConfigurationBlock_newType_button;
 	public static String ExpandWithConstructorsConfigurationBlock_newMember_button;
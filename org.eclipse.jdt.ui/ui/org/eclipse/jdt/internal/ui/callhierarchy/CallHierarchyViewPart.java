@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,11 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.TreeItem;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
@@ -233,6 +238,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
     private FocusOnSelectionAction fFocusOnSelectionAction;
     private CopyCallHierarchyAction fCopyAction;
     private CancelSearchAction fCancelSearchAction;
+    private Job fExpandCallersJob;
     private ExpandWithConstructorsAction fExpandWithConstructorsAction;
     private RemoveFromViewAction fRemoveFromViewAction;
     private ShowSearchInDialogAction fShowSearchInDialogAction;
@@ -741,6 +747,10 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
 			getViewSite().getPage().removePartListener(fPartListener);
 			fPartListener= null;
 		}
+		if (fExpandCallersJob != null) {
+			fExpandCallersJob.cancel();
+			fExpandCallersJob= null;
+		}
 		super.dispose();
 	}
 
@@ -770,6 +780,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
     public void refresh() {
         setCalleeRoots(null);
         setCallerRoots(null);
+        CallHierarchy.getDefault().clearCache();
 
         updateView();
     }
@@ -1137,7 +1148,9 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
 			showPage(PAGE_VIEWER);
 
 			int includeMask= getIncludeMask();
-			CallHierarchy.getDefault().setSearchScope(getSearchScope(includeMask));
+			// the scope is created again each time, only a different scope discards the cached calls
+			Object[] scopeElements= fSearchScopeActions.getSearchScopeElements();
+			CallHierarchy.getDefault().setSearchScope(getSearchScope(includeMask), includeMask, scopeElements != null ? scopeElements : new Object[0]);
 
 			// set input to null so that setComparator does not cause a refresh on the old contents:
 			fCallHierarchyViewer.setInput(null);
@@ -1150,6 +1163,7 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
 					}
 				});
     			fCallHierarchyViewer.setMethodWrappers(getCallerRoots());
+    			scheduleExpandCallers();
 			} else {
 				fCallHierarchyViewer.setComparator(null);
 				fCallHierarchyViewer.setMethodWrappers(getCalleeRoots());
@@ -1158,6 +1172,38 @@ public class CallHierarchyViewPart extends ViewPart implements ICallHierarchyVie
 		}
     }
 
+	/**
+	 * Computes the callers of the input elements in advance, if enabled.
+	 *
+	 * @see CallHierarchy#expandCallers(IMember[], int, IProgressMonitor)
+	 * @since 3.14
+	 */
+	private void scheduleExpandCallers() {
+		if (fExpandCallersJob != null) {
+			fExpandCallersJob.cancel();
+			fExpandCallersJob= null;
+		}
+		if (CallHierarchy.getDefault().getExpandDepth() == 0)
+			return;
+
+		final IMember[] members= fInputElements;
+		final int fieldMode= fCurrentFieldMode;
+		fExpandCallersJob= new Job(CallHierarchyMessages.CallHierarchyViewPart_expandCallers_job) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					CallHierarchy.getDefault().expandCallers(members, fieldMode, monitor);
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		fExpandCallersJob.setSystem(true);
+		fExpandCallersJob.setPriority(Job.DECORATE);
+		fExpandCallersJob.schedule();
+	}
+
 	/**
 	 * Sets the content description.
 	 * 
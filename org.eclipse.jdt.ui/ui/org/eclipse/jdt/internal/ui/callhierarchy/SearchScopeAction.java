@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,14 @@ abstract class SearchScopeAction extends Action {
 
 	public abstract int getSearchScopeType();
 
+	/**
+	 * Returns the elements the search scope is created from. Two scopes of the same type are
+	 * equal if they have been created from the same elements with the same include mask.
+	 *
+	 * @return the elements of the scope, an empty array for the workspace
+	 */
+	public abstract Object[] getScopeElements();
+
 	@Override
 	public void run() {
 		this.fGroup.setSelected(this, true);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -80,6 +80,21 @@ class SearchScopeActionGroup extends ActionGroup {
 		return null;
 	}
 
+	/**
+	 * Returns the elements the current search scope is created from.
+	 *
+	 * @return the elements of the current search scope, or <code>null</code> if no scope is
+	 *         selected
+	 * @see SearchScopeAction#getScopeElements()
+	 */
+	public Object[] getSearchScopeElements() {
+		if (fSelectedAction != null) {
+			return fSelectedAction.getScopeElements();
+		}
+
+		return null;
+	}
+
 	@Override
 	public void fillActionBars(IActionBars actionBars) {
 		super.fillActionBars(actionBars);
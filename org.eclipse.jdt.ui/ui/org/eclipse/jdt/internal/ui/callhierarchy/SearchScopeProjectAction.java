@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@
 package org.eclipse.jdt.internal.ui.callhierarchy;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import org.eclipse.ui.PlatformUI;
 
@@ -40,18 +41,31 @@ class SearchScopeProjectAction extends SearchScopeAction {
 
 	@Override
 	public IJavaSearchScope getSearchScope(int includeMask) {
+		IJavaProject[] projects= getProjects();
+		if (projects == null) {
+			return null;
+		}
+
+		return SearchEngine.createJavaSearchScope(projects, includeMask);
+	}
+
+	@Override
+	public Object[] getScopeElements() {
+		IJavaProject[] projects= getProjects();
+		return projects != null ? projects : new Object[0];
+	}
+
+	private IJavaProject[] getProjects() {
 		IMember[] members= fGroup.getView().getInputElements();
 		if (members == null) {
 			return null;
 		}
 
-		HashSet<IJavaProject> projects= new HashSet<>();
+		HashSet<IJavaProject> projects= new LinkedHashSet<>();
 		for (int i= 0; i < members.length; i++) {
 			projects.add(members[i].getJavaProject());
 		}
-		return SearchEngine.createJavaSearchScope(
-				projects.toArray(new IJavaProject[projects.size()]),
-				includeMask);
+		return projects.toArray(new IJavaProject[projects.size()]);
 	}
 
 	@Override
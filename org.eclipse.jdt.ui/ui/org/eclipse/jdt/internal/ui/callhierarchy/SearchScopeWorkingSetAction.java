@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,12 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.callhierarchy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.IAdaptable;
+
 import org.eclipse.ui.IWorkingSet;
 import org.eclipse.ui.PlatformUI;
 
@@ -38,6 +44,16 @@ class SearchScopeWorkingSetAction extends SearchScopeAction {
 		return JavaSearchScopeFactory.getInstance().createJavaSearchScope(fWorkingSets, includeMask);
 	}
 
+	@Override
+	public Object[] getScopeElements() {
+		List<IAdaptable> elements= new ArrayList<>();
+		for (int i= 0; i < fWorkingSets.length; i++) {
+			elements.add(fWorkingSets[i]);
+			elements.addAll(Arrays.asList(fWorkingSets[i].getElements()));
+		}
+		return elements.toArray();
+	}
+
 	/**
 	 * @return returns the working sets
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,11 @@ class SearchScopeWorkspaceAction extends SearchScopeAction {
 		return fFactory.createWorkspaceScope(includeMask);
 	}
 
+	@Override
+	public Object[] getScopeElements() {
+		return new Object[0];
+	}
+
 	@Override
 	public int getSearchScopeType() {
 		return SearchScopeActionGroup.SEARCH_SCOPE_TYPE_WORKSPACE;
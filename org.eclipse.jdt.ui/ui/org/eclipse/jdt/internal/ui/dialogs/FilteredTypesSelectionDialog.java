@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -95,6 +96,7 @@ import org.eclipse.jdt.internal.corext.util.OpenTypeHistory;
 import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
 
 import org.eclipse.jdt.launching.IVMInstall;
@@ -499,6 +501,9 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	@Override
 	protected void fillContentProvider(AbstractContentProvider provider, ItemsFilter itemsFilter, IProgressMonitor progressMonitor) throws CoreException {
 		TypeItemsFilter typeSearchFilter= (TypeItemsFilter) itemsFilter;
+		if (typeSearchFilter.isWorkspaceScope() && fillFromIndex(provider, typeSearchFilter, progressMonitor))
+			return;
+
 		TypeSearchRequestor requestor= new TypeSearchRequestor(provider, typeSearchFilter);
 		SearchEngine engine= new SearchEngine((WorkingCopyOwner) null);
 		String packPattern= typeSearchFilter.getPackagePattern();
@@ -530,6 +535,29 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		}
 	}
 
+	/**
+	 * Fills the content provider from the resident type name index.
+	 *
+	 * @param provider the content provider
+	 * @param typeSearchFilter the filter
+	 * @param progressMonitor the progress monitor
+	 * @return <code>false</code> if the index is not up to date and a search is required
+	 */
+	private boolean fillFromIndex(AbstractContentProvider provider, TypeItemsFilter typeSearchFilter, IProgressMonitor progressMonitor) {
+		TypeNameMatch[] candidates= TypeNameIndex.getInstance().getCandidates(typeSearchFilter.getTypeInfoFilter());
+		if (candidates == null)
+			return false;
+
+		for (int i= 0; i < candidates.length; i++) {
+			if ((i & 0xFF) == 0 && progressMonitor.isCanceled())
+				throw new OperationCanceledException();
+			TypeNameMatch match= candidates[i];
+			if (!TypeFilter.isFiltered(match))
+				provider.add(match, typeSearchFilter); // applies the whole filter
+		}
+		return true;
+	}
+
 	@Override
 	protected Comparator getItemsComparator() {
 		return fTypeItemsComparator;
@@ -1038,6 +1066,14 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.getSearchScope();
 		}
 
+		public boolean isWorkspaceScope() {
+			return fTypeInfoFilter.isWorkspaceScope();
+		}
+
+		public TypeInfoFilter getTypeInfoFilter() {
+			return fTypeInfoFilter;
+		}
+
 		public int getMyTypeFilterVersion() {
 			return fMyTypeFilterVersion;
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.fix;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -22,9 +23,11 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
 import org.eclipse.jdt.internal.corext.codemanipulation.CodeGenerationSettings;
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
 import org.eclipse.jdt.internal.corext.fix.ImportsFix;
 
+import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.cleanup.CleanUpContext;
 import org.eclipse.jdt.ui.cleanup.CleanUpRequirements;
 import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
@@ -35,6 +38,8 @@ public class ImportsCleanUp extends AbstractCleanUp {
 
 	private CodeGenerationSettings fCodeGeneratorSettings;
 	private RefactoringStatus fStatus;
+	private TypeNameMatchCache fTypeNameMatchCache;
+	private final AtomicInteger fOrganizedCount= new AtomicInteger();
 
 	public ImportsCleanUp(Map<String, String> options) {
 		super(options);
@@ -56,8 +61,29 @@ public class ImportsCleanUp extends AbstractCleanUp {
     	if (compilationUnit == null)
     		return null;
 
-		return ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
-				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus);
+		// collect the status of this unit first, fStatus is shared by the workers of a parallel clean up
+		RefactoringStatus status= new RefactoringStatus();
+		ICleanUpFix fix= ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
+				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fTypeNameMatchCache, status);
+		if (isEnabled(CleanUpConstants.ORGANIZE_IMPORTS) && status.getEntryMatchingCode(JavaUI.ID_PLUGIN, ImportsFix.PARSE_ERROR) == null)
+			fOrganizedCount.incrementAndGet();
+		if (!status.isOK()) {
+			synchronized (this) {
+				if (fStatus != null)
+					fStatus.merge(status);
+			}
+		}
+		return fix;
+	}
+
+	/**
+	 * Returns the number of compilation units whose imports have been organized by this clean
+	 * up. Compilation units that are skipped because of syntax errors are not counted.
+	 *
+	 * @return the number of organized compilation units
+	 */
+	public int getOrganizedCount() {
+		return fOrganizedCount.get();
 	}
 
     @Override
@@ -66,6 +92,10 @@ public class ImportsCleanUp extends AbstractCleanUp {
 		if (isEnabled(CleanUpConstants.ORGANIZE_IMPORTS)) {
     		fCodeGeneratorSettings= JavaPreferencesSettings.getCodeGenerationSettings(project);
     		fStatus= new RefactoringStatus();
+    		// resolve the unresolved type names of all units with one search instead of one per unit
+    		fTypeNameMatchCache= new TypeNameMatchCache();
+    		if (compilationUnits.length > 1)
+    			fTypeNameMatchCache.prefetch(project, compilationUnits, monitor);
 		}
 
 		return super.checkPreConditions(project, compilationUnits, monitor);
@@ -74,6 +104,7 @@ public class ImportsCleanUp extends AbstractCleanUp {
     @Override
 	public RefactoringStatus checkPostConditions(IProgressMonitor monitor) throws CoreException {
     	fCodeGeneratorSettings= null;
+    	fTypeNameMatchCache= null;
     	try {
 	    	if (fStatus == null || fStatus.isOK()) {
 	    		return super.checkPostConditions(monitor);
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.javaeditor;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.util.LRUMap;
+
+
+/**
+ * Bounded cache of the shared ASTs of recently active Java editors.
+ * <p>
+ * Each entry remembers the editor document and the document's modification stamp taken before
+ * the AST was created. An entry is only returned while the document is still connected to the
+ * element and still has that stamp. The ASTs are softly referenced so that they can be reclaimed
+ * under memory pressure.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class ASTCache {
+
+	/** The default number of cached ASTs. */
+	static final int DEFAULT_SIZE= 4;
+
+	private static final class Entry {
+
+		private final SoftReference<CompilationUnit> fAST;
+
+		private final IDocument fDocument;
+
+		private final long fStamp;
+
+		Entry(CompilationUnit ast, IDocument document, long stamp) {
+			fAST= new SoftReference<>(ast);
+			fDocument= document;
+			fStamp= stamp;
+		}
+	}
+
+	/**
+	 * A cached AST together with the modification stamp of the document it was created for.
+	 */
+	static final class CachedAST {
+
+		final CompilationUnit fAST;
+
+		final long fStamp;
+
+		CachedAST(CompilationUnit ast, long stamp) {
+			fAST= ast;
+			fStamp= stamp;
+		}
+	}
+
+	/**
+	 * Returns the modification stamp of the given document.
+	 *
+	 * @param document the document, may be <code>null</code>
+	 * @return the modification stamp or {@link IDocumentExtension4#UNKNOWN_MODIFICATION_STAMP}
+	 */
+	static long getModificationStamp(IDocument document) {
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4)document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private final Map<ITypeRoot, Entry> fEntries;
+
+	private int fHits;
+
+	private int fMisses;
+
+	private int fEvictions;
+
+	/**
+	 * Creates a new AST cache.
+	 *
+	 * @param size the maximum number of cached ASTs
+	 */
+	ASTCache(int size) {
+		fEntries= new LRUMap<ITypeRoot, Entry>(size) {
+			private static final long serialVersionUID= 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ITypeRoot, Entry> eldest) {
+				boolean remove= super.removeEldestEntry(eldest);
+				if (remove)
+					fEvictions++;
+				return remove;
+			}
+		};
+	}
+
+	/**
+	 * Caches the given AST.
+	 *
+	 * @param typeRoot the type root of the AST
+	 * @param ast the AST
+	 * @param document the document from which the AST has been created
+	 * @param stamp the modification stamp of the document before the AST was created
+	 */
+	synchronized void put(ITypeRoot typeRoot, CompilationUnit ast, IDocument document, long stamp) {
+		if (typeRoot == null || ast == null || document == null || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return;
+		fEntries.put(typeRoot, new Entry(ast, document, stamp));
+	}
+
+	/**
+	 * Returns the cached AST for the given type root if it is still up to date.
+	 *
+	 * @param typeRoot the type root
+	 * @return the AST or <code>null</code> if none is cached or if the cached one is outdated
+	 */
+	CompilationUnit get(ITypeRoot typeRoot) {
+		CachedAST cached= getWithStamp(typeRoot);
+		return cached != null ? cached.fAST : null;
+	}
+
+	/**
+	 * Returns the cached AST for the given type root and the modification stamp it was created
+	 * for, if the AST is still up to date. Both are taken in one step, so that they always belong
+	 * together.
+	 *
+	 * @param typeRoot the type root
+	 * @return the AST and its stamp, or <code>null</code> if none is cached or if the cached one
+	 *         is outdated
+	 */
+	synchronized CachedAST getWithStamp(ITypeRoot typeRoot) {
+		Entry entry= fEntries.get(typeRoot);
+		if (entry == null) {
+			fMisses++;
+			return null;
+		}
+
+		CompilationUnit ast= entry.fAST.get();
+		if (ast == null || !isValid(typeRoot, entry)) {
+			fEntries.remove(typeRoot);
+			fMisses++;
+			return null;
+		}
+
+		fHits++;
+		return new CachedAST(ast, entry.fStamp);
+	}
+
+	private static boolean isValid(ITypeRoot typeRoot, Entry entry) {
+		if (!typeRoot.exists() || getModificationStamp(entry.fDocument) != entry.fStamp)
+			return false;
+
+		if (typeRoot instanceof ICompilationUnit) {
+			IResource resource= typeRoot.getResource();
+			if (resource != null) {
+				ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(resource.getFullPath(), LocationKind.IFILE);
+				return buffer != null && buffer.getDocument() == entry.fDocument;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the cached AST of the given type root.
+	 *
+	 * @param typeRoot the type root
+	 */
+	synchronized void remove(ITypeRoot typeRoot) {
+		if (typeRoot != null)
+			fEntries.remove(typeRoot);
+	}
+
+	/**
+	 * Removes all cached ASTs.
+	 */
+	synchronized void clear() {
+		fEntries.clear();
+	}
+
+	synchronized int getHits() {
+		return fHits;
+	}
+
+	synchronized int getMisses() {
+		return fMisses;
+	}
+
+	synchronized int getEvictions() {
+		return fEvictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ASTCache: size= " + fEntries.size() + ", hits= " + fHits + ", misses= " + fMisses + ", evictions= " + fEvictions; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+}
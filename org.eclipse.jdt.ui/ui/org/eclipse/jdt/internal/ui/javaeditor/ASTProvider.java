@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,12 @@
 package org.eclipse.jdt.internal.ui.javaeditor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -19,6 +25,10 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.source.ISourceViewer;
+
 import org.eclipse.ui.IPartListener2;
 import org.eclipse.ui.IWindowListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -47,6 +57,17 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * The ASTs of recently active Java editors are kept in a small cache,
+ * so that switching back to such an editor does not require a new AST
+ * as long as its document has not been modified in the meantime.
+ * </p>
+ * <p>
+ * The active element and its AST are published as an immutable snapshot, so
+ * that clients asking for an available AST never block. Clients that need to
+ * wait for a running reconcile wait on a future that is completed whenever the
+ * shared AST changes.
+ * </p>
  *
  * @since 3.0
  */
@@ -101,6 +122,11 @@ public final class ASTProvider implements IASTSharedValues {
 		 */
 		@Override
 		public void partClosed(IWorkbenchPartReference ref) {
+			if (isJavaEditor(ref)) {
+				IWorkbenchPart part= ref.getPart(false);
+				if (part instanceof JavaEditor)
+					fRecentASTs.remove(((JavaEditor)part).getInputJavaElement());
+			}
 			if (isActiveEditor(ref)) {
 				if (JavaPlugin.DEBUG_AST_PROVIDER)
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "closed active editor: " + ref.getTitle()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -208,16 +234,87 @@ public final class ASTProvider implements IASTSharedValues {
 		}
 	}
 
+	/**
+	 * Immutable snapshot of the active Java element and its AST.
+	 *
+	 * @since 3.14
+	 */
+	private static final class ActiveAST {
+
+		static final ActiveAST NONE= new ActiveAST(null, null);
+
+		final ITypeRoot fJavaElement;
+		final CompilationUnit fAST;
+
+		ActiveAST(ITypeRoot javaElement, CompilationUnit ast) {
+			fJavaElement= javaElement;
+			fAST= ast;
+		}
+	}
+
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
+	/**
+	 * Maximum time to wait for the reconciler to deliver an AST. The timeout is an attempt
+	 * to at least avoid a deadlock, see https://bugs.eclipse.org/366048#c21.
+	 *
+	 * @since 3.14
+	 */
+	private static final long AST_WAIT_TIMEOUT= 30000;
+
 	private volatile ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
+	/**
+	 * Snapshot of {@link #fActiveJavaElement} and {@link #fAST} for lock-free reads.
+	 * @since 3.14
+	 */
+	private volatile ActiveAST fActiveAST= ActiveAST.NONE;
 	private ActivationListener fActivationListener;
 	private Object fReconcileLock= new Object();
-	private Object fWaitLock= new Object();
+	/**
+	 * Completed with the new shared AST (possibly <code>null</code>) whenever the shared AST
+	 * changes; a fresh future is installed at the same time.
+	 * @since 3.14
+	 */
+	private final AtomicReference<CompletableFuture<CompilationUnit>> fASTChanged= new AtomicReference<>(new CompletableFuture<CompilationUnit>());
+	/**
+	 * Number of times a client had to wait for the reconciler.
+	 * @since 3.14
+	 */
+	private final AtomicLong fWaitCount= new AtomicLong();
+	/**
+	 * Total time in nanoseconds clients have waited for the reconciler.
+	 * @since 3.14
+	 */
+	private final AtomicLong fWaitTime= new AtomicLong();
+	/**
+	 * Longest time in nanoseconds a client has waited for the reconciler.
+	 * @since 3.14
+	 */
+	private final AtomicLong fMaxWaitTime= new AtomicLong();
 	private volatile boolean fIsReconciling;
 	private IWorkbenchPart fActiveEditor;
+	/**
+	 * The document of the active editor.
+	 * @since 3.14
+	 */
+	private IDocument fActiveDocument;
+	/**
+	 * The modification stamp of the active document before {@link #fAST} was created.
+	 * @since 3.14
+	 */
+	private long fASTStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * The modification stamp of the active document when the last reconcile started.
+	 * @since 3.14
+	 */
+	private volatile long fReconcileStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	/**
+	 * The ASTs of recently active editors.
+	 * @since 3.14
+	 */
+	private final ASTCache fRecentASTs= new ASTCache(ASTCache.DEFAULT_SIZE);
 
 
 	/**
@@ -254,13 +351,30 @@ public final class ASTProvider implements IASTSharedValues {
 	void activeJavaEditorChanged(IWorkbenchPart editor) {
 
 		ITypeRoot javaElement= null;
-		if (editor instanceof JavaEditor)
+		IDocument document= null;
+		if (editor instanceof JavaEditor) {
 			javaElement= ((JavaEditor)editor).getInputJavaElement();
+			ISourceViewer viewer= ((JavaEditor)editor).getViewer();
+			if (viewer != null)
+				document= viewer.getDocument();
+		}
 
 		synchronized (this) {
+			ASTCache.CachedAST recent= javaElement != null ? fRecentASTs.getWithStamp(javaElement) : null;
+			if (fAST != null)
+				fRecentASTs.put(fActiveJavaElement, fAST, fActiveDocument, fASTStamp);
+
 			fActiveEditor= editor;
 			fActiveJavaElement= javaElement;
+			fActiveDocument= document;
 			cache(null, javaElement);
+
+			if (recent != null) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reusing recent AST: " + toString(recent.fAST) + " for: " + toString(javaElement) + " (" + fRecentASTs + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				fReconcileStamp= recent.fStamp;
+				cache(recent.fAST, javaElement);
+			}
 		}
 
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
@@ -285,7 +399,7 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @return <code>true</code> if the given AST is the cached one
 	 */
 	public boolean isCached(CompilationUnit ast) {
-		return ast != null && fAST == ast;
+		return ast != null && fActiveAST.fAST == ast;
 	}
 
 	/**
@@ -296,8 +410,8 @@ public final class ASTProvider implements IASTSharedValues {
 	 * @return <code>true</code> if the given compilation unit is the active one
 	 * @since 3.1
 	 */
-	public synchronized boolean isActive(ICompilationUnit cu) {
-		return cu != null && cu.equals(fActiveJavaElement);
+	public boolean isActive(ICompilationUnit cu) {
+		return cu != null && cu.equals(fActiveAST.fJavaElement);
 	}
 
 	/**
@@ -314,6 +428,12 @@ public final class ASTProvider implements IASTSharedValues {
 		if (JavaPlugin.DEBUG_AST_PROVIDER)
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "about to reconcile: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
 
+		fRecentASTs.remove(javaElement);
+		synchronized (this) {
+			if (javaElement.equals(fActiveJavaElement))
+				fReconcileStamp= ASTCache.getModificationStamp(fActiveDocument);
+		}
+
 		synchronized (fReconcileLock) {
 			fReconcilingJavaElement= javaElement;
 			fIsReconciling= true;
@@ -333,6 +453,8 @@ public final class ASTProvider implements IASTSharedValues {
 			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "disposing AST: " + toString(fAST) + " for: " + toString(fActiveJavaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
 		fAST= null;
+		fASTStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		fActiveAST= new ActiveAST(fActiveJavaElement, null);
 
 		cache(null, null);
 	}
@@ -389,10 +511,47 @@ public final class ASTProvider implements IASTSharedValues {
 			disposeAST();
 
 		fAST= ast;
+		fASTStamp= ast != null ? fReconcileStamp : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		fActiveAST= new ActiveAST(fActiveJavaElement, ast);
+
+		signalASTChange(ast);
+	}
 
-		// Signal AST change
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
+	/**
+	 * Wakes up all clients waiting for the shared AST.
+	 *
+	 * @param ast the new shared AST or <code>null</code>
+	 * @since 3.14
+	 */
+	private void signalASTChange(CompilationUnit ast) {
+		fASTChanged.getAndSet(new CompletableFuture<CompilationUnit>()).complete(ast);
+	}
+
+	/**
+	 * Waits until the shared AST changes or the timeout expires.
+	 *
+	 * @param astChanged the future to wait for, obtained before checking whether to wait
+	 * @param input the Java element whose AST is awaited
+	 * @throws InterruptedException if the current thread has been interrupted
+	 * @since 3.14
+	 */
+	private void waitForASTChange(CompletableFuture<CompilationUnit> astChanged, ITypeRoot input) throws InterruptedException {
+		long start= System.nanoTime();
+		try {
+			astChanged.get(AST_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "timed out waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (ExecutionException e) {
+			// never completed exceptionally
+		} finally {
+			long waitTime= System.nanoTime() - start;
+			long count= fWaitCount.incrementAndGet();
+			long total= fWaitTime.addAndGet(waitTime);
+			long max= fMaxWaitTime.accumulateAndGet(waitTime, Math::max);
+			if (JavaPlugin.DEBUG_AST_PROVIDER)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waited " + TimeUnit.NANOSECONDS.toMillis(waitTime) + " ms for AST for: " + input.getElementName() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ " (waits: " + count + ", average: " + TimeUnit.NANOSECONDS.toMillis(total / count) + " ms, max: " + TimeUnit.NANOSECONDS.toMillis(max) + " ms)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		}
 	}
 
@@ -415,27 +574,35 @@ public final class ASTProvider implements IASTSharedValues {
 		if (progressMonitor != null && progressMonitor.isCanceled())
 			return null;
 
-		boolean isActiveElement;
-		synchronized (this) {
-			isActiveElement= input.equals(fActiveJavaElement);
-			if (isActiveElement) {
-				if (fAST != null) {
-					if (JavaPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		ActiveAST activeAST= fActiveAST;
+		boolean isActiveElement= input.equals(activeAST.fJavaElement);
+		if (isActiveElement) {
+			if (activeAST.fAST != null) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning cached AST:" + toString(activeAST.fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-					return fAST;
-				}
-				if (waitFlag == SharedASTProvider.WAIT_NO) {
-					if (JavaPlugin.DEBUG_AST_PROVIDER)
-						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+				return activeAST.fAST;
+			}
+			if (waitFlag == SharedASTProvider.WAIT_NO) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning null (WAIT_NO) for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
 
-					return null;
+				return null;
 
-				}
 			}
 		}
 
-		final boolean canReturnNull= waitFlag == SharedASTProvider.WAIT_NO || (waitFlag == SharedASTProvider.WAIT_ACTIVE_ONLY && !(isActiveElement && fAST == null));
+		if (!isActiveElement) {
+			CompilationUnit recentAST= fRecentASTs.get(input);
+			if (recentAST != null) {
+				if (JavaPlugin.DEBUG_AST_PROVIDER)
+					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning recent AST:" + toString(recentAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+				return recentAST;
+			}
+		}
+
+		final boolean canReturnNull= waitFlag == SharedASTProvider.WAIT_NO || (waitFlag == SharedASTProvider.WAIT_ACTIVE_ONLY && !(isActiveElement && fActiveAST.fAST == null));
 		boolean isReconciling= false;
 		final ITypeRoot activeElement;
 		if (isActiveElement) {
@@ -450,23 +617,21 @@ public final class ASTProvider implements IASTSharedValues {
 
 		if (isReconciling) {
 			try {
-				// Wait for AST
-				synchronized (fWaitLock) {
-					if (isReconciling(input)) {
-						if (JavaPlugin.DEBUG_AST_PROVIDER)
-							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
-						fWaitLock.wait(30000); // XXX: The 30 seconds timeout is an attempt to at least avoid a deadlock. See https://bugs.eclipse.org/366048#c21
-					}
+				// Wait for AST; get the future before checking, so that no change can be missed
+				CompletableFuture<CompilationUnit> astChanged= fASTChanged.get();
+				if (isReconciling(input)) {
+					if (JavaPlugin.DEBUG_AST_PROVIDER)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+					waitForASTChange(astChanged, input);
 				}
 
 				// Check whether active element is still valid
-				synchronized (this) {
-					if (activeElement == fActiveJavaElement && fAST != null) {
-						if (JavaPlugin.DEBUG_AST_PROVIDER)
-							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "...got AST: " + toString(fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				ActiveAST current= fActiveAST;
+				if (activeElement == current.fJavaElement && current.fAST != null) {
+					if (JavaPlugin.DEBUG_AST_PROVIDER)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "...got AST: " + toString(current.fAST) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-						return fAST;
-					}
+					return current.fAST;
 				}
 				return getAST(input, waitFlag, progressMonitor);
 			} catch (InterruptedException e) {
@@ -486,12 +651,13 @@ public final class ASTProvider implements IASTSharedValues {
 			}
 		} finally {
 			if (isActiveElement) {
-				if (fAST != null) {
+				CompilationUnit reconciledAST= fActiveAST.fAST;
+				if (reconciledAST != null) {
 					// in the meantime, reconcile created a new AST. Return that one
 					if (JavaPlugin.DEBUG_AST_PROVIDER)
 						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "Ignore created AST for " + input.getElementName() + " - AST from reconciler is newer"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-					reconciled(fAST, input, null);
-					return fAST;
+					reconciled(reconciledAST, input, null);
+					return reconciledAST;
 				} else
 					reconciled(ast, input, null);
 			}
@@ -590,10 +756,12 @@ public final class ASTProvider implements IASTSharedValues {
 		fActivationListener= null;
 
 		disposeAST();
+		fRecentASTs.clear();
 
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
-		}
+		if (JavaPlugin.DEBUG_AST_PROVIDER)
+			System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "disposed, " + fRecentASTs); //$NON-NLS-1$ //$NON-NLS-2$
+
+		signalASTChange(null);
 	}
 
 	/**
@@ -618,9 +786,7 @@ public final class ASTProvider implements IASTSharedValues {
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "  ignoring AST of out-dated editor"); //$NON-NLS-1$ //$NON-NLS-2$
 
 				// Signal - threads might wait for wrong element
-				synchronized (fWaitLock) {
-					fWaitLock.notifyAll();
-				}
+				signalASTChange(null);
 
 				return;
 			}
@@ -628,6 +794,36 @@ public final class ASTProvider implements IASTSharedValues {
 		}
 	}
 
+	/**
+	 * Returns the number of times an AST of a recently active editor could be reused.
+	 *
+	 * @return the number of cache hits
+	 * @since 3.14
+	 */
+	public int getRecentASTCacheHits() {
+		return fRecentASTs.getHits();
+	}
+
+	/**
+	 * Returns the number of times no reusable AST of a recently active editor was found.
+	 *
+	 * @return the number of cache misses
+	 * @since 3.14
+	 */
+	public int getRecentASTCacheMisses() {
+		return fRecentASTs.getMisses();
+	}
+
+	/**
+	 * Returns the number of ASTs that have been evicted from the cache of recently active editors.
+	 *
+	 * @return the number of cache evictions
+	 * @since 3.14
+	 */
+	public int getRecentASTCacheEvictions() {
+		return fRecentASTs.getEvictions();
+	}
+
 	private static String getThreadName() {
 		String name= Thread.currentThread().getName();
 		if (name != null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,9 +49,9 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
-import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IScopeContext;
@@ -581,8 +581,9 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		 */
 		@Override
 		public void documentAboutToBeChanged(DocumentEvent event) {
-			if (fOccurrencesFinderJob != null)
-				fOccurrencesFinderJob.doCancel();
+			OccurrencesFinderJob job= fOccurrencesFinderJob;
+			if (job != null)
+				job.doCancel();
 		}
 
 		/*
@@ -600,6 +601,9 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			if (oldInput == null)
 				return;
 
+			OccurrencesFinderJob job= fOccurrencesFinderJob;
+			if (job != null)
+				job.doCancel();
 			oldInput.removeDocumentListener(this);
 		}
 
@@ -1226,8 +1230,12 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		 */
 		@Override
 		public void windowDeactivated(IWorkbenchWindow window) {
-			if (window == getEditorSite().getWorkbenchWindow() && fMarkOccurrenceAnnotations && isActivePart())
+			if (window == getEditorSite().getWorkbenchWindow() && fMarkOccurrenceAnnotations && isActivePart()) {
+				OccurrencesFinderJob job= fOccurrencesFinderJob;
+				if (job != null)
+					job.doCancel();
 				removeOccurrenceAnnotations();
+			}
 		}
 
 		/*
@@ -1670,7 +1678,22 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	 */
 	private ActivationListener fActivationListener= new ActivationListener();
 	private ISelectionListenerWithAST fPostSelectionListenerWithAST;
-	private OccurrencesFinderJob fOccurrencesFinderJob;
+	private volatile OccurrencesFinderJob fOccurrencesFinderJob;
+	/**
+	 * Serializes the occurrences finder jobs of this editor.
+	 * @since 3.14
+	 */
+	private final ISchedulingRule fOccurrencesFinderJobRule= new ISchedulingRule() {
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
 	/** The occurrences finder job canceler */
 	private OccurrencesFinderJobCanceler fOccurrencesFinderJobCanceler;
 	/**
@@ -3165,27 +3188,52 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 
 	/**
 	 * Finds and marks occurrence annotations.
+	 * <p>
+	 * The occurrences are computed and the annotation model is updated in the background. The
+	 * result is dropped if the selection or the document changes in the meantime.
+	 * </p>
 	 *
 	 * @since 3.0
 	 */
 	class OccurrencesFinderJob extends Job {
 
 		private final IDocument fDocument;
-		private final ISelection fSelection;
+		private final ITextSelection fSelection;
 		private final ISelectionValidator fPostSelectionValidator;
-		private boolean fCanceled= false;
-		private final OccurrenceLocation[] fLocations;
+		private volatile boolean fCanceled= false;
+		private final CompilationUnit fASTRoot;
+		private final long fModificationStamp;
+		private final boolean fHasChanged;
 
-		public OccurrencesFinderJob(IDocument document, OccurrenceLocation[] locations, ISelection selection) {
+		/**
+		 * Creates a job that marks the occurrences of the element at the given selection.
+		 *
+		 * @param document the document
+		 * @param astRoot the compilation unit AST
+		 * @param selection the text selection
+		 * @param hasChanged <code>true</code> if the document changed since the last occurrence
+		 *            marking
+		 * @since 3.14
+		 */
+		public OccurrencesFinderJob(IDocument document, CompilationUnit astRoot, ITextSelection selection, boolean hasChanged) {
 			super(JavaEditorMessages.JavaEditor_markOccurrences_job_name);
 			fDocument= document;
 			fSelection= selection;
-			fLocations= locations;
+			fASTRoot= astRoot;
+			fHasChanged= hasChanged;
+			if (document instanceof IDocumentExtension4)
+				fModificationStamp= ((IDocumentExtension4)document).getModificationStamp();
+			else
+				fModificationStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
 
 			if (getSelectionProvider() instanceof ISelectionValidator)
 				fPostSelectionValidator= (ISelectionValidator)getSelectionProvider();
 			else
 				fPostSelectionValidator= null;
+
+			setPriority(Job.DECORATE);
+			setSystem(true);
+			setRule(fOccurrencesFinderJobRule);
 		}
 
 		// cannot use cancel() because it is declared final
@@ -3194,12 +3242,28 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			cancel();
 		}
 
+		/*
+		 * The job belongs to the family of its editor.
+		 * @see Job#belongsTo(Object)
+		 * @since 3.14
+		 */
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == JavaEditor.this;
+		}
+
 		private boolean isCanceled(IProgressMonitor progressMonitor) {
 			return fCanceled || progressMonitor.isCanceled()
 				||  fPostSelectionValidator != null && !(fPostSelectionValidator.isValid(fSelection) || fForcedMarkOccurrencesSelection == fSelection)
+				|| isDocumentChanged()
 				|| LinkedModeModel.hasInstalledModel(fDocument);
 		}
 
+		private boolean isDocumentChanged() {
+			return fModificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+				&& fModificationStamp != ((IDocumentExtension4)fDocument).getModificationStamp();
+		}
+
 		/*
 		 * @see Job#run(org.eclipse.core.runtime.IProgressMonitor)
 		 */
@@ -3213,7 +3277,7 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 				return Status.CANCEL_STATUS;
 
 			IDocument document= textViewer.getDocument();
-			if (document == null)
+			if (document != fDocument)
 				return Status.CANCEL_STATUS;
 
 			IDocumentProvider documentProvider= getDocumentProvider();
@@ -3224,15 +3288,28 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			if (annotationModel == null)
 				return Status.CANCEL_STATUS;
 
+			OccurrenceLocation[] locations= findOccurrences(fASTRoot, fSelection);
+
+			if (isCanceled(progressMonitor))
+				return Status.CANCEL_STATUS;
+
+			if (locations == null) {
+				if (!fStickyOccurrenceAnnotations)
+					removeOccurrenceAnnotations();
+				else if (fHasChanged) // check consistency of current annotations
+					removeOccurrenceAnnotations();
+				return Status.OK_STATUS;
+			}
+
 			// Add occurrence annotations
-			int length= fLocations.length;
+			int length= locations.length;
 			Map<Annotation, Position> annotationMap= new HashMap<>(length);
 			for (int i= 0; i < length; i++) {
 
 				if (isCanceled(progressMonitor))
 					return Status.CANCEL_STATUS;
 
-				OccurrenceLocation location= fLocations[i];
+				OccurrenceLocation location= locations[i];
 				Position position= new Position(location.getOffset(), location.getLength());
 
 				String description= location.getDescription();
@@ -3241,10 +3318,11 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 				annotationMap.put(new Annotation(annotationType, false, description), position);
 			}
 
-			if (isCanceled(progressMonitor))
-				return Status.CANCEL_STATUS;
-
 			synchronized (getLockObject(annotationModel)) {
+				// a stale result must not replace the annotations of a newer selection
+				if (isCanceled(progressMonitor))
+					return Status.CANCEL_STATUS;
+
 				if (annotationModel instanceof IAnnotationModelExtension) {
 					((IAnnotationModelExtension)annotationModel).replaceAnnotations(fOccurrenceAnnotations, annotationMap);
 				} else {
@@ -3265,6 +3343,10 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	/**
 	 * Updates the occurrences annotations based
 	 * on the current selection.
+	 * <p>
+	 * The occurrences are computed by a background job, this method does not wait for the
+	 * annotations to be updated.
+	 * </p>
 	 *
 	 * @param selection the text selection
 	 * @param astRoot the compilation unit AST
@@ -3272,8 +3354,9 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	 */
 	protected void updateOccurrenceAnnotations(ITextSelection selection, CompilationUnit astRoot) {
 
-		if (fOccurrencesFinderJob != null)
-			fOccurrencesFinderJob.cancel();
+		OccurrencesFinderJob job= fOccurrencesFinderJob;
+		if (job != null)
+			job.doCancel();
 
 		if (!fMarkOccurrenceAnnotations)
 			return;
@@ -3299,6 +3382,20 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 			fMarkOccurrenceModificationStamp= currentModificationStamp;
 		}
 
+		job= new OccurrencesFinderJob(document, astRoot, selection, hasChanged);
+		fOccurrencesFinderJob= job;
+		job.schedule();
+	}
+
+	/**
+	 * Finds the occurrences to mark for the given selection.
+	 *
+	 * @param astRoot the compilation unit AST
+	 * @param selection the text selection
+	 * @return the occurrences, or <code>null</code> if there is nothing to mark
+	 * @since 3.14
+	 */
+	private OccurrenceLocation[] findOccurrences(CompilationUnit astRoot, ITextSelection selection) {
 		OccurrenceLocation[] locations= null;
 
 		ASTNode selectedNode= NodeFinder.perform(astRoot, selection.getOffset(), selection.getLength());
@@ -3339,20 +3436,7 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 				}
 			}
 		}
-
-		if (locations == null) {
-			if (!fStickyOccurrenceAnnotations)
-				removeOccurrenceAnnotations();
-			else if (hasChanged) // check consistency of current annotations
-				removeOccurrenceAnnotations();
-			return;
-		}
-
-		fOccurrencesFinderJob= new OccurrencesFinderJob(document, locations, selection);
-		//fOccurrencesFinderJob.setPriority(Job.DECORATE);
-		//fOccurrencesFinderJob.setSystem(true);
-		//fOccurrencesFinderJob.schedule();
-		fOccurrencesFinderJob.run(new NullProgressMonitor());
+		return locations;
 	}
 
 	protected void installOccurrencesFinder(boolean forceUpdate) {
@@ -3387,8 +3471,9 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	protected void uninstallOccurrencesFinder() {
 		fMarkOccurrenceAnnotations= false;
 
-		if (fOccurrencesFinderJob != null) {
-			fOccurrencesFinderJob.cancel();
+		OccurrencesFinderJob job= fOccurrencesFinderJob;
+		if (job != null) {
+			job.doCancel();
 			fOccurrencesFinderJob= null;
 		}
 
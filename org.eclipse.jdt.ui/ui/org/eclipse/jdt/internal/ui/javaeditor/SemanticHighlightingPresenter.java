@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -242,6 +242,32 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	/** <code>true</code> iff the current reconcile is canceled. */
 	private boolean fIsCanceled= false;
 
+	/**
+	 * Start of the document range changed since the last applied reconcile, <code>-1</code> if unchanged.
+	 * @since 3.14
+	 */
+	private int fDirtyStart= -1;
+	/**
+	 * End (exclusive) of the document range changed since the last applied reconcile.
+	 * @since 3.14
+	 */
+	private int fDirtyEnd= -1;
+	/**
+	 * Number of document changes since this presenter was installed.
+	 * @since 3.14
+	 */
+	private int fChangeCount;
+	/**
+	 * <code>true</code> iff the next reconcile must revisit the whole document.
+	 * @since 3.14
+	 */
+	private boolean fIsFullReconcileRequired= true;
+	/**
+	 * Dirty range lock.
+	 * @since 3.14
+	 */
+	private final Object fDirtyRegionLock= new Object();
+
 	/**
 	 * Creates and returns a new highlighted position with the given offset, length and highlighting.
 	 * <p>
@@ -272,6 +298,92 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		}
 	}
 
+	/**
+	 * Adds the current positions starting in the given range to the given list.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @param list The list
+	 * @param offset The range offset
+	 * @param length The range length
+	 * @since 3.14
+	 */
+	public void addPositions(List<Position> list, int offset, int length) {
+		synchronized (fPositionLock) {
+			int end= offset + length;
+			for (int i= computeIndexAtOffset(fPositions, offset), n= fPositions.size(); i < n; i++) {
+				Position position= fPositions.get(i);
+				if (position.getOffset() >= end)
+					break;
+				list.add(position);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of document changes seen by this presenter. Pass it to
+	 * {@link #createUpdateRunnable(TextPresentation, List, List, int)} to mark the
+	 * changes as reconciled once the presentation has been updated.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the number of document changes
+	 * @since 3.14
+	 */
+	public int getChangeCount() {
+		synchronized (fDirtyRegionLock) {
+			return fChangeCount;
+		}
+	}
+
+	/**
+	 * Returns the document range changed since the last applied reconcile.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 *
+	 * @return the changed range or <code>null</code> if the whole document has to be reconciled
+	 * @since 3.14
+	 */
+	public IRegion getDirtyRegion() {
+		synchronized (fDirtyRegionLock) {
+			if (fIsFullReconcileRequired || fDirtyStart == -1)
+				return null;
+			return new Region(fDirtyStart, fDirtyEnd - fDirtyStart);
+		}
+	}
+
+	/**
+	 * Requests that the next reconcile revisits the whole document.
+	 * <p>
+	 * NOTE: Also called from background thread.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public void requestFullReconcile() {
+		synchronized (fDirtyRegionLock) {
+			fIsFullReconcileRequired= true;
+		}
+	}
+
+	/**
+	 * Forgets the changed range if no document change happened after the given change count.
+	 *
+	 * @param changeCount the change count the applied reconcile has been started with
+	 */
+	private void markReconciled(int changeCount) {
+		synchronized (fDirtyRegionLock) {
+			if (fChangeCount == changeCount) {
+				fDirtyStart= -1;
+				fDirtyEnd= -1;
+				fIsFullReconcileRequired= false;
+			}
+		}
+	}
+
 	/**
 	 * Create a text presentation in the background.
 	 * <p>
@@ -331,6 +443,24 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	 * @return the runnable or <code>null</code>, if reconciliation should be canceled
 	 */
 	public Runnable createUpdateRunnable(final TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
+		return createUpdateRunnable(textPresentation, addedPositions, removedPositions, -1);
+	}
+
+	/**
+	 * Create a runnable for updating the presentation. Once the presentation has been updated,
+	 * the document changes up to the given change count are considered reconciled.
+	 * <p>
+	 * NOTE: Called from background thread.
+	 * </p>
+	 * @param textPresentation the text presentation
+	 * @param addedPositions the added positions
+	 * @param removedPositions the removed positions
+	 * @param changeCount the change count returned by {@link #getChangeCount()} before the
+	 * 	reconcile started, or <code>-1</code> if the changes should not be marked reconciled
+	 * @return the runnable or <code>null</code>, if reconciliation should be canceled
+	 * @since 3.14
+	 */
+	public Runnable createUpdateRunnable(final TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions, final int changeCount) {
 		if (fSourceViewer == null || textPresentation == null)
 			return null;
 
@@ -346,7 +476,8 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		Runnable runnable= new Runnable() {
 			@Override
 			public void run() {
-				updatePresentation(textPresentation, added, removed);
+				if (applyPresentation(textPresentation, added, removed) && changeCount != -1)
+					markReconciled(changeCount);
 			}
 		};
 		return runnable;
@@ -363,8 +494,21 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	 * @param removedPositions the removed positions
 	 */
 	public void updatePresentation(TextPresentation textPresentation, HighlightedPosition[] addedPositions, HighlightedPosition[] removedPositions) {
+		applyPresentation(textPresentation, addedPositions, removedPositions);
+	}
+
+	/**
+	 * Performs {@link #updatePresentation(TextPresentation, HighlightedPosition[], HighlightedPosition[])}.
+	 *
+	 * @param textPresentation the text presentation or <code>null</code>, if the presentation should computed in the UI thread
+	 * @param addedPositions the added positions
+	 * @param removedPositions the removed positions
+	 * @return <code>true</code> iff the positions have been applied
+	 * @since 3.14
+	 */
+	private boolean applyPresentation(TextPresentation textPresentation, HighlightedPosition[] addedPositions, HighlightedPosition[] removedPositions) {
 		if (fSourceViewer == null)
-			return;
+			return false;
 
 //		checkOrdering("added positions: ", Arrays.asList(addedPositions)); //$NON-NLS-1$
 //		checkOrdering("removed positions: ", Arrays.asList(removedPositions)); //$NON-NLS-1$
@@ -373,11 +517,11 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		// TODO: double-check consistency with document.getPositions(...)
 		// TODO: reuse removed positions
 		if (isCanceled())
-			return;
+			return false;
 
 		IDocument document= fSourceViewer.getDocument();
 		if (document == null)
-			return;
+			return false;
 
 		String positionCategory= getPositionCategory();
 
@@ -440,9 +584,11 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		} catch (BadPositionCategoryException e) {
 			// Should not happen
 			JavaPlugin.log(e);
+			return false;
 		} catch (BadLocationException e) {
 			// Should not happen
 			JavaPlugin.log(e);
+			return false;
 		}
 //		checkOrdering("new positions: ", fPositions); //$NON-NLS-1$
 
@@ -450,6 +596,7 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 			fSourceViewer.changeTextPresentation(textPresentation, false);
 		else
 			fSourceViewer.invalidateTextPresentation();
+		return true;
 	}
 
 //	private void checkOrdering(String s, List positions) {
@@ -597,6 +744,21 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 	 */
 	@Override
 	public void documentChanged(DocumentEvent event) {
+		int offset= event.getOffset();
+		int oldEnd= offset + event.getLength();
+		int newEnd= offset + (event.getText() == null ? 0 : event.getText().length());
+		int delta= newEnd - oldEnd;
+		synchronized (fDirtyRegionLock) {
+			fChangeCount++;
+			if (fDirtyStart == -1) {
+				fDirtyStart= offset;
+				fDirtyEnd= newEnd;
+			} else {
+				// shift the boundaries behind the replaced text, clip those inside it and extend to the new text
+				fDirtyStart= Math.min(fDirtyStart >= oldEnd ? fDirtyStart + delta : fDirtyStart, offset);
+				fDirtyEnd= Math.max(fDirtyEnd >= oldEnd ? fDirtyEnd + delta : Math.min(fDirtyEnd, offset), newEnd);
+			}
+		}
 	}
 
 	/**
@@ -740,6 +902,11 @@ public class SemanticHighlightingPresenter implements ITextPresentationListener,
 		synchronized (fPositionLock) {
 			fPositions.clear();
 		}
+		synchronized (fDirtyRegionLock) {
+			fDirtyStart= -1;
+			fDirtyEnd= -1;
+			fIsFullReconcileRequired= true;
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,7 +23,9 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.ISourceViewer;
@@ -32,18 +34,22 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
 
 import org.eclipse.jdt.internal.corext.dom.GenericVisitor;
 
+import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.SharedASTProvider;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
@@ -73,6 +79,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		@Override
 		protected boolean visitNode(ASTNode node) {
+			if (!intersectsRanges(node.getStartPosition(), node.getLength()) || fJobMonitor != null && fJobMonitor.isCanceled())
+				return false;
 			if ((node.getFlags() & ASTNode.MALFORMED) == ASTNode.MALFORMED) {
 				retainPositions(node.getStartPosition(), node.getLength());
 				return false;
@@ -185,9 +193,14 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param highlighting The highlighting
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
+			if (!containsOffset(offset))
+				return;
+
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(offset), n= fCandidatePositions.length; i < n; i++) {
+				Position candidate= fCandidatePositions[i];
+				if (candidate.getOffset() != offset)
+					break;
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position == null)
 					continue;
@@ -211,8 +224,9 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			for (int i= computeIndexAtOffset(offset), n= fCandidatePositions.length; i < n; i++) {
+				if (fCandidatePositions[i].getOffset() > offset + length)
+					break;
 				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position != null && position.isContained(offset, length)) {
 					fRemovedPositions.set(i, null);
@@ -220,6 +234,108 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				}
 			}
 		}
+
+		/**
+		 * Returns the index of the first candidate position with an offset equal or greater than the given offset.
+		 *
+		 * @param offset the offset
+		 * @return the index of the first candidate position with an offset equal or greater than the given offset
+		 * @since 3.14
+		 */
+		private int computeIndexAtOffset(int offset) {
+			int i= -1;
+			int j= fCandidatePositions.length;
+			while (j - i > 1) {
+				int k= (i + j) >> 1;
+				if (fCandidatePositions[k].getOffset() >= offset)
+					j= k;
+				else
+					i= k;
+			}
+			return j;
+		}
+
+		/**
+		 * Tells whether the given range intersects the ranges of the current reconcile.
+		 *
+		 * @param offset The range offset
+		 * @param length The range length
+		 * @return <code>true</code> iff the range intersects the reconciled ranges
+		 * @since 3.14
+		 */
+		private boolean intersectsRanges(int offset, int length) {
+			if (fJobRanges == null)
+				return true;
+			for (int i= 0; i < fJobRanges.length; i+= 2) {
+				if (offset <= fJobRanges[i + 1] && offset + length >= fJobRanges[i])
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Tells whether the given offset is inside the ranges of the current reconcile.
+		 *
+		 * @param offset The offset
+		 * @return <code>true</code> iff the offset is inside the reconciled ranges
+		 * @since 3.14
+		 */
+		private boolean containsOffset(int offset) {
+			if (fJobRanges == null)
+				return true;
+			for (int i= 0; i < fJobRanges.length; i+= 2) {
+				if (fJobRanges[i] <= offset && offset < fJobRanges[i + 1])
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Background job highlighting the parts of a large document that were not visible
+	 * when the document was reconciled.
+	 *
+	 * @since 3.14
+	 */
+	private class RemainderJob extends Job {
+
+		/** The reconciled AST */
+		private final CompilationUnit fAST;
+		/** The document ranges to highlight */
+		private final int[] fRanges;
+		/** The document change count before the reconcile started */
+		private final int fChangeCount;
+
+		/**
+		 * Creates a new job.
+		 *
+		 * @param ast the reconciled AST
+		 * @param ranges the document ranges to highlight
+		 * @param changeCount the document change count before the reconcile started
+		 */
+		public RemainderJob(CompilationUnit ast, int[] ranges, int changeCount) {
+			super(JavaEditorMessages.SemanticHighlighting_job);
+			fAST= ast;
+			fRanges= ranges;
+			fChangeCount= changeCount;
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (!beginReconcile())
+				return Status.CANCEL_STATUS;
+			try {
+				if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
+					return Status.CANCEL_STATUS;
+				if (!monitor.isCanceled() && !fJobPresenter.isCanceled())
+					reconcile(new ASTNode[] { fAST }, fRanges, fChangeCount, monitor);
+			} finally {
+				endReconcile();
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
 	}
 
 	/** Position collector */
@@ -242,9 +358,25 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Background job's candidate positions, ordered by offset; the removed positions at the same
+	 * indices are set to <code>null</code> once they are found in the AST.
+	 * @since 3.14
+	 */
+	private Position[] fCandidatePositions= new Position[0];
+	/**
+	 * Number of body declarations of the last reconciled AST, <code>-1</code> if unknown.
+	 * @since 3.14
+	 */
+	private int fMemberCount= -1;
 
 	/** Background job */
 	private Job fJob;
+	/**
+	 * Background job highlighting the parts of the document that were not visible, guarded by {@link #fJobLock}.
+	 * @since 3.14
+	 */
+	private Job fRemainderJob;
 	/** Background job lock */
 	private final Object fJobLock= new Object();
 	/**
@@ -271,6 +403,33 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.5
 	 */
 	private Highlighting fJobDeprecatedMemberHighlighting;
+	/**
+	 * Document ranges as pairs of start and end offsets - cache for background thread, only valid during
+	 * {@link #reconcile(ASTNode[], int[], int, IProgressMonitor)}; <code>null</code> for no restriction.
+	 * @since 3.14
+	 */
+	private int[] fJobRanges;
+	/**
+	 * Progress monitor - cache for background thread, only valid during {@link #reconcile(ASTNode[], int[], int, IProgressMonitor)}
+	 * @since 3.14
+	 */
+	private IProgressMonitor fJobMonitor;
+
+	/**
+	 * Start offset of the visible document range, <code>-1</code> if unknown.
+	 * @since 3.14
+	 */
+	private volatile int fVisibleStart= -1;
+	/**
+	 * End offset of the visible document range, <code>-1</code> if unknown.
+	 * @since 3.14
+	 */
+	private volatile int fVisibleEnd= -1;
+	/**
+	 * Tracks the visible document range.
+	 * @since 3.14
+	 */
+	private IViewportListener fViewportListener;
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#aboutToBeReconciled()
@@ -285,16 +444,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 */
 	@Override
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
+		cancelRemainderJob();
+
 		// ensure at most one thread can be reconciling at any time
-		synchronized (fReconcileLock) {
-			if (fIsReconciling)
-				return;
-			else
-				fIsReconciling= true;
-		}
-		fJobPresenter= fPresenter;
-		fJobSemanticHighlightings= fSemanticHighlightings;
-		fJobHighlightings= fHighlightings;
+		if (!beginReconcile())
+			return;
 
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
@@ -305,13 +459,78 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			int changeCount= fJobPresenter.getChangeCount();
+			ASTNode[] subtrees= getAffectedSubtrees(ast, forced ? null : fJobPresenter.getDirtyRegion());
 			if (subtrees.length == 0)
 				return;
 
-			startReconcilingPositions();
+			int[] visibleRange= subtrees[0] == ast ? getVisibleRange() : null;
+			if (visibleRange == null) {
+				reconcile(subtrees, null, changeCount, progressMonitor);
+			} else {
+				// publish the visible part first and leave the changes unreconciled until the rest is done
+				reconcile(subtrees, visibleRange, -1, progressMonitor);
+				if (!fJobPresenter.isCanceled() && !progressMonitor.isCanceled())
+					scheduleRemainderJob(ast, new int[] { 0, visibleRange[0], visibleRange[1], Integer.MAX_VALUE }, changeCount);
+			}
+		} finally {
+			endReconcile();
+		}
+	}
 
-			if (!fJobPresenter.isCanceled()) {
+	/**
+	 * Marks the start of a reconcile and caches the state for the background thread.
+	 *
+	 * @return <code>true</code> if the reconcile can start, <code>false</code> if another
+	 *         thread is already reconciling
+	 * @since 3.14
+	 */
+	private boolean beginReconcile() {
+		synchronized (fReconcileLock) {
+			if (fIsReconciling)
+				return false;
+			else
+				fIsReconciling= true;
+		}
+		fJobPresenter= fPresenter;
+		fJobSemanticHighlightings= fSemanticHighlightings;
+		fJobHighlightings= fHighlightings;
+		return true;
+	}
+
+	/**
+	 * Marks the end of a reconcile started by {@link #beginReconcile()}.
+	 *
+	 * @since 3.14
+	 */
+	private void endReconcile() {
+		fJobPresenter= null;
+		fJobSemanticHighlightings= null;
+		fJobHighlightings= null;
+		fJobDeprecatedMemberHighlighting= null;
+		synchronized (fReconcileLock) {
+			fIsReconciling= false;
+		}
+	}
+
+	/**
+	 * Reconciles the positions in the given subtrees and publishes them.
+	 *
+	 * @param subtrees the AST subtrees
+	 * @param ranges the document ranges to reconcile as pairs of start and end offsets, or
+	 *            <code>null</code> to reconcile the whole subtrees
+	 * @param changeCount the document change count before the reconcile started, or <code>-1</code>
+	 *            if the document changes should not be marked reconciled
+	 * @param progressMonitor the progress monitor
+	 * @since 3.14
+	 */
+	private void reconcile(ASTNode[] subtrees, int[] ranges, int changeCount, IProgressMonitor progressMonitor) {
+		fJobRanges= ranges;
+		fJobMonitor= progressMonitor;
+		try {
+			startReconcilingPositions(subtrees);
+
+			if (!isCanceled()) {
 				fJobDeprecatedMemberHighlighting= null;
 				for (int i= 0, n= fJobSemanticHighlightings.length; i < n; i++) {
 					SemanticHighlighting semanticHighlighting= fJobSemanticHighlightings[i];
@@ -324,39 +543,190 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			}
 
 			TextPresentation textPresentation= null;
-			if (!fJobPresenter.isCanceled())
+			if (!isCanceled())
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
-			if (!fJobPresenter.isCanceled())
-				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+			if (!isCanceled())
+				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions, changeCount);
 
 			stopReconcilingPositions();
 		} finally {
-			fJobPresenter= null;
-			fJobSemanticHighlightings= null;
-			fJobHighlightings= null;
-			fJobDeprecatedMemberHighlighting= null;
-			synchronized (fReconcileLock) {
-				fIsReconciling= false;
+			fJobRanges= null;
+			fJobMonitor= null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> iff the current reconcile is canceled
+	 * @since 3.14
+	 */
+	private boolean isCanceled() {
+		return fJobPresenter.isCanceled() || fJobMonitor != null && fJobMonitor.isCanceled();
+	}
+
+	/**
+	 * Returns the visible document range if the document is large enough to be highlighted
+	 * visible part first.
+	 *
+	 * @return the visible range as start and end offset, or <code>null</code>
+	 * @since 3.14
+	 * @see PreferenceConstants#EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD
+	 */
+	private int[] getVisibleRange() {
+		ISourceViewer sourceViewer= fSourceViewer;
+		IDocument document= sourceViewer != null ? sourceViewer.getDocument() : null;
+		if (document == null)
+			return null;
+
+		int threshold= PreferenceConstants.getPreferenceStore().getInt(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD);
+		if (threshold <= 0 || document.getLength() < threshold)
+			return null;
+
+		int start= fVisibleStart;
+		int end= fVisibleEnd;
+		if (start < 0 || end <= start || end > document.getLength())
+			return null;
+		return new int[] { start, end };
+	}
+
+	/**
+	 * Updates the visible document range from the source viewer.
+	 * <p>
+	 * NOTE: Called from UI thread.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	private void updateVisibleRange() {
+		ISourceViewer sourceViewer= fSourceViewer;
+		if (sourceViewer == null || sourceViewer.getTextWidget() == null || sourceViewer.getTextWidget().isDisposed())
+			return;
+		fVisibleStart= sourceViewer.getTopIndexStartOffset();
+		fVisibleEnd= sourceViewer.getBottomIndexEndOffset() + 1;
+	}
+
+	/**
+	 * Schedules a low priority job highlighting the given ranges of the given AST.
+	 *
+	 * @param ast the AST
+	 * @param ranges the document ranges as pairs of start and end offsets
+	 * @param changeCount the document change count before the reconcile started
+	 * @since 3.14
+	 */
+	private void scheduleRemainderJob(CompilationUnit ast, int[] ranges, int changeCount) {
+		synchronized (fJobLock) {
+			if (fRemainderJob != null)
+				fRemainderJob.cancel();
+			fRemainderJob= new RemainderJob(ast, ranges, changeCount);
+			fRemainderJob.schedule();
+		}
+	}
+
+	/**
+	 * Cancels the pending remainder job and waits until it is done.
+	 *
+	 * @since 3.14
+	 */
+	private void cancelRemainderJob() {
+		Job job;
+		synchronized (fJobLock) {
+			job= fRemainderJob;
+			fRemainderJob= null;
+		}
+		if (job != null) {
+			job.cancel();
+			try {
+				job.join();
+			} catch (InterruptedException e) {
+				JavaPlugin.log(e);
 			}
 		}
 	}
 
 	/**
-	 * @param node Root node
+	 * Returns the subtrees that may be affected by the document changes since the last reconcile.
+	 * <p>
+	 * If all changes are inside a single method or initializer body and the structure of the
+	 * compilation unit did not change, only that body has to be revisited: the highlighting of
+	 * names outside of it cannot depend on it. Otherwise the whole AST is returned.
+	 * </p>
+	 *
+	 * @param ast the AST
+	 * @param dirtyRegion the changed document range or <code>null</code> if unknown
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, IRegion dirtyRegion) {
+		int memberCount= countMembers(ast.types());
+		boolean isStructureUnchanged= memberCount == fMemberCount;
+		fMemberCount= memberCount;
+
+		if (dirtyRegion != null && isStructureUnchanged) {
+			Block body= getEnclosingBody(ast, dirtyRegion);
+			if (body != null)
+				return new ASTNode[] { body };
+		}
+
+		fJobPresenter.requestFullReconcile();
+		return new ASTNode[] { ast };
+	}
+
+	/**
+	 * Returns the outermost method or initializer body that strictly encloses the given range.
+	 *
+	 * @param ast the AST
+	 * @param region the range
+	 * @return the body or <code>null</code> if there is none or if it is part of a recovered or malformed subtree
+	 * @since 3.14
+	 */
+	private static Block getEnclosingBody(CompilationUnit ast, IRegion region) {
+		Block body= null;
+		for (ASTNode node= NodeFinder.perform(ast, region.getOffset(), region.getLength()); node != null; node= node.getParent()) {
+			if ((node.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) != 0)
+				return null;
+			ASTNode parent= node.getParent();
+			if (node instanceof Block && parent != null && (parent.getNodeType() == ASTNode.METHOD_DECLARATION || parent.getNodeType() == ASTNode.INITIALIZER))
+				body= (Block) node;
+		}
+
+		// the changes must not touch the braces
+		if (body == null || region.getOffset() <= body.getStartPosition() || region.getOffset() + region.getLength() >= body.getStartPosition() + body.getLength())
+			return null;
+		return body;
+	}
+
+	/**
+	 * Counts the given declarations and the body declarations of the contained types.
+	 *
+	 * @param declarations the type or body declarations
+	 * @return the number of declarations
+	 * @since 3.14
+	 */
+	private static int countMembers(List<?> declarations) {
+		int count= declarations.size();
+		for (Object declaration : declarations) {
+			if (declaration instanceof AbstractTypeDeclaration)
+				count+= countMembers(((AbstractTypeDeclaration) declaration).bodyDeclarations());
+		}
+		return count;
 	}
 
 	/**
 	 * Start reconciling positions.
+	 *
+	 * @param subtrees the AST subtrees
 	 */
-	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+	private void startReconcilingPositions(ASTNode[] subtrees) {
+		if (fJobRanges != null) {
+			for (int i= 0; i < fJobRanges.length; i+= 2)
+				fJobPresenter.addPositions(fRemovedPositions, fJobRanges[i], fJobRanges[i + 1] - fJobRanges[i]);
+		} else if (subtrees.length == 1 && subtrees[0] instanceof CompilationUnit) {
+			fJobPresenter.addAllPositions(fRemovedPositions);
+		} else {
+			for (int i= 0, n= subtrees.length; i < n; i++)
+				fJobPresenter.addPositions(fRemovedPositions, subtrees[i].getStartPosition(), subtrees[i].getLength());
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
+		fCandidatePositions= fRemovedPositions.toArray(new Position[fNOfRemovedPositions]);
 	}
 
 	/**
@@ -365,10 +735,6 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
-
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
@@ -387,9 +753,10 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param textPresentation the text presentation
 	 * @param addedPositions the added positions
 	 * @param removedPositions the removed positions
+	 * @param changeCount the document change count before the reconcile started
 	 */
-	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions, int changeCount) {
+		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions, changeCount);
 		if (runnable == null)
 			return;
 
@@ -418,6 +785,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private void stopReconcilingPositions() {
 		fRemovedPositions.clear();
 		fNOfRemovedPositions= 0;
+		fCandidatePositions= new Position[0];
 		fAddedPositions.clear();
 	}
 
@@ -437,6 +805,15 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		fEditor= editor;
 		fSourceViewer= sourceViewer;
 
+		fViewportListener= new IViewportListener() {
+			@Override
+			public void viewportChanged(int verticalOffset) {
+				updateVisibleRange();
+			}
+		};
+		fSourceViewer.addViewportListener(fViewportListener);
+		updateVisibleRange();
+
 		if (fEditor instanceof CompilationUnitEditor) {
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
 		} else if (fEditor == null) {
@@ -452,6 +829,18 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		if (fPresenter != null)
 			fPresenter.setCanceled(true);
 
+		synchronized (fJobLock) {
+			if (fRemainderJob != null) {
+				fRemainderJob.cancel();
+				fRemainderJob= null;
+			}
+		}
+
+		if (fViewportListener != null) {
+			fSourceViewer.removeViewportListener(fViewportListener);
+			fViewportListener= null;
+		}
+
 		if (fEditor != null) {
 			if (fEditor instanceof CompilationUnitEditor)
 				((CompilationUnitEditor)fEditor).removeReconcileListener(this);
@@ -520,6 +909,10 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				fJob.cancel();
 				fJob= null;
 			}
+			if (fRemainderJob != null) {
+				fRemainderJob.cancel();
+				fRemainderJob= null;
+			}
 		}
 	}
 
@@ -538,6 +931,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @since 3.2
 	 */
 	public void refresh() {
+		if (fPresenter != null)
+			fPresenter.requestFullReconcile();
 		scheduleJob();
 	}
 }
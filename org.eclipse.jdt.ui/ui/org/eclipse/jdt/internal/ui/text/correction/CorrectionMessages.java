@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -302,6 +302,7 @@ public final class CorrectionMessages extends NLS {
 	public static String JavaCorrectionProcessor_error_quickfix_message;
 	public static String JavaCorrectionProcessor_error_status;
 	public static String JavaCorrectionProcessor_error_quickassist_message;
+	public static String JavaCorrectionProcessor_processor_dropped;
 	public static String JavaCorrectionProcessor_go_to_closest_using_menu;
 	public static String JavaCorrectionProcessor_go_to_closest_using_key;
 	public static String JavaCorrectionProcessor_go_to_original_using_menu;
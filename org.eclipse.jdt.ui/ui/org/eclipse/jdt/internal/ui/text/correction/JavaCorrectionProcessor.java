@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,15 +14,24 @@ package org.eclipse.jdt.internal.ui.text.correction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.swt.widgets.Display;
+
 import org.eclipse.core.resources.IMarker;
 
 import org.eclipse.jface.text.Position;
@@ -49,8 +58,10 @@ import org.eclipse.ltk.core.refactoring.NullChange;
 import org.eclipse.jdt.core.ICompilationUnit;
 
 import org.eclipse.jdt.internal.corext.util.Messages;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.java.CompletionProposalComparator;
 import org.eclipse.jdt.ui.text.java.IInvocationContext;
 import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
@@ -72,6 +83,19 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 	private static ContributedProcessorDescriptor[] fgContributedAssistProcessors= null;
 	private static ContributedProcessorDescriptor[] fgContributedCorrectionProcessors= null;
 
+	/**
+	 * The default time in milliseconds all processors evaluated concurrently have to compute their
+	 * proposals. The proposals of processors that take longer are dropped.
+	 */
+	private static final long MAX_DELAY= 2000;
+
+	private static volatile long fgMaxDelay= MAX_DELAY;
+
+	/**
+	 * The pool evaluating the processors concurrently, or <code>null</code> if not yet created.
+	 */
+	private static WorkerPool fgWorkerPool;
+
 	private static ContributedProcessorDescriptor[] getProcessorDescriptors(String contributionId, boolean testMarkerTypes) {
 		IConfigurationElement[] elements= Platform.getExtensionRegistry().getConfigurationElementsFor(JavaUI.ID_PLUGIN, contributionId);
 		ArrayList<ContributedProcessorDescriptor> res= new ArrayList<>(elements.length);
@@ -381,7 +405,13 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		public void safeRun(ContributedProcessorDescriptor desc) throws Exception {
 			IQuickFixProcessor curr= (IQuickFixProcessor) desc.getProcessor(fContext.getCompilationUnit(), IQuickFixProcessor.class);
 			if (curr != null) {
-				IJavaCompletionProposal[] res= curr.getCorrections(fContext, fLocations);
+				IJavaCompletionProposal[] res;
+				long start= System.nanoTime();
+				try {
+					res= curr.getCorrections(fContext, fLocations);
+				} finally {
+					JavaPlugin.getDefault().getContentAssistLatencyStats().recordProcessor(desc.getId(), System.nanoTime() - start);
+				}
 				if (res != null) {
 					for (int k= 0; k < res.length; k++) {
 						fProposals.add(res[k]);
@@ -406,7 +436,13 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		public void safeRun(ContributedProcessorDescriptor desc) throws Exception {
 			IQuickAssistProcessor curr= (IQuickAssistProcessor) desc.getProcessor(fContext.getCompilationUnit(), IQuickAssistProcessor.class);
 			if (curr != null) {
-				IJavaCompletionProposal[] res= curr.getAssists(fContext, fLocations);
+				IJavaCompletionProposal[] res;
+				long start= System.nanoTime();
+				try {
+					res= curr.getAssists(fContext, fLocations);
+				} finally {
+					JavaPlugin.getDefault().getContentAssistLatencyStats().recordProcessor(desc.getId(), System.nanoTime() - start);
+				}
 				if (res != null) {
 					for (int k= 0; k < res.length; k++) {
 						fProposals.add(res[k]);
@@ -465,6 +501,23 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 
 	public static IStatus collectCorrections(IInvocationContext context, IProblemLocation[] locations, Collection<IJavaCompletionProposal> proposals) {
 		ContributedProcessorDescriptor[] processors= getCorrectionProcessors();
+		if (processors.length > 1 && isEvaluatingConcurrently()) {
+			List<ContributedProcessorDescriptor> handling= new ArrayList<>(processors.length);
+			List<SafeCorrectionProcessorAccess> collectors= new ArrayList<>(processors.length);
+			List<List<IJavaCompletionProposal>> results= new ArrayList<>(processors.length);
+			for (int i= 0; i < processors.length; i++) {
+				IProblemLocation[] handled= getHandledProblems(locations, processors[i]);
+				if (handled != null) {
+					List<IJavaCompletionProposal> result= new ArrayList<>();
+					SafeCorrectionCollector collector= new SafeCorrectionCollector(context, result);
+					collector.setProblemLocations(handled);
+					handling.add(processors[i]);
+					collectors.add(collector);
+					results.add(result);
+				}
+			}
+			return processConcurrently(context, handling, collectors, results, proposals);
+		}
 		SafeCorrectionCollector collector= new SafeCorrectionCollector(context, proposals);
 		for (int i= 0; i < processors.length; i++) {
 			ContributedProcessorDescriptor curr= processors[i];
@@ -511,12 +564,119 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 
 	public static IStatus collectAssists(IInvocationContext context, IProblemLocation[] locations, Collection<IJavaCompletionProposal> proposals) {
 		ContributedProcessorDescriptor[] processors= getAssistProcessors();
+		if (processors.length > 1 && isEvaluatingConcurrently()) {
+			List<SafeCorrectionProcessorAccess> collectors= new ArrayList<>(processors.length);
+			List<List<IJavaCompletionProposal>> results= new ArrayList<>(processors.length);
+			for (int i= 0; i < processors.length; i++) {
+				List<IJavaCompletionProposal> result= new ArrayList<>();
+				collectors.add(new SafeAssistCollector(context, locations, result));
+				results.add(result);
+			}
+			return processConcurrently(context, Arrays.asList(processors), collectors, results, proposals);
+		}
 		SafeAssistCollector collector= new SafeAssistCollector(context, locations, proposals);
 		collector.process(processors);
 
 		return collector.getStatus();
 	}
 
+	private static boolean isEvaluatingConcurrently() {
+		return JavaPlugin.getDefault().getPreferenceStore().getBoolean(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS);
+	}
+
+	/**
+	 * Sets the time in milliseconds all processors evaluated concurrently have to compute their
+	 * proposals. Used by tests.
+	 *
+	 * @param maxDelay the time in milliseconds, or a negative value to restore the default
+	 * @return the previous time in milliseconds
+	 */
+	public static long setMaxDelay(long maxDelay) {
+		long previous= fgMaxDelay;
+		fgMaxDelay= maxDelay < 0 ? MAX_DELAY : maxDelay;
+		return previous;
+	}
+
+	/**
+	 * Evaluates the given processors concurrently, each with its own collector. All processors
+	 * share the AST of the context, which is created before the evaluation starts. The proposals
+	 * of processors that do not finish within the time budget are dropped and logged. Processors
+	 * that have not started when the budget is exceeded are skipped.
+	 *
+	 * @param context the invocation context
+	 * @param processors the processors
+	 * @param collectors the collector of each processor
+	 * @param results the list each collector adds its proposals to
+	 * @param proposals the collection to add the proposals of all processors to, in the order of
+	 *            the processors
+	 * @return the status of the evaluation
+	 */
+	private static IStatus processConcurrently(IInvocationContext context, List<ContributedProcessorDescriptor> processors, List<SafeCorrectionProcessorAccess> collectors,
+			List<List<IJavaCompletionProposal>> results, Collection<IJavaCompletionProposal> proposals) {
+		context.getASTRoot();
+		if (Display.getCurrent() != null) {
+			// processors get their images from the registry, which can only be created in the UI thread
+			JavaPlugin.getDefault().getImageRegistry();
+		}
+
+		long maxDelay= fgMaxDelay;
+		long deadline= System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelay);
+		IProgressMonitor monitor= new NullProgressMonitor();
+		int size= processors.size();
+		List<Future<?>> futures= new ArrayList<>(size);
+		for (int i= 0; i < size; i++) {
+			ContributedProcessorDescriptor processor= processors.get(i);
+			SafeCorrectionProcessorAccess collector= collectors.get(i);
+			futures.add(getWorkerPool().submit(() -> {
+				if (!monitor.isCanceled())
+					collector.process(processor);
+			}));
+		}
+
+		MultiStatus status= null;
+		boolean interrupted= false;
+		for (int i= 0; i < size; i++) {
+			Future<?> future= futures.get(i);
+			boolean done= false;
+			try {
+				if (!interrupted) {
+					future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+					done= true;
+				}
+			} catch (TimeoutException e) {
+				monitor.setCanceled(true);
+				JavaPlugin.log(new Status(IStatus.WARNING, JavaUI.ID_PLUGIN, Messages.format(CorrectionMessages.JavaCorrectionProcessor_processor_dropped,
+						new Object[] { processors.get(i).getId(), Long.valueOf(maxDelay) })));
+			} catch (ExecutionException e) {
+				JavaPlugin.log(e.getCause());
+			} catch (InterruptedException e) {
+				monitor.setCanceled(true);
+				interrupted= true;
+			}
+			if (!done) {
+				future.cancel(false);
+				continue;
+			}
+			proposals.addAll(results.get(i));
+			IStatus collectorStatus= collectors.get(i).getStatus();
+			if (!collectorStatus.isOK()) {
+				if (status == null)
+					status= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.OK, CorrectionMessages.JavaCorrectionProcessor_error_status, null);
+				status.merge(collectorStatus);
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return status != null ? status : Status.OK_STATUS;
+	}
+
+	private static synchronized WorkerPool getWorkerPool() {
+		if (fgWorkerPool == null) {
+			fgWorkerPool= new WorkerPool("Quick Fix Worker", Math.max(2, Runtime.getRuntime().availableProcessors())); //$NON-NLS-1$
+		}
+		return fgWorkerPool;
+	}
+
 	/*
 	 * @see IContentAssistProcessor#getErrorMessage()
 	 */
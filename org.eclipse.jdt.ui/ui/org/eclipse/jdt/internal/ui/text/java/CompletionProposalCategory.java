@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -413,4 +413,42 @@ public final class CompletionProposalCategory {
 	public boolean isSortingAfterFilteringNeeded() {
 		return fNeedsSortingAfterFiltering;
 	}
+
+	/**
+	 * Returns whether any completion proposal computer of this category that contributes to the
+	 * given partition must be called in the UI thread.
+	 *
+	 * @param partition the partition type where the invocation occurred
+	 * @return <code>true</code> if the proposals of this category must be computed in the UI
+	 *         thread
+	 * @since 3.14
+	 */
+	public boolean requiresUIThread(String partition) {
+		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition));
+		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (desc.getCategory() == this && desc.requiresUIThread())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns how long the computation of this category's proposals for the given partition may
+	 * take when it runs concurrently with other categories. Every computer of this category that
+	 * contributes to the partition is granted {@link CompletionProposalComputerDescriptor#MAX_DELAY},
+	 * the delay after which the computer is reported as slow.
+	 *
+	 * @param partition the partition type where the invocation occurred
+	 * @return the maximum delay in milliseconds
+	 * @since 3.14
+	 */
+	public long getMaxDelay(String partition) {
+		int count= 0;
+		List<CompletionProposalComputerDescriptor> descriptors= new ArrayList<>(fRegistry.getProposalComputerDescriptors(partition));
+		for (CompletionProposalComputerDescriptor desc : descriptors) {
+			if (desc.getCategory() == this)
+				count++;
+		}
+		return Math.max(1, count) * CompletionProposalComputerDescriptor.MAX_DELAY;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -334,6 +334,10 @@ public final class ContentAssistHistory {
 		UNCACHEABLE= Collections.unmodifiableSet(uncacheable);
 	}
 
+	/**
+	 * Access ordered, so lookups modify it too. Guarded by this history because content assist
+	 * categories may read it concurrently.
+	 */
 	private final LinkedHashMap<String, MRUSet<String>> fLHSCache;
 	private final int fMaxLHS;
 	private final int fMaxRHS;
@@ -396,7 +400,7 @@ public final class ContentAssistHistory {
 	 *        requested, or <code>null</code>
 	 * @return the right hand side history for the given type
 	 */
-	public RHSHistory getHistory(String lhs) {
+	public synchronized RHSHistory getHistory(String lhs) {
 		MRUSet<String> rhsCache= fLHSCache.get(lhs);
 		if (rhsCache != null) {
 			int count= rhsCache.size();
@@ -417,7 +421,7 @@ public final class ContentAssistHistory {
 	 *
 	 * @return the set of remembered right hand sides ordered by least recent selection
 	 */
-	public Map<String, RHSHistory> getEntireHistory() {
+	public synchronized Map<String, RHSHistory> getEntireHistory() {
 		HashMap<String, RHSHistory> map= new HashMap<>((int) (fLHSCache.size() / 0.75));
 		for ( Iterator<Entry<String, MRUSet<String>>> it= fLHSCache.entrySet().iterator(); it.hasNext();) {
 			Entry<String, MRUSet<String>> entry= it.next();
@@ -427,7 +431,7 @@ public final class ContentAssistHistory {
 		return Collections.unmodifiableMap(map);
 	}
 
-	private void rememberInternal(IType lhs, String rhsQualifiedName) throws JavaModelException {
+	private synchronized void rememberInternal(IType lhs, String rhsQualifiedName) throws JavaModelException {
 		String lhsQualifiedName= lhs.getFullyQualifiedName();
 		if (isCacheableLHS(lhs, lhsQualifiedName))
 			getCache(lhsQualifiedName).add(rhsQualifiedName);
@@ -0,0 +1,534 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.java;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Latency histograms of content assist invocations, per processing phase and per completion
+ * proposal computer, and of the quick fix and quick assist processors.
+ * <p>
+ * Recording is cheap and lock-free, so the statistics are always collected. They can be written
+ * as a JSON document, see {@link #write(File, String)}, and the statistics of earlier sessions
+ * of the same version can be added back from such a document, see {@link #read(File, String)}.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class ContentAssistLatencyStats {
+
+	/** Phase in which the invocation context is created. */
+	public static final String PHASE_SETUP= "setup"; //$NON-NLS-1$
+	/** Phase in which the proposals are collected from the categories. */
+	public static final String PHASE_COLLECT= "collect"; //$NON-NLS-1$
+	/** Phase in which the collected proposals are filtered and sorted. */
+	public static final String PHASE_SORT= "sort"; //$NON-NLS-1$
+	/** The whole proposal computation. */
+	public static final String PHASE_TOTAL= "total"; //$NON-NLS-1$
+
+	/**
+	 * The number of buckets of a histogram. Bucket 0 counts latencies below 1 ms, bucket
+	 * <code>i</code> counts latencies in [2<sup>i-1</sup>, 2<sup>i</sup>) ms, and the last bucket
+	 * counts all longer latencies.
+	 */
+	static final int BUCKET_COUNT= 18;
+
+	/** The name of the file the statistics are written to in the plug-in state location. */
+	public static final String FILE_NAME= "content_assist_latency.json"; //$NON-NLS-1$
+
+	/**
+	 * A histogram of latencies with buckets of exponentially growing width.
+	 */
+	public static final class Histogram {
+
+		private final AtomicLongArray fBuckets= new AtomicLongArray(BUCKET_COUNT);
+
+		private final AtomicLong fCount= new AtomicLong();
+
+		private final AtomicLong fTotalNanos= new AtomicLong();
+
+		private final AtomicLong fMaxNanos= new AtomicLong();
+
+		Histogram() {
+		}
+
+		void record(long nanos) {
+			if (nanos < 0)
+				nanos= 0;
+			fBuckets.incrementAndGet(getBucket(nanos / 1000000));
+			fCount.incrementAndGet();
+			fTotalNanos.addAndGet(nanos);
+			long max;
+			while ((max= fMaxNanos.get()) < nanos && !fMaxNanos.compareAndSet(max, nanos)) {
+				// retry
+			}
+		}
+
+		/**
+		 * Returns the number of recorded latencies.
+		 *
+		 * @return the number of recorded latencies
+		 */
+		public long getCount() {
+			return fCount.get();
+		}
+
+		/**
+		 * Returns the number of recorded latencies in the given bucket.
+		 *
+		 * @param bucket the bucket index
+		 * @return the number of recorded latencies in the bucket
+		 */
+		public long getBucketCount(int bucket) {
+			return fBuckets.get(bucket);
+		}
+
+		/**
+		 * Returns the sum of the recorded latencies.
+		 *
+		 * @return the sum of the recorded latencies in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return fTotalNanos.get();
+		}
+
+		/**
+		 * Returns the longest recorded latency.
+		 *
+		 * @return the longest recorded latency in nanoseconds
+		 */
+		public long getMaxNanos() {
+			return fMaxNanos.get();
+		}
+
+		void add(long count, long totalNanos, long maxNanos, long[] buckets) {
+			for (int i= 0; i < BUCKET_COUNT; i++)
+				fBuckets.addAndGet(i, buckets[i]);
+			fCount.addAndGet(count);
+			fTotalNanos.addAndGet(totalNanos);
+			long max;
+			while ((max= fMaxNanos.get()) < maxNanos && !fMaxNanos.compareAndSet(max, maxNanos)) {
+				// retry
+			}
+		}
+
+		void appendTo(StringBuilder buf) {
+			buf.append("{\"count\": ").append(getCount()); //$NON-NLS-1$
+			buf.append(", \"totalNanos\": ").append(getTotalNanos()); //$NON-NLS-1$
+			buf.append(", \"maxNanos\": ").append(getMaxNanos()); //$NON-NLS-1$
+			buf.append(", \"buckets\": ["); //$NON-NLS-1$
+			for (int i= 0; i < BUCKET_COUNT; i++) {
+				if (i > 0)
+					buf.append(", "); //$NON-NLS-1$
+				buf.append(getBucketCount(i));
+			}
+			buf.append("]}"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the histogram bucket of the given latency.
+	 *
+	 * @param millis the latency in milliseconds
+	 * @return the bucket index
+	 */
+	static int getBucket(long millis) {
+		if (millis <= 0)
+			return 0;
+		int bucket= 64 - Long.numberOfLeadingZeros(millis);
+		return Math.min(bucket, BUCKET_COUNT - 1);
+	}
+
+	private final ConcurrentHashMap<String, Histogram> fPhases= new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Histogram> fComputers= new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Histogram> fProcessors= new ConcurrentHashMap<>();
+
+	/**
+	 * Records the latency of a processing phase.
+	 *
+	 * @param phase the phase, e.g. {@link #PHASE_COLLECT}
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordPhase(String phase, long nanos) {
+		getHistogram(fPhases, phase).record(nanos);
+	}
+
+	/**
+	 * Records the latency of a completion proposal computer.
+	 *
+	 * @param computerId the id of the computer's extension
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordComputer(String computerId, long nanos) {
+		getHistogram(fComputers, computerId).record(nanos);
+	}
+
+	/**
+	 * Records the latency of a quick fix or quick assist processor.
+	 *
+	 * @param processorId the id of the processor's extension
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordProcessor(String processorId, long nanos) {
+		getHistogram(fProcessors, processorId).record(nanos);
+	}
+
+	/**
+	 * Returns the histogram of a processing phase.
+	 *
+	 * @param phase the phase
+	 * @return the histogram, or <code>null</code> if no latency has been recorded for the phase
+	 */
+	public Histogram getPhaseHistogram(String phase) {
+		return fPhases.get(phase);
+	}
+
+	/**
+	 * Returns the histogram of a completion proposal computer.
+	 *
+	 * @param computerId the id of the computer's extension
+	 * @return the histogram, or <code>null</code> if no latency has been recorded for the computer
+	 */
+	public Histogram getComputerHistogram(String computerId) {
+		return fComputers.get(computerId);
+	}
+
+	/**
+	 * Returns the histogram of a quick fix or quick assist processor.
+	 *
+	 * @param processorId the id of the processor's extension
+	 * @return the histogram, or <code>null</code> if no latency has been recorded for the processor
+	 */
+	public Histogram getProcessorHistogram(String processorId) {
+		return fProcessors.get(processorId);
+	}
+
+	/**
+	 * Discards all recorded latencies.
+	 */
+	public void reset() {
+		fPhases.clear();
+		fComputers.clear();
+		fProcessors.clear();
+	}
+
+	private static Histogram getHistogram(ConcurrentHashMap<String, Histogram> histograms, String key) {
+		Histogram histogram= histograms.get(key);
+		if (histogram == null)
+			histogram= histograms.computeIfAbsent(key, k -> new Histogram());
+		return histogram;
+	}
+
+	/**
+	 * Returns the statistics as a JSON document.
+	 *
+	 * @param version the version of the plug-in that recorded the statistics
+	 * @return the JSON document
+	 */
+	public String toJSON(String version) {
+		StringBuilder buf= new StringBuilder();
+		buf.append("{\n\t\"version\": "); //$NON-NLS-1$
+		appendString(buf, version);
+		buf.append(",\n\t\"bucketUpperBoundsMillis\": ["); //$NON-NLS-1$
+		for (int i= 0; i < BUCKET_COUNT - 1; i++) {
+			if (i > 0)
+				buf.append(", "); //$NON-NLS-1$
+			buf.append(1L << i);
+		}
+		buf.append("],\n\t\"phases\": "); //$NON-NLS-1$
+		appendHistograms(buf, fPhases);
+		buf.append(",\n\t\"computers\": "); //$NON-NLS-1$
+		appendHistograms(buf, fComputers);
+		buf.append(",\n\t\"processors\": "); //$NON-NLS-1$
+		appendHistograms(buf, fProcessors);
+		buf.append("\n}\n"); //$NON-NLS-1$
+		return buf.toString();
+	}
+
+	/**
+	 * Writes the statistics as a JSON document to the given file.
+	 *
+	 * @param file the file
+	 * @param version the version of the plug-in that recorded the statistics
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file, String version) throws IOException {
+		try (Writer writer= new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) { //$NON-NLS-1$
+			writer.write(toJSON(version));
+		}
+	}
+
+	/**
+	 * Adds the statistics of a JSON document written by {@link #write(File, String)} to these
+	 * statistics. Documents of another version or with a different histogram layout are ignored,
+	 * so that the statistics of a version are not mixed with those of earlier versions.
+	 *
+	 * @param file the file
+	 * @param version the version of the plug-in that records these statistics
+	 * @return <code>true</code> if the statistics were added, <code>false</code> if the document
+	 *         has another version or a different histogram layout
+	 * @throws IOException if the file could not be read or is not a valid document
+	 */
+	public boolean read(File file, String version) throws IOException {
+		StringBuilder buf= new StringBuilder();
+		try (Reader reader= new InputStreamReader(new FileInputStream(file), "UTF-8")) { //$NON-NLS-1$
+			char[] chars= new char[8192];
+			int read;
+			while ((read= reader.read(chars)) != -1)
+				buf.append(chars, 0, read);
+		}
+
+		Map<?, ?> document= asObject(new JSONParser(buf).parseDocument());
+		if (!version.equals(document.get("version"))) //$NON-NLS-1$
+			return false;
+		if (asArray(document.get("bucketUpperBoundsMillis")).size() != BUCKET_COUNT - 1) //$NON-NLS-1$
+			return false;
+		addHistograms(fPhases, asObject(document.get("phases"))); //$NON-NLS-1$
+		addHistograms(fComputers, asObject(document.get("computers"))); //$NON-NLS-1$
+		addHistograms(fProcessors, asObject(document.get("processors"))); //$NON-NLS-1$
+		return true;
+	}
+
+	private static void addHistograms(ConcurrentHashMap<String, Histogram> histograms, Map<?, ?> values) throws IOException {
+		for (Map.Entry<?, ?> entry : values.entrySet()) {
+			Map<?, ?> value= asObject(entry.getValue());
+			List<?> bucketValues= asArray(value.get("buckets")); //$NON-NLS-1$
+			if (bucketValues.size() != BUCKET_COUNT)
+				throw new IOException("Unexpected number of buckets: " + entry.getKey()); //$NON-NLS-1$
+			long[] buckets= new long[BUCKET_COUNT];
+			for (int i= 0; i < BUCKET_COUNT; i++)
+				buckets[i]= asLong(bucketValues.get(i));
+			getHistogram(histograms, (String) entry.getKey()).add(
+					asLong(value.get("count")), //$NON-NLS-1$
+					asLong(value.get("totalNanos")), //$NON-NLS-1$
+					asLong(value.get("maxNanos")), //$NON-NLS-1$
+					buckets);
+		}
+	}
+
+	private static Map<?, ?> asObject(Object value) throws IOException {
+		if (value instanceof Map)
+			return (Map<?, ?>) value;
+		throw new IOException("Object expected: " + value); //$NON-NLS-1$
+	}
+
+	private static List<?> asArray(Object value) throws IOException {
+		if (value instanceof List)
+			return (List<?>) value;
+		throw new IOException("Array expected: " + value); //$NON-NLS-1$
+	}
+
+	private static long asLong(Object value) throws IOException {
+		if (value instanceof Long)
+			return ((Long) value).longValue();
+		throw new IOException("Number expected: " + value); //$NON-NLS-1$
+	}
+
+	/**
+	 * Parses the subset of JSON that {@link ContentAssistLatencyStats#toJSON(String)} writes:
+	 * objects, arrays, strings and integral numbers.
+	 */
+	private static final class JSONParser {
+
+		private final CharSequence fInput;
+		private int fPos;
+
+		JSONParser(CharSequence input) {
+			fInput= input;
+		}
+
+		Object parseDocument() throws IOException {
+			Object value= parseValue();
+			skipWhitespace();
+			if (fPos != fInput.length())
+				throw error("End of document expected"); //$NON-NLS-1$
+			return value;
+		}
+
+		private Object parseValue() throws IOException {
+			skipWhitespace();
+			if (fPos == fInput.length())
+				throw error("Value expected"); //$NON-NLS-1$
+			char ch= fInput.charAt(fPos);
+			if (ch == '{')
+				return parseObject();
+			if (ch == '[')
+				return parseArray();
+			if (ch == '"')
+				return parseString();
+			return parseNumber();
+		}
+
+		private Map<String, Object> parseObject() throws IOException {
+			Map<String, Object> object= new HashMap<>();
+			expect('{');
+			if (consume('}'))
+				return object;
+			do {
+				skipWhitespace();
+				String key= parseString();
+				expect(':');
+				object.put(key, parseValue());
+			} while (consume(','));
+			expect('}');
+			return object;
+		}
+
+		private List<Object> parseArray() throws IOException {
+			List<Object> array= new ArrayList<>();
+			expect('[');
+			if (consume(']'))
+				return array;
+			do {
+				array.add(parseValue());
+			} while (consume(','));
+			expect(']');
+			return array;
+		}
+
+		private String parseString() throws IOException {
+			expect('"');
+			StringBuilder buf= new StringBuilder();
+			while (fPos < fInput.length()) {
+				char ch= fInput.charAt(fPos++);
+				if (ch == '"')
+					return buf.toString();
+				if (ch != '\\') {
+					buf.append(ch);
+				} else if (fPos < fInput.length()) {
+					char escaped= fInput.charAt(fPos++);
+					switch (escaped) {
+						case 'n':
+							buf.append('\n');
+							break;
+						case 'r':
+							buf.append('\r');
+							break;
+						case 't':
+							buf.append('\t');
+							break;
+						case 'u':
+							if (fPos + 4 > fInput.length())
+								throw error("Incomplete escape"); //$NON-NLS-1$
+							try {
+								buf.append((char) Integer.parseInt(fInput.subSequence(fPos, fPos + 4).toString(), 16));
+							} catch (NumberFormatException e) {
+								throw error("Invalid escape"); //$NON-NLS-1$
+							}
+							fPos+= 4;
+							break;
+						default:
+							buf.append(escaped);
+					}
+				}
+			}
+			throw error("Unterminated string"); //$NON-NLS-1$
+		}
+
+		private Long parseNumber() throws IOException {
+			int start= fPos;
+			if (fPos < fInput.length() && fInput.charAt(fPos) == '-')
+				fPos++;
+			while (fPos < fInput.length() && Character.isDigit(fInput.charAt(fPos)))
+				fPos++;
+			try {
+				return Long.valueOf(fInput.subSequence(start, fPos).toString());
+			} catch (NumberFormatException e) {
+				throw error("Number expected"); //$NON-NLS-1$
+			}
+		}
+
+		private boolean consume(char ch) {
+			skipWhitespace();
+			if (fPos < fInput.length() && fInput.charAt(fPos) == ch) {
+				fPos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char ch) throws IOException {
+			if (!consume(ch))
+				throw error("'" + ch + "' expected"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		private void skipWhitespace() {
+			while (fPos < fInput.length() && Character.isWhitespace(fInput.charAt(fPos)))
+				fPos++;
+		}
+
+		private IOException error(String message) {
+			return new IOException(message + " at offset " + fPos); //$NON-NLS-1$
+		}
+	}
+
+	private static void appendHistograms(StringBuilder buf, Map<String, Histogram> histograms) {
+		buf.append('{');
+		boolean first= true;
+		for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+			buf.append(first ? "\n\t\t" : ",\n\t\t"); //$NON-NLS-1$ //$NON-NLS-2$
+			first= false;
+			appendString(buf, entry.getKey());
+			buf.append(": "); //$NON-NLS-1$
+			entry.getValue().appendTo(buf);
+		}
+		buf.append(first ? "}" : "\n\t}"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void appendString(StringBuilder buf, String string) {
+		buf.append('"');
+		for (int i= 0; i < string.length(); i++) {
+			char ch= string.charAt(i);
+			switch (ch) {
+				case '"':
+				case '\\':
+					buf.append('\\').append(ch);
+					break;
+				case '\n':
+					buf.append("\\n"); //$NON-NLS-1$
+					break;
+				case '\r':
+					buf.append("\\r"); //$NON-NLS-1$
+					break;
+				case '\t':
+					buf.append("\\t"); //$NON-NLS-1$
+					break;
+				default:
+					if (ch < 0x20)
+						buf.append(String.format("\\u%04x", Integer.valueOf(ch))); //$NON-NLS-1$
+					else
+						buf.append(ch);
+			}
+		}
+		buf.append('"');
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -66,6 +70,7 @@ import org.eclipse.ui.keys.IBindingService;
 import org.eclipse.ui.texteditor.ITextEditorActionDefinitionIds;
 
 import org.eclipse.jdt.internal.corext.util.Messages;
+import org.eclipse.jdt.internal.corext.util.WorkerPool;
 
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.java.ContentAssistInvocationContext;
@@ -258,6 +263,13 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	private boolean fNeedsSortingAfterFiltering;
 
+	/**
+	 * The pool computing the proposal categories that do not require the UI thread.
+	 *
+	 * @since 3.14
+	 */
+	private static final WorkerPool fgWorkerPool= new WorkerPool("Content Assist Worker", Runtime.getRuntime().availableProcessors()); //$NON-NLS-1$
+
 
 	public ContentAssistProcessor(ContentAssistant assistant, String partition) {
 		Assert.isNotNull(partition);
@@ -274,7 +286,7 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 	 */
 	@Override
 	public final ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
-		long start= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
+		long start= System.nanoTime();
 
 		clearState();
 
@@ -282,11 +294,11 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		monitor.beginTask(JavaTextMessages.ContentAssistProcessor_computing_proposals, fCategories.size() + 1);
 
 		ContentAssistInvocationContext context= createContext(viewer, offset);
-		long setup= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
+		long setup= System.nanoTime();
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_collecting_proposals);
 		List<ICompletionProposal> proposals= collectProposals(viewer, offset, monitor, context);
-		long collect= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
+		long collect= System.nanoTime();
 
 		monitor.subTask(JavaTextMessages.ContentAssistProcessor_sorting_proposals);
 		if (fNeedsSortingAfterFiltering)
@@ -294,16 +306,22 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		else
 			proposals= sortProposals(proposals, monitor, context);
 		fNumberOfComputedResults= proposals.size();
-		long filter= JavaPlugin.DEBUG_RESULT_COLLECTOR ? System.currentTimeMillis() : 0;
+		long filter= System.nanoTime();
 
 		ICompletionProposal[] result= proposals.toArray(new ICompletionProposal[proposals.size()]);
 		monitor.done();
 
+		ContentAssistLatencyStats stats= JavaPlugin.getDefault().getContentAssistLatencyStats();
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_SETUP, setup - start);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_COLLECT, collect - setup);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_SORT, filter - collect);
+		stats.recordPhase(ContentAssistLatencyStats.PHASE_TOTAL, filter - start);
+
 		if (JavaPlugin.DEBUG_RESULT_COLLECTOR) {
 			System.err.println("Code Assist Stats (" + result.length + " proposals)"); //$NON-NLS-1$ //$NON-NLS-2$
-			System.err.println("Code Assist (setup):\t" + (setup - start) ); //$NON-NLS-1$
-			System.err.println("Code Assist (collect):\t" + (collect - setup) ); //$NON-NLS-1$
-			System.err.println("Code Assist (sort):\t" + (filter - collect) ); //$NON-NLS-1$
+			System.err.println("Code Assist (setup):\t" + (setup - start) / 1000000); //$NON-NLS-1$
+			System.err.println("Code Assist (collect):\t" + (collect - setup) / 1000000); //$NON-NLS-1$
+			System.err.println("Code Assist (sort):\t" + (filter - collect) / 1000000); //$NON-NLS-1$
 		}
 
 		return result;
@@ -327,8 +345,19 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		boolean needsSortingAfterFiltering= false;
 		List<ICompletionProposal> proposals= new ArrayList<>();
 		List<CompletionProposalCategory> providers= getCategories();
-		for (CompletionProposalCategory cat : providers) {
-			List<ICompletionProposal> computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+		List<List<ICompletionProposal>> results= null;
+		if (providers.size() > 1 && JavaPlugin.getDefault().getPreferenceStore().getBoolean(PreferenceConstants.CODEASSIST_PARALLEL_CATEGORIES))
+			results= computeConcurrently(providers, monitor, context);
+		for (int i= 0; i < providers.size(); i++) {
+			CompletionProposalCategory cat= providers.get(i);
+			List<ICompletionProposal> computed;
+			if (results == null) {
+				computed= cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1));
+			} else {
+				computed= results.get(i);
+				if (computed == null)
+					continue; // did not finish in time, the late computer is reported by its descriptor
+			}
 			proposals.addAll(computed);
 			needsSortingAfterFiltering= needsSortingAfterFiltering || (cat.isSortingAfterFilteringNeeded() && !computed.isEmpty());
 			if (fErrorMessage == null)
@@ -340,6 +369,73 @@ public class ContentAssistProcessor implements IContentAssistProcessor {
 		return proposals;
 	}
 
+	/**
+	 * Computes the proposals of the given categories. Categories whose computers do not require
+	 * the UI thread are computed concurrently while the other categories are computed in the
+	 * calling thread. Each concurrently computed category has its own deadline, see
+	 * {@link CompletionProposalCategory#getMaxDelay(String)}. A category that misses its deadline
+	 * is canceled and its proposals are dropped.
+	 *
+	 * @param categories the categories
+	 * @param monitor the progress monitor
+	 * @param context the code assist invocation context
+	 * @return the proposals of each category, in the order of the categories, with
+	 *         <code>null</code> entries for the categories that did not finish in time
+	 * @since 3.14
+	 */
+	private List<List<ICompletionProposal>> computeConcurrently(List<CompletionProposalCategory> categories, IProgressMonitor monitor, ContentAssistInvocationContext context) {
+		int size= categories.size();
+		List<Future<List<ICompletionProposal>>> futures= new ArrayList<>(size);
+		List<IProgressMonitor> monitors= new ArrayList<>(size);
+		long[] deadlines= new long[size];
+		for (int i= 0; i < size; i++) {
+			CompletionProposalCategory cat= categories.get(i);
+			if (cat.requiresUIThread(fPartition)) {
+				futures.add(null);
+				monitors.add(null);
+			} else {
+				IProgressMonitor categoryMonitor= new NullProgressMonitor();
+				deadlines[i]= System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cat.getMaxDelay(fPartition));
+				futures.add(fgWorkerPool.submit(() -> cat.computeCompletionProposals(context, fPartition, new SubProgressMonitor(categoryMonitor, 1))));
+				monitors.add(categoryMonitor);
+			}
+		}
+
+		List<List<ICompletionProposal>> results= new ArrayList<>(size);
+		for (int i= 0; i < size; i++) {
+			if (futures.get(i) == null)
+				results.add(categories.get(i).computeCompletionProposals(context, fPartition, new SubProgressMonitor(monitor, 1)));
+			else
+				results.add(null);
+		}
+
+		boolean interrupted= false;
+		for (int i= 0; i < size; i++) {
+			Future<List<ICompletionProposal>> future= futures.get(i);
+			if (future == null)
+				continue;
+			try {
+				if (!interrupted)
+					results.set(i, future.get(Math.max(0, deadlines[i] - System.nanoTime()), TimeUnit.NANOSECONDS));
+			} catch (TimeoutException e) {
+				// leave the entry empty
+			} catch (ExecutionException e) {
+				JavaPlugin.log(e.getCause());
+				results.set(i, Collections.<ICompletionProposal> emptyList());
+			} catch (InterruptedException e) {
+				interrupted= true;
+			}
+			if (results.get(i) == null) {
+				monitors.get(i).setCanceled(true);
+				future.cancel(false); // drops the category if it is still queued
+			}
+			monitor.worked(1);
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return results;
+	}
+
 	/**
 	 * Filters and sorts the proposals. The passed list may be modified
 	 * and returned, or a new list may be created and returned.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -129,6 +130,13 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 
 	private String fErrorMessage;
 
+	/**
+	 * The key binding of content assist, looked up when a session starts because the binding
+	 * service must be accessed in the UI thread, or <code>null</code> if not known.
+	 * @since 3.14
+	 */
+	private String fContentAssistBinding;
+
 	private final IProgressMonitor fTimeoutProgressMonitor;
 
 	public JavaCompletionProposalComputer() {
@@ -219,8 +227,6 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		if (unit == null)
 			return Collections.emptyList();
 
-		ITextViewer viewer= context.getViewer();
-
 		CompletionProposalCollector collector= createCollector(context);
 		collector.setInvocationContext(context);
 
@@ -244,20 +250,14 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		collector.setFavoriteReferences(getFavoriteStaticMembers());
 
 		try {
-			Point selection= viewer.getSelectedRange();
-			if (selection.y > 0)
+			Point selection= context.getSelectedRange();
+			if (selection != null && selection.y > 0)
 				collector.setReplacementLength(selection.y);
 			unit.codeComplete(offset, collector, fTimeoutProgressMonitor);
 		} catch (OperationCanceledException x) {
-			IBindingService bindingSvc= PlatformUI.getWorkbench().getAdapter(IBindingService.class);
-			String keyBinding= bindingSvc.getBestActiveBindingFormattedFor(IWorkbenchCommandConstants.EDIT_CONTENT_ASSIST);
-			fErrorMessage= Messages.format(JavaTextMessages.CompletionProcessor_error_javaCompletion_took_too_long_message, keyBinding);
+			fErrorMessage= Messages.format(JavaTextMessages.CompletionProcessor_error_javaCompletion_took_too_long_message, getContentAssistBinding());
 		} catch (JavaModelException x) {
-			Shell shell= viewer.getTextWidget().getShell();
-			if (x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit))
-				MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
-			else
-				ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+			showError(context.getViewer(), x, x.isDoesNotExist() && !unit.getJavaProject().isOnClasspath(unit));
 		}
 
 		ICompletionProposal[] javaProposals= collector.getJavaCompletionProposals();
@@ -280,6 +280,48 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 		return proposals;
 	}
 
+	/**
+	 * Returns the key binding of content assist.
+	 *
+	 * @return the formatted key binding, or <code>null</code> if it cannot be looked up in the
+	 *         current thread
+	 * @since 3.14
+	 */
+	private String getContentAssistBinding() {
+		if (fContentAssistBinding == null && Display.getCurrent() != null) {
+			IBindingService bindingSvc= PlatformUI.getWorkbench().getAdapter(IBindingService.class);
+			fContentAssistBinding= bindingSvc.getBestActiveBindingFormattedFor(IWorkbenchCommandConstants.EDIT_CONTENT_ASSIST);
+		}
+		return fContentAssistBinding;
+	}
+
+	/**
+	 * Tells the user that code completion failed. The dialog is opened in the UI thread, later if
+	 * the proposals are computed in another thread.
+	 *
+	 * @param viewer the viewer in which content assist was invoked
+	 * @param x the exception
+	 * @param notOnBuildPath <code>true</code> if the compilation unit is not on the build path
+	 * @since 3.14
+	 */
+	private static void showError(final ITextViewer viewer, final JavaModelException x, final boolean notOnBuildPath) {
+		Display display= viewer.getTextWidget().getDisplay();
+		Runnable runnable= new Runnable() {
+			@Override
+			public void run() {
+				Shell shell= viewer.getTextWidget().getShell();
+				if (notOnBuildPath)
+					MessageDialog.openInformation(shell, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_title, JavaTextMessages.CompletionProcessor_error_notOnBuildPath_message);
+				else
+					ErrorDialog.openError(shell, JavaTextMessages.CompletionProcessor_error_accessing_title, JavaTextMessages.CompletionProcessor_error_accessing_message, x.getStatus());
+			}
+		};
+		if (display.getThread() == Thread.currentThread())
+			runnable.run();
+		else
+			display.asyncExec(runnable);
+	}
+
 	/**
 	 * Returns a new progress monitor that get cancelled after the given timeout.
 	 * 
@@ -361,6 +403,8 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	 */
 	@Override
 	public void sessionStarted() {
+		// the proposals may be computed outside the UI thread
+		getContentAssistBinding();
 	}
 
 	/*
@@ -369,5 +413,6 @@ public class JavaCompletionProposalComputer implements IJavaCompletionProposalCo
 	@Override
 	public void sessionEnded() {
 		fErrorMessage= null;
+		fContentAssistBinding= null;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,11 +15,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,6 +32,11 @@ import org.eclipse.core.variables.VariablesPlugin;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
@@ -39,9 +46,12 @@ import org.eclipse.ui.texteditor.spelling.SpellingService;
 
 import org.eclipse.ui.editors.text.EditorsUI;
 
+import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.PreferenceConstants;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.JavaUIMessages;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.AbstractSpellDictionary;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.DefaultSpellChecker;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellCheckEngine;
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
@@ -57,12 +67,50 @@ import org.eclipse.jdt.internal.ui.text.spelling.engine.PersistentSpellDictionar
  */
 public class SpellCheckEngine implements ISpellCheckEngine, IPropertyChangeListener {
 
+	/**
+	 * Job that loads the dictionaries of the current spell checker in the background,
+	 * so that the first spell check in an editor does not have to wait for the word lists.
+	 *
+	 * @since 3.14
+	 */
+	private static final class DictionaryLoadJob extends Job {
+
+		public DictionaryLoadJob() {
+			super(JavaUIMessages.SpellCheckEngine_loadDictionaries_job_name);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			SpellCheckEngine engine;
+			synchronized (SpellCheckEngine.class) {
+				if (fgEngine == null)
+					getInstance();
+				engine= (SpellCheckEngine)fgEngine;
+			}
+			return engine.loadDictionaries(monitor);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return JavaUI.ID_PLUGIN.equals(family);
+		}
+	}
+
 	/** The dictionary location */
 	public static final String DICTIONARY_LOCATION= "dictionaries/"; //$NON-NLS-1$
 
 	/** The singleton engine instance */
 	private static ISpellCheckEngine fgEngine= null;
 
+	/**
+	 * The job that loads the dictionaries in the background, or <code>null</code> if none has been scheduled.
+	 *
+	 * @since 3.14
+	 */
+	private static Job fgDictionaryLoadJob= null;
+
 	/**
 	 * Caches the locales of installed dictionaries.
 	 *
@@ -237,10 +285,29 @@ public class SpellCheckEngine implements ISpellCheckEngine, IPropertyChangeListe
 		return fgEngine;
 	}
 
+	/**
+	 * Schedules loading of the dictionaries used by the current spell checker in the
+	 * background. Does nothing if spell checking is disabled.
+	 *
+	 * @since 3.14
+	 */
+	public static synchronized final void scheduleDictionaryLoad() {
+		if (!EditorsUI.getPreferenceStore().getBoolean(SpellingService.PREFERENCE_SPELLING_ENABLED))
+			return;
+
+		if (fgDictionaryLoadJob == null)
+			fgDictionaryLoadJob= new DictionaryLoadJob();
+		fgDictionaryLoadJob.schedule();
+	}
+
 	/**
 	 * Shuts down the singleton instance of the spell check engine.
 	 */
 	public static synchronized final void shutdownInstance() {
+		if (fgDictionaryLoadJob != null) {
+			fgDictionaryLoadJob.cancel();
+			fgDictionaryLoadJob= null;
+		}
 		if (fgEngine != null) {
 			fgEngine.shutdown();
 			fgEngine= null;
@@ -324,6 +391,43 @@ public class SpellCheckEngine implements ISpellCheckEngine, IPropertyChangeListe
 		return fChecker;
 	}
 
+	/**
+	 * Loads the dictionaries of the current spell checker.
+	 *
+	 * @param monitor the progress monitor, checked for cancellation between dictionaries
+	 * @return the status of the load
+	 * @since 3.14
+	 */
+	private IStatus loadDictionaries(IProgressMonitor monitor) {
+		List<AbstractSpellDictionary> dictionaries= new ArrayList<>();
+		synchronized (this) {
+			if (fGlobalDictionaries == null)
+				return Status.CANCEL_STATUS;
+
+			ISpellChecker checker= getSpellChecker();
+			if (checker == null)
+				return Status.OK_STATUS;
+
+			List<ISpellDictionary> candidates= new ArrayList<>(fGlobalDictionaries);
+			candidates.add(findDictionary(checker.getLocale()));
+			candidates.add(fUserDictionary);
+			for (Iterator<ISpellDictionary> iterator= candidates.iterator(); iterator.hasNext();) {
+				ISpellDictionary dictionary= iterator.next();
+				if (dictionary instanceof AbstractSpellDictionary)
+					dictionaries.add((AbstractSpellDictionary)dictionary);
+			}
+		}
+
+		SubMonitor subMonitor= SubMonitor.convert(monitor, JavaUIMessages.SpellCheckEngine_loadDictionaries_job_name, dictionaries.size());
+		for (Iterator<AbstractSpellDictionary> iterator= dictionaries.iterator(); iterator.hasNext();) {
+			if (subMonitor.isCanceled())
+				return Status.CANCEL_STATUS;
+			iterator.next().ensureLoaded();
+			subMonitor.worked(1);
+		}
+		return Status.OK_STATUS;
+	}
+
 	/**
 	 * Returns the current locale of the spelling preferences.
 	 *
@@ -370,16 +474,19 @@ public class SpellCheckEngine implements ISpellCheckEngine, IPropertyChangeListe
 	public final void propertyChange(final PropertyChangeEvent event) {
 		if (event.getProperty().equals(PreferenceConstants.SPELLING_LOCALE)) {
 			resetSpellChecker();
+			scheduleDictionaryLoad();
 			return;
 		}
 
 		if (event.getProperty().equals(PreferenceConstants.SPELLING_USER_DICTIONARY)) {
 			resetUserDictionary();
+			scheduleDictionaryLoad();
 			return;
 		}
 
 		if (event.getProperty().equals(PreferenceConstants.SPELLING_USER_DICTIONARY_ENCODING)) {
 			resetUserDictionary();
+			scheduleDictionaryLoad();
 			return;
 		}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,12 +25,16 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 
@@ -104,6 +109,18 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 */
 	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
 
+	/**
+	 * Name of the folder in the plug-in state location that holds the compiled dictionaries.
+	 * @since 3.14
+	 */
+	private static final String COMPILED_DICTIONARY_LOCATION= "dictionaries"; //$NON-NLS-1$
+
+	/**
+	 * File extension of compiled dictionaries.
+	 * @since 3.14
+	 */
+	private static final String COMPILED_DICTIONARY_EXTENSION= ".cdict"; //$NON-NLS-1$
+
 	/** The bucket capacity */
 	protected static final int BUCKET_CAPACITY= 4;
 
@@ -122,19 +139,49 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
-	/** The mapping from phonetic hashes to word lists */
-	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<>(getInitialSize(), LOAD_FACTOR);
+	/**
+	 * The mapping from phonetic hashes to word lists.
+	 * <p>
+	 * The published map is concurrent and its buckets are never modified, so readers can use it
+	 * without locking. While loading, writers fill {@link #fStagedBuckets} and then publish it
+	 * as a whole. Words added later replace their bucket by a modified copy.
+	 * </p>
+	 */
+	private volatile Map<ByteArrayWrapper, Object> fHashBuckets= new ConcurrentHashMap<>();
+
+	/**
+	 * The mutable map that receives the words of the word list being loaded until it is merged
+	 * with {@link #fHashBuckets} and published, or <code>null</code> if there are no unpublished
+	 * words. It only contains words read from the word list, so that words added in memory are
+	 * never written to a compiled dictionary. Guarded by <code>this</code>.
+	 * @since 3.14
+	 */
+	private Map<ByteArrayWrapper, Object> fStagedBuckets;
+
+	/**
+	 * Is the dictionary being loaded? While loading, hashed words are only published
+	 * once the whole word list has been read. Guarded by <code>this</code>.
+	 * @since 3.14
+	 */
+	private boolean fLoading= false;
+
+	/**
+	 * The memory-mapped word list, or <code>null</code> if the word list has not been
+	 * loaded from a compiled dictionary. Words added after loading go to {@link #fHashBuckets}.
+	 * @since 3.14
+	 */
+	private volatile CompiledSpellDictionary fCompiledDictionary;
 
 	/** The phonetic hash provider */
 	private IPhoneticHashProvider fHashProvider= new DefaultPhoneticHashProvider();
 
 	/** Is the dictionary already loaded? */
-	private boolean fLoaded= false;
+	private volatile boolean fLoaded= false;
 	/**
 	 * Must the dictionary be loaded?
 	 * @since 3.2
 	 */
-	private boolean fMustLoad= true;
+	private volatile boolean fMustLoad= true;
 
 	/**
 	 * Tells whether to strip non-letters at word boundaries.
@@ -160,14 +207,46 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @return Array of candidates for the phonetic hash
 	 */
 	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
+		byte[] hashBytes;
 		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
+			hashBytes= hash.getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return null;
 		}
-		return fHashBuckets.get(hashBytes);
+		Object candidates= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		if (compiled == null)
+			return candidates;
+
+		Object compiledCandidates= compiled.getCandidates(hashBytes);
+		if (candidates == null)
+			return compiledCandidates;
+		if (compiledCandidates == null)
+			return candidates;
+
+		ArrayList<byte[]> merged= new ArrayList<>();
+		addCandidates(merged, compiledCandidates);
+		addCandidates(merged, candidates);
+		return merged;
+	}
+
+	/**
+	 * Adds the given bucket of candidates to the list.
+	 *
+	 * @param list the list to add to
+	 * @param candidates a single <code>byte[]</code> or a list of them
+	 * @since 3.14
+	 */
+	private static void addCandidates(List<byte[]> list, Object candidates) {
+		if (candidates instanceof byte[]) {
+			list.add((byte[])candidates);
+		} else {
+			@SuppressWarnings("unchecked")
+			List<byte[]> candidateList= (List<byte[]>)candidates;
+			list.addAll(candidateList);
+		}
 	}
 
 	/**
@@ -325,7 +404,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		CompiledSpellDictionary compiled= fCompiledDictionary;
+		return fHashBuckets.size() == 0 && (compiled == null || compiled.isEmpty());
 	}
 
 	/**
@@ -349,19 +429,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	@Override
 	public Set<RankedWordProposal> getProposals(final String word, final boolean sentence) {
 
-		try {
-
-			if (!fLoaded) {
-				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
-				}
-			}
-
-		} catch (MalformedURLException exception) {
-			// Do nothing
-		}
+		ensureLoaded();
 
 		final String hash= fHashProvider.getHash(word);
 		final char[] mutators= fHashProvider.getMutators();
@@ -457,6 +525,35 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return candidates;
 	}
 
+	/**
+	 * Loads the word list of this dictionary unless it has already been loaded.
+	 * <p>
+	 * Only the first caller loads the word list; concurrent callers wait for it. Once loaded,
+	 * this method returns immediately without acquiring the dictionary lock.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public final void ensureLoaded() {
+		if (fLoaded || !fMustLoad)
+			return;
+
+		synchronized (this) {
+			if (fLoaded || !fMustLoad)
+				return;
+
+			fLoading= true;
+			try {
+				fLoaded= load(getURL());
+			} catch (MalformedURLException exception) {
+				// Do nothing
+			} finally {
+				fLoading= false;
+				publishBuckets();
+			}
+		}
+	}
+
 	/**
 	 * Returns the URL of the dictionary word list.
 	 *
@@ -472,7 +569,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @param word
 	 *                   The word to hash in the dictionary
 	 */
-	protected final void hashWord(final String word) {
+	protected final synchronized void hashWord(final String word) {
 
 		final String hash= fHashProvider.getHash(word);
 		ByteArrayWrapper hashBytes;
@@ -485,10 +582,44 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			return;
 		}
 
-		Object bucket= fHashBuckets.get(hashBytes);
+		if (fLoading) {
+			// the staged map is created once per word list, its buckets are modified in place
+			if (fStagedBuckets == null)
+				fStagedBuckets= new ConcurrentHashMap<>(getInitialSize(), LOAD_FACTOR);
+			addToStagedBucket(hashBytes, wordBytes);
+			return;
+		}
 
+		// copy-on-write of the affected bucket only
+		Object bucket= fHashBuckets.get(hashBytes);
 		if (bucket == null) {
 			fHashBuckets.put(hashBytes, wordBytes);
+		} else {
+			ArrayList<Object> list;
+			if (bucket instanceof ArrayList) {
+				ArrayList<?> bucketList= (ArrayList<?>)bucket;
+				list= new ArrayList<>(bucketList.size() + 1);
+				list.addAll(bucketList);
+			} else {
+				list= new ArrayList<>(2);
+				list.add(bucket);
+			}
+			list.add(wordBytes);
+			fHashBuckets.put(hashBytes, list);
+		}
+	}
+
+	/**
+	 * Adds a word to its bucket in the staged hash buckets. The bucket is modified in place.
+	 *
+	 * @param hashBytes the phonetic hash of the word
+	 * @param wordBytes the word
+	 * @since 3.14
+	 */
+	private void addToStagedBucket(ByteArrayWrapper hashBytes, byte[] wordBytes) {
+		Object bucket= fStagedBuckets.get(hashBytes);
+		if (bucket == null) {
+			fStagedBuckets.put(hashBytes, wordBytes);
 		} else if (bucket instanceof ArrayList) {
 			@SuppressWarnings("unchecked")
 			ArrayList<byte[]> bucketList= (ArrayList<byte[]>)bucket;
@@ -497,26 +628,42 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			ArrayList<Object> list= new ArrayList<>(BUCKET_CAPACITY);
 			list.add(bucket);
 			list.add(wordBytes);
-			fHashBuckets.put(hashBytes, list);
+			fStagedBuckets.put(hashBytes, list);
 		}
 	}
 
-	@Override
-	public boolean isCorrect(String word) {
-		word= stripNonLetters(word);
-		try {
+	/**
+	 * Publishes the staged hash buckets, if any, so that readers see the added words. The words
+	 * that have been added in memory before are merged into the staged buckets first.
+	 *
+	 * @since 3.14
+	 */
+	private synchronized void publishBuckets() {
+		if (fStagedBuckets == null)
+			return;
 
-			if (!fLoaded) {
-				synchronized (this) {
-					fLoaded= load(getURL());
-					if (fLoaded)
-						compact();
+		for (Iterator<Entry<ByteArrayWrapper, Object>> iter= fHashBuckets.entrySet().iterator(); iter.hasNext();) {
+			Entry<ByteArrayWrapper, Object> entry= iter.next();
+			Object bucket= entry.getValue();
+			if (bucket instanceof byte[]) {
+				addToStagedBucket(entry.getKey(), (byte[])bucket);
+			} else {
+				@SuppressWarnings("unchecked")
+				List<byte[]> bucketList= (List<byte[]>)bucket;
+				for (int i= 0; i < bucketList.size(); i++) {
+					addToStagedBucket(entry.getKey(), bucketList.get(i));
 				}
 			}
-
-		} catch (MalformedURLException exception) {
-			// Do nothing
 		}
+		compact();
+		fHashBuckets= fStagedBuckets;
+		fStagedBuckets= null;
+	}
+
+	@Override
+	public boolean isCorrect(String word) {
+		word= stripNonLetters(word);
+		ensureLoaded();
 
 		final Object candidates= getCandidates(fHashProvider.getHash(word));
 		if (candidates == null)
@@ -586,8 +733,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	}
 
 	@Override
-	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+	public final boolean isLoaded() {
+		return fLoaded || fHashBuckets.size() > 0 || fCompiledDictionary != null;
 	}
 
 	/**
@@ -603,6 +750,11 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			 return fLoaded;
 
 		if (url != null) {
+			if (loadCompiledDictionary(url)) {
+				fMustLoad= false;
+				return true;
+			}
+
 			InputStream stream= null;
 			int line= 0;
 			try {
@@ -638,6 +790,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					compileDictionary(url);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -670,13 +823,131 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Returns the compiled dictionary file for the given word list.
+	 *
+	 * @param url the URL of the word list
+	 * @return the compiled dictionary file, or <code>null</code> if there is no state location
+	 * @since 3.14
+	 */
+	private static File getCompiledDictionaryFile(URL url) {
+		JavaPlugin plugin= JavaPlugin.getDefault();
+		if (plugin == null)
+			return null;
+		try {
+			File folder= plugin.getStateLocation().append(COMPILED_DICTIONARY_LOCATION).toFile();
+			if (!folder.isDirectory() && !folder.mkdirs())
+				return null;
+			return new File(folder, Integer.toHexString(url.toExternalForm().hashCode()) + COMPILED_DICTIONARY_EXTENSION);
+		} catch (IllegalStateException e) {
+			// no state location
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a stamp that changes whenever the word list or the way it is hashed changes.
+	 *
+	 * @param url the URL of the word list
+	 * @return the stamp, or <code>-1</code> if the word list is not available as a local file
+	 * @since 3.14
+	 */
+	private long getSourceStamp(URL url) {
+		File file;
+		try {
+			URL fileURL= FileLocator.toFileURL(url);
+			if (!"file".equals(fileURL.getProtocol())) //$NON-NLS-1$
+				return -1;
+			file= new File(fileURL.getFile());
+		} catch (IOException e) {
+			return -1;
+		}
+		if (!file.isFile())
+			return -1;
+
+		long stamp= file.lastModified();
+		stamp= 31 * stamp + file.length();
+		stamp= 31 * stamp + getEncoding().hashCode();
+		stamp= 31 * stamp + fHashProvider.getClass().getName().hashCode();
+		return stamp;
+	}
+
+	/**
+	 * Maps the compiled dictionary of the given word list, if it is up to date.
+	 *
+	 * @param url the URL of the word list
+	 * @return <code>true</code> iff the compiled dictionary could be used
+	 * @since 3.14
+	 */
+	private boolean loadCompiledDictionary(URL url) {
+		File file= getCompiledDictionaryFile(url);
+		if (file == null)
+			return false;
+		long stamp= getSourceStamp(url);
+		if (stamp == -1)
+			return false;
+
+		try {
+			fCompiledDictionary= CompiledSpellDictionary.open(file, url.toExternalForm(), stamp);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			fCompiledDictionary= null;
+		}
+		return fCompiledDictionary != null;
+	}
+
+	/**
+	 * Writes the words read from the given word list to a compiled dictionary and
+	 * switches this dictionary over to the memory-mapped copy, so that the words no
+	 * longer occupy the heap and the next start does not need to parse the word list.
+	 * Words that have been added in memory stay in {@link #fHashBuckets}.
+	 *
+	 * @param url the URL of the word list that has just been loaded
+	 * @since 3.14
+	 */
+	private void compileDictionary(URL url) {
+		File file= getCompiledDictionaryFile(url);
+		if (file == null)
+			return;
+		long stamp= getSourceStamp(url);
+		if (stamp == -1)
+			return;
+
+		if (fStagedBuckets == null)
+			return;
+
+		CompiledSpellDictionary.Builder builder= new CompiledSpellDictionary.Builder();
+		for (Iterator<Entry<ByteArrayWrapper, Object>> iter= fStagedBuckets.entrySet().iterator(); iter.hasNext();) {
+			Entry<ByteArrayWrapper, Object> entry= iter.next();
+			Object bucket= entry.getValue();
+			if (bucket instanceof byte[]) {
+				builder.add(entry.getKey().byteArray, Collections.singletonList((byte[])bucket));
+			} else {
+				@SuppressWarnings("unchecked")
+				List<byte[]> bucketList= (List<byte[]>)bucket;
+				builder.add(entry.getKey().byteArray, bucketList);
+			}
+		}
+
+		try {
+			builder.write(file, url.toExternalForm(), stamp);
+			CompiledSpellDictionary compiled= CompiledSpellDictionary.open(file, url.toExternalForm(), stamp);
+			if (compiled != null) {
+				fCompiledDictionary= compiled;
+				fStagedBuckets= null;
+			}
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
 	 * @since 3.3.
 	 */
 	private void compact() {
-		Iterator<Object> iter= fHashBuckets.values().iterator();
+		Iterator<Object> iter= fStagedBuckets.values().iterator();
 		while (iter.hasNext()) {
 			Object element= iter.next();
 			if (element instanceof ArrayList)
@@ -708,7 +979,9 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	public synchronized void unload() {
 		fLoaded= false;
 		fMustLoad= true;
-		fHashBuckets.clear();
+		fHashBuckets= new ConcurrentHashMap<>();
+		fStagedBuckets= null;
+		fCompiledDictionary= null;
 	}
 
 	@Override
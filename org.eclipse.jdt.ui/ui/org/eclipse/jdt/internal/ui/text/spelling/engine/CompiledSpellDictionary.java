@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Read-only, memory-mapped view of a precompiled dictionary word list.
+ * <p>
+ * The file starts with a header (magic, version, source stamp, source
+ * location and bucket count), followed by a table of bucket offsets sorted
+ * by phonetic hash and the bucket data. Each bucket holds the UTF-8 encoded
+ * phonetic hash and its words. Lookups binary search the table and only
+ * materialize the words of the requested bucket.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class CompiledSpellDictionary {
+
+	/**
+	 * Collects the hash buckets of a dictionary and writes them in the compiled format.
+	 */
+	public static final class Builder {
+
+		private static final class Bucket {
+
+			private final byte[] fHash;
+
+			private final List<byte[]> fWords;
+
+			Bucket(byte[] hash, List<byte[]> words) {
+				fHash= hash;
+				fWords= words;
+			}
+		}
+
+		private final List<Bucket> fBuckets= new ArrayList<>();
+
+		/**
+		 * Adds a hash bucket.
+		 *
+		 * @param hash the UTF-8 encoded phonetic hash
+		 * @param words the UTF-8 encoded words having that hash
+		 */
+		public void add(byte[] hash, List<byte[]> words) {
+			fBuckets.add(new Bucket(hash, words));
+		}
+
+		/**
+		 * Writes the collected buckets to the given file. The file is first written
+		 * to a temporary sibling and then moved over the file, so that readers never see a
+		 * partially written dictionary.
+		 *
+		 * @param file the file to write
+		 * @param source the location of the word list the buckets were read from
+		 * @param stamp the stamp of the word list
+		 * @throws IOException if the file could not be written
+		 */
+		public void write(File file, String source, long stamp) throws IOException {
+			fBuckets.sort(new Comparator<Bucket>() {
+				@Override
+				public int compare(Bucket b1, Bucket b2) {
+					return CompiledSpellDictionary.compare(b1.fHash, b2.fHash);
+				}
+			});
+
+			File temp= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+			try {
+				writeTo(temp, source, stamp);
+			} catch (IOException e) {
+				temp.delete();
+				throw e;
+			}
+
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				temp.delete();
+				throw e;
+			}
+		}
+
+		private void writeTo(File temp, String source, long stamp) throws IOException {
+			try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				byte[] sourceBytes= source.getBytes(UTF_8);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(stamp);
+				out.writeInt(sourceBytes.length);
+				out.write(sourceBytes);
+				out.writeInt(fBuckets.size());
+
+				int offset= 0;
+				for (int i= 0; i < fBuckets.size(); i++) {
+					Bucket bucket= fBuckets.get(i);
+					out.writeInt(offset);
+					offset+= 2 + bucket.fHash.length + 4;
+					for (int j= 0; j < bucket.fWords.size(); j++) {
+						int length= bucket.fWords.get(j).length;
+						if (length > 0xffff)
+							throw new IOException("Word too long for compiled dictionary"); //$NON-NLS-1$
+						offset+= 2 + length;
+					}
+				}
+
+				for (int i= 0; i < fBuckets.size(); i++) {
+					Bucket bucket= fBuckets.get(i);
+					out.writeShort(bucket.fHash.length);
+					out.write(bucket.fHash);
+					out.writeInt(bucket.fWords.size());
+					for (int j= 0; j < bucket.fWords.size(); j++) {
+						byte[] word= bucket.fWords.get(j);
+						out.writeShort(word.length);
+						out.write(word);
+					}
+				}
+			}
+		}
+	}
+
+	/** File format magic number */
+	private static final int MAGIC= 0x4A445344;
+
+	/** File format version */
+	private static final int VERSION= 1;
+
+	/** The size of the fixed part of the header: magic, version, stamp and source length */
+	private static final int HEADER_SIZE= 4 + 4 + 8 + 4;
+
+	/** Canonical name for UTF-8 encoding */
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	/**
+	 * Opens a compiled dictionary.
+	 *
+	 * @param file the compiled dictionary file
+	 * @param source the location of the word list the dictionary must have been compiled from
+	 * @param stamp the current stamp of the word list
+	 * @return the compiled dictionary, or <code>null</code> if the file does not exist
+	 *         or is not up to date with respect to the given source and stamp
+	 * @throws IOException if the file could not be read
+	 */
+	public static CompiledSpellDictionary open(File file, String source, long stamp) throws IOException {
+		if (!file.isFile())
+			return null;
+
+		// the header is checked before the file is mapped: a mapped file cannot be replaced on all platforms
+		try (RandomAccessFile raf= new RandomAccessFile(file, "r"); FileChannel channel= raf.getChannel()) { //$NON-NLS-1$
+			ByteBuffer header= ByteBuffer.allocate(HEADER_SIZE);
+			if (!read(channel, header, 0) || header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != stamp)
+				return null;
+
+			byte[] expectedSource= source.getBytes(UTF_8);
+			int sourceLength= header.getInt();
+			if (sourceLength != expectedSource.length)
+				return null;
+			ByteBuffer sourceAndCount= ByteBuffer.allocate(sourceLength + 4);
+			if (!read(channel, sourceAndCount, HEADER_SIZE))
+				return null;
+			byte[] sourceBytes= new byte[sourceLength];
+			sourceAndCount.get(sourceBytes);
+			if (!Arrays.equals(sourceBytes, expectedSource))
+				return null;
+
+			int bucketCount= sourceAndCount.getInt();
+			int tableOffset= HEADER_SIZE + sourceLength + 4;
+			long dataOffset= tableOffset + 4L * bucketCount;
+			long size= channel.size();
+			if (bucketCount < 0 || dataOffset > size || size > Integer.MAX_VALUE)
+				return null;
+
+			MappedByteBuffer buffer= channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return new CompiledSpellDictionary(buffer, bucketCount, tableOffset, (int) dataOffset);
+		}
+	}
+
+	/**
+	 * Reads the given buffer from the channel and flips it for reading.
+	 *
+	 * @param channel the channel
+	 * @param buffer the buffer to fill
+	 * @param position the file position to read from
+	 * @return <code>true</code> if the buffer has been filled, <code>false</code> if the file
+	 *         is too short
+	 * @throws IOException if the file could not be read
+	 */
+	private static boolean read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count= channel.read(buffer, position);
+			if (count < 0)
+				return false;
+			position+= count;
+		}
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * Compares two byte arrays lexicographically, treating the bytes as unsigned.
+	 *
+	 * @param b1 the first array
+	 * @param b2 the second array
+	 * @return a negative, zero or positive value as the first array is less, equal or greater than the second
+	 */
+	static int compare(byte[] b1, byte[] b2) {
+		int length= Math.min(b1.length, b2.length);
+		for (int i= 0; i < length; i++) {
+			int diff= (b1[i] & 0xff) - (b2[i] & 0xff);
+			if (diff != 0)
+				return diff;
+		}
+		return b1.length - b2.length;
+	}
+
+	private final ByteBuffer fBuffer;
+
+	private final int fBucketCount;
+
+	private final int fTableOffset;
+
+	private final int fDataOffset;
+
+	private CompiledSpellDictionary(ByteBuffer buffer, int bucketCount, int tableOffset, int dataOffset) {
+		fBuffer= buffer;
+		fBucketCount= bucketCount;
+		fTableOffset= tableOffset;
+		fDataOffset= dataOffset;
+	}
+
+	/**
+	 * Returns the number of hash buckets in this dictionary.
+	 *
+	 * @return the number of hash buckets
+	 */
+	public int getBucketCount() {
+		return fBucketCount;
+	}
+
+	/**
+	 * Tells whether this dictionary is empty.
+	 *
+	 * @return <code>true</code> if this dictionary contains no words
+	 */
+	public boolean isEmpty() {
+		return fBucketCount == 0;
+	}
+
+	/**
+	 * Returns the words with the given phonetic hash.
+	 * <p>
+	 * This method is thread-safe; it reads from a private duplicate of the mapped buffer.
+	 * </p>
+	 *
+	 * @param hash the UTF-8 encoded phonetic hash
+	 * @return the UTF-8 encoded words as <code>byte[]</code> if there is exactly one word,
+	 *         as <code>ArrayList&lt;byte[]&gt;</code> if there are several, or
+	 *         <code>null</code> if there is no word with that hash
+	 */
+	public Object getCandidates(byte[] hash) {
+		ByteBuffer buffer= fBuffer.duplicate();
+		int low= 0;
+		int high= fBucketCount - 1;
+		while (low <= high) {
+			int mid= (low + high) >>> 1;
+			int offset= fDataOffset + buffer.getInt(fTableOffset + 4 * mid);
+			int cmp= compareHash(buffer, offset, hash);
+			if (cmp < 0) {
+				low= mid + 1;
+			} else if (cmp > 0) {
+				high= mid - 1;
+			} else {
+				return readWords(buffer, offset + 2 + hash.length);
+			}
+		}
+		return null;
+	}
+
+	private static int compareHash(ByteBuffer buffer, int offset, byte[] hash) {
+		int hashLength= buffer.getShort(offset) & 0xffff;
+		int length= Math.min(hashLength, hash.length);
+		for (int i= 0; i < length; i++) {
+			int diff= (buffer.get(offset + 2 + i) & 0xff) - (hash[i] & 0xff);
+			if (diff != 0)
+				return diff;
+		}
+		return hashLength - hash.length;
+	}
+
+	private static Object readWords(ByteBuffer buffer, int offset) {
+		int count= buffer.getInt(offset);
+		buffer.position(offset + 4);
+		if (count == 1)
+			return readWord(buffer);
+
+		ArrayList<byte[]> words= new ArrayList<>(count);
+		for (int i= 0; i < count; i++)
+			words.add(readWord(buffer));
+		return words;
+	}
+
+	private static byte[] readWord(ByteBuffer buffer) {
+		byte[] word= new byte[buffer.getShort() & 0xffff];
+		buffer.get(word);
+		return word;
+	}
+}
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.typehierarchy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IRegion;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+
+/**
+ * Reference counted type hierarchies that are shared by all {@link TypeHierarchyLifeCycle}s with
+ * the same input elements.
+ * <p>
+ * Concurrent requests for the same input elements wait for a single computation. A shared
+ * hierarchy is marked stale when it changes. The first consumer that asks for a refresh computes a
+ * new hierarchy, which then replaces the stale one for all consumers that refresh later. A hierarchy
+ * handed out to a consumer is never modified by the service, so consumers that have not refreshed
+ * yet keep a consistent hierarchy. The shared hierarchy is released when its last consumer
+ * releases it.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.14
+ */
+public final class SharedTypeHierarchyService {
+
+	private static final class Key {
+
+		private final IJavaElement[] fElements;
+
+		private final boolean fIsSuperTypesOnly;
+
+		Key(IJavaElement[] elements, boolean isSuperTypesOnly) {
+			fElements= elements.clone();
+			fIsSuperTypesOnly= isSuperTypesOnly;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fIsSuperTypesOnly == other.fIsSuperTypesOnly && Arrays.equals(fElements, other.fElements);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(fElements) * 31 + (fIsSuperTypesOnly ? 1 : 0);
+		}
+	}
+
+	private static final class Entry implements ITypeHierarchyChangedListener {
+
+		private final Key fKey;
+
+		/** The number of consumers, guarded by the service's entry map */
+		private int fReferenceCount;
+
+		/**
+		 * The number of consumers of each hierarchy of this entry, guarded by the service's entry
+		 * map. Consumers that have not refreshed yet may still use a replaced hierarchy.
+		 */
+		private final Map<ITypeHierarchy, Integer> fConsumers= new HashMap<>(2);
+
+		/** The current hierarchy, only set while holding the lock of this entry */
+		private volatile ITypeHierarchy fHierarchy;
+
+		private volatile boolean fStale;
+
+		Entry(Key key) {
+			fKey= key;
+		}
+
+		@Override
+		public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+			fStale= true;
+		}
+
+		/**
+		 * Computes the hierarchy if there is none or the current one is stale. Must be called while
+		 * holding the lock of this entry.
+		 *
+		 * @param pm the progress monitor, or <code>null</code>
+		 * @return the current hierarchy
+		 * @throws JavaModelException if the hierarchy could not be computed
+		 * @throws OperationCanceledException if the computation has been canceled
+		 */
+		ITypeHierarchy update(IProgressMonitor pm) throws JavaModelException {
+			if (fHierarchy == null || fStale) {
+				ITypeHierarchy hierarchy= createTypeHierarchy(fKey.fElements, fKey.fIsSuperTypesOnly, pm);
+				if (pm != null && pm.isCanceled())
+					throw new OperationCanceledException();
+				if (fHierarchy != null)
+					fHierarchy.removeTypeHierarchyChangedListener(this);
+				hierarchy.addTypeHierarchyChangedListener(this);
+				fHierarchy= hierarchy;
+				fStale= false;
+			}
+			return fHierarchy;
+		}
+	}
+
+	private static final SharedTypeHierarchyService fgInstance= new SharedTypeHierarchyService();
+
+	/**
+	 * Returns the shared instance.
+	 *
+	 * @return the shared instance
+	 */
+	public static SharedTypeHierarchyService getDefault() {
+		return fgInstance;
+	}
+
+	/** The entries by their input elements, also guards the reference counts */
+	private final Map<Key, Entry> fEntries= new HashMap<>();
+
+	/** The entries by the hierarchies that consumers use, guarded by {@link #fEntries} */
+	private final Map<ITypeHierarchy, Entry> fEntriesByHierarchy= new HashMap<>();
+
+	private SharedTypeHierarchyService() {
+	}
+
+	/**
+	 * Returns the shared type hierarchy for the given input elements and increments its reference
+	 * count. The hierarchy is computed if it is not shared yet or stale; concurrent requests for
+	 * the same input elements wait for that computation. Every successful call must be balanced by
+	 * a call to {@link #release(ITypeHierarchy)}.
+	 *
+	 * @param elements the input elements
+	 * @param isSuperTypesOnly <code>true</code> for a super type hierarchy of a single type
+	 * @param pm the progress monitor, or <code>null</code>
+	 * @return the shared type hierarchy
+	 * @throws JavaModelException if the hierarchy could not be computed
+	 * @throws OperationCanceledException if the computation has been canceled
+	 */
+	public ITypeHierarchy acquire(IJavaElement[] elements, boolean isSuperTypesOnly, IProgressMonitor pm) throws JavaModelException {
+		Key key= new Key(elements, isSuperTypesOnly);
+		Entry entry;
+		synchronized (fEntries) {
+			entry= fEntries.get(key);
+			if (entry == null) {
+				entry= new Entry(key);
+				fEntries.put(key, entry);
+			}
+			entry.fReferenceCount++;
+		}
+
+		boolean success= false;
+		try {
+			ITypeHierarchy hierarchy;
+			synchronized (entry) {
+				hierarchy= entry.update(pm);
+			}
+			synchronized (fEntries) {
+				addConsumer(entry, hierarchy);
+			}
+			success= true;
+			return hierarchy;
+		} finally {
+			if (!success)
+				release(entry);
+		}
+	}
+
+	/**
+	 * Returns an up-to-date version of the given hierarchy. If the shared hierarchy has changed
+	 * since it was computed, a new hierarchy is computed once and returned to all consumers that
+	 * refresh. The given hierarchy is not modified. The returned hierarchy replaces the given one,
+	 * it must be passed to {@link #release(ITypeHierarchy)} instead of the given one.
+	 *
+	 * @param hierarchy the hierarchy
+	 * @param pm the progress monitor, or <code>null</code>
+	 * @return the refreshed hierarchy, or <code>hierarchy</code> if it is up-to-date
+	 * @throws JavaModelException if the hierarchy could not be refreshed
+	 * @throws OperationCanceledException if the refresh has been canceled
+	 */
+	public ITypeHierarchy refresh(ITypeHierarchy hierarchy, IProgressMonitor pm) throws JavaModelException {
+		Entry entry;
+		synchronized (fEntries) {
+			entry= fEntriesByHierarchy.get(hierarchy);
+		}
+		if (entry == null) {
+			hierarchy.refresh(pm);
+			return hierarchy;
+		}
+
+		ITypeHierarchy current;
+		synchronized (entry) {
+			current= entry.update(pm);
+		}
+		if (current != hierarchy) {
+			synchronized (fEntries) {
+				removeConsumer(entry, hierarchy);
+				addConsumer(entry, current);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Decrements the reference count of the given shared hierarchy and disposes it when it is no
+	 * longer used.
+	 *
+	 * @param hierarchy the hierarchy returned by
+	 *            {@link #acquire(IJavaElement[], boolean, IProgressMonitor)} or
+	 *            {@link #refresh(ITypeHierarchy, IProgressMonitor)}
+	 */
+	public void release(ITypeHierarchy hierarchy) {
+		Entry entry;
+		synchronized (fEntries) {
+			entry= fEntriesByHierarchy.get(hierarchy);
+			if (entry == null)
+				return;
+			removeConsumer(entry, hierarchy);
+		}
+		release(entry);
+	}
+
+	/**
+	 * Returns the number of consumers of the shared hierarchy that the given hierarchy belongs to.
+	 *
+	 * @param hierarchy a hierarchy returned by this service
+	 * @return the number of consumers, or 0 if the hierarchy is not shared
+	 */
+	public int getReferenceCount(ITypeHierarchy hierarchy) {
+		synchronized (fEntries) {
+			Entry entry= fEntriesByHierarchy.get(hierarchy);
+			return entry == null ? 0 : entry.fReferenceCount;
+		}
+	}
+
+	private void release(Entry entry) {
+		synchronized (fEntries) {
+			if (--entry.fReferenceCount > 0)
+				return;
+			fEntries.remove(entry.fKey);
+		}
+		synchronized (entry) {
+			if (entry.fHierarchy != null) {
+				entry.fHierarchy.removeTypeHierarchyChangedListener(entry);
+				entry.fHierarchy= null;
+			}
+		}
+	}
+
+	private void addConsumer(Entry entry, ITypeHierarchy hierarchy) {
+		Integer count= entry.fConsumers.get(hierarchy);
+		entry.fConsumers.put(hierarchy, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+		fEntriesByHierarchy.put(hierarchy, entry);
+	}
+
+	private void removeConsumer(Entry entry, ITypeHierarchy hierarchy) {
+		Integer count= entry.fConsumers.get(hierarchy);
+		if (count == null)
+			return;
+		if (count.intValue() > 1) {
+			entry.fConsumers.put(hierarchy, Integer.valueOf(count.intValue() - 1));
+		} else {
+			entry.fConsumers.remove(hierarchy);
+			fEntriesByHierarchy.remove(hierarchy);
+		}
+	}
+
+	private static ITypeHierarchy createTypeHierarchy(IJavaElement[] elements, boolean isSuperTypesOnly, IProgressMonitor pm) throws JavaModelException {
+		if (elements.length == 1 && elements[0].getElementType() == IJavaElement.TYPE) {
+			IType type= (IType)elements[0];
+			if (isSuperTypesOnly) {
+				return type.newSupertypeHierarchy(pm);
+			} else {
+				return type.newTypeHierarchy(pm);
+			}
+		} else {
+			IRegion region= JavaCore.newRegion();
+			for (int i= 0; i < elements.length; i++) {
+				if (elements[i].getElementType() == IJavaElement.JAVA_PROJECT) {
+					// for projects only add the contained source folders
+					IPackageFragmentRoot[] roots= ((IJavaProject)elements[i]).getPackageFragmentRoots();
+					for (int j= 0; j < roots.length; j++) {
+						if (!roots[j].isExternal()) {
+							region.add(roots[j]);
+						}
+					}
+				} else {
+					region.add(elements[i]);
+				}
+			}
+			return JavaCore.newTypeHierarchy(region, null, pm);
+		}
+	}
+}
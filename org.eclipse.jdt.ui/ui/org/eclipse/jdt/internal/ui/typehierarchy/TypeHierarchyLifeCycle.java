@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,10 +33,7 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IElementChangedListener;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaElementDelta;
-import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IOrdinaryClassFile;
-import org.eclipse.jdt.core.IPackageFragmentRoot;
-import org.eclipse.jdt.core.IRegion;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
@@ -49,7 +46,8 @@ import org.eclipse.jdt.internal.corext.util.Messages;
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 
 /**
- * Manages a type hierarchy, to keep it refreshed, and to allow it to be shared.
+ * Manages a type hierarchy, to keep it refreshed, and to allow it to be shared. Life cycles with
+ * the same input elements share their hierarchy through the {@link SharedTypeHierarchyService}.
  */
 public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IElementChangedListener {
 
@@ -118,6 +116,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		if (fHierarchy != null) {
 			fHierarchy.removeTypeHierarchyChangedListener(this);
 			JavaCore.removeElementChangedListener(this);
+			SharedTypeHierarchyService.getDefault().release(fHierarchy);
 			fHierarchy= null;
 			fInputElements= null;
 		}
@@ -292,34 +291,6 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 	}
 
-	private ITypeHierarchy createTypeHierarchy(IJavaElement[] elements, IProgressMonitor pm) throws JavaModelException {
-		if (elements.length == 1 && elements[0].getElementType() == IJavaElement.TYPE) {
-			IType type= (IType)elements[0];
-			if (fIsSuperTypesOnly) {
-				return type.newSupertypeHierarchy(pm);
-			} else {
-				return type.newTypeHierarchy(pm);
-			}
-		} else {
-			IRegion region= JavaCore.newRegion();
-			for (int i= 0; i < elements.length; i++) {
-				if (elements[i].getElementType() == IJavaElement.JAVA_PROJECT) {
-					// for projects only add the contained source folders
-					IPackageFragmentRoot[] roots= ((IJavaProject)elements[i]).getPackageFragmentRoots();
-					for (int j= 0; j < roots.length; j++) {
-						if (!roots[j].isExternal()) {
-							region.add(roots[j]);
-						}
-					}
-				} else {
-					region.add(elements[i]);
-				}
-			}
-			return JavaCore.newTypeHierarchy(region, null, pm);
-		}
-	}
-
-
 	public void doHierarchyRefresh(IJavaElement[] elements, IProgressMonitor pm) throws JavaModelException {
 		boolean hierachyCreationNeeded= (fHierarchy == null || !Arrays.equals(elements, fInputElements));
 		// to ensure the order of the two listeners always remove / add listeners on operations
@@ -328,16 +299,15 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			fHierarchy.removeTypeHierarchyChangedListener(this);
 			JavaCore.removeElementChangedListener(this);
 		}
+		SharedTypeHierarchyService service= SharedTypeHierarchyService.getDefault();
 		if (hierachyCreationNeeded) {
-			fHierarchy= createTypeHierarchy(elements, pm);
-			if (pm != null && pm.isCanceled()) {
-				throw new OperationCanceledException();
-			}
+			ITypeHierarchy hierarchy= service.acquire(elements, fIsSuperTypesOnly, pm);
+			if (fHierarchy != null)
+				service.release(fHierarchy);
+			fHierarchy= hierarchy;
 			fInputElements= elements;
 		} else {
-			fHierarchy.refresh(pm);
-			if (pm != null && pm.isCanceled())
-				throw new OperationCanceledException();
+			fHierarchy= service.refresh(fHierarchy, pm);
 		}
 		fHierarchy.addTypeHierarchyChangedListener(this);
 		JavaCore.addElementChangedListener(this);
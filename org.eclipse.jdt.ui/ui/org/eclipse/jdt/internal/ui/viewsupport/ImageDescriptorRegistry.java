@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,25 +54,30 @@ public class ImageDescriptorRegistry {
 		if (descriptor == null)
 			descriptor= ImageDescriptor.getMissingImageDescriptor();
 
-		Image result= fRegistry.get(descriptor);
-		if (result != null)
-			return result;
+		// content assist proposals may be created outside the UI thread, see ContentAssistProcessor
+		synchronized (fRegistry) {
+			Image result= fRegistry.get(descriptor);
+			if (result != null)
+				return result;
 
-		result= descriptor.createImage();
-		if (result != null)
-			fRegistry.put(descriptor, result);
-		return result;
+			result= descriptor.createImage();
+			if (result != null)
+				fRegistry.put(descriptor, result);
+			return result;
+		}
 	}
 
 	/**
 	 * Disposes all images managed by this registry.
 	 */
 	public void dispose() {
-		for (Iterator<Image> iter= fRegistry.values().iterator(); iter.hasNext(); ) {
-			Image image= iter.next();
-			image.dispose();
+		synchronized (fRegistry) {
+			for (Iterator<Image> iter= fRegistry.values().iterator(); iter.hasNext(); ) {
+				Image image= iter.next();
+				image.dispose();
+			}
+			fRegistry.clear();
 		}
-		fRegistry.clear();
 	}
 
 	private void hookDisplay() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -863,6 +863,18 @@ public class PreferenceConstants {
 	 */
 	public final static String EDITOR_CORRECTION_INDICATION= "JavaEditor.ShowTemporaryProblem"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that controls whether the quick fix and quick assist processors are
+	 * evaluated concurrently. All processors must be able to compute their proposals outside of
+	 * the UI thread.
+	 * <p>
+	 * Value is of type <code>Boolean</code>.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public final static String EDITOR_CORRECTION_PARALLEL_PROCESSORS= "JavaEditor.ParallelCorrectionProcessors"; //$NON-NLS-1$
+
 	/**
 	 * A named preference that controls whether the editor shows problem indicators in text (squiggly lines).
 	 * <p>
@@ -2577,6 +2589,19 @@ public class PreferenceConstants {
 	 */
 	public static final String EDITOR_SEMANTIC_HIGHLIGHTING_ENABLED_SUFFIX=".enabled"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that controls the document size from which on semantic highlighting
+	 * first highlights the visible part of the editor and then the rest of the document in the
+	 * background.
+	 * <p>
+	 * Value is of type <code>Integer</code>: the number of characters; <code>0</code> disables
+	 * visible-first highlighting.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public static final String EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD= "semanticHighlightingViewportThreshold"; //$NON-NLS-1$
+
 	/**
 	 * A named preference that controls disabling of the overwrite mode.
 	 * <p>
@@ -3132,6 +3157,17 @@ public class PreferenceConstants {
 	 */
 	public final static String CODEASSIST_FAVORITE_STATIC_MEMBERS= "content_assist_favorite_static_members"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that controls whether proposal categories whose computers do not require
+	 * the UI thread are computed concurrently.
+	 * <p>
+	 * Value is of type <code>Boolean</code>.
+	 * </p>
+	 *
+	 * @since 3.14
+	 */
+	public final static String CODEASSIST_PARALLEL_CATEGORIES= "content_assist_parallel_categories"; //$NON-NLS-1$
+
 
 	/**
 	 * A named preference that controls the behavior of the refactoring wizard for showing the error page.
@@ -3851,6 +3887,7 @@ public class PreferenceConstants {
 		store.setDefault(PreferenceConstants.EDITOR_ENCLOSING_BRACKETS, false);
 
 		store.setDefault(PreferenceConstants.EDITOR_CORRECTION_INDICATION, true);
+		store.setDefault(PreferenceConstants.EDITOR_CORRECTION_PARALLEL_PROCESSORS, false);
 		store.setDefault(PreferenceConstants.EDITOR_SYNC_OUTLINE_ON_CURSOR_MOVE, true);
 
 		store.setDefault(PreferenceConstants.EDITOR_EVALUTE_TEMPORARY_PROBLEMS, true);
@@ -3931,6 +3968,7 @@ public class PreferenceConstants {
 		store.setDefault(PreferenceConstants.CODEASSIST_LRU_HISTORY, ""); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_SORTER, "org.eclipse.jdt.ui.RelevanceSorter"); //$NON-NLS-1$
 		store.setDefault(PreferenceConstants.CODEASSIST_FAVORITE_STATIC_MEMBERS, ""); //$NON-NLS-1$
+		store.setDefault(PreferenceConstants.CODEASSIST_PARALLEL_CATEGORIES, false);
 
 		store.setDefault(PreferenceConstants.EDITOR_SUB_WORD_NAVIGATION, true);
 		store.setDefault(PreferenceConstants.EDITOR_SMART_PASTE, true);
@@ -4040,6 +4078,7 @@ public class PreferenceConstants {
 
 		// semantic highlighting
 		SemanticHighlightings.initDefaults(store);
+		store.setDefault(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_VIEWPORT_THRESHOLD, 200000);
 
 		// do more complicated stuff
 		NewJavaProjectPreferencePage.initDefaults(store);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,8 +37,8 @@ public class ContentAssistInvocationContext {
 	private final IDocument fDocument;
 	private final int fOffset;
 
-	/* cached additional info */
-	private CharSequence fPrefix;
+	/* cached additional info, may be computed by concurrent proposal categories */
+	private volatile CharSequence fPrefix;
 
 	/**
 	 * Equivalent to
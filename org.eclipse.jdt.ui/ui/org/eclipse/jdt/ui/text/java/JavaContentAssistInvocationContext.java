@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.text.java;
 
+import org.eclipse.swt.graphics.Point;
+
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jface.text.ITextViewer;
@@ -36,6 +38,12 @@ import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory.RHSHistory;
  * <p>
  * Clients may use but not subclass this class.
  * </p>
+ * <p>
+ * Since 3.14, a context can be shared by proposal categories that are computed concurrently. The
+ * lazily computed values are published under a private lock, which is not held while code
+ * completion runs. Two threads that ask for the same value at the same time may both compute it,
+ * in which case the first result is kept.
+ * </p>
  *
  * @since 3.2
  *
@@ -43,6 +51,9 @@ import org.eclipse.jdt.internal.ui.text.java.ContentAssistHistory.RHSHistory;
  */
 public class JavaContentAssistInvocationContext extends ContentAssistInvocationContext {
 	private final IEditorPart fEditor;
+	private final Point fSelectedRange;
+
+	private final Object fLock= new Object();
 
 	private IJavaProject fJavaProject;
 	private ICompilationUnit fCU= null;
@@ -68,6 +79,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		super(viewer, offset);
 		Assert.isNotNull(editor);
 		fEditor= editor;
+		fSelectedRange= viewer.getSelectedRange();
 	}
 
 	/**
@@ -80,6 +92,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		fCU= unit;
 		fCUComputed= true;
 		fEditor= null;
+		fSelectedRange= null;
 	}
 
 	/**
@@ -92,6 +105,19 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 		super();
 		fJavaProject= javaProject;
 		fEditor= null;
+		fSelectedRange= null;
+	}
+
+	/**
+	 * Returns the selected range of the viewer at the time this context was created. Unlike the
+	 * {@linkplain #getViewer() viewer}, the result can be used outside the UI thread.
+	 *
+	 * @return the selected range, with the offset in <code>x</code> and the length in
+	 *         <code>y</code>, or <code>null</code> if this context has no viewer
+	 * @since 3.14
+	 */
+	public Point getSelectedRange() {
+		return fSelectedRange == null ? null : new Point(fSelectedRange.x, fSelectedRange.y);
 	}
 
 	/**
@@ -101,17 +127,19 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the compilation unit that content assist is invoked in, possibly <code>null</code>
 	 */
 	public ICompilationUnit getCompilationUnit() {
-		if (!fCUComputed) {
-			fCUComputed= true;
-			if (fCollector != null)
-				fCU= fCollector.getCompilationUnit();
-			else {
-				IJavaElement je= EditorUtility.getEditorInputJavaElement(fEditor, false);
-				if (je instanceof ICompilationUnit)
-					fCU= (ICompilationUnit)je;
+		synchronized (fLock) {
+			if (!fCUComputed) {
+				fCUComputed= true;
+				if (fCollector != null)
+					fCU= fCollector.getCompilationUnit();
+				else {
+					IJavaElement je= EditorUtility.getEditorInputJavaElement(fEditor, false);
+					if (je instanceof ICompilationUnit)
+						fCU= (ICompilationUnit)je;
+				}
 			}
+			return fCU;
 		}
-		return fCU;
 	}
 
 	/**
@@ -136,17 +164,28 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the available keyword proposals
 	 */
 	public IJavaCompletionProposal[] getKeywordProposals() {
-		if (fKeywordProposals == null) {
-			if (fCollector != null && !fCollector.isIgnored(CompletionProposal.KEYWORD) && fCollector.getContext() != null) {
-				// use the existing collector if it exists, collects keywords, and has already been invoked
-				fKeywordProposals= fCollector.getKeywordCompletionProposals();
-			} else {
-				// otherwise, retrieve keywords ourselves
-				computeKeywordsAndContext();
+		CompletionProposalCollector collector;
+		synchronized (fLock) {
+			if (fKeywordProposals != null)
+				return fKeywordProposals;
+			collector= fCollector;
+		}
+
+		if (collector != null && !collector.isIgnored(CompletionProposal.KEYWORD) && collector.getContext() != null) {
+			// use the existing collector if it exists, collects keywords, and has already been invoked
+			IJavaCompletionProposal[] keywordProposals= collector.getKeywordCompletionProposals();
+			synchronized (fLock) {
+				if (fKeywordProposals == null)
+					fKeywordProposals= keywordProposals;
 			}
+		} else {
+			// otherwise, retrieve keywords ourselves
+			computeKeywordsAndContext();
 		}
 
-		return fKeywordProposals;
+		synchronized (fLock) {
+			return fKeywordProposals;
+		}
 	}
 
 	/**
@@ -161,19 +200,29 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the core completion context if available, <code>null</code> otherwise
 	 */
 	public CompletionContext getCoreContext() {
-		if (fCollector != null) {
-			CompletionContext context= fCollector.getContext();
+		CompletionProposalCollector collector;
+		synchronized (fLock) {
+			collector= fCollector;
+		}
+		if (collector != null) {
+			CompletionContext context= collector.getContext();
 			if (context != null) {
-				if (fCoreContext == null)
-					fCoreContext= context;
+				synchronized (fLock) {
+					if (fCoreContext == null)
+						fCoreContext= context;
+				}
 				return context;
 			}
 		}
 
-		if (fCoreContext == null)
-			computeKeywordsAndContext(); // Retrieve the context ourselves
-
-		return fCoreContext;
+		synchronized (fLock) {
+			if (fCoreContext != null)
+				return fCoreContext;
+		}
+		computeKeywordsAndContext(); // Retrieve the context ourselves
+		synchronized (fLock) {
+			return fCoreContext;
+		}
 	}
 
 	/**
@@ -200,19 +249,28 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the content assist type history for the expected type
 	 */
 	private RHSHistory getRHSHistory() {
-		if (fRHSHistory == null) {
-			CompletionContext context= getCoreContext();
-			if (context != null) {
-				char[][] expectedTypes= context.getExpectedTypesSignatures();
-				if (expectedTypes != null && expectedTypes.length > 0) {
-					String expected= SignatureUtil.stripSignatureToFQN(String.valueOf(expectedTypes[0]));
-					fRHSHistory= JavaPlugin.getDefault().getContentAssistHistory().getHistory(expected);
-				}
+		synchronized (fLock) {
+			if (fRHSHistory != null)
+				return fRHSHistory;
+		}
+
+		RHSHistory history= null;
+		CompletionContext context= getCoreContext();
+		if (context != null) {
+			char[][] expectedTypes= context.getExpectedTypesSignatures();
+			if (expectedTypes != null && expectedTypes.length > 0) {
+				String expected= SignatureUtil.stripSignatureToFQN(String.valueOf(expectedTypes[0]));
+				history= JavaPlugin.getDefault().getContentAssistHistory().getHistory(expected);
 			}
+		}
+		if (history == null)
+			history= JavaPlugin.getDefault().getContentAssistHistory().getHistory(null);
+
+		synchronized (fLock) {
 			if (fRHSHistory == null)
-				fRHSHistory= JavaPlugin.getDefault().getContentAssistHistory().getHistory(null);
+				fRHSHistory= history;
+			return fRHSHistory;
 		}
-		return fRHSHistory;
 	}
 
 	/**
@@ -226,7 +284,13 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return the expected type if any, <code>null</code> otherwise
 	 */
 	public IType getExpectedType() {
-		if (fType == null && getCompilationUnit() != null) {
+		synchronized (fLock) {
+			if (fType != null)
+				return fType;
+		}
+
+		IType type= null;
+		if (getCompilationUnit() != null) {
 			CompletionContext context= getCoreContext();
 			if (context != null) {
 				char[][] expectedTypes= context.getExpectedTypesSignatures();
@@ -234,7 +298,7 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 					IJavaProject project= getCompilationUnit().getJavaProject();
 					if (project != null) {
 						try {
-							fType= project.findType(SignatureUtil.stripSignatureToFQN(String.valueOf(expectedTypes[0])));
+							type= project.findType(SignatureUtil.stripSignatureToFQN(String.valueOf(expectedTypes[0])));
 						} catch (JavaModelException x) {
 							JavaPlugin.log(x);
 						}
@@ -242,7 +306,12 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 				}
 			}
 		}
-		return fType;
+
+		synchronized (fLock) {
+			if (fType == null)
+				fType= type;
+			return fType;
+		}
 	}
 
 	/**
@@ -251,14 +320,16 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @return a label provider that can be used to compute proposal labels
 	 */
 	public CompletionProposalLabelProvider getLabelProvider() {
-		if (fLabelProvider == null) {
-			if (fCollector != null)
-				fLabelProvider= fCollector.getLabelProvider();
-			else
-				fLabelProvider= new CompletionProposalLabelProvider();
-		}
+		synchronized (fLock) {
+			if (fLabelProvider == null) {
+				if (fCollector != null)
+					fLabelProvider= fCollector.getLabelProvider();
+				else
+					fLabelProvider= new CompletionProposalLabelProvider();
+			}
 
-		return fLabelProvider;
+			return fLabelProvider;
+		}
 	}
 
 	/**
@@ -273,21 +344,26 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 	 * @param collector the collector
 	 */
 	void setCollector(CompletionProposalCollector collector) {
-		fCollector= collector;
+		synchronized (fLock) {
+			fCollector= collector;
+		}
 	}
 
 	/**
 	 * Fallback to retrieve a core context and keyword proposals when no collector is available.
 	 * Runs code completion on the cu and collects keyword proposals. {@link #fKeywordProposals} is
-	 * non-<code>null</code> after this call.
+	 * non-<code>null</code> after this call. Code completion runs without holding the lock, the
+	 * results are only stored if no other thread has stored them yet.
 	 *
 	 * @since 3.3
 	 */
 	private void computeKeywordsAndContext() {
 		ICompilationUnit cu= getCompilationUnit();
 		if (cu == null) {
-			if (fKeywordProposals == null)
-				fKeywordProposals= new IJavaCompletionProposal[0];
+			synchronized (fLock) {
+				if (fKeywordProposals == null)
+					fKeywordProposals= new IJavaCompletionProposal[0];
+			}
 			return;
 		}
 
@@ -296,17 +372,21 @@ public class JavaContentAssistInvocationContext extends ContentAssistInvocationC
 
 		try {
 			cu.codeComplete(getInvocationOffset(), collector);
-			if (fCoreContext == null)
-				fCoreContext= collector.getContext();
-			if (fKeywordProposals == null)
-				fKeywordProposals= collector.getKeywordCompletionProposals();
-			if (fLabelProvider == null)
-				fLabelProvider= collector.getLabelProvider();
+			synchronized (fLock) {
+				if (fCoreContext == null)
+					fCoreContext= collector.getContext();
+				if (fKeywordProposals == null)
+					fKeywordProposals= collector.getKeywordCompletionProposals();
+				if (fLabelProvider == null)
+					fLabelProvider= collector.getLabelProvider();
+			}
 		} catch (JavaModelException x) {
 			if (!x.isDoesNotExist() || cu.getJavaProject() == null || cu.getJavaProject().isOnClasspath(cu))
 				JavaPlugin.log(x);
-			if (fKeywordProposals == null)
-				fKeywordProposals= new IJavaCompletionProposal[0];
+			synchronized (fLock) {
+				if (fKeywordProposals == null)
+					fKeywordProposals= new IJavaCompletionProposal[0];
+			}
 		}
 	}
 